@@ -26,6 +26,19 @@ package org.acplt.oncrpc;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * The abstract <code>OncRpcClient</code> class is the foundation for
@@ -251,7 +264,7 @@ import java.net.InetAddress;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public abstract class OncRpcClient {
+public abstract class OncRpcClient implements OncRpcClientMXBean {
 
     /**
      * Constructs an <code>OncRpcClient</code> object (the generic part). If
@@ -395,8 +408,8 @@ public abstract class OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void call(int procedureNumber,
-                                  XdrAble params, XdrAble result)
+    public void call(int procedureNumber,
+                     XdrAble params, XdrAble result)
         throws OncRpcException {
         //
         // Use the default version number as specified for this client.
@@ -419,6 +432,204 @@ public abstract class OncRpcClient {
                               XdrAble parameters, XdrAble result)
            throws OncRpcException;
 
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously, using
+     * the default version number and the timeout as set through
+     * {@link #setTimeout(int)}. See
+     * {@link #callAsync(int, int, XdrAble, Supplier, int)} for details.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(int procedureNumber,
+                                                          XdrAble params,
+                                                          Supplier<T> resultFactory) {
+        return callAsync(procedureNumber, version, params, resultFactory, timeout);
+    }
+
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously, using
+     * the default version number. See
+     * {@link #callAsync(int, int, XdrAble, Supplier, int)} for details.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     * @param timeout Timeout in milliseconds for this call. If zero, the
+     *   call does not time out.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(int procedureNumber,
+                                                          XdrAble params,
+                                                          Supplier<T> resultFactory,
+                                                          int timeout) {
+        return callAsync(procedureNumber, version, params, resultFactory, timeout);
+    }
+
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously. The
+     * call is sent and control immediately returns to the caller. When the
+     * reply arrives, the result is decoded into an object created by
+     * <code>resultFactory</code> and the returned future is completed with
+     * it. If the call fails, the future is completed exceptionally with an
+     * {@link OncRpcException}; if no reply arrives within the timeout,
+     * with an {@link OncRpcTimeoutException}. Cancelling the future
+     * abandons the call, so a late reply is silently discarded.
+     *
+     * <p>Timeouts of asynchronous calls are supervised by a single timer
+     * thread shared by all clients. In contrast to synchronous calls, an
+     * asynchronous call does not try to refresh credentials when the server
+     * rejects them.
+     *
+     * <p>This default implementation runs the synchronous
+     * {@link #call(int, int, XdrAble, XdrAble)} in a bounded thread pool
+     * shared by all clients, so it still occupies a thread while waiting
+     * for the reply, and calls wait in line when all threads of the pool
+     * are busy. A call which times out or is cancelled only completes its
+     * future, as a blocked synchronous call can not be interrupted. The
+     * TCP/IP-based and UDP/IP-based clients override this method to issue
+     * calls without blocking any thread, and the HTTP-based client aborts
+     * the call in progress.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     * @param timeout Timeout in milliseconds for this call. If zero, the
+     *   call does not time out.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(final int procedureNumber,
+                                                          final int versionNumber,
+                                                          final XdrAble params,
+                                                          Supplier<T> resultFactory,
+                                                          int timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final T result = resultFactory.get();
+        final Future task = getAsyncExecutor().submit(new Runnable() {
+            public void run() {
+                if ( future.isDone() ) {
+                    return;
+                }
+                try {
+                    call(procedureNumber, versionNumber, params, result);
+                    future.complete(result);
+                } catch ( OncRpcException e ) {
+                    future.completeExceptionally(e);
+                } catch ( RuntimeException e ) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        final ScheduledFuture timeoutTask = scheduleTimeout(future, timeout);
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable failure) {
+                if ( failure != null ) {
+                    task.cancel(true);
+                }
+                if ( timeoutTask != null ) {
+                    timeoutTask.cancel(false);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Makes sure that the given future of an asynchronous call completes
+     * with an {@link OncRpcTimeoutException} if it has not been completed
+     * otherwise within the timeout.
+     *
+     * @param future Future of an asynchronous call.
+     * @param timeout Timeout in milliseconds. If zero or negative, the
+     *   future does not time out.
+     *
+     * @return Timer task, which should be cancelled when the future
+     *   completes, or <code>null</code> if the future does not time out.
+     */
+    protected static ScheduledFuture scheduleTimeout(final CompletableFuture future,
+                                                     int timeout) {
+        if ( timeout <= 0 ) {
+            return null;
+        }
+        return schedule(new Runnable() {
+            public void run() {
+                future.completeExceptionally(new OncRpcTimeoutException());
+            }
+        }, timeout);
+    }
+
+    /**
+     * Schedules a task on the timer thread shared by all clients, which
+     * supervises timeouts and retransmissions of asynchronous calls. Tasks
+     * must finish quickly and must not block.
+     *
+     * @param task Task to run.
+     * @param delay Delay in milliseconds after which the task is run.
+     *
+     * @return Timer task, which can be used to cancel the task.
+     */
+    protected static ScheduledFuture schedule(Runnable task, long delay) {
+        return getTimer().schedule(task, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the timer shared by all clients, creating it when it is
+     * needed for the first time.
+     *
+     * @return Timer for asynchronous calls.
+     */
+    private static synchronized ScheduledThreadPoolExecutor getTimer() {
+        if ( timer == null ) {
+            timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ONC/RPC client timer thread");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    /**
+     * Returns the thread pool shared by all clients for asynchronous calls
+     * which have to be issued synchronously, creating it when it is needed
+     * for the first time. The pool runs at most sixteen calls at the same
+     * time and queues the others; idle threads go away after a minute.
+     *
+     * @return Thread pool for asynchronous calls.
+     */
+    protected static synchronized ExecutorService getAsyncExecutor() {
+        if ( asyncExecutor == null ) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                ASYNC_POOL_SIZE, ASYNC_POOL_SIZE, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "ONC/RPC client asynchronous call thread");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            pool.allowCoreThreadTimeOut(true);
+            asyncExecutor = pool;
+        }
+        return asyncExecutor;
+    }
+
     /**
      * Set the timout for remote procedure calls to wait for an answer from
      * the ONC/RPC server. If the timeout expires,
@@ -520,6 +731,139 @@ public abstract class OncRpcClient {
 	 */
 	public abstract String getCharacterEncoding();
 
+    /**
+     * Returns the number of calls issued but not completed yet, including
+     * asynchronous calls and calls waiting for other calls to complete.
+     *
+     * @return Number of outstanding calls.
+     */
+    public int getOutstandingCalls() {
+        return outstandingCalls.get();
+    }
+
+    /**
+     * Returns the number of calls issued so far.
+     *
+     * @return Number of calls.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Returns the number of calls which timed out.
+     *
+     * @return Number of timeouts.
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * Returns the number of calls retransmitted because no reply has
+     * been received in time.
+     *
+     * @return Number of retransmissions.
+     */
+    public long getRetransmissions() {
+        return retransmissions.get();
+    }
+
+    /**
+     * Installs an interceptor, which is notified about the phases of all
+     * calls issued afterwards. Interceptors are notified in the order they
+     * have been installed when a phase begins, and in reverse order when
+     * a phase ends.
+     *
+     * @param interceptor Interceptor to install.
+     */
+    public void addInterceptor(OncRpcClientInterceptor interceptor) {
+        synchronized ( interceptorLock ) {
+            OncRpcClientInterceptor [] chain = interceptors;
+            OncRpcClientInterceptor [] newChain =
+                new OncRpcClientInterceptor[chain.length + 1];
+            System.arraycopy(chain, 0, newChain, 0, chain.length);
+            newChain[chain.length] = interceptor;
+            interceptors = newChain;
+        }
+    }
+
+    /**
+     * Removes an interceptor. Calls already in progress will still notify
+     * the interceptor.
+     *
+     * @param interceptor Interceptor to remove.
+     */
+    public void removeInterceptor(OncRpcClientInterceptor interceptor) {
+        synchronized ( interceptorLock ) {
+            OncRpcClientInterceptor [] chain = interceptors;
+            int size = chain.length;
+            for ( int idx = 0; idx < size; ++idx ) {
+                if ( chain[idx] == interceptor ) {
+                    OncRpcClientInterceptor [] newChain =
+                        new OncRpcClientInterceptor[size - 1];
+                    System.arraycopy(chain, 0, newChain, 0, idx);
+                    System.arraycopy(chain, idx + 1, newChain, idx,
+                                     size - idx - 1);
+                    interceptors = newChain;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the interceptors currently installed.
+     *
+     * @return Interceptors, which might be an empty array.
+     */
+    public OncRpcClientInterceptor [] getInterceptors() {
+        return interceptors.clone();
+    }
+
+    /**
+     * Sets the factory creating the threads this client needs in addition
+     * to the threads issuing calls, like the thread receiving replies to
+     * asynchronous or multiplexed calls. The factory applies to threads
+     * started afterwards. Pass {@link OncRpcVirtualThreads#getThreadFactory}
+     * to use virtual threads, which makes keeping many clients open
+     * cheap.
+     *
+     * @param threadFactory Thread factory or <code>null</code> for ordinary
+     *   daemon threads.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns the factory creating the threads of this client.
+     *
+     * @return Thread factory or <code>null</code> if ordinary daemon threads
+     *   are created.
+     */
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * Creates a new daemon thread using the thread factory set, if any.
+     * The thread has not been started yet.
+     *
+     * @param task Task to run in the new thread.
+     * @param name Name of the new thread.
+     *
+     * @return New thread.
+     */
+    protected Thread newThread(Runnable task, String name) {
+        ThreadFactory factory = threadFactory;
+        Thread thread = (factory != null) ? factory.newThread(task)
+                                          : new Thread(task);
+        thread.setName(name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
     /**
      * Create next message identifier. Message identifiers are used to match
      * corresponding ONC/RPC call and reply messages.
@@ -528,6 +872,87 @@ public abstract class OncRpcClient {
         xid++;
     }
 
+    /**
+     * Counts a call which is about to be issued. Derived classes must
+     * call {@link #endCall} when the call has been completed.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     *
+     * @return Call to announce the phases of the call to, or
+     *   <code>null</code> if no interceptors are installed and the
+     *   flight recorder event for calls is disabled. In the latter case
+     *   nothing is allocated for the call.
+     */
+    protected OncRpcInterceptedCall beginCall(int procedureNumber,
+                                              int versionNumber) {
+        calls.incrementAndGet();
+        outstandingCalls.incrementAndGet();
+        OncRpcClientInterceptor [] chain = interceptors;
+        Object event = OncRpcFlightRecorder.startClientCall();
+        if ( (chain.length == 0) && (event == null) ) {
+            return null;
+        }
+        OncRpcInterceptedCall call =
+            new OncRpcInterceptedCall(chain, host, port, program,
+                                      versionNumber, procedureNumber);
+        call.event = event;
+        return call;
+    }
+
+    /**
+     * Counts a call which has been completed and ends its last phase.
+     *
+     * @param call Call as returned by {@link #beginCall(int, int)}.
+     * @param error Exception the call failed with or <code>null</code>.
+     */
+    protected void endCall(OncRpcInterceptedCall call, Exception error) {
+        outstandingCalls.decrementAndGet();
+        if ( error instanceof OncRpcTimeoutException ) {
+            timeouts.incrementAndGet();
+        }
+        if ( call != null ) {
+            call.end(error);
+        }
+    }
+
+    /**
+     * Counts an asynchronous call which is about to be issued, which is
+     * completed together with its future.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param future Future of the asynchronous call.
+     *
+     * @return Call to announce the phases of the call to, or
+     *   <code>null</code> if no interceptors are installed and the
+     *   flight recorder event for calls is disabled.
+     */
+    protected OncRpcInterceptedCall beginCall(int procedureNumber,
+                                              int versionNumber,
+                                              CompletableFuture future) {
+        final OncRpcInterceptedCall call = beginCall(procedureNumber,
+                                                     versionNumber);
+        future.whenComplete(new BiConsumer() {
+            public void accept(Object value, Object failure) {
+                endCall(call, failure instanceof Exception
+                              ? (Exception) failure : null);
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Counts a call which has been retransmitted.
+     *
+     * @param xid Transaction id of the call.
+     */
+    protected void retransmittedCall(int xid) {
+        retransmissions.incrementAndGet();
+        OncRpcFlightRecorder.retransmission(host.getHostAddress(), port,
+                                            program, xid);
+    }
+
     /**
      * Internet address of the host where the ONC/RPC server we want to
      * communicate with is located at.
@@ -568,6 +993,68 @@ public abstract class OncRpcClient {
      */
     protected OncRpcClientAuth auth;
 
+    /**
+     * Number of calls issued but not completed yet.
+     */
+    private AtomicInteger outstandingCalls = new AtomicInteger();
+
+    /**
+     * Number of calls issued so far.
+     */
+    private AtomicLong calls = new AtomicLong();
+
+    /**
+     * Number of calls which timed out.
+     */
+    private AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * Number of calls retransmitted.
+     */
+    private AtomicLong retransmissions = new AtomicLong();
+
+    /**
+     * Interceptors notified about the phases of calls. This is never
+     * <code>null</code>, so checking for an empty array is all it takes
+     * on the hot path.
+     */
+    private volatile OncRpcClientInterceptor [] interceptors = NO_INTERCEPTORS;
+
+    /**
+     * Lock serializing changes to the interceptors.
+     */
+    private Object interceptorLock = new Object();
+
+    /**
+     * Factory creating the threads of this client or <code>null</code> if
+     * ordinary daemon threads are created.
+     */
+    private volatile ThreadFactory threadFactory;
+
+    /**
+     * Shared empty set of interceptors.
+     */
+    private static final OncRpcClientInterceptor [] NO_INTERCEPTORS =
+        new OncRpcClientInterceptor[0];
+
+    /**
+     * Timer shared by all clients supervising timeouts and retransmissions
+     * of asynchronous calls.
+     */
+    private static ScheduledThreadPoolExecutor timer;
+
+    /**
+     * Thread pool shared by all clients for asynchronous calls which have
+     * to be issued synchronously.
+     */
+    private static ExecutorService asyncExecutor;
+
+    /**
+     * Maximum number of threads issuing asynchronous calls synchronously
+     * at the same time.
+     */
+    private static final int ASYNC_POOL_SIZE = 16;
+
 }
 
 // End of OncRpcClient.java
\ No newline at end of file
@@ -94,6 +94,11 @@ public class OncRpcClientAuthUnix extends OncRpcClientAuth {
      */
     protected void xdrEncodeCredVerf(XdrEncodingStream xdr)
               throws OncRpcException, IOException {
+        //
+        // Clients may refresh the credential from another thread, so look
+        // at the shorthand credential only once.
+        //
+        byte [] shorthandCred = this.shorthandCred;
         if ( shorthandCred == null ) {
             //
             // Encode the credential, which contains some unsecure information
@@ -175,12 +180,13 @@ public class OncRpcClientAuthUnix extends OncRpcClientAuth {
             // it does conform to the length restriction as set forth in
             // the ONC/RPC protocol.
             //
-            shorthandCred = xdr.xdrDecodeDynamicOpaque();
-            if ( shorthandCred.length >
+            byte [] cred = xdr.xdrDecodeDynamicOpaque();
+            if ( cred.length >
                    OncRpcAuthConstants.ONCRPC_MAX_AUTH_BYTES ) {
                 throw(new OncRpcAuthenticationException(
                               OncRpcAuthStatus.ONCRPC_AUTH_FAILED));
             }
+            shorthandCred = cred;
             break;
         default:
             //
@@ -0,0 +1,216 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event describing a call issued by an
+ * {@link OncRpcClient ONC/RPC client}, from issuing the call until the
+ * result has been decoded or the call failed. Next to the duration of the
+ * whole call, the time spent encoding the call, sending it, waiting for
+ * the reply and decoding the result are recorded separately.
+ *
+ * <p>The event is disabled by default and has to be enabled in the
+ * recording settings using its name <code>org.acplt.oncrpc.ClientCall</code>.
+ * As long as it is disabled, clients only check a flag per call.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+@Name("org.acplt.oncrpc.ClientCall")
+@Label("ONC/RPC Client Call")
+@Category({"ONC/RPC", "Client"})
+@Description("Call issued by an ONC/RPC client")
+@Enabled(false)
+@StackTrace(false)
+public class OncRpcClientCallEvent extends Event {
+
+    /**
+     * Returns a new event which has already begun, or <code>null</code> if
+     * the event is not enabled.
+     *
+     * @return Event or <code>null</code>.
+     */
+    static OncRpcClientCallEvent start() {
+        if ( !PROTOTYPE.isEnabled() ) {
+            return null;
+        }
+        OncRpcClientCallEvent event = new OncRpcClientCallEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Adds the time spent in a phase of the call. Phases might be repeated,
+     * so the times add up.
+     *
+     * @param phase Phase the call has left.
+     * @param nanos Time spent in the phase, in nanoseconds.
+     */
+    void phaseEnded(int phase, long nanos) {
+        switch ( phase ) {
+        case OncRpcClientInterceptor.ENCODE:
+            encodeTime += nanos;
+            break;
+        case OncRpcClientInterceptor.SEND:
+            sendTime += nanos;
+            break;
+        case OncRpcClientInterceptor.RECEIVE:
+            receiveTime += nanos;
+            break;
+        case OncRpcClientInterceptor.DECODE:
+            decodeTime += nanos;
+            break;
+        }
+    }
+
+    /**
+     * Ends the event and commits it, taking the details from the call.
+     *
+     * @param call Call which has ended.
+     * @param error Exception the call failed with or <code>null</code>.
+     */
+    void complete(OncRpcInterceptedCall call, Exception error) {
+        end();
+        if ( !shouldCommit() ) {
+            return;
+        }
+        if ( call.getHost() != null ) {
+            host = call.getHost().getHostAddress();
+        }
+        port = call.getPort();
+        program = call.getProgram();
+        version = call.getVersion();
+        procedure = call.getProcedure();
+        xid = call.getXid();
+        bytesSent = call.getBytesSent();
+        bytesReceived = call.getBytesReceived();
+        if ( error != null ) {
+            this.error = error.toString();
+        }
+        commit();
+    }
+
+    /**
+     * Address of the server called.
+     */
+    @Label("Host")
+    String host;
+
+    /**
+     * Port of the server called.
+     */
+    @Label("Port")
+    int port;
+
+    /**
+     * Program number of the remote procedure called.
+     */
+    @Label("Program")
+    int program;
+
+    /**
+     * Version number of the remote procedure called.
+     */
+    @Label("Version")
+    int version;
+
+    /**
+     * Procedure number of the remote procedure called.
+     */
+    @Label("Procedure")
+    int procedure;
+
+    /**
+     * Transaction id of the call.
+     */
+    @Label("Transaction Id")
+    int xid;
+
+    /**
+     * Time spent encoding the call.
+     */
+    @Label("Encode Time")
+    @Timespan
+    long encodeTime;
+
+    /**
+     * Time spent sending the call.
+     */
+    @Label("Send Time")
+    @Timespan
+    long sendTime;
+
+    /**
+     * Time spent waiting for and receiving the reply.
+     */
+    @Label("Receive Time")
+    @Timespan
+    long receiveTime;
+
+    /**
+     * Time spent decoding the result.
+     */
+    @Label("Decode Time")
+    @Timespan
+    long decodeTime;
+
+    /**
+     * Number of bytes of the encoded call.
+     */
+    @Label("Bytes Sent")
+    @DataAmount
+    int bytesSent;
+
+    /**
+     * Number of bytes of the reply.
+     */
+    @Label("Bytes Received")
+    @DataAmount
+    int bytesReceived;
+
+    /**
+     * Exception the call failed with, if any.
+     */
+    @Label("Error")
+    String error;
+
+    /**
+     * Instance used to check whether the event is enabled without having
+     * to create a new instance for every call.
+     */
+    private static final OncRpcClientCallEvent PROTOTYPE =
+        new OncRpcClientCallEvent();
+
+}
+
+// End of OncRpcClientCallEvent.java
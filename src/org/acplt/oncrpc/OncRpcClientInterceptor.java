@@ -0,0 +1,94 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+/**
+ * The <code>OncRpcClientInterceptor</code> interface is implemented by
+ * classes which want to be notified about the phases each call issued by
+ * an {@link OncRpcClient ONC/RPC client} goes through, for instance to
+ * measure, sample or tag calls without having to touch the client stubs.
+ * Interceptors are installed using {@link OncRpcClient#addInterceptor}.
+ *
+ * <p>A call goes through the phases {@link #ENCODE}, {@link #SEND},
+ * {@link #RECEIVE} and {@link #DECODE}. Phases may be repeated, as calls
+ * over UDP/IP are sent again when they are retransmitted and calls are
+ * encoded again when the credentials have been refreshed. Calls which do
+ * not expect a reply end after they have been sent. The end of a phase is
+ * always reported before the next phase begins, and the end of the last
+ * phase carries the exception the call failed with, if any.
+ *
+ * <p>All information about a call is available from the
+ * {@link OncRpcInterceptedCall} object handed to the interceptors, which
+ * stays the same throughout the call. Interceptors are invoked by the
+ * threads doing the real work, so they should return quickly. Runtime
+ * exceptions thrown by interceptors are ignored.
+ *
+ * @see OncRpcInterceptedCall
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcClientInterceptor {
+
+    /**
+     * Encoding the call message and the parameters.
+     */
+    public static final int ENCODE = 1;
+
+    /**
+     * Sending the encoded call to the server.
+     */
+    public static final int SEND = 2;
+
+    /**
+     * Waiting for and receiving the reply, including its reply header.
+     */
+    public static final int RECEIVE = 3;
+
+    /**
+     * Decoding the result of the call.
+     */
+    public static final int DECODE = 4;
+
+    /**
+     * Called when a call enters a new phase.
+     *
+     * @param call Call entering the phase.
+     * @param phase Phase entered, one of {@link #ENCODE}, {@link #SEND},
+     *   {@link #RECEIVE} or {@link #DECODE}.
+     */
+    public void beginPhase(OncRpcInterceptedCall call, int phase);
+
+    /**
+     * Called when a call leaves a phase.
+     *
+     * @param call Call leaving the phase.
+     * @param phase Phase left.
+     * @param error Exception the call failed with in this phase or
+     *   <code>null</code>.
+     */
+    public void endPhase(OncRpcInterceptedCall call, int phase, Exception error);
+
+}
+
+// End of OncRpcClientInterceptor.java
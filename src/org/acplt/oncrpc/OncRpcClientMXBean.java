@@ -0,0 +1,96 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+/**
+ * The <code>OncRpcClientMXBean</code> interface exposes the state of an
+ * {@link OncRpcClient ONC/RPC client} through JMX. Clients used by
+ * {@link OncRpcClientStub client stubs} are registered automatically with
+ * the platform MBean server as long as the stub is open.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcClientMXBean {
+
+    /**
+     * Returns the program number of the ONC/RPC server called.
+     *
+     * @return ONC/RPC program number.
+     */
+    public int getProgram();
+
+    /**
+     * Returns the version number of the ONC/RPC server called.
+     *
+     * @return ONC/RPC version number.
+     */
+    public int getVersion();
+
+    /**
+     * Returns the port number of the ONC/RPC server called.
+     *
+     * @return Port number.
+     */
+    public int getPort();
+
+    /**
+     * Returns the timeout for calls.
+     *
+     * @return Timeout in milliseconds.
+     */
+    public int getTimeout();
+
+    /**
+     * Returns the number of calls issued but not completed yet, including
+     * asynchronous calls and calls waiting for other calls to complete.
+     *
+     * @return Number of outstanding calls.
+     */
+    public int getOutstandingCalls();
+
+    /**
+     * Returns the number of calls issued so far.
+     *
+     * @return Number of calls.
+     */
+    public long getCalls();
+
+    /**
+     * Returns the number of calls which timed out.
+     *
+     * @return Number of timeouts.
+     */
+    public long getTimeouts();
+
+    /**
+     * Returns the number of calls retransmitted because no reply has
+     * been received in time. Only clients using UDP/IP retransmit calls.
+     *
+     * @return Number of retransmissions.
+     */
+    public long getRetransmissions();
+
+}
+
+// End of OncRpcClientMXBean.java
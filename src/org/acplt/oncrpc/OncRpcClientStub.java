@@ -26,6 +26,7 @@ package org.acplt.oncrpc;
 
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The abstract <code>OncRpcClientStub</code> class is the base class to
@@ -42,6 +43,14 @@ import java.net.InetAddress;
  * client = null; // Hint to the garbage (wo)man
  * </pre>
  *
+ * <p>The client proxy object can be registered with the platform MBean
+ * server as an {@link OncRpcClientMXBean} using {@link #registerMBean}.
+ * It is then named after the kind of client, the server called and a
+ * unique identifier, for instance
+ * <code>org.acplt.oncrpc:type=OncRpcTcpClient,host="127.0.0.1",port=111,program=100000,version=2,id=1</code>.
+ * As the MBean server keeps the client proxy object reachable, a registered
+ * client stub must be closed when it is not needed any longer.
+ *
  * @see OncRpcTcpClient
  * @see OncRpcUdpClient
  *
@@ -94,6 +103,7 @@ public abstract class OncRpcClientStub {
     public void close()
            throws OncRpcException {
         if ( client != null ) {
+            unregisterMBean();
             try {
                 client.close();
             } finally {
@@ -112,11 +122,63 @@ public abstract class OncRpcClientStub {
         return client;
     }
 
+    /**
+     * Registers the client proxy object with the platform MBean server,
+     * unless it has already been registered. If this fails, for instance
+     * because JMX is not available, then the client proxy object is just
+     * not registered.
+     *
+     * <p>The registration is removed when the client stub is closed. Until
+     * then the MBean server keeps the client proxy object, its connection
+     * and threads alive, so a registered client stub must always be closed.
+     */
+    public synchronized void registerMBean() {
+        if ( (client == null) || (mbeanName != null)
+             || !OncRpcManagement.isAvailable() ) {
+            return;
+        }
+        String type = client.getClass().getName();
+        type = type.substring(type.lastIndexOf('.') + 1);
+        StringBuffer name = new StringBuffer("org.acplt.oncrpc:type=");
+        name.append(type);
+        InetAddress host = client.getHost();
+        if ( host != null ) {
+            name.append(",host=").append(OncRpcManagement.quote(host.getHostAddress()));
+        }
+        name.append(",port=").append(client.getPort());
+        name.append(",program=").append(client.getProgram());
+        name.append(",version=").append(client.getVersion());
+        name.append(",id=").append(nextMBeanId.incrementAndGet());
+        mbeanName = OncRpcManagement.registerMBean(client, name.toString());
+    }
+
+    /**
+     * Unregisters the client proxy object from the platform MBean server,
+     * if it has been registered.
+     */
+    public synchronized void unregisterMBean() {
+        OncRpcManagement.unregisterMBean(mbeanName);
+        mbeanName = null;
+    }
+
     /**
      * The real ONC/RPC client which is responsible for handling a particular
      * IP protocol.
      */
     protected OncRpcClient client;
 
+    /**
+     * Name under which the client proxy object has been registered with
+     * the platform MBean server or <code>null</code> if it has not been
+     * registered.
+     */
+    private Object mbeanName;
+
+    /**
+     * Source of identifiers making the names of client proxy objects
+     * registered with the platform MBean server unique.
+     */
+    private static AtomicInteger nextMBeanId = new AtomicInteger();
+
 }
 // End of OncRpcClientStub.java
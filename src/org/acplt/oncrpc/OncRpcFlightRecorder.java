@@ -0,0 +1,124 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+/**
+ * Creates the flight recorder events of ONC/RPC clients. The events are
+ * JDK Flight Recorder events, which need the <code>jdk.jfr</code> module.
+ * As runtime images do not need to contain this module, clients never
+ * refer to the event classes directly, but only through this class, which
+ * loads them only if the module is present. Otherwise no events are
+ * recorded at all.
+ *
+ * <p>Events are handed out as plain objects, which must only be passed
+ * back to this class.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+final class OncRpcFlightRecorder {
+
+    /**
+     * Returns a new client call event which has already begun, or
+     * <code>null</code> if the event is not enabled or not available.
+     *
+     * @return Event or <code>null</code>.
+     */
+    static Object startClientCall() {
+        return AVAILABLE ? Events.startClientCall() : null;
+    }
+
+    /**
+     * Adds the time spent in a phase of a call to its client call event.
+     *
+     * @param event Event as returned by {@link #startClientCall}.
+     * @param phase Phase the call has left.
+     * @param nanos Time spent in the phase, in nanoseconds.
+     */
+    static void clientCallPhaseEnded(Object event, int phase, long nanos) {
+        Events.clientCallPhaseEnded(event, phase, nanos);
+    }
+
+    /**
+     * Ends a client call event and commits it.
+     *
+     * @param event Event as returned by {@link #startClientCall}.
+     * @param call Call which has ended.
+     * @param error Exception the call failed with or <code>null</code>.
+     */
+    static void completeClientCall(Object event, OncRpcInterceptedCall call,
+                                   Exception error) {
+        Events.completeClientCall(event, call, error);
+    }
+
+    /**
+     * Commits a retransmission event, if the event is enabled and
+     * available.
+     *
+     * @param host Host the call is sent to.
+     * @param port Port the call is sent to.
+     * @param program Program number of the remote procedure.
+     * @param xid Transaction id of the call.
+     */
+    static void retransmission(String host, int port, int program, int xid) {
+        if ( AVAILABLE ) {
+            Events.retransmission(host, port, program, xid);
+        }
+    }
+
+    /**
+     * Indicates whether the <code>jdk.jfr</code> module is present.
+     */
+    private static final boolean AVAILABLE =
+        ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /**
+     * Holder of all references to the event classes, which is only loaded
+     * when the <code>jdk.jfr</code> module is present.
+     */
+    private static final class Events {
+
+        static Object startClientCall() {
+            return OncRpcClientCallEvent.start();
+        }
+
+        static void clientCallPhaseEnded(Object event, int phase, long nanos) {
+            ((OncRpcClientCallEvent) event).phaseEnded(phase, nanos);
+        }
+
+        static void completeClientCall(Object event, OncRpcInterceptedCall call,
+                                       Exception error) {
+            ((OncRpcClientCallEvent) event).complete(call, error);
+        }
+
+        static void retransmission(String host, int port, int program, int xid) {
+            if ( OncRpcRetransmissionEvent.enabled() ) {
+                OncRpcRetransmissionEvent.emit(host, port, program, xid);
+            }
+        }
+
+    }
+
+}
+
+// End of OncRpcFlightRecorder.java
@@ -26,6 +26,11 @@ package org.acplt.oncrpc;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 import org.acplt.oncrpc.web.*;
 
 /**
@@ -307,8 +312,126 @@ public class OncRpcHttpClient extends OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void call(int procedureNumber, int versionNumber,
-                                  XdrAble params, XdrAble result)
+    public void call(int procedureNumber, int versionNumber,
+                     XdrAble params, XdrAble result)
+        throws OncRpcException {
+        OncRpcInterceptedCall intercepted = beginCall(procedureNumber,
+                                                      versionNumber);
+        Exception error = null;
+        try {
+            callLock.lock();
+            try {
+                doCall(procedureNumber, versionNumber, params, result,
+                       intercepted);
+            } finally {
+                callLock.unlock();
+            }
+        } catch ( OncRpcException e ) {
+            error = e;
+            throw(e);
+        } catch ( RuntimeException e ) {
+            error = e;
+            throw(e);
+        } finally {
+            endCall(intercepted, error);
+        }
+    }
+
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously. As HTTP
+     * connections only carry one call at a time, the call is issued
+     * synchronously by a thread of the bounded pool shared by all clients
+     * and waits in line with the other calls of this client. If the call
+     * times out or the future is cancelled while the call is in progress,
+     * then the HTTP connection is aborted, so the thread and the client are
+     * free again; the next call opens a new HTTP connection.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     * @param timeout Timeout in milliseconds for this call. If zero, the
+     *   call does not time out.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(final int procedureNumber,
+                                                          final int versionNumber,
+                                                          final XdrAble params,
+                                                          Supplier<T> resultFactory,
+                                                          int timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        final T result = resultFactory.get();
+        getAsyncExecutor().execute(new Runnable() {
+            public void run() {
+                callLock.lock();
+                try {
+                    synchronized ( abortLock ) {
+                        if ( future.isDone() ) {
+                            return;
+                        }
+                        abortableCall = future;
+                    }
+                    try {
+                        call(procedureNumber, versionNumber, params, result);
+                        future.complete(result);
+                    } catch ( OncRpcException e ) {
+                        future.completeExceptionally(e);
+                    } catch ( RuntimeException e ) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        synchronized ( abortLock ) {
+                            abortableCall = null;
+                            if ( callAborted ) {
+                                //
+                                // Clean up the connection aborted by the
+                                // timer, which only closed its socket.
+                                //
+                                callAborted = false;
+                                if ( httpClient != null ) {
+                                    httpClient.close();
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    callLock.unlock();
+                }
+            }
+        });
+        final ScheduledFuture timeoutTask = scheduleTimeout(future, timeout);
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable failure) {
+                if ( timeoutTask != null ) {
+                    timeoutTask.cancel(false);
+                }
+                if ( failure != null ) {
+                    synchronized ( abortLock ) {
+                        HttpClientConnection connection = httpClient;
+                        if ( (abortableCall == future) && (connection != null) ) {
+                            callAborted = true;
+                            connection.abort();
+                        }
+                    }
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Does the real work of calling a remote procedure, as counted by
+     * {@link #call(int, int, XdrAble, XdrAble)}. The caller must hold the
+     * call lock.
+     *
+     * @param intercepted Call to announce the phases of the call to, or
+     *   <code>null</code>.
+     */
+    private void doCall(int procedureNumber, int versionNumber,
+                        XdrAble params, XdrAble result,
+                        OncRpcInterceptedCall intercepted)
         throws OncRpcException {
         int responseCode;
     Refresh:
@@ -336,7 +459,27 @@ public class OncRpcHttpClient extends OncRpcClient {
             // Note that we use a connected stream, so we don't need to
             // specify a destination when beginning serialization.
             //
+            if ( intercepted != null ) {
+                intercepted.setXid(xid);
+                intercepted.beginPhase(OncRpcClientInterceptor.ENCODE);
+            }
             try {
+                //
+                // If the parameters can tell how large they are when
+                // encoded, then make sure the encoding buffer is large
+                // enough for the whole call, instead of failing with a
+                // buffer overflow when encoding the call.
+                //
+                if ( params instanceof XdrSizeable ) {
+                    int size = ((XdrSizeable) params).xdrSize(sendingXdr)
+                               + MAXIMUM_CALL_HEADER_SIZE;
+                    if ( size > sendingXdr.getXdrData().length ) {
+                        XdrBufferEncodingStream xdr =
+                            new XdrBufferEncodingStream(size);
+                        xdr.setCharacterEncoding(sendingXdr.getCharacterEncoding());
+                        sendingXdr = xdr;
+                    }
+                }
                 sendingXdr.beginEncoding(null, 0);
                 callHeader.xdrEncode(sendingXdr);
                 params.xdrEncode(sendingXdr);
@@ -394,6 +537,10 @@ public class OncRpcHttpClient extends OncRpcClient {
             // our ONC/RPC call record to the HTTP server and beyond it to
             // the destination ONC/RPC server.
             //
+            if ( intercepted != null ) {
+                intercepted.setBytesSent(sendingXdr.getXdrLength());
+                intercepted.beginPhase(OncRpcClientInterceptor.SEND);
+            }
             try {
                 httpClient.beginPostRequest(cgiHandlerPath,
                                             "text/plain", realLength);
@@ -463,6 +610,9 @@ public class OncRpcHttpClient extends OncRpcClient {
             //   an additional record layer would have been to be put between
             //   the HTTP post and the base64 encoding layer.
             //
+            if ( intercepted != null ) {
+                intercepted.beginPhase(OncRpcClientInterceptor.RECEIVE);
+            }
             try {
                 //
                 // In contrast to TCP/IP and UDP/IP-based transports, we
@@ -515,6 +665,9 @@ public class OncRpcHttpClient extends OncRpcClient {
                     // FIXME: CHECKME exception code
                     throw(new OncRpcException(OncRpcException.RPC_WRONGMESSAGE));
                 }
+                if ( intercepted != null ) {
+                    intercepted.beginPhase(OncRpcClientInterceptor.DECODE);
+                }
 
                 //
                 // Make sure that the call was accepted. In case of unsuccessful
@@ -652,6 +805,37 @@ public class OncRpcHttpClient extends OncRpcClient {
      */
     private XdrHttpDecodingStream receivingXdr;
 
+    /**
+     * Lock serializing calls, which share the XDR streams and the HTTP
+     * connection of this client.
+     */
+    private ReentrantLock callLock = new ReentrantLock();
+
+    /**
+     * Lock guarding <code>abortableCall</code> and <code>callAborted</code>.
+     */
+    private final Object abortLock = new Object();
+
+    /**
+     * Future of the asynchronous call currently in progress, which is
+     * aborted when the future completes before the reply has arrived.
+     */
+    private CompletableFuture abortableCall;
+
+    /**
+     * Indicates that the HTTP connection has been aborted and must be
+     * cleaned up once the call in progress returns.
+     */
+    private boolean callAborted;
+
+    /**
+     * Maximum size of an encoded ONC/RPC call header: six ints followed by
+     * the credential and the verifier, each with its flavor, length and up
+     * to the maximum number of bytes of authentication information.
+     */
+    private static final int MAXIMUM_CALL_HEADER_SIZE =
+        6 * 4 + 2 * (2 * 4 + OncRpcAuthConstants.ONCRPC_MAX_AUTH_BYTES);
+
 }
 
 // End of OncRpcHttpClient.java
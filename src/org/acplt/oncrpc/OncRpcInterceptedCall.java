@@ -0,0 +1,352 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+import java.net.InetAddress;
+
+/**
+ * Objects of class <code>OncRpcInterceptedCall</code> describe a call
+ * issued by an {@link OncRpcClient ONC/RPC client} to the
+ * {@link OncRpcClientInterceptor interceptors} installed in the client.
+ * The same object is handed to the interceptors throughout a call, so it
+ * can be used as a key to keep state per call. Alternatively a single
+ * object can be attached to the call.
+ *
+ * <p>Clients only create these objects if interceptors have been
+ * installed or the {@link OncRpcClientCallEvent flight recorder event}
+ * for calls is enabled. They announce the phases of a call using
+ * {@link #beginPhase}, while the call is ended by the client base class.
+ *
+ * @see OncRpcClientInterceptor
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcInterceptedCall {
+
+    /**
+     * Create a new call description.
+     *
+     * @param interceptors Interceptors to notify.
+     * @param host Host the call is sent to.
+     * @param port Port the call is sent to.
+     * @param program Program number of the remote procedure.
+     * @param version Version number of the remote procedure.
+     * @param procedure Procedure number of the remote procedure.
+     */
+    OncRpcInterceptedCall(OncRpcClientInterceptor [] interceptors,
+                          InetAddress host, int port,
+                          int program, int version, int procedure) {
+        this.interceptors = interceptors;
+        this.host = host;
+        this.port = port;
+        this.program = program;
+        this.version = version;
+        this.procedure = procedure;
+    }
+
+    /**
+     * Returns the host the call is sent to.
+     *
+     * @return Address of the host.
+     */
+    public InetAddress getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the port the call is sent to.
+     *
+     * @return Port number.
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Returns the program number of the remote procedure called.
+     *
+     * @return Program number.
+     */
+    public int getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns the version number of the remote procedure called.
+     *
+     * @return Version number.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the procedure number of the remote procedure called.
+     *
+     * @return Procedure number.
+     */
+    public int getProcedure() {
+        return procedure;
+    }
+
+    /**
+     * Returns the transaction id of the call. It is assigned before the
+     * call is encoded and changes when the call is encoded again.
+     *
+     * @return Transaction id.
+     */
+    public int getXid() {
+        return xid;
+    }
+
+    /**
+     * Sets the transaction id of the call.
+     *
+     * @param xid Transaction id.
+     */
+    public void setXid(int xid) {
+        this.xid = xid;
+    }
+
+    /**
+     * Returns the number of bytes of the encoded call, not counting any
+     * record marking. This is known after the call has been encoded.
+     *
+     * @return Number of bytes sent.
+     */
+    public int getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Sets the number of bytes of the encoded call.
+     *
+     * @param bytesSent Number of bytes sent.
+     */
+    public void setBytesSent(int bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    /**
+     * Returns the number of bytes of the reply, not counting any record
+     * marking. This is known when the reply is being decoded, except for
+     * TCP/IP clients, where it is only known when the call has ended, and
+     * HTTP tunnel clients, which do not report it at all.
+     *
+     * @return Number of bytes received.
+     */
+    public int getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Sets the number of bytes of the reply.
+     *
+     * @param bytesReceived Number of bytes received.
+     */
+    public void setBytesReceived(int bytesReceived) {
+        this.bytesReceived = bytesReceived;
+    }
+
+    /**
+     * Returns the phase the call currently is in.
+     *
+     * @return One of the phases defined by {@link OncRpcClientInterceptor}
+     *   or zero if the call has not started yet or has already ended.
+     */
+    public synchronized int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Returns the time when the current phase began, as returned by
+     * <code>System.nanoTime()</code>. Interceptors can use this in
+     * {@link OncRpcClientInterceptor#endPhase} to measure the phase.
+     *
+     * @return Time in nanoseconds.
+     */
+    public synchronized long getPhaseStartTime() {
+        return phaseStartTime;
+    }
+
+    /**
+     * Returns the object attached to this call.
+     *
+     * @return Attached object or <code>null</code>.
+     */
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    /**
+     * Attaches an object to this call, replacing any object attached
+     * before.
+     *
+     * @param attachment Object to attach or <code>null</code>.
+     */
+    public void setAttachment(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    /**
+     * Lets the call enter a new phase, ending the current phase first.
+     * When the reply is received by another thread than the one which sent
+     * the call, the reply might already be decoding before the sending
+     * thread gets to announce that it is waiting for the reply. For this
+     * reason entering {@link OncRpcClientInterceptor#SEND} or
+     * {@link OncRpcClientInterceptor#RECEIVE} is ignored while the reply
+     * is being decoded, and entering any phase is ignored after the call
+     * has ended.
+     *
+     * @param newPhase Phase to enter.
+     */
+    public synchronized void beginPhase(int newPhase) {
+        if ( ended
+             || ((phase == OncRpcClientInterceptor.DECODE)
+                 && ((newPhase == OncRpcClientInterceptor.SEND)
+                     || (newPhase == OncRpcClientInterceptor.RECEIVE))) ) {
+            return;
+        }
+        endPhase(null);
+        phase = newPhase;
+        phaseStartTime = System.nanoTime();
+        int size = interceptors.length;
+        for ( int idx = 0; idx < size; ++idx ) {
+            try {
+                interceptors[idx].beginPhase(this, newPhase);
+            } catch ( RuntimeException e ) {
+            }
+        }
+    }
+
+    /**
+     * Ends the call, reporting the end of the current phase.
+     *
+     * @param error Exception the call failed with or <code>null</code>.
+     */
+    synchronized void end(Exception error) {
+        endPhase(error);
+        ended = true;
+        if ( event != null ) {
+            OncRpcFlightRecorder.completeClientCall(event, this, error);
+        }
+    }
+
+    /**
+     * Ends the current phase, if any.
+     *
+     * @param error Exception the call failed with or <code>null</code>.
+     */
+    private void endPhase(Exception error) {
+        if ( phase == 0 ) {
+            return;
+        }
+        int oldPhase = phase;
+        phase = 0;
+        if ( event != null ) {
+            OncRpcFlightRecorder.clientCallPhaseEnded(event, oldPhase,
+                System.nanoTime() - phaseStartTime);
+        }
+        for ( int idx = interceptors.length - 1; idx >= 0; --idx ) {
+            try {
+                interceptors[idx].endPhase(this, oldPhase, error);
+            } catch ( RuntimeException e ) {
+            }
+        }
+    }
+
+    /**
+     * Interceptors to notify.
+     */
+    private OncRpcClientInterceptor [] interceptors;
+
+    /**
+     * Host the call is sent to.
+     */
+    private InetAddress host;
+
+    /**
+     * Port the call is sent to.
+     */
+    private int port;
+
+    /**
+     * Program number of the remote procedure.
+     */
+    private int program;
+
+    /**
+     * Version number of the remote procedure.
+     */
+    private int version;
+
+    /**
+     * Procedure number of the remote procedure.
+     */
+    private int procedure;
+
+    /**
+     * Transaction id of the call.
+     */
+    private volatile int xid;
+
+    /**
+     * Number of bytes of the encoded call.
+     */
+    private volatile int bytesSent;
+
+    /**
+     * Number of bytes of the reply.
+     */
+    private volatile int bytesReceived;
+
+    /**
+     * Phase the call is currently in or zero.
+     */
+    private int phase;
+
+    /**
+     * Time when the current phase began, in nanoseconds.
+     */
+    private long phaseStartTime;
+
+    /**
+     * Indicates that the call has ended.
+     */
+    private boolean ended;
+
+    /**
+     * Flight recorder event of the call or <code>null</code> if the event
+     * is not enabled, see {@link OncRpcFlightRecorder}.
+     */
+    Object event;
+
+    /**
+     * Object attached to the call.
+     */
+    private volatile Object attachment;
+
+}
+
+// End of OncRpcInterceptedCall.java
@@ -0,0 +1,132 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Registers client proxy objects with the platform MBean server. JMX
+ * needs the <code>java.management</code> module. As runtime images do not
+ * need to contain this module, the JMX classes are never referred to
+ * directly, but only through this class, which loads them only if the
+ * module is present. Otherwise nothing is registered at all.
+ *
+ * <p>Names of registered MBeans are handed out as plain objects, which
+ * must only be passed back to this class.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+final class OncRpcManagement {
+
+    /**
+     * Checks whether JMX is available.
+     *
+     * @return <code>true</code> if the <code>java.management</code> module
+     *   is present.
+     */
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Registers an MBean with the platform MBean server.
+     *
+     * @param mbean MBean to register.
+     * @param name Object name to register the MBean under.
+     *
+     * @return Name under which the MBean has been registered or
+     *   <code>null</code> if it could not be registered.
+     */
+    static Object registerMBean(Object mbean, String name) {
+        return AVAILABLE ? Jmx.registerMBean(mbean, name) : null;
+    }
+
+    /**
+     * Unregisters an MBean from the platform MBean server.
+     *
+     * @param name Name as returned by {@link #registerMBean} or
+     *   <code>null</code> if the MBean has not been registered.
+     */
+    static void unregisterMBean(Object name) {
+        if ( name != null ) {
+            Jmx.unregisterMBean(name);
+        }
+    }
+
+    /**
+     * Quotes a value for use in an object name. Must only be called if
+     * JMX is available.
+     *
+     * @param value Value to quote.
+     *
+     * @return Quoted value.
+     */
+    static String quote(String value) {
+        return Jmx.quote(value);
+    }
+
+    /**
+     * Indicates whether the <code>java.management</code> module is present.
+     */
+    private static final boolean AVAILABLE =
+        ModuleLayer.boot().findModule("java.management").isPresent();
+
+    /**
+     * Holder of all references to the JMX classes, which is only loaded
+     * when the <code>java.management</code> module is present.
+     */
+    private static final class Jmx {
+
+        static Object registerMBean(Object mbean, String name) {
+            try {
+                ObjectName objectName = new ObjectName(name);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(mbean,
+                                                                         objectName);
+                return objectName;
+            } catch ( JMException e ) {
+            } catch ( SecurityException e ) {
+            }
+            return null;
+        }
+
+        static void unregisterMBean(Object name) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    (ObjectName) name);
+            } catch ( JMException e ) {
+            } catch ( SecurityException e ) {
+            }
+        }
+
+        static String quote(String value) {
+            return ObjectName.quote(value);
+        }
+
+    }
+
+}
+
+// End of OncRpcManagement.java
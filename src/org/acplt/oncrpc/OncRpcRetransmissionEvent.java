@@ -0,0 +1,111 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event describing the retransmission of a call by an
+ * {@link OncRpcUdpClient ONC/RPC client} using UDP/IP, because no reply
+ * has been received in time.
+ *
+ * <p>The event is disabled by default and has to be enabled in the
+ * recording settings using its name
+ * <code>org.acplt.oncrpc.Retransmission</code>.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+@Name("org.acplt.oncrpc.Retransmission")
+@Label("ONC/RPC Retransmission")
+@Category({"ONC/RPC", "Client"})
+@Description("Call retransmitted by an ONC/RPC client")
+@Enabled(false)
+@StackTrace(false)
+public class OncRpcRetransmissionEvent extends Event {
+
+    /**
+     * Checks whether the event is enabled.
+     *
+     * @return <code>true</code> if the event is enabled.
+     */
+    static boolean enabled() {
+        return PROTOTYPE.isEnabled();
+    }
+
+    /**
+     * Commits an event for a call which is about to be retransmitted.
+     *
+     * @param host Host the call is sent to.
+     * @param port Port the call is sent to.
+     * @param program Program number of the remote procedure.
+     * @param xid Transaction id of the call.
+     */
+    static void emit(String host, int port, int program, int xid) {
+        OncRpcRetransmissionEvent event = new OncRpcRetransmissionEvent();
+        event.host = host;
+        event.port = port;
+        event.program = program;
+        event.xid = xid;
+        event.commit();
+    }
+
+    /**
+     * Address of the server called.
+     */
+    @Label("Host")
+    String host;
+
+    /**
+     * Port of the server called.
+     */
+    @Label("Port")
+    int port;
+
+    /**
+     * Program number of the remote procedure called.
+     */
+    @Label("Program")
+    int program;
+
+    /**
+     * Transaction id of the call.
+     */
+    @Label("Transaction Id")
+    int xid;
+
+    /**
+     * Instance used to check whether the event is enabled.
+     */
+    private static final OncRpcRetransmissionEvent PROTOTYPE =
+        new OncRpcRetransmissionEvent();
+
+}
+
+// End of OncRpcRetransmissionEvent.java
@@ -28,6 +28,16 @@ import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * ONC/RPC client which communicates with ONC/RPC servers over the network
@@ -212,12 +222,22 @@ public class OncRpcTcpClient extends OncRpcClient {
             }
             socket = null;
         }
-        if ( sendingXdr != null ) {
-            try {
-                sendingXdr.close();
-            } catch ( IOException e ) {
+        sendLock.lock();
+        try {
+            if ( sendingXdr != null ) {
+                //
+                // Nobody else encodes while we hold the send lock, so the
+                // buffer can safely be handed back.
+                //
+                sendingXdr.releaseBuffer();
+                try {
+                    sendingXdr.close();
+                } catch ( IOException e ) {
+                }
+                sendingXdr = null;
             }
-            sendingXdr = null;
+        } finally {
+            sendLock.unlock();
         }
         if ( receivingXdr != null ) {
             try {
@@ -231,6 +251,19 @@ public class OncRpcTcpClient extends OncRpcClient {
     /**
      * Calls a remote procedure on an ONC/RPC server.
      *
+     * <p>This method can safely be called from several threads at the same
+     * time. The calls of all threads are then multiplexed over the single
+     * TCP/IP connection to the ONC/RPC server: every thread sends its call
+     * as soon as the connection is free for sending, and a reader thread
+     * hands each reply over to the thread waiting for it, as identified by
+     * the reply's transaction id. Replies therefore can be received in
+     * any order.
+     *
+     * <p>If the connection fails, then all pending calls fail, and so do
+     * all calls issued later on. The client then has to be closed and
+     * created anew. A failure of the result's decoder only fails the call
+     * it belongs to.
+     *
      * <p>Please note that while this method supports call batching by
      * setting the communication timeout to zero
      * (<code>setTimeout(0)</code>) you should better use
@@ -245,161 +278,499 @@ public class OncRpcTcpClient extends OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void call(int procedureNumber, int versionNumber,
-                                  XdrAble params, XdrAble result)
+    public void call(int procedureNumber, int versionNumber,
+                     XdrAble params, XdrAble result)
+        throws OncRpcException {
+        OncRpcInterceptedCall intercepted = beginCall(procedureNumber,
+                                                      versionNumber);
+        Exception error = null;
+        try {
+            doCall(procedureNumber, versionNumber, params, result,
+                   intercepted);
+        } catch ( OncRpcException e ) {
+            error = e;
+            throw(e);
+        } catch ( RuntimeException e ) {
+            error = e;
+            throw(e);
+        } finally {
+            endCall(intercepted, error);
+        }
+    }
+
+    /**
+     * Does the real work of calling a remote procedure, as counted by
+     * {@link #call(int, int, XdrAble, XdrAble)}.
+     *
+     * @param intercepted Call to announce the phases of the call to, or
+     *   <code>null</code>.
+     */
+    private void doCall(int procedureNumber, int versionNumber,
+                        XdrAble params, XdrAble result,
+                        OncRpcInterceptedCall intercepted)
         throws OncRpcException {
     Refresh:
         for ( int refreshesLeft = 1; refreshesLeft >= 0;
               --refreshesLeft ) {
             //
+            // Send the call to the server and, if it is not part of a
+            // batch, wait for the reader thread to hand over the reply.
+            //
+            int myTimeout = timeout;
+            PendingCall pending = sendCall(procedureNumber, versionNumber,
+                                           params, result,
+                                           myTimeout != 0, myTimeout != 0,
+                                           null, intercepted);
+            if ( pending == null ) {
+                return;
+            }
+            awaitReply(pending, myTimeout);
+            if ( pending.exception != null ) {
+                throw(pending.exception);
+            }
+            //
+            // Make sure that the call was accepted. In case of unsuccessful
+            // calls, throw an exception, if it's not an authentication
+            // exception. In that case try to refresh the credential first.
+            //
+            OncRpcClientReplyMessage replyHeader = pending.replyHeader;
+            if ( !replyHeader.successfullyAccepted() ) {
+                //
+                // Check whether there was an authentication
+                // problem. In this case first try to refresh the
+                // credentials.
+                //
+                if ( (refreshesLeft > 0)
+                     && (replyHeader.replyStatus
+                         == OncRpcReplyStatus.ONCRPC_MSG_DENIED)
+                     && (replyHeader.rejectStatus
+                         == OncRpcRejectStatus.ONCRPC_AUTH_ERROR)
+                     && (auth != null)
+                     && refreshCred() ) {
+                    continue Refresh;
+                }
+                //
+                // Nope. No chance. This gets tough.
+                //
+                throw(replyHeader.newException());
+            }
+            return;
+        } // for ( refreshesLeft )
+    }
+
+    /**
+     * Sends a call to the ONC/RPC server. If a reply is expected, then the
+     * call is entered into the table of pending calls before it is sent, so
+     * the reader thread can not miss the reply.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param params The parameters of the procedure to call.
+     * @param result The object receiving the result of the procedure call.
+     * @param expectReply <code>true</code> if a reply is expected.
+     * @param flush <code>true</code> if the call should be sent immediately,
+     *   <code>false</code> if the call is part of a batch.
+     * @param future Future to complete when the reply has been received, or
+     *   <code>null</code> for synchronous calls.
+     * @param intercepted Call to announce the phases of the call to, or
+     *   <code>null</code>.
+     *
+     * @return Pending call waiting for the reply or <code>null</code> if no
+     *   reply is expected.
+     *
+     * @throws OncRpcException if the call could not be sent.
+     */
+    private PendingCall sendCall(int procedureNumber, int versionNumber,
+                                 XdrAble params, XdrAble result,
+                                 boolean expectReply, boolean flush,
+                                 CompletableFuture future,
+                                 OncRpcInterceptedCall intercepted)
+            throws OncRpcException {
+        PendingCall pending = null;
+        sendLock.lock();
+        try {
+            XdrTcpEncodingStream xdr = sendingXdr;
+            if ( xdr == null ) {
+                throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                          "client has been closed"));
+            }
+            //
             // First, build the ONC/RPC call header. Then put the sending
             // stream into a known state and encode the parameters to be
             // sent. Finally tell the encoding stream to send all its data
-            // to the server. Then wait for an answer, receive it and decode
-            // it. So that's the bottom line of what we do right here.
+            // to the server. Note that we use a connected stream, so we
+            // don't need to specify a destination when beginning
+            // serialization.
             //
             nextXid();
-
             OncRpcClientCallMessage callHeader =
                 new OncRpcClientCallMessage(xid,
                                             program,
                                             versionNumber, procedureNumber,
                                             auth);
-            OncRpcClientReplyMessage replyHeader =
-                new OncRpcClientReplyMessage(auth);
-
-            //
-            // Send call message to server. If we receive an IOException,
-            // then we'll throw the appropriate ONC/RPC (client) exception.
-            // Note that we use a connected stream, so we don't need to
-            // specify a destination when beginning serialization.
-            //
+            if ( expectReply ) {
+                pending = new PendingCall(xid, result);
+                pending.future = future;
+                pending.intercepted = intercepted;
+                addPendingCall(pending);
+            }
             try {
-                socket.setSoTimeout(transmissionTimeout);
-                sendingXdr.beginEncoding(null, 0);
-                callHeader.xdrEncode(sendingXdr);
-                params.xdrEncode(sendingXdr);
-                if ( timeout != 0 ) {
-                    sendingXdr.endEncoding();
-                } else {
-                    sendingXdr.endEncoding(false);
+                long bytesSent = 0;
+                if ( intercepted != null ) {
+                    intercepted.setXid(xid);
+                    intercepted.beginPhase(OncRpcClientInterceptor.ENCODE);
+                    bytesSent = xdr.getBytesSent();
+                }
+                xdr.beginEncoding(null, 0);
+                authLock.lock();
+                try {
+                    callHeader.xdrEncode(xdr);
+                } finally {
+                    authLock.unlock();
+                }
+                params.xdrEncode(xdr);
+                if ( intercepted != null ) {
+                    intercepted.beginPhase(OncRpcClientInterceptor.SEND);
+                }
+                xdr.endEncoding(flush);
+                if ( intercepted != null ) {
+                    intercepted.setBytesSent((int) (xdr.getBytesSent() - bytesSent));
+                    if ( expectReply ) {
+                        intercepted.beginPhase(OncRpcClientInterceptor.RECEIVE);
+                    }
                 }
             } catch ( IOException e ) {
+                if ( pending != null ) {
+                    removePendingCall(pending);
+                }
                 throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
                                           e.getLocalizedMessage()));
+            } catch ( OncRpcException e ) {
+                if ( pending != null ) {
+                    removePendingCall(pending);
+                }
+                throw(e);
             }
+        } finally {
+            sendLock.unlock();
+        }
+        return pending;
+    }
 
-            //
-            // Receive reply message from server -- at least try to do so...
-            // In case of batched calls we don't need no stinkin' answer, so
-            // we can do other, more interesting things.
-            //
-            if ( timeout == 0 ) {
-                return;
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously. The call
+     * is sent over the connection shared with synchronous calls, and the
+     * reader thread completes the returned future when the reply arrives.
+     * Note that dependent actions of the future which are not registered
+     * using one of the <code>...Async</code> methods run in the reader
+     * thread, so they should not block.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     * @param timeout Timeout in milliseconds for this call. If zero, the
+     *   call does not time out.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(int procedureNumber,
+                                                          int versionNumber,
+                                                          XdrAble params,
+                                                          Supplier<T> resultFactory,
+                                                          int timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        OncRpcInterceptedCall intercepted = beginCall(procedureNumber,
+                                                      versionNumber,
+                                                      future);
+        final PendingCall pending;
+        try {
+            pending = sendCall(procedureNumber, versionNumber,
+                               params, resultFactory.get(),
+                               true, true, future, intercepted);
+        } catch ( OncRpcException e ) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        //
+        // If the call times out or is cancelled, then remove it from the
+        // table of pending calls, so the reader thread will discard a late
+        // reply.
+        //
+        final ScheduledFuture timeoutTask = scheduleTimeout(future, timeout);
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable failure) {
+                if ( failure != null ) {
+                    removePendingCall(pending);
+                }
+                if ( timeoutTask != null ) {
+                    timeoutTask.cancel(false);
+                }
             }
+        });
+        return future;
+    }
 
+    /**
+     * Waits for the reader thread to receive the reply for a pending call.
+     *
+     * @param pending Pending call waiting for its reply.
+     * @param timeout Timeout in milliseconds.
+     *
+     * @throws OncRpcTimeoutException if no reply has been received in time.
+     * @throws OncRpcException if the waiting thread was interrupted.
+     */
+    private void awaitReply(PendingCall pending, int timeout)
+            throws OncRpcException {
+        boolean interrupted = false;
+        try {
+            pending.done.await(timeout, TimeUnit.MILLISECONDS);
+        } catch ( InterruptedException e ) {
+            interrupted = true;
+        }
+        if ( pending.completed ) {
+            return;
+        }
+        //
+        // If we can still remove the call from the table of pending calls,
+        // then the reader thread will never touch it. Otherwise the reader
+        // thread is currently busy decoding the reply into the result
+        // object, so we have to wait for it to finish.
+        //
+        if ( removePendingCall(pending) ) {
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+                throw(new OncRpcException(OncRpcException.RPC_FAILED,
+                                          "call has been interrupted"));
+            }
+            throw(new OncRpcTimeoutException());
+        }
+        while ( !pending.completed ) {
             try {
+                pending.done.await();
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Enters a call into the table of pending calls and makes sure that the
+     * reader thread is running.
+     *
+     * @param pending Pending call waiting for its reply.
+     *
+     * @throws OncRpcException if the connection has already failed.
+     */
+    private void addPendingCall(PendingCall pending)
+            throws OncRpcException {
+        synchronized ( pendingCalls ) {
+            if ( readerFailure != null ) {
+                throw(new OncRpcException(readerFailure.getReason(),
+                                          readerFailure.getMessage()));
+            }
+            pendingCalls.put(Integer.valueOf(pending.xid), pending);
+            if ( readerThread == null ) {
+                readerThread = newThread(new Runnable() {
+                    public void run() {
+                        readReplies();
+                    }
+                }, "TCP client reply reader thread");
+                readerThread.start();
+            }
+        }
+    }
+
+    /**
+     * Removes a call from the table of pending calls.
+     *
+     * @param pending Pending call to remove.
+     *
+     * @return <code>true</code> if the call was still pending,
+     *   <code>false</code> if the reader thread has already taken over.
+     */
+    private boolean removePendingCall(PendingCall pending) {
+        synchronized ( pendingCalls ) {
+            return pendingCalls.remove(Integer.valueOf(pending.xid)) != null;
+        }
+    }
+
+    /**
+     * The reader thread's workhorse receiving replies and handing them over
+     * to the pending calls they belong to. Replies for which no call is
+     * pending (any longer) are silently discarded. When the connection
+     * fails, all pending calls fail too.
+     */
+    private void readReplies() {
+        Socket mySocket = socket;
+        XdrTcpDecodingStream xdr = receivingXdr;
+        PendingCall pending = null;
+        try {
+            if ( (mySocket == null) || (xdr == null) ) {
+                throw(new IOException("client has been closed"));
+            }
+            for ( ;; ) {
+                pending = null;
+                long bytesReceived = xdr.getBytesReceived();
+                mySocket.setSoTimeout(0);
+                xdr.beginDecoding();
+                mySocket.setSoTimeout(transmissionTimeout);
                 //
-                // Keep receiving until we get the matching reply.
+                // First, pull off the reply message header of the
+                // XDR stream. The message id comes first, so even if
+                // decoding the header fails later on, we know which call
+                // to report the problem to.
                 //
-                while ( true ) {
-                    socket.setSoTimeout(timeout);
-                    receivingXdr.beginDecoding();
-                    socket.setSoTimeout(transmissionTimeout);
-                    //
-                    // First, pull off the reply message header of the
-                    // XDR stream. In case we also received a verifier
-                    // from the server and this verifier was invalid, broken
-                    // or tampered with, we will get an
-                    // OncRpcAuthenticationException right here, which will
-                    // propagate up to the caller. If the server reported
-                    // an authentication problem itself, then this will
-                    // be handled as any other rejected ONC/RPC call.
-                    //
-                    try {
-                    	replyHeader.xdrDecode(receivingXdr);
-                    } catch ( OncRpcException e ) {
-                    	//
-                    	// ** SF bug #1262106 **
-                    	//
-                    	// We ran into some sort of trouble. Usually this will have
-                    	// been a buffer underflow. Whatever, end the decoding process
-                    	// and ensure this way that the next call has a chance to start
-                    	// from a clean state.
-                    	//
-                    	receivingXdr.endDecoding();
-                    	throw(e);
+                OncRpcClientReplyMessage replyHeader =
+                    new OncRpcClientReplyMessage(auth);
+                OncRpcException headerException = null;
+                authLock.lock();
+                try {
+                    replyHeader.xdrDecode(xdr);
+                } catch ( OncRpcException e ) {
+                    headerException = e;
+                } finally {
+                    authLock.unlock();
+                }
+                synchronized ( pendingCalls ) {
+                    pending = (PendingCall) pendingCalls.remove(
+                        Integer.valueOf(replyHeader.messageId));
+                }
+                if ( pending != null ) {
+                    if ( pending.intercepted != null ) {
+                        pending.intercepted.beginPhase(
+                            OncRpcClientInterceptor.DECODE);
                     }
-                    //
-                    // Only deserialize the result, if the reply matches the
-                    // call. Otherwise skip this record.
-                    //
-                    if ( replyHeader.messageId == callHeader.messageId ) {
-                        break;
+                    pending.replyHeader = replyHeader;
+                    if ( headerException != null ) {
+                        pending.exception = headerException;
+                    } else if ( replyHeader.successfullyAccepted() ) {
+                        try {
+                            pending.result.xdrDecode(xdr);
+                        } catch ( OncRpcException e ) {
+                            pending.exception = e;
+                        } catch ( RuntimeException e ) {
+                            //
+                            // A broken result decoder only fails its own
+                            // call, as endDecoding() skips the rest of the
+                            // reply anyway.
+                            //
+                            pending.exception = new OncRpcException(
+                                OncRpcException.RPC_CANTDECODERES,
+                                e.toString());
+                        }
                     }
-                    receivingXdr.endDecoding();
                 }
                 //
-                // Make sure that the call was accepted. In case of unsuccessful
-                // calls, throw an exception, if it's not an authentication
-                // exception. In that case try to refresh the credential first.
+                // Free pending resources of buffer and hand the reply over
+                // to the waiting caller.
                 //
-                if ( !replyHeader.successfullyAccepted() ) {
-                    receivingXdr.endDecoding();
-                    //
-                    // Check whether there was an authentication
-                    // problem. In this case first try to refresh the
-                    // credentials.
-                    //
-                    if ( (refreshesLeft > 0)
-                         && (replyHeader.replyStatus
-                             == OncRpcReplyStatus.ONCRPC_MSG_DENIED)
-                         && (replyHeader.rejectStatus
-                             == OncRpcRejectStatus.ONCRPC_AUTH_ERROR)
-                         && (auth != null)
-                         && auth.canRefreshCred() ) {
-                        continue Refresh;
+                xdr.endDecoding();
+                if ( pending != null ) {
+                    if ( pending.intercepted != null ) {
+                        pending.intercepted.setBytesReceived(
+                            (int) (xdr.getBytesReceived() - bytesReceived));
                     }
-                    //
-                    // Nope. No chance. This gets tough.
-                    //
-                    throw(replyHeader.newException());
-                }
-                try {
-                	result.xdrDecode(receivingXdr);
-                } catch ( OncRpcException e ) {
-                	//
-                	// ** SF bug #1262106 **
-                	//
-                	// We ran into some sort of trouble. Usually this will have
-                	// been a buffer underflow. Whatever, end the decoding process
-                	// and ensure this way that the next call has a chance to start
-                	// from a clean state.
-                	//
-                	receivingXdr.endDecoding();
-                	throw(e);
+                    pending.complete();
                 }
-                //
-                // Free pending resources of buffer and exit the call loop,
-                // returning the reply to the caller through the result
-                // object.
-                //
-                receivingXdr.endDecoding();
-                return;
-            } catch ( InterruptedIOException e ) {
-                //
-                // In case our time run out, we throw an exception.
-                //
-                throw(new OncRpcTimeoutException());
+            }
+        } catch ( OncRpcException e ) {
+            failConnection(mySocket, pending, e);
+        } catch ( IOException e ) {
+            failConnection(mySocket, pending,
+                new OncRpcException(OncRpcException.RPC_CANTRECV,
+                                    e.getLocalizedMessage()));
+        } catch ( RuntimeException e ) {
+            //
+            // Either the streams have been torn down underneath our feet
+            // while closing the client, or something really went wrong.
+            //
+            failConnection(mySocket, pending,
+                new OncRpcException(OncRpcException.RPC_CANTRECV,
+                                    (socket == null) ? "client has been closed"
+                                                     : e.toString()));
+        } finally {
+            //
+            // Only the reader thread decodes replies, so it hands back the
+            // buffer of a reply left unfinished.
+            //
+            if ( xdr != null ) {
+                xdr.releaseBuffer();
+            }
+        }
+    }
+
+    /**
+     * Gives up the connection after the reader thread failed. The socket is
+     * closed, so the server notices, and all pending calls fail. Calls
+     * issued afterwards will fail immediately, so the client has to be
+     * closed and created anew.
+     *
+     * @param mySocket Socket of the connection or <code>null</code>.
+     * @param current Call currently being received by the reader thread or
+     *   <code>null</code>.
+     * @param reason Exception describing the failure.
+     */
+    private void failConnection(Socket mySocket, PendingCall current,
+                                OncRpcException reason) {
+        if ( mySocket != null ) {
+            try {
+                mySocket.close();
             } catch ( IOException e ) {
-                //
-                // Argh. Trouble with the transport. Seems like we can't
-                // receive data. Gosh. Go away!
-                //
-                throw(new OncRpcException(OncRpcException.RPC_CANTRECV,
-                                          e.getLocalizedMessage()));
             }
-        } // for ( refreshesLeft )
+        }
+        failPendingCalls(current, reason);
+    }
+
+    /**
+     * Refreshes the credential after the server rejected it. Credentials
+     * are encoded by the calling threads and verifiers are decoded by the
+     * reader thread, so the refresh must not interfere with them.
+     *
+     * @return <code>true</code> if the credential has been refreshed.
+     */
+    private boolean refreshCred() {
+        authLock.lock();
+        try {
+            return auth.canRefreshCred();
+        } finally {
+            authLock.unlock();
+        }
+    }
+
+    /**
+     * Fails all pending calls after the connection has failed. Calls
+     * issued afterwards will fail immediately.
+     *
+     * @param current Call currently being received by the reader thread or
+     *   <code>null</code>.
+     * @param reason Exception describing the failure.
+     */
+    private void failPendingCalls(PendingCall current, OncRpcException reason) {
+        Vector failed = new Vector();
+        synchronized ( pendingCalls ) {
+            readerFailure = reason;
+            Enumeration e = pendingCalls.elements();
+            while ( e.hasMoreElements() ) {
+                failed.addElement(e.nextElement());
+            }
+            pendingCalls.clear();
+        }
+        if ( (current != null) && !current.completed ) {
+            failed.addElement(current);
+        }
+        int size = failed.size();
+        for ( int idx = 0; idx < size; ++idx ) {
+            PendingCall pending = (PendingCall) failed.elementAt(idx);
+            pending.exception = new OncRpcException(reason.getReason(),
+                                                    reason.getMessage());
+            pending.complete();
+        }
     }
 
     /**
@@ -434,40 +805,16 @@ public class OncRpcTcpClient extends OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void batchCall(int procedureNumber,
-                                       XdrAble params,
-                                       boolean flush)
+    public void batchCall(int procedureNumber,
+                          XdrAble params,
+                          boolean flush)
         throws OncRpcException {
         //
-        // First, build the ONC/RPC call header. Then put the sending
-        // stream into a known state and encode the parameters to be
-        // sent. Finally tell the encoding stream to send all its data
-        // to the server. We don't then need to wait for an answer. And
-        // we don't need to take care of credential refreshes either.
-        //
-        nextXid();
-
-        OncRpcClientCallMessage callHeader =
-            new OncRpcClientCallMessage(xid,
-                                        program, version, procedureNumber,
-                                        auth);
-
+        // Send the call without waiting for an answer. And we don't need
+        // to take care of credential refreshes either.
         //
-        // Send call message to server. If we receive an IOException,
-        // then we'll throw the appropriate ONC/RPC (client) exception.
-        // Note that we use a connected stream, so we don't need to
-        // specify a destination when beginning serialization.
-        //
-        try {
-            socket.setSoTimeout(transmissionTimeout);
-            sendingXdr.beginEncoding(null, 0);
-            callHeader.xdrEncode(sendingXdr);
-            params.xdrEncode(sendingXdr);
-            sendingXdr.endEncoding(flush);
-        } catch ( IOException e ) {
-            throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
-                                      e.getLocalizedMessage()));
-        }
+        sendCall(procedureNumber, version, params, null, false, flush,
+                 null, null);
     }
 
     /**
@@ -562,6 +909,120 @@ public class OncRpcTcpClient extends OncRpcClient {
      */
     protected int transmissionTimeout = 30000;
 
+    /**
+     * Lock guarding the sending XDR stream, so calls from several threads
+     * are sent one after the other. This is not a monitor, so threads
+     * blocked while sending do not pin their carriers when running on
+     * virtual threads.
+     */
+    private ReentrantLock sendLock = new ReentrantLock();
+
+    /**
+     * Lock guarding the authentication object, which is used by the calling
+     * threads when encoding credentials and refreshing them, as well as by
+     * the reader thread when decoding verifiers.
+     */
+    private ReentrantLock authLock = new ReentrantLock();
+
+    /**
+     * Table of calls waiting for their replies, indexed by transaction id.
+     */
+    private Hashtable pendingCalls = new Hashtable();
+
+    /**
+     * Thread receiving replies and handing them over to pending calls. The
+     * thread is started when the first call expecting a reply is sent.
+     */
+    private Thread readerThread;
+
+    /**
+     * Reason why the reader thread failed or <code>null</code> as long as
+     * the connection works.
+     */
+    private OncRpcException readerFailure;
+
+    /**
+     * Instances of class <code>PendingCall</code> represent calls waiting
+     * for their replies to be received by the reader thread.
+     */
+    private static class PendingCall {
+
+        /**
+         * Create a new pending call.
+         *
+         * @param xid Transaction id of the call.
+         * @param result Object receiving the result of the call.
+         */
+        public PendingCall(int xid, XdrAble result) {
+            this.xid = xid;
+            this.result = result;
+        }
+
+        /**
+         * Marks this call as completed and wakes up the waiting caller. For
+         * asynchronous calls the future is completed instead.
+         */
+        public void complete() {
+            completed = true;
+            done.countDown();
+            if ( future != null ) {
+                if ( exception != null ) {
+                    future.completeExceptionally(exception);
+                } else if ( !replyHeader.successfullyAccepted() ) {
+                    future.completeExceptionally(replyHeader.newException());
+                } else {
+                    future.complete(result);
+                }
+            }
+        }
+
+        /**
+         * Transaction id of the call.
+         */
+        public int xid;
+
+        /**
+         * Object receiving the result of the call.
+         */
+        public XdrAble result;
+
+        /**
+         * Header of the reply received.
+         */
+        public OncRpcClientReplyMessage replyHeader;
+
+        /**
+         * Exception to report to the caller or <code>null</code> if the
+         * reply has been received successfully.
+         */
+        public OncRpcException exception;
+
+        /**
+         * Indicates whether the reply has been received or the call has
+         * failed otherwise.
+         */
+        public volatile boolean completed;
+
+        /**
+         * Latch released when the call has been completed, which the
+         * caller waits for.
+         */
+        public CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Future of an asynchronous call or <code>null</code> for
+         * synchronous calls.
+         */
+        public CompletableFuture future;
+
+        /**
+         * Call to announce the phases of the call to, or <code>null</code>
+         * if no interceptors are installed.
+         */
+        public OncRpcInterceptedCall intercepted;
+
+    }
+
 }
 
 // End of OncRpcTcpClient.java
\ No newline at end of file
@@ -27,7 +27,16 @@ package org.acplt.oncrpc;
 import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.net.InetAddress;
+import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * ONC/RPC client which communicates with ONC/RPC servers over the network
@@ -104,6 +113,7 @@ public class OncRpcUdpClient extends OncRpcClient {
         if ( bufferSize < 1024 ) {
             bufferSize = 1024;
         }
+        this.bufferSize = bufferSize;
         socket = new DatagramSocket();
         socketHelper = new OncRpcUdpSocketHelper(socket);
         if ( socketHelper.getSendBufferSize() < bufferSize ) {
@@ -156,6 +166,16 @@ public class OncRpcUdpClient extends OncRpcClient {
             }
             receivingXdr = null;
         }
+        //
+        // Closing the socket for asynchronous calls makes the receiver
+        // thread fail all pending asynchronous calls.
+        //
+        synchronized ( asyncCalls ) {
+            if ( asyncSocket != null ) {
+                asyncSocket.close();
+            }
+            asyncClosed = true;
+        }
     }
 
     /**
@@ -177,8 +197,42 @@ public class OncRpcUdpClient extends OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void call(int procedureNumber, int versionNumber,
-                                  XdrAble params, XdrAble result)
+    public void call(int procedureNumber, int versionNumber,
+                     XdrAble params, XdrAble result)
+        throws OncRpcException {
+        OncRpcInterceptedCall intercepted = beginCall(procedureNumber,
+                                                      versionNumber);
+        Exception error = null;
+        try {
+            callLock.lock();
+            try {
+                doCall(procedureNumber, versionNumber, params, result,
+                       intercepted);
+            } finally {
+                callLock.unlock();
+            }
+        } catch ( OncRpcException e ) {
+            error = e;
+            throw(e);
+        } catch ( RuntimeException e ) {
+            error = e;
+            throw(e);
+        } finally {
+            endCall(intercepted, error);
+        }
+    }
+
+    /**
+     * Does the real work of calling a remote procedure, as counted by
+     * {@link #call(int, int, XdrAble, XdrAble)}. The caller must hold the
+     * call lock.
+     *
+     * @param intercepted Call to announce the phases of the call to, or
+     *   <code>null</code>.
+     */
+    private void doCall(int procedureNumber, int versionNumber,
+                        XdrAble params, XdrAble result,
+                        OncRpcInterceptedCall intercepted)
         throws OncRpcException {
     Refresh:
         for ( int refreshesLeft = 1; refreshesLeft >= 0;
@@ -206,7 +260,31 @@ public class OncRpcUdpClient extends OncRpcClient {
                 new OncRpcClientReplyMessage(auth);
 
             long stopTime = System.currentTimeMillis() + timeout;
-            int resendTimeout = retransmissionTimeout;
+            int resendTimeout = retransmissionMode == OncRpcUdpRetransmissionMode.ADAPTIVE
+                                ? getAdaptiveRetransmissionTimeout()
+                                : retransmissionTimeout;
+            //
+            // The call is encoded only once. In case of retransmissions the
+            // very same datagram is sent again.
+            //
+            DatagramPacket packet;
+            if ( intercepted != null ) {
+                intercepted.setXid(xid);
+                intercepted.beginPhase(OncRpcClientInterceptor.ENCODE);
+            }
+            try {
+                sendingXdr.beginEncoding(host, port);
+                callHeader.xdrEncode(sendingXdr);
+                params.xdrEncode(sendingXdr);
+                packet = new DatagramPacket(sendingXdr.getXdrData(),
+                                            sendingXdr.getXdrLength(),
+                                            host, port);
+            } catch ( IOException e ) {
+                throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                          e.getLocalizedMessage()));
+            }
+            long sendTime = System.nanoTime();
+            boolean retransmitted = false;
             //
             // Now enter the great loop where we send calls out to the server
             // and then sit there waiting for a reply. If none comes, we first
@@ -217,16 +295,20 @@ public class OncRpcUdpClient extends OncRpcClient {
             // any more, in order to be in line with the SUNRPC implementations.
             //
             do {
+                if ( retransmitted ) {
+                    retransmittedCall(xid);
+                }
+                if ( intercepted != null ) {
+                    intercepted.setBytesSent(packet.getLength());
+                    intercepted.beginPhase(OncRpcClientInterceptor.SEND);
+                }
                 try {
                     //
                     // Send call message to server. Remember that we've already
                     // "connected" the datagram socket, so java.net knows whom
                     // to send the datagram packets.
                     //
-                    sendingXdr.beginEncoding(host, port);
-                    callHeader.xdrEncode(sendingXdr);
-                    params.xdrEncode(sendingXdr);
-                    sendingXdr.endEncoding();
+                    socket.send(packet);
                 } catch ( IOException e ) {
                     throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
                                               e.getLocalizedMessage()));
@@ -244,6 +326,9 @@ public class OncRpcUdpClient extends OncRpcClient {
                 //
                 // Wait for an answer to arrive...
                 //
+                if ( intercepted != null ) {
+                    intercepted.beginPhase(OncRpcClientInterceptor.RECEIVE);
+                }
                 for ( ;; ) {
                     try {
                         int currentTimeout = (int)(stopTime - System.currentTimeMillis());
@@ -300,6 +385,12 @@ public class OncRpcUdpClient extends OncRpcClient {
                             // an exception.
                             //
                             if ( replyHeader.messageId == callHeader.messageId ) {
+                                if ( intercepted != null ) {
+                                    intercepted.setBytesReceived(
+                                        receivingXdr.getXdrLength());
+                                    intercepted.beginPhase(
+                                        OncRpcClientInterceptor.DECODE);
+                                }
                                 if ( !replyHeader.successfullyAccepted() ) {
                                     receivingXdr.endDecoding();
                                     //
@@ -349,9 +440,14 @@ public class OncRpcUdpClient extends OncRpcClient {
                                 //
                                 // Free pending resources of buffer and exit the call loop,
                                 // returning the reply to the caller through the result
-                                // object.
+                                // object. As we can't tell which transmission a reply to
+                                // a retransmitted call belongs to, only replies to calls
+                                // sent once are used to measure the round trip time.
                                 //
                                 receivingXdr.endDecoding();
+                                if ( !retransmitted ) {
+                                    updateRoundTripTime(System.nanoTime() - sendTime);
+                                }
                                 return;
                             } else {
                                 //
@@ -441,7 +537,10 @@ public class OncRpcUdpClient extends OncRpcClient {
                 //
                 if ( retransmissionMode == OncRpcUdpRetransmissionMode.EXPONENTIAL ) {
                     resendTimeout *= 2;
+                } else if ( retransmissionMode == OncRpcUdpRetransmissionMode.ADAPTIVE ) {
+                    resendTimeout = backOff(resendTimeout);
                 }
+                retransmitted = true;
             } while ( System.currentTimeMillis() < stopTime );
             //
             // That's it -- this shity server does not talk to us. Now, due to
@@ -487,9 +586,26 @@ public class OncRpcUdpClient extends OncRpcClient {
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      */
-    public synchronized void broadcastCall(int procedureNumber,
-                                           XdrAble params, XdrAble result,
-                                           OncRpcBroadcastListener listener)
+    public void broadcastCall(int procedureNumber,
+                              XdrAble params, XdrAble result,
+                              OncRpcBroadcastListener listener)
+        throws OncRpcException {
+        callLock.lock();
+        try {
+            doBroadcastCall(procedureNumber, params, result, listener);
+        } finally {
+            callLock.unlock();
+        }
+    }
+
+    /**
+     * Does the real work of broadcasting a remote procedure call, as
+     * described for {@link #broadcastCall}. The caller must hold the call
+     * lock.
+     */
+    private void doBroadcastCall(int procedureNumber,
+                                 XdrAble params, XdrAble result,
+                                 OncRpcBroadcastListener listener)
         throws OncRpcException {
         //
         // First, build the ONC/RPC call header. Then put the sending
@@ -616,12 +732,296 @@ public class OncRpcUdpClient extends OncRpcClient {
         return;
     }
 
+    /**
+     * Calls a remote procedure on an ONC/RPC server asynchronously.
+     * Asynchronous calls use their own datagram socket, which is created
+     * together with a receiver thread when the first asynchronous call is
+     * issued. The call is encoded only once and the same datagram is then
+     * retransmitted according to the retransmission mode and timeout set,
+     * until either a reply arrives or the call times out. Retransmissions
+     * are handled by the timer thread shared by all clients, so no thread
+     * is blocked while waiting for the reply.
+     *
+     * <p>Note that dependent actions of the future which are not registered
+     * using one of the <code>...Async</code> methods run in the receiver
+     * thread, so they should not block.
+     *
+     * @param procedureNumber Procedure number of the procedure to call.
+     * @param versionNumber Protocol version number.
+     * @param params The parameters of the procedure to call, contained
+     *   in an object which implements the {@link XdrAble} interface.
+     * @param resultFactory Creates the object receiving the result of the
+     *   procedure call.
+     * @param timeout Timeout in milliseconds for this call. If zero, the
+     *   call does not time out but is retransmitted until the future is
+     *   cancelled.
+     *
+     * @return Future completed with the result of the procedure call.
+     */
+    public <T extends XdrAble> CompletableFuture<T> callAsync(int procedureNumber,
+                                                          int versionNumber,
+                                                          XdrAble params,
+                                                          Supplier<T> resultFactory,
+                                                          int timeout) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        OncRpcInterceptedCall intercepted = beginCall(procedureNumber,
+                                                      versionNumber,
+                                                      future);
+        final AsyncCall call;
+        try {
+            DatagramSocket mySocket = getAsyncSocket();
+            //
+            // Encode the call only once into a datagram of its own, which is
+            // then kept for retransmissions.
+            //
+            XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(bufferSize);
+            xdr.setCharacterEncoding(getCharacterEncoding());
+            int callXid;
+            synchronized ( asyncCalls ) {
+                callXid = ++asyncXid;
+            }
+            if ( intercepted != null ) {
+                intercepted.setXid(callXid);
+                intercepted.beginPhase(OncRpcClientInterceptor.ENCODE);
+            }
+            OncRpcClientCallMessage callHeader =
+                new OncRpcClientCallMessage(callXid,
+                                            program, versionNumber,
+                                            procedureNumber,
+                                            auth);
+            xdr.beginEncoding(host, port);
+            callHeader.xdrEncode(xdr);
+            params.xdrEncode(xdr);
+            xdr.endEncoding();
+            call = new AsyncCall(callXid, resultFactory.get(), future,
+                                 new DatagramPacket(xdr.getXdrData(),
+                                                    xdr.getXdrLength(),
+                                                    host, port),
+                                 timeout);
+            call.intercepted = intercepted;
+            synchronized ( asyncCalls ) {
+                asyncCalls.put(Integer.valueOf(callXid), call);
+            }
+            try {
+                if ( intercepted != null ) {
+                    intercepted.setBytesSent(xdr.getXdrLength());
+                    intercepted.beginPhase(OncRpcClientInterceptor.SEND);
+                }
+                mySocket.send(call.packet);
+            } catch ( IOException e ) {
+                removeAsyncCall(call);
+                throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                          e.getLocalizedMessage()));
+            }
+            if ( intercepted != null ) {
+                intercepted.beginPhase(OncRpcClientInterceptor.RECEIVE);
+            }
+        } catch ( IOException e ) {
+            future.completeExceptionally(
+                new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                    e.getLocalizedMessage()));
+            return future;
+        } catch ( OncRpcException e ) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        //
+        // Now let the timer take care of retransmissions and timeouts. If
+        // the call completes otherwise, then stop retransmitting and make
+        // sure that a late reply is discarded.
+        //
+        call.scheduleRetransmission();
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable failure) {
+                removeAsyncCall(call);
+                ScheduledFuture task = call.timerTask;
+                if ( task != null ) {
+                    task.cancel(false);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the socket used for asynchronous calls, creating it together
+     * with its receiver thread if necessary.
+     *
+     * @return Socket for asynchronous calls.
+     *
+     * @throws IOException if the socket could not be created.
+     * @throws OncRpcException if this client has been closed or the
+     *   receiver thread failed.
+     */
+    private DatagramSocket getAsyncSocket()
+            throws IOException, OncRpcException {
+        synchronized ( asyncCalls ) {
+            if ( asyncClosed ) {
+                throw(new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                          "client has been closed"));
+            }
+            if ( asyncFailure != null ) {
+                throw(new OncRpcException(asyncFailure.getReason(),
+                                          asyncFailure.getMessage()));
+            }
+            if ( asyncSocket == null ) {
+                DatagramSocket mySocket = new DatagramSocket();
+                OncRpcUdpSocketHelper helper = new OncRpcUdpSocketHelper(mySocket);
+                if ( helper.getSendBufferSize() < bufferSize ) {
+                    helper.setSendBufferSize(bufferSize);
+                }
+                if ( helper.getReceiveBufferSize() < bufferSize ) {
+                    helper.setReceiveBufferSize(bufferSize);
+                }
+                final XdrUdpDecodingStream xdr =
+                    new XdrUdpDecodingStream(mySocket, bufferSize);
+                xdr.setCharacterEncoding(getCharacterEncoding());
+                asyncXid = xid;
+                asyncSocket = mySocket;
+                Thread receiver = newThread(new Runnable() {
+                    public void run() {
+                        receiveAsyncReplies(xdr);
+                    }
+                }, "UDP client reply receiver thread");
+                receiver.start();
+            }
+            return asyncSocket;
+        }
+    }
+
+    /**
+     * Removes an asynchronous call from the table of pending calls.
+     *
+     * @param call Asynchronous call to remove.
+     *
+     * @return <code>true</code> if the call was still pending.
+     */
+    private boolean removeAsyncCall(AsyncCall call) {
+        synchronized ( asyncCalls ) {
+            return asyncCalls.remove(Integer.valueOf(call.xid)) != null;
+        }
+    }
+
+    /**
+     * The receiver thread's workhorse receiving replies to asynchronous
+     * calls and completing the futures of the calls they belong to.
+     * Replies for which no call is pending (any longer) are silently
+     * discarded, for instance when replies to retransmitted calls arrive.
+     *
+     * @param xdr XDR stream receiving datagrams from the socket used for
+     *   asynchronous calls.
+     */
+    private void receiveAsyncReplies(XdrUdpDecodingStream xdr) {
+        for ( ;; ) {
+            AsyncCall call = null;
+            OncRpcException failure = null;
+            try {
+                xdr.beginDecoding();
+                OncRpcClientReplyMessage replyHeader =
+                    new OncRpcClientReplyMessage(auth);
+                try {
+                    replyHeader.xdrDecode(xdr);
+                } catch ( OncRpcException e ) {
+                    //
+                    // If we did not receive a reply at all, then just keep
+                    // on listening. Otherwise the message id is valid and
+                    // the call it belongs to fails.
+                    //
+                    if ( e.getReason() == OncRpcException.RPC_WRONGMESSAGE ) {
+                        xdr.endDecoding();
+                        continue;
+                    }
+                    failure = e;
+                }
+                synchronized ( asyncCalls ) {
+                    call = (AsyncCall) asyncCalls.remove(
+                        Integer.valueOf(replyHeader.messageId));
+                }
+                if ( (call != null) && (call.intercepted != null) ) {
+                    call.intercepted.setBytesReceived(xdr.getXdrLength());
+                    call.intercepted.beginPhase(OncRpcClientInterceptor.DECODE);
+                }
+                if ( (call != null) && (failure == null) ) {
+                    if ( !replyHeader.successfullyAccepted() ) {
+                        failure = replyHeader.newException();
+                    } else {
+                        try {
+                            call.result.xdrDecode(xdr);
+                        } catch ( OncRpcException e ) {
+                            failure = e;
+                        } catch ( RuntimeException e ) {
+                            failure = new OncRpcException(
+                                OncRpcException.RPC_CANTDECODERES,
+                                e.toString());
+                        }
+                    }
+                }
+                xdr.endDecoding();
+            } catch ( IOException e ) {
+                //
+                // The socket has been closed or is broken for some other
+                // reason, so all pending asynchronous calls fail.
+                //
+                OncRpcException reason =
+                    new OncRpcException(OncRpcException.RPC_CANTRECV,
+                                        e.getLocalizedMessage());
+                Vector failed = new Vector();
+                synchronized ( asyncCalls ) {
+                    asyncFailure = reason;
+                    Enumeration calls = asyncCalls.elements();
+                    while ( calls.hasMoreElements() ) {
+                        failed.addElement(calls.nextElement());
+                    }
+                    asyncCalls.clear();
+                }
+                if ( call != null ) {
+                    failed.addElement(call);
+                }
+                int size = failed.size();
+                for ( int idx = 0; idx < size; ++idx ) {
+                    ((AsyncCall) failed.elementAt(idx)).future.completeExceptionally(
+                        new OncRpcException(reason.getReason(), reason.getMessage()));
+                }
+                return;
+            } catch ( OncRpcException e ) {
+                //
+                // Broken datagrams are ignored, unless they could already
+                // be matched with a call.
+                //
+                if ( failure == null ) {
+                    failure = e;
+                }
+            } catch ( RuntimeException e ) {
+                //
+                // Same for datagrams which made some decoder or interceptor
+                // fail otherwise: the receiver thread must keep running for
+                // the other calls.
+                //
+                if ( failure == null ) {
+                    failure = new OncRpcException(OncRpcException.RPC_CANTDECODERES,
+                                                  e.toString());
+                }
+            }
+            if ( call != null ) {
+                if ( !call.retransmitted ) {
+                    updateRoundTripTime(System.nanoTime() - call.sendTime);
+                }
+                if ( failure != null ) {
+                    call.future.completeExceptionally(failure);
+                } else {
+                    call.future.complete(call.result);
+                }
+            }
+        }
+    }
+
     /**
      * Set the {@link OncRpcUdpRetransmissionMode retransmission mode} for
      * lost remote procedure calls. The default retransmission mode is
      * {@link OncRpcUdpRetransmissionMode#FIXED}.
      *
-     * @param mode Retransmission mode (either fixed or exponential).
+     * @param mode Retransmission mode (either fixed, exponential or
+     *   adaptive).
      */
     public void setRetransmissionMode(int mode) {
         retransmissionMode = mode;
@@ -638,6 +1038,80 @@ public class OncRpcUdpClient extends OncRpcClient {
         return retransmissionMode;
     }
 
+    /**
+     * Returns the retransmission timeout to start with in adaptive
+     * retransmission mode. It is derived from the smoothed round trip time
+     * and its variance, but is limited by the retransmission timeout set.
+     * As long as no round trip time has been measured, the retransmission
+     * timeout set is used, but not more than one second.
+     *
+     * @return Retransmission timeout in milliseconds.
+     */
+    private int getAdaptiveRetransmissionTimeout() {
+        long rto;
+        synchronized ( rttLock ) {
+            if ( smoothedRtt < 0 ) {
+                rto = INITIAL_ADAPTIVE_TIMEOUT;
+            } else {
+                rto = (smoothedRtt + 4 * rttVariance + 999) / 1000;
+            }
+        }
+        if ( rto < MINIMUM_ADAPTIVE_TIMEOUT ) {
+            rto = MINIMUM_ADAPTIVE_TIMEOUT;
+        }
+        if ( rto > retransmissionTimeout ) {
+            rto = retransmissionTimeout;
+        }
+        return (int) rto;
+    }
+
+    /**
+     * Doubles a retransmission timeout in adaptive retransmission mode, but
+     * limits it to the retransmission timeout set.
+     *
+     * @param resendTimeout Current retransmission timeout in milliseconds.
+     *
+     * @return Next retransmission timeout in milliseconds.
+     */
+    private int backOff(int resendTimeout) {
+        long next = 2L * resendTimeout;
+        return next > retransmissionTimeout ? retransmissionTimeout : (int) next;
+    }
+
+    /**
+     * Updates the smoothed round trip time and its variance with a new
+     * measurement, as in Jacobson's and Karels' TCP/IP retransmission timer.
+     *
+     * @param rtt Round trip time of a call in nanoseconds.
+     */
+    private void updateRoundTripTime(long rtt) {
+        rtt /= 1000;
+        synchronized ( rttLock ) {
+            if ( smoothedRtt < 0 ) {
+                smoothedRtt = rtt;
+                rttVariance = rtt / 2;
+            } else {
+                long delta = rtt - smoothedRtt;
+                smoothedRtt += delta / 8;
+                rttVariance += ((delta < 0 ? -delta : delta) - rttVariance) / 4;
+            }
+        }
+    }
+
+    /**
+     * Returns the smoothed round trip time measured for calls of this
+     * client. The round trip time is measured regardless of the
+     * retransmission mode, but only used in adaptive mode.
+     *
+     * @return Smoothed round trip time in microseconds, or -1 if no round
+     *   trip time has been measured yet.
+     */
+    public long getSmoothedRoundTripTime() {
+        synchronized ( rttLock ) {
+            return smoothedRtt;
+        }
+    }
+
     /**
      * Set the retransmission timout for remote procedure calls to wait for
      * an answer from the ONC/RPC server before resending the call. The
@@ -699,6 +1173,40 @@ public class OncRpcUdpClient extends OncRpcClient {
      */
     private OncRpcUdpSocketHelper socketHelper;
 
+    /**
+     * Size of send and receive buffers.
+     */
+    private int bufferSize;
+
+    /**
+     * UDP socket used for asynchronous calls, or <code>null</code> if no
+     * asynchronous call has been issued yet.
+     */
+    private DatagramSocket asyncSocket;
+
+    /**
+     * Table of asynchronous calls waiting for their replies, indexed by
+     * transaction id. This object also guards the other fields related to
+     * asynchronous calls.
+     */
+    private Hashtable asyncCalls = new Hashtable();
+
+    /**
+     * Transaction id of the most recent asynchronous call.
+     */
+    private int asyncXid;
+
+    /**
+     * Reason why the receiver thread failed or <code>null</code> as long as
+     * the socket for asynchronous calls works.
+     */
+    private OncRpcException asyncFailure;
+
+    /**
+     * Indicates whether this client has been closed.
+     */
+    private boolean asyncClosed;
+
     /**
      * XDR encoding stream used for sending requests via UDP/IP to an ONC/RPC
      * server.
@@ -730,6 +1238,197 @@ public class OncRpcUdpClient extends OncRpcClient {
      */
     protected int retransmissionMode = OncRpcUdpRetransmissionMode.FIXED;
 
+    /**
+     * Retransmission timeout in milliseconds used in adaptive mode as long
+     * as no round trip time has been measured.
+     */
+    private static final int INITIAL_ADAPTIVE_TIMEOUT = 1000;
+
+    /**
+     * Lower limit of the retransmission timeout in adaptive mode, so fast
+     * networks do not cause spurious retransmissions.
+     */
+    private static final int MINIMUM_ADAPTIVE_TIMEOUT = 10;
+
+    /**
+     * Lock serializing synchronous calls and broadcasts, which share the
+     * XDR streams of this client. Callers waiting for a reply while holding
+     * it do not pin the carrier of a virtual thread.
+     */
+    private ReentrantLock callLock = new ReentrantLock();
+
+    /**
+     * Object guarding the round trip time estimates.
+     */
+    private Object rttLock = new Object();
+
+    /**
+     * Smoothed round trip time in microseconds or -1 if no round trip time
+     * has been measured yet.
+     */
+    private long smoothedRtt = -1;
+
+    /**
+     * Smoothed mean deviation of the round trip time in microseconds.
+     */
+    private long rttVariance;
+
+    /**
+     * Instances of class <code>AsyncCall</code> represent asynchronous calls
+     * waiting for their replies. They also serve as timer tasks, which
+     * retransmit the already encoded call and finally time out the call.
+     */
+    private class AsyncCall implements Runnable {
+
+        /**
+         * Create a new asynchronous call.
+         *
+         * @param xid Transaction id of the call.
+         * @param result Object receiving the result of the call.
+         * @param future Future to complete when the reply arrives.
+         * @param packet Datagram containing the encoded call.
+         * @param timeout Timeout in milliseconds or zero for no timeout.
+         */
+        public AsyncCall(int xid, XdrAble result, CompletableFuture future,
+                         DatagramPacket packet, int timeout) {
+            this.xid = xid;
+            this.result = result;
+            this.future = future;
+            this.packet = packet;
+            if ( timeout > 0 ) {
+                deadline = System.currentTimeMillis() + timeout;
+            }
+            mode = retransmissionMode;
+            if ( mode == OncRpcUdpRetransmissionMode.ADAPTIVE ) {
+                resendTimeout = getAdaptiveRetransmissionTimeout();
+            } else {
+                resendTimeout = retransmissionTimeout > 0 ? retransmissionTimeout : 1;
+            }
+            sendTime = System.nanoTime();
+        }
+
+        /**
+         * Schedules the next retransmission of this call, or its timeout,
+         * whichever comes first.
+         */
+        public void scheduleRetransmission() {
+            long delay = resendTimeout;
+            if ( deadline != 0 ) {
+                long remaining = deadline - System.currentTimeMillis();
+                if ( remaining < delay ) {
+                    delay = remaining > 0 ? remaining : 0;
+                }
+            }
+            timerTask = schedule(this, delay);
+            //
+            // The call might have completed in the meantime without seeing
+            // the new timer task, so cancel it here.
+            //
+            if ( future.isDone() ) {
+                timerTask.cancel(false);
+            }
+        }
+
+        /**
+         * Either times out this call or retransmits it, depending on how
+         * much time is left.
+         */
+        public void run() {
+            if ( future.isDone() ) {
+                return;
+            }
+            if ( (deadline != 0)
+                 && (System.currentTimeMillis() >= deadline) ) {
+                removeAsyncCall(this);
+                future.completeExceptionally(new OncRpcTimeoutException());
+                return;
+            }
+            retransmittedCall(xid);
+            if ( intercepted != null ) {
+                intercepted.beginPhase(OncRpcClientInterceptor.SEND);
+            }
+            try {
+                asyncSocket.send(packet);
+            } catch ( IOException e ) {
+                removeAsyncCall(this);
+                future.completeExceptionally(
+                    new OncRpcException(OncRpcException.RPC_CANTSEND,
+                                        e.getLocalizedMessage()));
+                return;
+            }
+            if ( intercepted != null ) {
+                intercepted.beginPhase(OncRpcClientInterceptor.RECEIVE);
+            }
+            if ( mode == OncRpcUdpRetransmissionMode.EXPONENTIAL ) {
+                resendTimeout *= 2;
+            } else if ( mode == OncRpcUdpRetransmissionMode.ADAPTIVE ) {
+                resendTimeout = backOff((int) resendTimeout);
+            }
+            retransmitted = true;
+            scheduleRetransmission();
+        }
+
+        /**
+         * Transaction id of the call.
+         */
+        public int xid;
+
+        /**
+         * Object receiving the result of the call.
+         */
+        public XdrAble result;
+
+        /**
+         * Future to complete with the result of the call.
+         */
+        public CompletableFuture future;
+
+        /**
+         * Call to announce the phases of the call to, or <code>null</code>
+         * if no interceptors are installed.
+         */
+        public OncRpcInterceptedCall intercepted;
+
+        /**
+         * Datagram containing the encoded call, which is sent again on
+         * every retransmission.
+         */
+        public DatagramPacket packet;
+
+        /**
+         * Point in time when the call times out or zero if the call never
+         * times out.
+         */
+        private long deadline;
+
+        /**
+         * Retransmission mode in effect when the call was issued.
+         */
+        private int mode;
+
+        /**
+         * Current retransmission timeout in milliseconds.
+         */
+        private long resendTimeout;
+
+        /**
+         * Point in time in nanoseconds when the call was first sent.
+         */
+        public long sendTime;
+
+        /**
+         * Indicates whether the call has been retransmitted, so its round
+         * trip time can't be measured.
+         */
+        public volatile boolean retransmitted;
+
+        /**
+         * Timer task scheduled for the next retransmission or timeout.
+         */
+        public volatile ScheduledFuture timerTask;
+
+    }
+
 }
 
 // End of OncRpcUdpClient.java
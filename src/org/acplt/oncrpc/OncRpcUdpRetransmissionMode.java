@@ -49,6 +49,18 @@ public interface OncRpcUdpRetransmissionMode {
      */
     public static final int FIXED = 1;
 
+    /**
+     * In adaptive retransmission mode, UDP/IP-based ONC/RPC clients measure
+     * the round trip times of their calls and keep a smoothed round trip
+     * time together with its variance, in the style of the TCP/IP
+     * retransmission timer. The retransmission timeout is then derived from
+     * these estimates and doubled on each try, but it never exceeds the
+     * retransmission timeout set for the client. Until the first round trip
+     * has been measured, clients start with a retransmission timeout of one
+     * second at most.
+     */
+    public static final int ADAPTIVE = 2;
+
 }
 // End of OncRpcUdpRetransmissionMode.java
 
@@ -0,0 +1,156 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Supplies virtual threads for handling connections and dispatching calls
+ * where the Java runtime supports them. Virtual threads are cheap enough to
+ * dedicate one to every connection, even if most connections are idle most
+ * of the time, so a server can keep tens of thousands of connections open
+ * without switching over to the NIO-based transports.
+ *
+ * <p>As virtual threads only became a regular feature of JRE&nbsp;21, the
+ * factory is looked up by reflection. On older runtimes, or if virtual
+ * threads are only available as a preview feature which has not been
+ * enabled, ordinary (daemon) platform threads are used instead. Use
+ * {@link #isAvailable} to find out what you get.
+ *
+ * <p>A server transport is switched to virtual threads like this:
+ *
+ * <pre>
+ * OncRpcTcpServerTransport transport = ...;
+ * transport.setThreadFactory(OncRpcVirtualThreads.getThreadFactory());
+ * transport.setDispatchExecutor(OncRpcVirtualThreads.getExecutor());
+ * </pre>
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcVirtualThreads {
+
+    /**
+     * Indicates whether this Java runtime supports virtual threads.
+     *
+     * @return <code>true</code> if virtual threads are supported,
+     *   <code>false</code> if platform threads are used instead.
+     */
+    public static boolean isAvailable() {
+        return virtualFactory != null;
+    }
+
+    /**
+     * Returns a factory creating virtual threads, or daemon platform threads
+     * if virtual threads are not supported by this Java runtime.
+     *
+     * @return Thread factory.
+     */
+    public static ThreadFactory getThreadFactory() {
+        if ( virtualFactory != null ) {
+            return virtualFactory;
+        }
+        return platformFactory;
+    }
+
+    /**
+     * Returns an executor running every task in a virtual thread of its own.
+     * If virtual threads are not supported by this Java runtime, then the
+     * tasks are run by a shared pool of daemon platform threads instead,
+     * which is created when it is needed for the first time.
+     *
+     * @return Executor for dispatching calls.
+     */
+    public static Executor getExecutor() {
+        if ( virtualFactory != null ) {
+            return virtualExecutor;
+        }
+        synchronized ( OncRpcVirtualThreads.class ) {
+            if ( platformExecutor == null ) {
+                platformExecutor = Executors.newCachedThreadPool(platformFactory);
+            }
+            return platformExecutor;
+        }
+    }
+
+    /**
+     * Looks up the factory for virtual threads by reflection, as in
+     * <code>Thread.ofVirtual().factory()</code>.
+     *
+     * @return Factory for virtual threads or <code>null</code> if this
+     *   Java runtime does not support virtual threads.
+     */
+    private static ThreadFactory lookupVirtualFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual", new Class [] {});
+            Class builderClass = Class.forName("java.lang.Thread$Builder");
+            Method factory = builderClass.getMethod("factory", new Class [] {});
+            Object builder = ofVirtual.invoke(null, new Object [] {});
+            return (ThreadFactory) factory.invoke(builder, new Object [] {});
+        } catch ( Exception e ) {
+            //
+            // Either there are no virtual threads at all, or they are a
+            // preview feature which has not been enabled.
+            //
+            return null;
+        }
+    }
+
+    /**
+     * Factory creating virtual threads or <code>null</code> if this Java
+     * runtime does not support virtual threads.
+     */
+    private static final ThreadFactory virtualFactory = lookupVirtualFactory();
+
+    /**
+     * Factory creating daemon platform threads as a fallback.
+     */
+    private static final ThreadFactory platformFactory = new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "ONC/RPC worker thread");
+            thread.setDaemon(true);
+            return thread;
+        }
+    };
+
+    /**
+     * Executor starting a new virtual thread for every task.
+     */
+    private static final Executor virtualExecutor = new Executor() {
+        public void execute(Runnable command) {
+            virtualFactory.newThread(command).start();
+        }
+    };
+
+    /**
+     * Shared pool of platform threads used if virtual threads are not
+     * supported, or <code>null</code> as long as it has not been needed.
+     */
+    private static Executor platformExecutor;
+
+}
+
+// End of OncRpcVirtualThreads.java
@@ -0,0 +1,220 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The <code>XdrArrays</code> class contains the helper methods used by the
+ * XDR streams to convert whole runs of ints, longs, floats and doubles
+ * between arrays and their buffers in one go, instead of assembling every
+ * element byte by byte. Byte arrays are accessed through big endian
+ * {@link VarHandle} views, byte buffers through their typed views.
+ *
+ * <p>The array is passed as an <code>Object</code>, so the streams can
+ * share their code for the different element types. The caller is
+ * responsible for checking that the buffer holds enough data or space.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+final class XdrArrays {
+
+    /**
+     * Do not instantiate.
+     */
+    private XdrArrays() {
+    }
+
+    /**
+     * Returns the size of an encoded element of the given array.
+     *
+     * @param value Array of ints, longs, floats or doubles.
+     *
+     * @return Size of encoded element in bytes.
+     */
+    static int elementSize(Object value) {
+        return (value instanceof long []) || (value instanceof double []) ? 8 : 4;
+    }
+
+    /**
+     * Decodes a run of elements from a byte array.
+     *
+     * @param buffer Buffer containing the encoded data.
+     * @param index Index of the first byte to decode.
+     * @param value Array of ints, longs, floats or doubles receiving the
+     *   decoded elements.
+     * @param offset Start offset in the array.
+     * @param length Number of elements to decode.
+     */
+    static void get(byte [] buffer, int index, Object value, int offset, int length) {
+        if ( value instanceof int [] ) {
+            int [] ints = (int []) value;
+            for ( int i = 0; i < length; ++i, index += 4 ) {
+                ints[offset + i] = (int) INT.get(buffer, index);
+            }
+        } else if ( value instanceof long [] ) {
+            long [] longs = (long []) value;
+            for ( int i = 0; i < length; ++i, index += 8 ) {
+                longs[offset + i] = (long) LONG.get(buffer, index);
+            }
+        } else if ( value instanceof float [] ) {
+            float [] floats = (float []) value;
+            for ( int i = 0; i < length; ++i, index += 4 ) {
+                floats[offset + i] = (float) FLOAT.get(buffer, index);
+            }
+        } else {
+            double [] doubles = (double []) value;
+            for ( int i = 0; i < length; ++i, index += 8 ) {
+                doubles[offset + i] = (double) DOUBLE.get(buffer, index);
+            }
+        }
+    }
+
+    /**
+     * Encodes a run of elements into a byte array.
+     *
+     * @param buffer Buffer receiving the encoded data.
+     * @param index Index of the first byte to encode into.
+     * @param value Array of ints, longs, floats or doubles containing the
+     *   elements to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of elements to encode.
+     */
+    static void put(byte [] buffer, int index, Object value, int offset, int length) {
+        if ( value instanceof int [] ) {
+            int [] ints = (int []) value;
+            for ( int i = 0; i < length; ++i, index += 4 ) {
+                INT.set(buffer, index, ints[offset + i]);
+            }
+        } else if ( value instanceof long [] ) {
+            long [] longs = (long []) value;
+            for ( int i = 0; i < length; ++i, index += 8 ) {
+                LONG.set(buffer, index, longs[offset + i]);
+            }
+        } else if ( value instanceof float [] ) {
+            float [] floats = (float []) value;
+            for ( int i = 0; i < length; ++i, index += 4 ) {
+                FLOAT.set(buffer, index, floats[offset + i]);
+            }
+        } else {
+            double [] doubles = (double []) value;
+            for ( int i = 0; i < length; ++i, index += 8 ) {
+                DOUBLE.set(buffer, index, doubles[offset + i]);
+            }
+        }
+    }
+
+    /**
+     * Decodes a run of elements from a byte buffer.
+     *
+     * @param buffer Buffer containing the encoded data.
+     * @param index Index of the first byte to decode.
+     * @param value Array of ints, longs, floats or doubles receiving the
+     *   decoded elements.
+     * @param offset Start offset in the array.
+     * @param length Number of elements to decode.
+     */
+    static void get(ByteBuffer buffer, int index, Object value, int offset, int length) {
+        ByteBuffer view = view(buffer, index);
+        if ( value instanceof int [] ) {
+            view.asIntBuffer().get((int []) value, offset, length);
+        } else if ( value instanceof long [] ) {
+            view.asLongBuffer().get((long []) value, offset, length);
+        } else if ( value instanceof float [] ) {
+            view.asFloatBuffer().get((float []) value, offset, length);
+        } else {
+            view.asDoubleBuffer().get((double []) value, offset, length);
+        }
+    }
+
+    /**
+     * Encodes a run of elements into a byte buffer.
+     *
+     * @param buffer Buffer receiving the encoded data.
+     * @param index Index of the first byte to encode into.
+     * @param value Array of ints, longs, floats or doubles containing the
+     *   elements to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of elements to encode.
+     */
+    static void put(ByteBuffer buffer, int index, Object value, int offset, int length) {
+        ByteBuffer view = view(buffer, index);
+        if ( value instanceof int [] ) {
+            view.asIntBuffer().put((int []) value, offset, length);
+        } else if ( value instanceof long [] ) {
+            view.asLongBuffer().put((long []) value, offset, length);
+        } else if ( value instanceof float [] ) {
+            view.asFloatBuffer().put((float []) value, offset, length);
+        } else {
+            view.asDoubleBuffer().put((double []) value, offset, length);
+        }
+    }
+
+    /**
+     * Returns a big endian view of a byte buffer starting at the given
+     * index, without touching the position of the buffer itself.
+     *
+     * @param buffer Byte buffer.
+     * @param index Index where the view starts.
+     *
+     * @return View of the byte buffer.
+     */
+    private static ByteBuffer view(ByteBuffer buffer, int index) {
+        ByteBuffer view = buffer.duplicate();
+        view.clear();
+        view.position(index);
+        return view.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Big endian view of byte arrays as ints.
+     */
+    private static final VarHandle INT =
+        MethodHandles.byteArrayViewVarHandle(int [].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Big endian view of byte arrays as longs.
+     */
+    private static final VarHandle LONG =
+        MethodHandles.byteArrayViewVarHandle(long [].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Big endian view of byte arrays as floats.
+     */
+    private static final VarHandle FLOAT =
+        MethodHandles.byteArrayViewVarHandle(float [].class, ByteOrder.BIG_ENDIAN);
+
+    /**
+     * Big endian view of byte arrays as doubles.
+     */
+    private static final VarHandle DOUBLE =
+        MethodHandles.byteArrayViewVarHandle(double [].class, ByteOrder.BIG_ENDIAN);
+
+}
+
+// End of XdrArrays.java
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrBoolean implements XdrAble {
+public class XdrBoolean implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrBoolean</code> object.
@@ -81,6 +81,19 @@ public class XdrBoolean implements XdrAble {
         xdr.xdrEncodeBoolean(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR boolean takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 4;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR boolean from a XDR stream in
      * compliance to RFC 1832.
@@ -26,6 +26,8 @@ package org.acplt.oncrpc;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 /**
  * The <code>XdrBufferDecodingStream</code> class provides the necessary
@@ -266,6 +268,148 @@ public class XdrBufferDecodingStream extends XdrDecodingStream {
         bufferIndex += alignedLength;
     }
 
+    /**
+     * Decodes (aka "deserializes") an opaque value of the given length and
+     * returns a read-only view right into the buffer, without copying the
+     * data. The view stays valid until the buffer is filled with the next
+     * record.
+     *
+     * @param length Length of opaque data to decode.
+     *
+     * @return Read-only view of the opaque data.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public ByteBuffer xdrDecodeOpaqueView(int length)
+           throws OncRpcException, IOException {
+        int alignedLength = (length + 3) & ~3;
+        if ( (length < 0)
+             || (bufferIndex > bufferHighmark - alignedLength + 4) ) {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+        ByteBuffer view = ByteBuffer.wrap(buffer, bufferIndex, length).slice();
+        bufferIndex += alignedLength;
+        return view.asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes (aka "deserializes") the given number of bytes of string data
+     * straight from the buffer, without copying it first.
+     *
+     * @param length Length of string data to decode in bytes.
+     * @param charset Character set to use for conversion.
+     *
+     * @return Decoded String value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected String xdrDecodeString(int length, Charset charset)
+              throws OncRpcException, IOException {
+        int alignedLength = (length + 3) & ~3;
+        if ( bufferIndex > bufferHighmark - alignedLength + 4 ) {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+        String value = new String(buffer, bufferIndex, length, charset);
+        bufferIndex += alignedLength;
+        return value;
+    }
+
+    /**
+     * Returns the number of bytes left to decode in the current record.
+     *
+     * @return Number of bytes left in the buffer.
+     */
+    protected int getMaximumRemainingLength() {
+        return Math.max(bufferHighmark - bufferIndex + 4, 0);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of ints straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of longs straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of floats straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of doubles straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes a run of ints, longs, floats or doubles from the buffer,
+     * after checking that the buffer contains enough data.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if the buffer does not contain enough data.
+     */
+    private void decodeRun(Object value, int offset, int length)
+            throws OncRpcException {
+        long bytes = (long) length * XdrArrays.elementSize(value);
+        if ( bufferIndex <= bufferHighmark - bytes + 4 ) {
+            XdrArrays.get(buffer, bufferIndex, value, offset, length);
+            bufferIndex += (int) bytes;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+    }
+
     /**
      * The buffer which will be filled from the datagram socket and then
      * be used to supply the information when decoding data.
@@ -199,6 +199,91 @@ public class XdrBufferEncodingStream extends XdrEncodingStream {
         }
     }
 
+    /**
+     * Encodes (aka "serializes") a run of ints straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of longs straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of floats straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of doubles straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes a run of ints, longs, floats or doubles into the buffer,
+     * after checking that there is enough space left.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if there is not enough space left.
+     */
+    private void encodeRun(Object value, int offset, int length)
+            throws OncRpcException {
+        long bytes = (long) length * XdrArrays.elementSize(value);
+        if ( bufferIndex <= bufferHighmark - bytes + 4 ) {
+            XdrArrays.put(buffer, bufferIndex, value, offset, length);
+            bufferIndex += (int) bytes;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
     /**
      * The buffer which will receive the encoded information, before it
      * is sent via a datagram socket.
@@ -0,0 +1,372 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The class <code>XdrBufferPool</code> hands out buffers to XDR streams and
+ * keeps the buffers returned to it for reuse. XDR streams borrow their
+ * buffers only while they encode or decode a record, so idle connections
+ * do not keep large buffers alive. Buffers are pooled in size classes,
+ * which are powers of two starting at 1024 bytes. Buffers larger than the
+ * maximum buffer size of the pool are allocated but not pooled.
+ *
+ * <p>The pool hands out both ordinary arrays and direct byte buffers,
+ * which live outside the Java heap and can be written to channels without
+ * copying. Buffers handed out by the pool can be larger than requested.
+ *
+ * <p>XDR streams use the {@link #getDefault default pool} unless told
+ * otherwise. Applications can install their own pool, for instance one
+ * derived from this class, using {@link #setDefault}.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class XdrBufferPool {
+
+    /**
+     * Default maximum size of pooled buffers.
+     */
+    public static final int DEFAULT_MAXIMUM_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Default maximum number of buffers kept per size class.
+     */
+    public static final int DEFAULT_MAXIMUM_POOLED_BUFFERS = 64;
+
+    /**
+     * Create a new buffer pool with the default maximum buffer size and
+     * the default maximum number of buffers kept per size class.
+     */
+    public XdrBufferPool() {
+        this(DEFAULT_MAXIMUM_BUFFER_SIZE, DEFAULT_MAXIMUM_POOLED_BUFFERS);
+    }
+
+    /**
+     * Create a new buffer pool.
+     *
+     * @param maximumBufferSize Size of the largest buffers to pool. Larger
+     *   buffers are allocated but not kept for reuse.
+     * @param maximumPooledBuffers Maximum number of buffers kept per size
+     *   class and backing. Additional buffers returned to the pool are
+     *   simply dropped.
+     */
+    public XdrBufferPool(int maximumBufferSize, int maximumPooledBuffers) {
+        int classes = 1;
+        while ( (MINIMUM_BUFFER_SIZE << (classes - 1)) < maximumBufferSize
+                && (classes < 21) ) {
+            ++classes;
+        }
+        this.maximumPooledBuffers = maximumPooledBuffers;
+        heapBuffers = new byte[classes][maximumPooledBuffers][];
+        heapBufferCounts = new int[classes];
+        directBuffers = new ByteBuffer[classes][maximumPooledBuffers];
+        directBufferCounts = new int[classes];
+    }
+
+    /**
+     * Returns the pool used by XDR streams unless told otherwise.
+     *
+     * @return default buffer pool.
+     */
+    public static XdrBufferPool getDefault() {
+        return defaultPool;
+    }
+
+    /**
+     * Sets the pool used by XDR streams created from now on unless told
+     * otherwise.
+     *
+     * @param pool New default buffer pool.
+     */
+    public static void setDefault(XdrBufferPool pool) {
+        if ( pool == null ) {
+            throw(new IllegalArgumentException("buffer pool must not be null"));
+        }
+        defaultPool = pool;
+    }
+
+    /**
+     * Borrows an array of at least the given size from the pool. When the
+     * array is not needed any more, it should be handed back using
+     * {@link #release(byte[])}.
+     *
+     * @param size Minimum size of the array.
+     *
+     * @return Array of at least <code>size</code> bytes.
+     */
+    public byte [] allocate(int size) {
+        int sizeClass = getSizeClass(size);
+        synchronized ( this ) {
+            ++allocations;
+            ++borrowedBuffers;
+            if ( sizeClass < 0 ) {
+                ++misses;
+                return new byte[size];
+            }
+            int count = heapBufferCounts[sizeClass];
+            if ( count > 0 ) {
+                byte [] buffer = heapBuffers[sizeClass][--count];
+                heapBuffers[sizeClass][count] = null;
+                heapBufferCounts[sizeClass] = count;
+                pooledBytes -= buffer.length;
+                return buffer;
+            }
+            ++misses;
+        }
+        return new byte[MINIMUM_BUFFER_SIZE << sizeClass];
+    }
+
+    /**
+     * Hands an array back to the pool. The caller must not use the array
+     * any more afterwards.
+     *
+     * @param buffer Array borrowed from this pool.
+     */
+    public void release(byte [] buffer) {
+        int sizeClass = getPooledSizeClass(buffer.length);
+        synchronized ( this ) {
+            --borrowedBuffers;
+            if ( sizeClass >= 0 ) {
+                int count = heapBufferCounts[sizeClass];
+                if ( count < maximumPooledBuffers ) {
+                    heapBuffers[sizeClass][count] = buffer;
+                    heapBufferCounts[sizeClass] = count + 1;
+                    pooledBytes += buffer.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * Borrows a direct byte buffer of at least the given capacity from the
+     * pool. The buffer is cleared and in big endian byte order. When the
+     * buffer is not needed any more, it should be handed back using
+     * {@link #release(ByteBuffer)}.
+     *
+     * @param size Minimum capacity of the buffer.
+     *
+     * @return Direct byte buffer with a capacity of at least
+     *   <code>size</code> bytes.
+     */
+    public ByteBuffer allocateDirect(int size) {
+        int sizeClass = getSizeClass(size);
+        synchronized ( this ) {
+            ++allocations;
+            ++borrowedBuffers;
+            if ( sizeClass < 0 ) {
+                ++misses;
+                return ByteBuffer.allocateDirect(size);
+            }
+            int count = directBufferCounts[sizeClass];
+            if ( count > 0 ) {
+                ByteBuffer buffer = directBuffers[sizeClass][--count];
+                directBuffers[sizeClass][count] = null;
+                directBufferCounts[sizeClass] = count;
+                pooledBytes -= buffer.capacity();
+                return buffer;
+            }
+            ++misses;
+        }
+        return ByteBuffer.allocateDirect(MINIMUM_BUFFER_SIZE << sizeClass);
+    }
+
+    /**
+     * Hands a direct byte buffer back to the pool. The caller must not use
+     * the buffer any more afterwards.
+     *
+     * @param buffer Direct byte buffer borrowed from this pool.
+     */
+    public void release(ByteBuffer buffer) {
+        int sizeClass = getPooledSizeClass(buffer.capacity());
+        buffer.clear();
+        synchronized ( this ) {
+            --borrowedBuffers;
+            if ( (sizeClass >= 0) && buffer.isDirect() ) {
+                int count = directBufferCounts[sizeClass];
+                if ( count < maximumPooledBuffers ) {
+                    directBuffers[sizeClass][count] = buffer;
+                    directBufferCounts[sizeClass] = count + 1;
+                    pooledBytes += buffer.capacity();
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops all buffers currently kept in the pool.
+     */
+    public synchronized void clear() {
+        for ( int sizeClass = 0; sizeClass < heapBufferCounts.length; ++sizeClass ) {
+            Arrays.fill(heapBuffers[sizeClass], null);
+            heapBufferCounts[sizeClass] = 0;
+            Arrays.fill(directBuffers[sizeClass], null);
+            directBufferCounts[sizeClass] = 0;
+        }
+        pooledBytes = 0;
+    }
+
+    /**
+     * Returns the number of buffers handed out by this pool so far.
+     *
+     * @return number of allocations.
+     */
+    public synchronized long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * Returns the number of allocations which could not be satisfied with
+     * a pooled buffer, so a new buffer had to be created.
+     *
+     * @return number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of buffers currently borrowed from this pool.
+     *
+     * @return number of buffers in use.
+     */
+    public synchronized int getBorrowedBuffers() {
+        return borrowedBuffers;
+    }
+
+    /**
+     * Returns the number of buffers currently kept in the pool for reuse.
+     *
+     * @return number of idle buffers.
+     */
+    public synchronized int getPooledBuffers() {
+        int buffers = 0;
+        for ( int sizeClass = 0; sizeClass < heapBufferCounts.length; ++sizeClass ) {
+            buffers += heapBufferCounts[sizeClass] + directBufferCounts[sizeClass];
+        }
+        return buffers;
+    }
+
+    /**
+     * Returns the total size of the buffers currently kept in the pool for
+     * reuse.
+     *
+     * @return size of idle buffers in bytes.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Returns the size class for buffers of the given minimum size.
+     *
+     * @param size Minimum buffer size.
+     *
+     * @return Index of size class or <code>-1</code> if buffers of this
+     *   size are not pooled.
+     */
+    private int getSizeClass(int size) {
+        int sizeClass = 0;
+        while ( (MINIMUM_BUFFER_SIZE << sizeClass) < size ) {
+            if ( ++sizeClass >= heapBufferCounts.length ) {
+                return -1;
+            }
+        }
+        return sizeClass;
+    }
+
+    /**
+     * Returns the size class a returned buffer belongs to.
+     *
+     * @param size Exact buffer size.
+     *
+     * @return Index of size class or <code>-1</code> if the size does not
+     *   match any size class.
+     */
+    private int getPooledSizeClass(int size) {
+        int sizeClass = getSizeClass(size);
+        return (sizeClass >= 0) && ((MINIMUM_BUFFER_SIZE << sizeClass) == size) ?
+                   sizeClass : -1;
+    }
+
+    /**
+     * Size of the smallest size class.
+     */
+    private static final int MINIMUM_BUFFER_SIZE = 1024;
+
+    /**
+     * Pool used by XDR streams unless told otherwise.
+     */
+    private static volatile XdrBufferPool defaultPool = new XdrBufferPool();
+
+    /**
+     * Maximum number of buffers kept per size class and backing.
+     */
+    private final int maximumPooledBuffers;
+
+    /**
+     * Arrays kept for reuse, indexed by size class.
+     */
+    private final byte [][][] heapBuffers;
+
+    /**
+     * Number of arrays kept for reuse per size class.
+     */
+    private final int [] heapBufferCounts;
+
+    /**
+     * Direct byte buffers kept for reuse, indexed by size class.
+     */
+    private final ByteBuffer [][] directBuffers;
+
+    /**
+     * Number of direct byte buffers kept for reuse per size class.
+     */
+    private final int [] directBufferCounts;
+
+    /**
+     * Number of buffers handed out so far.
+     */
+    private long allocations;
+
+    /**
+     * Number of buffers which had to be created.
+     */
+    private long misses;
+
+    /**
+     * Number of buffers currently borrowed.
+     */
+    private int borrowedBuffers;
+
+    /**
+     * Total size of buffers kept for reuse.
+     */
+    private long pooledBytes;
+
+}
+
+// End of XdrBufferPool.java
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrByte implements XdrAble {
+public class XdrByte implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrByte</code> object.
@@ -81,6 +81,19 @@ public class XdrByte implements XdrAble {
         xdr.xdrEncodeByte(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR byte takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 4;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR byte from a XDR stream in
      * compliance to RFC 1832.
@@ -0,0 +1,436 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * The <code>XdrByteBufferDecodingStream</code> class provides the necessary
+ * functionality to {@link XdrDecodingStream} to retrieve XDR packets from
+ * a NIO {@link ByteBuffer}, which can either be a heap or a direct buffer.
+ * This way, XDR data received through a channel can be decoded right
+ * from the buffer the channel has read it into, without copying it first.
+ *
+ * <p>The decoding stream uses absolute get operations only, so it does
+ * not change the position or limit of the buffer.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class XdrByteBufferDecodingStream extends XdrDecodingStream {
+
+    /**
+     * Construct a new <code>XdrByteBufferDecodingStream</code> object and
+     * associate it with a buffer containing encoded XDR data between its
+     * current position and its limit.
+     *
+     * @param buffer Buffer containing encoded XDR data.
+     *
+     * @throws IllegalArgumentException if the length of the encoded data
+     *   is not a multiple of four.
+     */
+    public XdrByteBufferDecodingStream(ByteBuffer buffer) {
+        setXdrData(buffer);
+    }
+
+    /**
+     * Sets the buffer containing encoded XDR data. The encoded data is
+     * expected between the current position and the limit of the buffer.
+     * The buffer must not be modified until decoding has finished.
+     *
+     * @param buffer Buffer containing encoded XDR data.
+     *
+     * @throws IllegalArgumentException if the length of the encoded data
+     *   is not a multiple of four.
+     */
+    public void setXdrData(ByteBuffer buffer) {
+        //
+        // Make sure that the length of the data is a multiple of four,
+        // otherwise throw an exception.
+        //
+        if ( (buffer.remaining() & 3) != 0 ) {
+            throw(new IllegalArgumentException("length of encoded data must be a multiple of four"));
+        }
+        //
+        // XDR data is always big endian, so if the buffer has been set up
+        // otherwise, we need a view of our own.
+        //
+        if ( buffer.order() != ByteOrder.BIG_ENDIAN ) {
+            buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        }
+        this.buffer = buffer;
+        encodedStart = buffer.position();
+        encodedEnd = buffer.limit();
+        bufferIndex = 0;
+        bufferHighmark = -4;
+    }
+
+    /**
+     * Returns the buffer containing the encoded XDR data.
+     *
+     * @return Buffer with encoded data.
+     */
+    public ByteBuffer getXdrData() {
+        return buffer;
+    }
+
+    /**
+     * Returns the index of the next byte to be decoded from the buffer.
+     *
+     * @return read index into buffer.
+     */
+    public int getXdrPosition() {
+        return bufferIndex;
+    }
+
+    /**
+     * Returns the Internet address of the sender of the current XDR data.
+     * This method should only be called after {@link #beginDecoding},
+     * otherwise it might return stale information.
+     *
+     * @return InetAddress of the sender of the current XDR data.
+     */
+    public InetAddress getSenderAddress() {
+        return null;
+    }
+
+    /**
+     * Returns the port number of the sender of the current XDR data.
+     * This method should only be called after {@link #beginDecoding},
+     * otherwise it might return stale information.
+     *
+     * @return Port number of the sender of the current XDR data.
+     */
+    public int getSenderPort() {
+        return 0;
+    }
+
+    /**
+     * Initiates decoding of the next XDR record.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void beginDecoding()
+           throws OncRpcException, IOException {
+        bufferIndex = encodedStart;
+        bufferHighmark = encodedEnd - 4;
+    }
+
+    /**
+     * End decoding of the current XDR record. The general contract of
+     * <code>endDecoding</code> is that calling it is an indication that
+     * the current record is no more interesting to the caller and any
+     * allocated data for this record can be freed.
+     *
+     * <p>This method overrides {@link XdrDecodingStream#endDecoding}. It
+     * only resets the read index, so attempts to decode data will fail
+     * until decoding has been started again.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void endDecoding()
+           throws OncRpcException, IOException {
+        bufferIndex = 0;
+        bufferHighmark = -4;
+    }
+
+    /**
+     * Closes this decoding XDR stream and releases any system resources
+     * associated with this stream. A closed XDR stream cannot perform decoding
+     * operations and cannot be reopened.
+     *
+     * <p>This implementation throws away the reference to the buffer.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void close()
+           throws OncRpcException, IOException {
+        buffer = null;
+    }
+
+    /**
+     * Decodes (aka "deserializes") a "XDR int" value received from a
+     * XDR stream. A XDR int is 32 bits wide -- the same width Java's "int"
+     * data type has.
+     *
+     * @return The decoded int value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrDecodeInt()
+           throws OncRpcException, IOException {
+        if ( bufferIndex <= bufferHighmark ) {
+            int value = buffer.getInt(bufferIndex);
+            bufferIndex += 4;
+            return value;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+    }
+
+    /**
+     * Decodes (aka "deserializes") an opaque value, which is nothing more
+     * than a series of octets (or 8 bits wide bytes). Because the length
+     * of the opaque value is given, we don't need to retrieve it from the
+     * XDR stream. This is different from
+     * {@link #xdrDecodeOpaque(byte[], int, int)} where
+     * first the length of the opaque value is retrieved from the XDR stream.
+     *
+     * @param length Length of opaque data to decode.
+     *
+     * @return Opaque data as a byte vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public byte [] xdrDecodeOpaque(int length)
+           throws OncRpcException, IOException {
+        byte [] bytes = new byte[length];
+        xdrDecodeOpaque(bytes, 0, length);
+        return bytes;
+    }
+
+    /**
+     * Decodes (aka "deserializes") a XDR opaque value, which is represented
+     * by a vector of byte values, and starts at <code>offset</code> with a
+     * length of <code>length</code>. Only the opaque value is decoded, so the
+     * caller has to know how long the opaque value will be. The decoded data
+     * is always padded to be a multiple of four (because that's what the
+     * sender does).
+     *
+     * @param opaque Byte vector which will receive the decoded opaque value.
+     * @param offset Start offset in the byte vector.
+     * @param length the number of bytes to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void xdrDecodeOpaque(byte [] opaque, int offset, int length)
+           throws OncRpcException, IOException {
+        //
+        // First make sure that the length is always a multiple of four.
+        //
+        int alignedLength = length;
+        if ( (alignedLength & 3) != 0 ) {
+            alignedLength = (alignedLength & ~3) + 4;
+        }
+        if ( length > 0 ) {
+            if ( bufferIndex <= bufferHighmark - alignedLength + 4 ) {
+                ByteBuffer view = buffer.duplicate();
+                view.position(bufferIndex);
+                view.get(opaque, offset, length);
+            } else {
+                 throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+            }
+        }
+        bufferIndex += alignedLength;
+    }
+
+    /**
+     * Decodes (aka "deserializes") an opaque value of the given length and
+     * returns a read-only view right into the buffer, without copying the
+     * data. The view stays valid until the buffer is filled with the next
+     * record.
+     *
+     * @param length Length of opaque data to decode.
+     *
+     * @return Read-only view of the opaque data.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public ByteBuffer xdrDecodeOpaqueView(int length)
+           throws OncRpcException, IOException {
+        int alignedLength = (length + 3) & ~3;
+        if ( (length < 0)
+             || (bufferIndex > bufferHighmark - alignedLength + 4) ) {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.limit(bufferIndex + length);
+        view.position(bufferIndex);
+        view = view.slice();
+        bufferIndex += alignedLength;
+        return view.asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes (aka "deserializes") the given number of bytes of string data.
+     * Strings in heap buffers are converted straight from the buffer, while
+     * strings in direct buffers are copied into a reusable buffer first.
+     *
+     * @param length Length of string data to decode in bytes.
+     * @param charset Character set to use for conversion.
+     *
+     * @return Decoded String value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected String xdrDecodeString(int length, Charset charset)
+              throws OncRpcException, IOException {
+        if ( !buffer.hasArray() ) {
+            return super.xdrDecodeString(length, charset);
+        }
+        int alignedLength = (length + 3) & ~3;
+        if ( bufferIndex > bufferHighmark - alignedLength + 4 ) {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+        String value = new String(buffer.array(),
+                                  buffer.arrayOffset() + bufferIndex,
+                                  length, charset);
+        bufferIndex += alignedLength;
+        return value;
+    }
+
+    /**
+     * Returns the number of bytes left to decode in the current record.
+     *
+     * @return Number of bytes left in the buffer.
+     */
+    protected int getMaximumRemainingLength() {
+        return Math.max(bufferHighmark - bufferIndex + 4, 0);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of ints straight from the
+     * byte buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of longs straight from the
+     * byte buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of floats straight from the
+     * byte buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of doubles straight from the
+     * byte buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes a run of ints, longs, floats or doubles from the buffer,
+     * after checking that the buffer contains enough data.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if the buffer does not contain enough data.
+     */
+    private void decodeRun(Object value, int offset, int length)
+            throws OncRpcException {
+        long bytes = (long) length * XdrArrays.elementSize(value);
+        if ( bufferIndex <= bufferHighmark - bytes + 4 ) {
+            XdrArrays.get(buffer, bufferIndex, value, offset, length);
+            bufferIndex += (int) bytes;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+        }
+    }
+
+    /**
+     * The buffer containing the encoded data.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Index of the first byte of encoded data in <code>buffer</code>.
+     */
+    private int encodedStart;
+
+    /**
+     * Index following the last byte of encoded data in <code>buffer</code>.
+     */
+    private int encodedEnd;
+
+    /**
+     * The read pointer is an index into the <code>buffer</code>.
+     */
+    private int bufferIndex;
+
+    /**
+     * Index of the last four byte word of encoded data in the buffer.
+     */
+    private int bufferHighmark;
+
+}
+
+// End of XdrByteBufferDecodingStream.java
@@ -0,0 +1,314 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The <code>XdrByteBufferEncodingStream</code> class provides a XDR stream
+ * encoding into a NIO {@link ByteBuffer}, which can either be a heap or a
+ * direct buffer. Using a direct buffer, the encoded data can be handed over
+ * to a channel without being copied first.
+ *
+ * <p>Data is always encoded from the start of the buffer. After
+ * {@link #endEncoding} the position and limit of the buffer span the
+ * encoded data, so the buffer can be written to a channel right away.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class XdrByteBufferEncodingStream extends XdrEncodingStream {
+
+    /**
+     * Constructs a new <code>XdrByteBufferEncodingStream</code> with a heap
+     * buffer to encode data into of the given size.
+     *
+     * @param bufferSize Size of buffer to store encoded data in.
+     *
+     * @throws IllegalArgumentException if <code>bufferSize</code> is not
+     *   a multiple of four.
+     */
+    public XdrByteBufferEncodingStream(int bufferSize) {
+        this(ByteBuffer.allocate(bufferSize));
+    }
+
+    /**
+     * Constructs a new <code>XdrByteBufferEncodingStream</code> with a given
+     * buffer. Encoded data is always stored starting at index zero of the
+     * buffer, regardless of its current position, and the buffer is cleared
+     * whenever encoding begins.
+     *
+     * @param buffer Buffer to store encoded information in.
+     *
+     * @throws IllegalArgumentException if the capacity of the buffer is not
+     *   a multiple of four.
+     */
+    public XdrByteBufferEncodingStream(ByteBuffer buffer) {
+        //
+        // Make sure that the buffer size is a multiple of four, otherwise
+        // throw an exception.
+        //
+        if ( (buffer.capacity() & 3) != 0 ) {
+            throw(new IllegalArgumentException("size of buffer must be a multiple of four"));
+        }
+        if ( buffer.order() != ByteOrder.BIG_ENDIAN ) {
+            buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        }
+        this.buffer = buffer;
+        buffer.clear();
+        bufferIndex = 0;
+        bufferHighmark = buffer.capacity() - 4;
+    }
+
+    /**
+     * Returns the amount of encoded data in the buffer.
+     *
+     * @return length of data encoded in buffer.
+     */
+    public int getXdrLength() {
+        return bufferIndex;
+    }
+
+    /**
+     * Returns the buffer holding encoded data.
+     *
+     * @return Buffer with encoded data.
+     */
+    public ByteBuffer getXdrData() {
+        return buffer;
+    }
+
+    /**
+     * Begins encoding a new XDR record. This involves resetting this
+     * encoding XDR stream back into a known state.
+     *
+     * @param receiverAddress Indicates the receiver of the XDR data. This can be
+     *   <code>null</code> for XDR streams connected permanently to a
+     *   receiver (like in case of TCP/IP based XDR streams).
+     * @param receiverPort Port number of the receiver.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void beginEncoding(InetAddress receiverAddress, int receiverPort)
+           throws OncRpcException, IOException {
+        buffer.clear();
+        bufferIndex = 0;
+    }
+
+    /**
+     * Flushes this encoding XDR stream and forces any buffered output bytes
+     * to be written out. The general contract of <code>endEncoding</code> is that
+     * calling it is an indication that the current record is finished and any
+     * bytes previously encoded should immediately be written to their intended
+     * destination.
+     *
+     * <p>This implementation sets the position of the buffer to zero and its
+     * limit to the amount of encoded data, so the buffer is ready for being
+     * written to a channel.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void endEncoding()
+           throws OncRpcException, IOException {
+        buffer.limit(bufferIndex);
+        buffer.position(0);
+    }
+
+    /**
+     * Closes this encoding XDR stream and releases any system resources
+     * associated with this stream. The general contract of <code>close</code>
+     * is that it closes the encoding XDR stream. A closed XDR stream cannot
+     * perform encoding operations and cannot be reopened.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void close()
+           throws OncRpcException, IOException {
+        buffer = null;
+    }
+
+    /**
+     * Encodes (aka "serializes") a "XDR int" value and writes it down a
+     * XDR stream. A XDR int is 32 bits wide -- the same width Java's "int"
+     * data type has. This method is one of the basic methods all other
+     * methods can rely on.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void xdrEncodeInt(int value)
+           throws OncRpcException, IOException {
+        if ( bufferIndex <= bufferHighmark ) {
+            buffer.putInt(bufferIndex, value);
+            bufferIndex += 4;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is represented
+     * by a vector of byte values, and starts at <code>offset</code> with a
+     * length of <code>length</code>. Only the opaque value is encoded, but
+     * no length indication is preceeding the opaque value, so the receiver
+     * has to know how long the opaque value will be. The encoded data is
+     * always padded to be a multiple of four. If the given length is not a
+     * multiple of four, zero bytes will be used for padding.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void xdrEncodeOpaque(byte [] value, int offset, int length)
+           throws OncRpcException, IOException {
+        //
+        // First calculate the number of bytes needed for padding.
+        //
+        int padding = (4 - (length & 3)) & 3;
+        if ( bufferIndex <= bufferHighmark - (length + padding) + 4 ) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(bufferIndex);
+            view.put(value, offset, length);
+            if ( padding != 0 ) {
+                view.put(paddingZeros, 0, padding);
+            }
+            bufferIndex += length + padding;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of ints straight into the
+     * byte buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of longs straight into the
+     * byte buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of floats straight into the
+     * byte buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of doubles straight into the
+     * byte buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes a run of ints, longs, floats or doubles into the buffer,
+     * after checking that there is enough space left.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if there is not enough space left.
+     */
+    private void encodeRun(Object value, int offset, int length)
+            throws OncRpcException {
+        long bytes = (long) length * XdrArrays.elementSize(value);
+        if ( bufferIndex <= bufferHighmark - bytes + 4 ) {
+            XdrArrays.put(buffer, bufferIndex, value, offset, length);
+            bufferIndex += (int) bytes;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
+    /**
+     * The buffer which will receive the encoded information.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The write pointer is an index into the <code>buffer</code>.
+     */
+    private int bufferIndex;
+
+    /**
+     * Index of the last four byte word in the buffer.
+     */
+    private int bufferHighmark;
+
+    /**
+     * Some zeros, only needed for padding -- like in real life.
+     */
+    private static final byte [] paddingZeros = { 0, 0, 0, 0 };
+
+}
+
+// End of XdrByteBufferEncodingStream.java
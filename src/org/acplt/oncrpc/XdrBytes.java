@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrBytes implements XdrAble {
+public class XdrBytes implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrBytes</code> object.
@@ -81,6 +81,19 @@ public class XdrBytes implements XdrAble {
         xdr.xdrEncodeByteVector(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR bytes value takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 4 + 4 * value.length;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR bytes value from a XDR stream in
      * compliance to RFC 1832.
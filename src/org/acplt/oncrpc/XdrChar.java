@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrChar implements XdrAble {
+public class XdrChar implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrChar</code> object.
@@ -81,6 +81,19 @@ public class XdrChar implements XdrAble {
         xdr.xdrEncodeByte((byte)value);
     }
 
+    /**
+     * Returns the number of bytes a XDR char takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 4;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR char from a XDR stream in
      * compliance to RFC 1832.
@@ -25,7 +25,11 @@
 package org.acplt.oncrpc;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 /**
  * Defines the abstract base class for all decoding XDR streams. A decoding
@@ -180,6 +184,29 @@ public abstract class XdrDecodingStream {
         xdrDecodeOpaque(opaque, 0, opaque.length);
     }
 
+    /**
+     * Decodes (aka "deserializes") a XDR opaque value of the given length
+     * like {@link #xdrDecodeOpaque(int)}, but reuses the given byte vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param opaque Byte vector to decode into, or <code>null</code>.
+     * @param length the number of bytes to decode.
+     *
+     * @return The byte vector containing the decoded data, which is either
+     *   <code>opaque</code> or a new byte vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeOpaque(byte [] opaque, int length)
+           throws OncRpcException, IOException {
+        if ( (opaque == null) || (opaque.length != length) ) {
+            return xdrDecodeOpaque(length);
+        }
+        xdrDecodeOpaque(opaque, 0, length);
+        return opaque;
+    }
+
     /**
      * Decodes (aka "deserializes") a XDR opaque value, which is represented
      * by a vector of byte values. The length of the opaque value to decode
@@ -194,14 +221,148 @@ public abstract class XdrDecodingStream {
      */
     public final byte [] xdrDecodeDynamicOpaque()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        byte [] opaque = new byte[length];
+        return xdrDecodeDynamicOpaque(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a XDR opaque value, which is represented
+     * by a vector of byte values, with an upper bound on its length as
+     * declared in the protocol specification, like <code>opaque&lt;1024&gt;</code>.
+     *
+     * @param maximumLength Maximum length of the opaque value as declared in the protocol
+     *   specification.
+     *
+     * @return The byte vector containing the decoded data.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeDynamicOpaque(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeDynamicOpaque(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a XDR opaque value like
+     * {@link #xdrDecodeDynamicOpaque(int)}, but reuses the given byte vector
+     * instead of allocating a new one, if it has the length pulled off the
+     * XDR stream.
+     *
+     * @param opaque Byte vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum length of the opaque value as declared in the protocol
+     *   specification.
+     *
+     * @return The byte vector containing the decoded data, which is either
+     *   <code>opaque</code> or a new byte vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeDynamicOpaque(byte [] opaque, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 1);
+        if ( (opaque == null) || (opaque.length != length) ) {
+            opaque = new byte[length];
+        }
         if ( length != 0 ) {
             xdrDecodeOpaque(opaque);
         }
         return opaque;
     }
 
+    /**
+     * Decodes (aka "deserializes") an opaque value of the given length and
+     * returns a read-only view of it instead of a copy. Streams decoding
+     * complete records from memory return a view right into their buffer,
+     * so no data is copied at all. Such a view stays valid until
+     * {@link #endDecoding} is called, so it must be used before decoding
+     * has been finished. Streams which refill their buffers while decoding
+     * return a view of a copy instead.
+     *
+     * <p>On the server side, use {@link
+     * org.acplt.oncrpc.server.OncRpcCallInformation#getXdrDecodingStream}
+     * to decode views and call
+     * {@link org.acplt.oncrpc.server.OncRpcCallInformation#endDecoding}
+     * only after you are done with them.
+     *
+     * <p>This default implementation always returns a view of a copy.
+     *
+     * @param length Length of opaque data to decode.
+     *
+     * @return Read-only view of the opaque data, with its position being
+     *   zero and its limit being the length of the opaque data.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public ByteBuffer xdrDecodeOpaqueView(int length)
+           throws OncRpcException, IOException {
+        return ByteBuffer.wrap(xdrDecodeOpaque(length)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Decodes (aka "deserializes") a XDR opaque value, whose length is
+     * pulled off of the XDR stream first, and returns a read-only view of
+     * it instead of a copy. See {@link #xdrDecodeOpaqueView(int)} for how
+     * long the view stays valid.
+     *
+     * @return Read-only view of the opaque data.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final ByteBuffer xdrDecodeDynamicOpaqueView()
+           throws OncRpcException, IOException {
+        return xdrDecodeOpaqueView(decodeLength(Integer.MAX_VALUE, 1));
+    }
+
+    /**
+     * Returns an input stream reading an opaque value of the given length
+     * from this XDR stream. The opaque value is pulled off this XDR stream
+     * only as it is read from the input stream, so large opaque values can
+     * be processed with bounded memory, for instance by copying them to a
+     * file. TCP/IP-based XDR streams read the opaque value from the network
+     * across fragment boundaries as the data arrives.
+     *
+     * <p>The input stream must be read completely or closed, which skips
+     * the rest of the opaque value, before decoding the next item from this
+     * XDR stream. If decoding is finished instead, any unread bytes are
+     * discarded together with the rest of the record.
+     *
+     * @param length Length of opaque data to decode.
+     *
+     * @return Input stream reading the opaque data.
+     *
+     * @throws IllegalArgumentException if the length is negative.
+     */
+    public InputStream xdrDecodeOpaqueStream(int length) {
+        if ( length < 0 ) {
+            throw(new IllegalArgumentException("negative opaque length"));
+        }
+        return new OpaqueInputStream(length);
+    }
+
+    /**
+     * Returns an input stream reading a XDR opaque value, whose length is
+     * pulled off of the XDR stream first. See
+     * {@link #xdrDecodeOpaqueStream(int)} for how to use the input stream.
+     *
+     * @return Input stream reading the opaque data.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final InputStream xdrDecodeDynamicOpaqueStream()
+           throws OncRpcException, IOException {
+        return xdrDecodeOpaqueStream(decodeLength(Integer.MAX_VALUE, 1));
+    }
+
     /**
      * Decodes (aka "deserializes") a vector of bytes, which is nothing more
      * than a series of octets (or 8 bits wide bytes), each packed into its
@@ -216,16 +377,57 @@ public abstract class XdrDecodingStream {
      */
     public final byte [] xdrDecodeByteVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        if ( length > 0 ) {
-            byte [] bytes = new byte[length];
-            for ( int i = 0; i < length; ++i ) {
-                bytes[i] = (byte) xdrDecodeInt();
-            }
-            return bytes;
-        } else {
-            return new byte[0];
+        return xdrDecodeByteVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a byte vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded byte vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeByteVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeByteVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a byte vector read from a XDR stream like
+     * {@link #xdrDecodeByteVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded byte vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeByteVector(byte [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
+        if ( (value == null) || (value.length != length) ) {
+            value = new byte[length];
         }
+        for ( int i = 0; i < length; ++i ) {
+            value[i] = (byte) xdrDecodeInt();
+        }
+        return value;
     }
 
     /**
@@ -242,15 +444,32 @@ public abstract class XdrDecodingStream {
      */
     public final byte [] xdrDecodeByteFixedVector(int length)
            throws OncRpcException, IOException {
-        if ( length > 0 ) {
-            byte [] bytes = new byte[length];
-            for ( int i = 0; i < length; ++i ) {
-                bytes[i] = (byte) xdrDecodeInt();
-            }
-            return bytes;
-        } else {
-            return new byte[0];
+        return xdrDecodeByteFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of bytes read from a XDR stream like
+     * {@link #xdrDecodeByteFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded byte vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final byte [] xdrDecodeByteFixedVector(byte [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new byte[length];
         }
+        for ( int i = 0; i < length; ++i ) {
+            value[i] = (byte) xdrDecodeInt();
+        }
+        return value;
     }
 
     /**
@@ -351,18 +570,73 @@ public abstract class XdrDecodingStream {
      */
     public final String xdrDecodeString()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
+        return xdrDecodeString(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a string read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification,
+     * like <code>string&lt;255&gt;</code>.
+     *
+     * @param maximumLength Maximum length of the string in bytes as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded String value.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final String xdrDecodeString(int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 1);
         if ( length > 0 ) {
-            byte [] bytes = new byte[length];
-            xdrDecodeOpaque(bytes, 0, length);
-            return (characterEncoding != null) ?
-            	     new String(bytes, characterEncoding) :
-            	     new String(bytes);
+            if ( charset == null ) {
+                throw(new UnsupportedEncodingException(characterEncoding));
+            }
+            return xdrDecodeString(length, charset);
         } else {
             return new String();
         }
     }
 
+    /**
+     * Decodes (aka "deserializes") the given number of bytes of string data
+     * using the given character set. Derived classes holding the data in
+     * an array should override this method to convert the data straight
+     * from their buffer. The conversion from US-ASCII, ISO-8859-1 and
+     * UTF-8 is then handled by the string constructor, which converts runs
+     * of ASCII characters without any further decoding.
+     *
+     * <p>This default implementation pulls short strings off the XDR stream
+     * into an internal buffer, which is reused for every string, so only
+     * the string itself needs to be allocated.
+     *
+     * @param length Length of string data to decode in bytes.
+     * @param charset Character set to use for conversion.
+     *
+     * @return Decoded String value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected String xdrDecodeString(int length, Charset charset)
+              throws OncRpcException, IOException {
+        byte [] bytes;
+        if ( length <= MAXIMUM_STRING_BUFFER_SIZE ) {
+            if ( (stringBuffer == null) || (stringBuffer.length < length) ) {
+                stringBuffer = new byte[Math.max(length, 64)];
+            }
+            bytes = stringBuffer;
+        } else {
+            bytes = new byte[length];
+        }
+        xdrDecodeOpaque(bytes, 0, length);
+        return new String(bytes, 0, length, charset);
+    }
+
     /**
      * Decodes (aka "deserializes") a vector of short integers read from a
      * XDR stream.
@@ -374,8 +648,53 @@ public abstract class XdrDecodingStream {
      */
     public final short [] xdrDecodeShortVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        short [] value = new short[length];
+        return xdrDecodeShortVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of short integers read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded vector of short integers.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final short [] xdrDecodeShortVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeShortVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a short vector read from a XDR stream like
+     * {@link #xdrDecodeShortVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded short vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final short [] xdrDecodeShortVector(short [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
+        if ( (value == null) || (value.length != length) ) {
+            value = new short[length];
+        }
         for ( int i = 0; i < length; ++i ) {
             value[i] = xdrDecodeShort();
         }
@@ -395,7 +714,28 @@ public abstract class XdrDecodingStream {
      */
     public final short [] xdrDecodeShortFixedVector(int length)
            throws OncRpcException, IOException {
-        short [] value = new short[length];
+        return xdrDecodeShortFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of shorts read from a XDR stream like
+     * {@link #xdrDecodeShortFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded short vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final short [] xdrDecodeShortFixedVector(short [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new short[length];
+        }
         for ( int i = 0; i < length; ++i ) {
             value[i] = xdrDecodeShort();
         }
@@ -412,11 +752,54 @@ public abstract class XdrDecodingStream {
      */
     public final int [] xdrDecodeIntVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        int [] value = new int[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeInt();
+        return xdrDecodeIntVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a int vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded int vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final int [] xdrDecodeIntVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeIntVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") an int vector read from a XDR stream like
+     * {@link #xdrDecodeIntVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded int vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final int [] xdrDecodeIntVector(int [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
+        if ( (value == null) || (value.length != length) ) {
+            value = new int[length];
         }
+        xdrDecodeInts(value, 0, length);
         return value;
     }
 
@@ -432,10 +815,29 @@ public abstract class XdrDecodingStream {
      */
     public final int [] xdrDecodeIntFixedVector(int length)
            throws OncRpcException, IOException {
-        int [] value = new int[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeInt();
+        return xdrDecodeIntFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of ints read from a XDR stream like
+     * {@link #xdrDecodeIntFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded int vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final int [] xdrDecodeIntFixedVector(int [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new int[length];
         }
+        xdrDecodeInts(value, 0, length);
         return value;
     }
 
@@ -449,11 +851,54 @@ public abstract class XdrDecodingStream {
      */
     public final long [] xdrDecodeLongVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        long [] value = new long[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeLong();
+        return xdrDecodeLongVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a long vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded long vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final long [] xdrDecodeLongVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeLongVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a long vector read from a XDR stream like
+     * {@link #xdrDecodeLongVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded long vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final long [] xdrDecodeLongVector(long [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 8);
+        if ( (value == null) || (value.length != length) ) {
+            value = new long[length];
         }
+        xdrDecodeLongs(value, 0, length);
         return value;
     }
 
@@ -469,10 +914,29 @@ public abstract class XdrDecodingStream {
      */
     public final long [] xdrDecodeLongFixedVector(int length)
            throws OncRpcException, IOException {
-        long [] value = new long[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeLong();
+        return xdrDecodeLongFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of longs read from a XDR stream like
+     * {@link #xdrDecodeLongFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded long vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final long [] xdrDecodeLongFixedVector(long [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new long[length];
         }
+        xdrDecodeLongs(value, 0, length);
         return value;
     }
 
@@ -487,11 +951,54 @@ public abstract class XdrDecodingStream {
      */
     public final float [] xdrDecodeFloatVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        float [] value = new float[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeFloat();
+        return xdrDecodeFloatVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a float vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded float vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final float [] xdrDecodeFloatVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeFloatVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a float vector read from a XDR stream like
+     * {@link #xdrDecodeFloatVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded float vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final float [] xdrDecodeFloatVector(float [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
+        if ( (value == null) || (value.length != length) ) {
+            value = new float[length];
         }
+        xdrDecodeFloats(value, 0, length);
         return value;
     }
 
@@ -507,10 +1014,29 @@ public abstract class XdrDecodingStream {
      */
     public final float [] xdrDecodeFloatFixedVector(int length)
            throws OncRpcException, IOException {
-        float [] value = new float[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeFloat();
+        return xdrDecodeFloatFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of floats read from a XDR stream like
+     * {@link #xdrDecodeFloatFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded float vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final float [] xdrDecodeFloatFixedVector(float [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new float[length];
         }
+        xdrDecodeFloats(value, 0, length);
         return value;
     }
 
@@ -524,11 +1050,54 @@ public abstract class XdrDecodingStream {
      */
     public final double [] xdrDecodeDoubleVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        double [] value = new double[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeDouble();
+        return xdrDecodeDoubleVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a double vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded double vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final double [] xdrDecodeDoubleVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeDoubleVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a double vector read from a XDR stream like
+     * {@link #xdrDecodeDoubleVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded double vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final double [] xdrDecodeDoubleVector(double [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 8);
+        if ( (value == null) || (value.length != length) ) {
+            value = new double[length];
         }
+        xdrDecodeDoubles(value, 0, length);
         return value;
     }
 
@@ -544,10 +1113,29 @@ public abstract class XdrDecodingStream {
      */
     public final double [] xdrDecodeDoubleFixedVector(int length)
            throws OncRpcException, IOException {
-        double [] value = new double[length];
-        for ( int i = 0; i < length; ++i ) {
-            value[i] = xdrDecodeDouble();
+        return xdrDecodeDoubleFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of doubles read from a XDR stream like
+     * {@link #xdrDecodeDoubleFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded double vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final double [] xdrDecodeDoubleFixedVector(double [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new double[length];
         }
+        xdrDecodeDoubles(value, 0, length);
         return value;
     }
 
@@ -561,8 +1149,53 @@ public abstract class XdrDecodingStream {
      */
     public final boolean [] xdrDecodeBooleanVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
-        boolean [] value = new boolean[length];
+        return xdrDecodeBooleanVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a boolean vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded boolean vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final boolean [] xdrDecodeBooleanVector(int maximumLength)
+           throws OncRpcException, IOException {
+        return xdrDecodeBooleanVector(null, maximumLength);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a boolean vector read from a XDR stream like
+     * {@link #xdrDecodeBooleanVector(int)}, but reuses the given vector instead of
+     * allocating a new one, if it has the length pulled off the XDR stream.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded boolean vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final boolean [] xdrDecodeBooleanVector(boolean [] value, int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
+        if ( (value == null) || (value.length != length) ) {
+            value = new boolean[length];
+        }
         for ( int i = 0; i < length; ++i ) {
             value[i] = xdrDecodeBoolean();
         }
@@ -581,7 +1214,28 @@ public abstract class XdrDecodingStream {
      */
     public final boolean [] xdrDecodeBooleanFixedVector(int length)
            throws OncRpcException, IOException {
-        boolean [] value = new boolean[length];
+        return xdrDecodeBooleanFixedVector(null, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a vector of booleans read from a XDR stream like
+     * {@link #xdrDecodeBooleanFixedVector(int)}, but reuses the given vector
+     * instead of allocating a new one, if it has the given length.
+     *
+     * @param value Vector to decode into, or <code>null</code>.
+     * @param length of vector to read.
+     *
+     * @return Decoded boolean vector, which is either <code>value</code> or a new
+     *   vector.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final boolean [] xdrDecodeBooleanFixedVector(boolean [] value, int length)
+           throws OncRpcException, IOException {
+        if ( (value == null) || (value.length != length) ) {
+            value = new boolean[length];
+        }
         for ( int i = 0; i < length; ++i ) {
             value[i] = xdrDecodeBoolean();
         }
@@ -598,7 +1252,27 @@ public abstract class XdrDecodingStream {
      */
     public final String [] xdrDecodeStringVector()
            throws OncRpcException, IOException {
-        int length = xdrDecodeInt();
+        return xdrDecodeStringVector(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a String vector read from a XDR stream with an
+     * upper bound on its length as declared in the protocol specification.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded String vector.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final String [] xdrDecodeStringVector(int maximumLength)
+           throws OncRpcException, IOException {
+        int length = decodeLength(maximumLength, 4);
         String [] value = new String[length];
         for ( int i = 0; i < length; ++i ) {
             value[i] = xdrDecodeString();
@@ -625,6 +1299,147 @@ public abstract class XdrDecodingStream {
         return value;
     }
 
+    /**
+     * Decodes (aka "deserializes") the length of a vector with an upper
+     * bound on its length as declared in the protocol specification. This
+     * is used by generated code for vectors of structures and unions. The
+     * length is checked before anything is allocated, assuming that every
+     * element takes at least four bytes.
+     *
+     * @param maximumLength Maximum number of elements as declared in the protocol
+     *   specification.
+     *
+     * @return Decoded length.
+     *
+     * @throws OncRpcException with a reason of
+     *   {@link OncRpcException#RPC_BUFFEROVERFLOW} if the length pulled off
+     *   the XDR stream is negative or exceeds the maximum length, before
+     *   anything is allocated. Or if another ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final int xdrDecodeLength(int maximumLength)
+           throws OncRpcException, IOException {
+        return decodeLength(maximumLength, 4);
+    }
+
+    /**
+     * Pulls the length of a vector off the XDR stream and makes sure that
+     * it is neither negative, nor exceeds the given maximum length, nor
+     * exceeds the data left in the current record.
+     *
+     * @param maximumLength Maximum number of elements.
+     * @param elementSize Minimum number of bytes each element takes.
+     *
+     * @return Decoded length.
+     *
+     * @throws OncRpcException if the length is invalid.
+     * @throws IOException if an I/O error occurs.
+     */
+    private int decodeLength(int maximumLength, int elementSize)
+            throws OncRpcException, IOException {
+        int length = xdrDecodeInt();
+        if ( (length < 0) || (length > maximumLength)
+             || ((long) length * elementSize > getMaximumRemainingLength()) ) {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+        return length;
+    }
+
+    /**
+     * Returns an upper bound of the number of bytes left to decode in the
+     * current record. Lengths of vectors pulled off the XDR stream are
+     * checked against this bound before allocating the vectors. Derived
+     * classes, which know how much data is left, should override this
+     * method.
+     *
+     * <p>This default implementation returns {@link Integer#MAX_VALUE}.
+     *
+     * @return Maximum number of bytes left in the current record.
+     */
+    protected int getMaximumRemainingLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of 32 bits wide ints into an array. This is
+     * the hook used by the int vector methods. The default implementation
+     * decodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight from their buffers.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            value[offset + i] = xdrDecodeInt();
+        }
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of 64 bits wide longs into an array. This is
+     * the hook used by the long vector methods. The default implementation
+     * decodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight from their buffers.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            value[offset + i] = xdrDecodeLong();
+        }
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of floats into an array. This is
+     * the hook used by the float vector methods. The default implementation
+     * decodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight from their buffers.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            value[offset + i] = xdrDecodeFloat();
+        }
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of doubles into an array. This is
+     * the hook used by the double vector methods. The default implementation
+     * decodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight from their buffers.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            value[offset + i] = xdrDecodeDouble();
+        }
+    }
+
 	/**
 	 * Set the character encoding for deserializing strings.
 	 *
@@ -633,6 +1448,20 @@ public abstract class XdrDecodingStream {
 	 */
 	public void setCharacterEncoding(String characterEncoding) {
 		this.characterEncoding = characterEncoding;
+		//
+		// Look up the character set only once here instead of every time
+		// a string is decoded. Unknown encodings are reported when the
+		// next string is decoded, just as before.
+		//
+		if ( characterEncoding == null ) {
+			charset = Charset.defaultCharset();
+		} else {
+			try {
+				charset = Charset.forName(characterEncoding);
+			} catch ( IllegalArgumentException e ) {
+				charset = null;
+			}
+		}
 	}
 
 	/**
@@ -651,6 +1480,146 @@ public abstract class XdrDecodingStream {
 	 */
 	private String characterEncoding = null;
 
+	/**
+	 * Character set resolved from the character encoding or
+	 * <code>null</code> if the character encoding is not supported.
+	 */
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Buffer reused when decoding short strings.
+	 */
+	private byte [] stringBuffer;
+
+	/**
+	 * Maximum size of the buffer reused when decoding strings. Longer
+	 * strings get their own buffer, so the stream does not keep large
+	 * buffers alive.
+	 */
+	private static final int MAXIMUM_STRING_BUFFER_SIZE = 4096;
+
+    /**
+     * Input stream reading an opaque value from this XDR stream. Reads of
+     * at least four bytes go straight into the caller's array, and only
+     * reads of fewer bytes go through a small buffer. The padding is pulled
+     * off this XDR stream together with the last bytes of the opaque value.
+     */
+    private class OpaqueInputStream extends InputStream {
+
+        /**
+         * Create a new input stream reading an opaque value.
+         *
+         * @param length Length of opaque data.
+         */
+        OpaqueInputStream(int length) {
+            remaining = length;
+        }
+
+        /**
+         * Reads the next byte of the opaque value.
+         */
+        public int read()
+               throws IOException {
+            byte [] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xFF);
+        }
+
+        /**
+         * Reads up to <code>len</code> bytes of the opaque value.
+         */
+        public int read(byte [] b, int off, int len)
+               throws IOException {
+            if ( len == 0 ) {
+                return 0;
+            }
+            if ( chunkIndex < chunkLength ) {
+                int toCopy = Math.min(len, chunkLength - chunkIndex);
+                System.arraycopy(chunk, chunkIndex, b, off, toCopy);
+                chunkIndex += toCopy;
+                return toCopy;
+            }
+            if ( remaining == 0 ) {
+                return -1;
+            }
+            try {
+                if ( len >= remaining ) {
+                    //
+                    // Read the rest of the opaque value including its
+                    // padding.
+                    //
+                    len = remaining;
+                    xdrDecodeOpaque(b, off, len);
+                } else if ( len >= 4 ) {
+                    //
+                    // Read a multiple of four bytes, so no padding is
+                    // consumed.
+                    //
+                    len &= ~3;
+                    xdrDecodeOpaque(b, off, len);
+                } else {
+                    //
+                    // Read the next four bytes (or what is left) into the
+                    // chunk and hand out only what was asked for.
+                    //
+                    chunkLength = Math.min(4, remaining);
+                    xdrDecodeOpaque(chunk, 0, chunkLength);
+                    remaining -= chunkLength;
+                    chunkIndex = 0;
+                    return read(b, off, len);
+                }
+            } catch ( OncRpcException e ) {
+                throw(new IOException(e.getMessage(), e));
+            }
+            remaining -= len;
+            return len;
+        }
+
+        /**
+         * Returns the number of bytes which can be read without pulling
+         * more data off the XDR stream.
+         */
+        public int available() {
+            return chunkLength - chunkIndex;
+        }
+
+        /**
+         * Skips the rest of the opaque value.
+         */
+        public void close()
+               throws IOException {
+            byte [] skipBuffer = null;
+            chunkIndex = chunkLength;
+            while ( remaining > 0 ) {
+                if ( skipBuffer == null ) {
+                    skipBuffer = new byte[Math.min(remaining, 8192)];
+                }
+                read(skipBuffer, 0, skipBuffer.length);
+            }
+        }
+
+        /**
+         * Number of bytes of the opaque value not yet pulled off the XDR
+         * stream.
+         */
+        private int remaining;
+
+        /**
+         * Small buffer for reads of less than four bytes.
+         */
+        private final byte [] chunk = new byte[4];
+
+        /**
+         * Index of the next byte to hand out from the chunk.
+         */
+        private int chunkIndex;
+
+        /**
+         * Number of bytes in the chunk.
+         */
+        private int chunkLength;
+
+    }
+
 }
 
 // End of XdrDecodingStream.java
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrDouble implements XdrAble {
+public class XdrDouble implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrDouble</code> object.
@@ -81,6 +81,19 @@ public class XdrDouble implements XdrAble {
         xdr.xdrEncodeDouble(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR double takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 8;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR double from a XDR stream in
      * compliance to RFC 1832.
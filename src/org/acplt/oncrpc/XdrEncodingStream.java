@@ -24,8 +24,18 @@
 
 package org.acplt.oncrpc;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Defines the abstract base class for all encoding XDR streams. An encoding
@@ -148,6 +158,136 @@ public abstract class XdrEncodingStream {
         xdrEncodeOpaque(value);
     }
 
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is represented
+     * by the bytes remaining in a byte buffer. Only the opaque value is
+     * encoded, but no length indication is preceeding the opaque value.
+     * The encoded data is always padded to be a multiple of four. The
+     * position of the byte buffer is not changed.
+     *
+     * <p>Derived classes might keep a reference to the byte buffer instead
+     * of copying its contents, so the contents must not be changed until
+     * the current record has been encoded completely. This default
+     * implementation encodes the backing array of heap buffers and a copy
+     * of direct buffers.
+     *
+     * @param value The opaque value to be encoded.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void xdrEncodeOpaque(ByteBuffer value)
+           throws OncRpcException, IOException {
+        if ( value.hasArray() ) {
+            xdrEncodeOpaque(value.array(), value.arrayOffset() + value.position(),
+                            value.remaining());
+        } else {
+            byte [] bytes = new byte[value.remaining()];
+            value.duplicate().get(bytes);
+            xdrEncodeOpaque(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is represented
+     * by the bytes remaining in a byte buffer. The length of the opaque
+     * value is written to the XDR stream, so the receiver does not need to
+     * know the exact length in advance. The position of the byte buffer is
+     * not changed.
+     *
+     * @param value The opaque value to be encoded.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final void xdrEncodeDynamicOpaque(ByteBuffer value)
+           throws OncRpcException, IOException {
+        xdrEncodeInt(value.remaining());
+        xdrEncodeOpaque(value);
+    }
+
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is read from a
+     * region of a file. Only the opaque value is encoded, but no length
+     * indication is preceeding the opaque value. The encoded data is always
+     * padded to be a multiple of four. The position of the file channel is
+     * not changed.
+     *
+     * <p>Derived classes sending to channels might transfer the file
+     * region straight to the channel when the current record is sent, so
+     * the region must not be changed until then. This default
+     * implementation reads the file region in chunks.
+     *
+     * @param channel File channel to read the opaque value from.
+     * @param position Position of the opaque value in the file.
+     * @param length Length of the opaque value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs, or the file ends before
+     *   the whole opaque value has been read.
+     */
+    public void xdrEncodeOpaque(FileChannel channel, long position, int length)
+           throws OncRpcException, IOException {
+        if ( length < 0 ) {
+            throw(new IllegalArgumentException("negative opaque length"));
+        }
+        //
+        // Chunks are multiples of four bytes long, so only the last chunk
+        // gets padded.
+        //
+        byte [] chunk = new byte[Math.min(length, 8192)];
+        while ( length > 0 ) {
+            int toRead = Math.min(length, chunk.length);
+            readFully(channel, ByteBuffer.wrap(chunk, 0, toRead), position);
+            xdrEncodeOpaque(chunk, 0, toRead);
+            position += toRead;
+            length -= toRead;
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is read from a
+     * region of a file. The length of the opaque value is written to the XDR
+     * stream, so the receiver does not need to know the exact length in
+     * advance. The position of the file channel is not changed.
+     *
+     * @param channel File channel to read the opaque value from.
+     * @param position Position of the opaque value in the file.
+     * @param length Length of the opaque value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs, or the file ends before
+     *   the whole opaque value has been read.
+     */
+    public final void xdrEncodeDynamicOpaque(FileChannel channel,
+                                             long position, int length)
+           throws OncRpcException, IOException {
+        xdrEncodeInt(length);
+        xdrEncodeOpaque(channel, position, length);
+    }
+
+    /**
+     * Reads from a file until the given byte buffer has been filled.
+     *
+     * @param channel File channel to read from.
+     * @param buffer Byte buffer to fill between its position and limit.
+     * @param position Position in the file to start reading at.
+     *
+     * @throws IOException if an I/O error occurs, or the file ends before
+     *   the buffer has been filled.
+     */
+    protected static void readFully(FileChannel channel, ByteBuffer buffer,
+                                    long position)
+              throws IOException {
+        while ( buffer.hasRemaining() ) {
+            int bytesRead = channel.read(buffer, position);
+            if ( bytesRead < 0 ) {
+                throw(new EOFException("file ends before end of opaque value"));
+            }
+            position += bytesRead;
+        }
+    }
+
     /**
      * Encodes (aka "serializes") a XDR opaque value, which is represented
      * by a vector of byte values. Only the opaque value is encoded, but
@@ -352,11 +492,139 @@ public abstract class XdrEncodingStream {
      */
     public final void xdrEncodeString(String value)
            throws OncRpcException, IOException {
-        if ( characterEncoding != null ) {
-			xdrEncodeDynamicOpaque(value.getBytes(characterEncoding));
-        } else { 
-			xdrEncodeDynamicOpaque(value.getBytes());
+        if ( charset == null ) {
+            throw(new UnsupportedEncodingException(characterEncoding));
+        }
+        int length = value.length();
+        if ( length > MAXIMUM_STRING_BUFFER_SIZE ) {
+            xdrEncodeDynamicOpaque(value.getBytes(charset));
+            return;
+        }
+        //
+        // Short strings are converted into a buffer which is reused for
+        // every string. If the character set maps characters below a
+        // certain limit one-to-one onto bytes, we first try to simply
+        // copy the characters. This covers the common case of plain
+        // ASCII strings.
+        //
+        byte [] bytes = getStringBuffer(length);
+        int i = 0;
+        while ( (i < length) && (value.charAt(i) < singleByteLimit) ) {
+            bytes[i] = (byte) value.charAt(i);
+            ++i;
+        }
+        if ( i < length ) {
+            length = encodeString(value);
+            if ( length < 0 ) {
+                xdrEncodeDynamicOpaque(value.getBytes(charset));
+                return;
+            }
+            bytes = stringBuffer;
+        }
+        xdrEncodeInt(length);
+        xdrEncodeOpaque(bytes, 0, length);
+    }
+
+    /**
+     * Returns the number of bytes a string takes when encoded into this
+     * XDR stream, including its length. As the number of bytes depends on
+     * the character encoding, this may require converting the string, but
+     * plain ASCII strings are measured without any conversion.
+     *
+     * @param value String value to be measured.
+     *
+     * @return Number of bytes of the encoded string.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public final int xdrStringSize(String value)
+           throws OncRpcException, IOException {
+        if ( charset == null ) {
+            throw(new UnsupportedEncodingException(characterEncoding));
+        }
+        int length = value.length();
+        int i = 0;
+        while ( (i < length) && (value.charAt(i) < singleByteLimit) ) {
+            ++i;
+        }
+        if ( i < length ) {
+            length = (length <= MAXIMUM_STRING_BUFFER_SIZE) ?
+                         encodeString(value) : -1;
+            if ( length < 0 ) {
+                length = value.getBytes(charset).length;
+            }
+        }
+        return xdrDynamicOpaqueSize(length);
+    }
+
+    /**
+     * Returns the number of bytes a fixed-size opaque value of the given
+     * length takes when encoded, that is its length padded to a multiple
+     * of four.
+     *
+     * @param length Length of the opaque value.
+     *
+     * @return Number of bytes of the encoded opaque value.
+     */
+    public final int xdrOpaqueSize(int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * Returns the number of bytes a variable-size opaque value of the given
+     * length takes when encoded, including its length.
+     *
+     * @param length Length of the opaque value.
+     *
+     * @return Number of bytes of the encoded opaque value.
+     */
+    public final int xdrDynamicOpaqueSize(int length) {
+        return 4 + ((length + 3) & ~3);
+    }
+
+    /**
+     * Converts a string into the string buffer using the encoder of the
+     * current character set, which is reused for every string.
+     *
+     * @param value String value to be converted.
+     *
+     * @return Number of bytes in the string buffer or <code>-1</code> if
+     *   the string did not fit.
+     */
+    private int encodeString(String value) {
+        if ( encoder == null ) {
+            encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        int maximumLength = (int) Math.ceil(value.length()
+                                            * (double) encoder.maxBytesPerChar());
+        if ( maximumLength > MAXIMUM_STRING_BUFFER_SIZE ) {
+            return -1;
+        }
+        ByteBuffer out = ByteBuffer.wrap(getStringBuffer(maximumLength));
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(value), out, true);
+        if ( result.isUnderflow() ) {
+            result = encoder.flush(out);
+        }
+        return result.isUnderflow() ? out.position() : -1;
+    }
+
+    /**
+     * Returns the string buffer, making sure that it can hold at least the
+     * given number of bytes.
+     *
+     * @param length Number of bytes required.
+     *
+     * @return String buffer.
+     */
+    private byte [] getStringBuffer(int length) {
+        if ( (stringBuffer == null) || (stringBuffer.length < length) ) {
+            stringBuffer = new byte[Math.max(length, 64)];
         }
+        return stringBuffer;
     }
 
     /**
@@ -413,9 +681,7 @@ public abstract class XdrEncodingStream {
            throws OncRpcException, IOException {
         int size = value.length;
         xdrEncodeInt(size);
-        for ( int i = 0; i < size; i++ ) {
-            xdrEncodeInt(value[i]);
-        }
+        xdrEncodeInts(value, 0, size);
     }
 
     /**
@@ -436,9 +702,7 @@ public abstract class XdrEncodingStream {
         if ( value.length != length ) {
             throw(new IllegalArgumentException("array size does not match protocol specification"));
         }
-        for ( int i = 0; i < length; i++ ) {
-            xdrEncodeInt(value[i]);
-        }
+        xdrEncodeInts(value, 0, length);
     }
 
     /**
@@ -454,9 +718,7 @@ public abstract class XdrEncodingStream {
            throws OncRpcException, IOException {
         int size = value.length;
         xdrEncodeInt(size);
-        for ( int i = 0; i < size; i++ ) {
-            xdrEncodeLong(value[i]);
-        }
+        xdrEncodeLongs(value, 0, size);
     }
 
     /**
@@ -477,9 +739,7 @@ public abstract class XdrEncodingStream {
         if ( value.length != length ) {
             throw(new IllegalArgumentException("array size does not match protocol specification"));
         }
-        for ( int i = 0; i < length; i++ ) {
-            xdrEncodeLong(value[i]);
-        }
+        xdrEncodeLongs(value, 0, length);
     }
 
     /**
@@ -495,9 +755,7 @@ public abstract class XdrEncodingStream {
            throws OncRpcException, IOException {
         int size = value.length;
         xdrEncodeInt(size);
-        for ( int i = 0; i < size; i++ ) {
-            xdrEncodeFloat(value[i]);
-        }
+        xdrEncodeFloats(value, 0, size);
     }
 
     /**
@@ -518,9 +776,7 @@ public abstract class XdrEncodingStream {
         if ( value.length != length ) {
             throw(new IllegalArgumentException("array size does not match protocol specification"));
         }
-        for ( int i = 0; i < length; i++ ) {
-            xdrEncodeFloat(value[i]);
-        }
+        xdrEncodeFloats(value, 0, length);
     }
 
     /**
@@ -536,9 +792,7 @@ public abstract class XdrEncodingStream {
            throws OncRpcException, IOException {
         int size = value.length;
         xdrEncodeInt(size);
-        for ( int i = 0; i < size; i++ ) {
-            xdrEncodeDouble(value[i]);
-        }
+        xdrEncodeDoubles(value, 0, size);
     }
 
     /**
@@ -559,9 +813,7 @@ public abstract class XdrEncodingStream {
         if ( value.length != length ) {
             throw(new IllegalArgumentException("array size does not match protocol specification"));
         }
-        for ( int i = 0; i < length; i++ ) {
-            xdrEncodeDouble(value[i]);
-        }
+        xdrEncodeDoubles(value, 0, length);
     }
 
     /**
@@ -646,6 +898,86 @@ public abstract class XdrEncodingStream {
         }
     }
 
+    /**
+     * Encodes (aka "serializes") a run of 32 bits wide ints taken from an array. This
+     * is the hook used by the int vector methods. The default implementation
+     * encodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight into their buffers.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            xdrEncodeInt(value[offset + i]);
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of 64 bits wide longs taken from an array. This
+     * is the hook used by the long vector methods. The default implementation
+     * encodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight into their buffers.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            xdrEncodeLong(value[offset + i]);
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of floats taken from an array. This
+     * is the hook used by the float vector methods. The default implementation
+     * encodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight into their buffers.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            xdrEncodeFloat(value[offset + i]);
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of doubles taken from an array. This
+     * is the hook used by the double vector methods. The default implementation
+     * encodes one element after the other, so XDR streams should override
+     * it to convert whole runs straight into their buffers.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        for ( int i = 0; i < length; ++i ) {
+            xdrEncodeDouble(value[offset + i]);
+        }
+    }
+
 	/**
 	 * Set the character encoding for serializing strings.
 	 *
@@ -654,6 +986,22 @@ public abstract class XdrEncodingStream {
 	 */
 	public void setCharacterEncoding(String characterEncoding) {
 		this.characterEncoding = characterEncoding;
+		//
+		// Look up the character set only once here instead of every time
+		// a string is encoded. Unknown encodings are reported when the
+		// next string is encoded, just as before.
+		//
+		Charset charset;
+		if ( characterEncoding == null ) {
+			charset = Charset.defaultCharset();
+		} else {
+			try {
+				charset = Charset.forName(characterEncoding);
+			} catch ( IllegalArgumentException e ) {
+				charset = null;
+			}
+		}
+		setCharset(charset);
 	}
 
 	/**
@@ -672,6 +1020,60 @@ public abstract class XdrEncodingStream {
 	 */
 	private String characterEncoding = null;
 
+	/**
+	 * Sets the character set used for encoding strings and determines
+	 * which characters it maps one-to-one onto bytes.
+	 *
+	 * @param charset the character set or <code>null</code> if the
+	 *   character encoding is not supported.
+	 */
+	private void setCharset(Charset charset) {
+		this.charset = charset;
+		encoder = null;
+		if ( StandardCharsets.ISO_8859_1.equals(charset) ) {
+			singleByteLimit = 0x100;
+		} else if ( StandardCharsets.US_ASCII.equals(charset)
+		            || StandardCharsets.UTF_8.equals(charset) ) {
+			singleByteLimit = 0x80;
+		} else {
+			singleByteLimit = 0;
+		}
+	}
+
+	/**
+	 * Character set resolved from the character encoding or
+	 * <code>null</code> if the character encoding is not supported.
+	 */
+	private Charset charset;
+
+	/**
+	 * Encoder of the current character set, created when it is first
+	 * needed.
+	 */
+	private CharsetEncoder encoder;
+
+	/**
+	 * Characters below this limit are mapped one-to-one onto bytes by the
+	 * current character set.
+	 */
+	private int singleByteLimit;
+
+	/**
+	 * Buffer reused when encoding short strings.
+	 */
+	private byte [] stringBuffer;
+
+	/**
+	 * Maximum size of the buffer reused when encoding strings. Longer
+	 * strings get their own buffer, so the stream does not keep large
+	 * buffers alive.
+	 */
+	private static final int MAXIMUM_STRING_BUFFER_SIZE = 4096;
+
+	{
+		setCharset(Charset.defaultCharset());
+	}
+
 }
 
 // End of XdrEncodingStream.java
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrFloat implements XdrAble {
+public class XdrFloat implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrFloat</code> object.
@@ -81,6 +81,19 @@ public class XdrFloat implements XdrAble {
         xdr.xdrEncodeFloat(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR float takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 4;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR float from a XDR stream in
      * compliance to RFC 1832.
@@ -378,6 +378,117 @@ public class XdrHttpDecodingStream extends XdrDecodingStream {
         bufferIndex += padding;
     }
 
+    /**
+     * Decodes (aka "deserializes") a run of ints straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of longs straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of floats straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of doubles straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes a run of ints, longs, floats or doubles, converting as many
+     * values as possible in one go straight from the buffer and refilling
+     * the buffer as necessary.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void decodeRun(Object value, int offset, int length)
+            throws OncRpcException, IOException {
+        int size = XdrArrays.elementSize(value);
+        while ( length > 0 ) {
+            if ( bufferIndex > bufferHighmark ) {
+                fill();
+                if ( bufferIndex > bufferHighmark ) {
+                    throw(new OncRpcException(OncRpcException.RPC_BUFFERUNDERFLOW));
+                }
+            }
+            int run = (bufferHighmark - bufferIndex + 4) / size;
+            if ( run == 0 ) {
+                //
+                // Only the first half of a long or double is left in the
+                // buffer, so decode this value the slow way.
+                //
+                if ( value instanceof long [] ) {
+                    ((long []) value)[offset] = xdrDecodeLong();
+                } else {
+                    ((double []) value)[offset] = xdrDecodeDouble();
+                }
+                ++offset;
+                --length;
+                continue;
+            }
+            if ( run > length ) {
+                run = length;
+            }
+            XdrArrays.get(buffer, bufferIndex, value, offset, run);
+            bufferIndex += run * size;
+            offset += run;
+            length -= run;
+        }
+    }
+
     /**
      * Client HTTP tunnel to retrieve embedded XDR records from.
      */
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrOpaque implements XdrAble {
+public class XdrOpaque implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrOpaque</code> object.
@@ -82,6 +82,19 @@ public class XdrOpaque implements XdrAble {
         xdr.xdrEncodeOpaque(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR opaque takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return xdr.xdrOpaqueSize(value.length);
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR opaque from a XDR stream in
      * compliance to RFC 1832.
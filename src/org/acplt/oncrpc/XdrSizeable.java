@@ -0,0 +1,60 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc;
+
+import java.io.IOException;
+
+/**
+ * Defines the interface for all XDR-able classes which can tell the number
+ * of bytes they take when serialized into a XDR stream without actually
+ * serializing themselves. Transports use this to size their buffers
+ * beforehand, instead of encoding into a buffer of a guessed size.
+ *
+ * <p>The size of strings depends on the character encoding of the XDR
+ * stream, so the stream a class will be encoded into is handed over when
+ * asking for its size.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface XdrSizeable extends XdrAble {
+
+    /**
+     * Returns the number of bytes an object takes when encoded into a XDR
+     * stream in compliance to RFC 1832. The size must always match what
+     * {@link XdrAble#xdrEncode(XdrEncodingStream)} writes at the same time.
+     *
+     * @param xdr XDR stream to which the object would be encoded.
+     *
+     * @return Number of bytes of the encoded object.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public abstract int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException;
+
+}
+
+// End of XdrSizeable.java
@@ -40,7 +40,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrString implements XdrAble {
+public class XdrString implements XdrSizeable {
 
     /**
      * Constructs and initializes a new <code>XdrString</code> object.
@@ -81,6 +81,19 @@ public class XdrString implements XdrAble {
         xdr.xdrEncodeString(value);
     }
 
+    /**
+     * Returns the number of bytes a XDR string takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return xdr.xdrStringSize(value);
+    }
+
     /**
      * Decodes -- that is: deserializes -- a XDR string from a XDR stream in
      * compliance to RFC 1832.
@@ -49,6 +49,23 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
     public XdrTcpDecodingStream(Socket streamingSocket,
                                 int bufferSize)
            throws IOException {
+        this(streamingSocket, bufferSize, XdrBufferPool.getDefault());
+    }
+
+    /**
+     * Construct a new <code>XdrTcpDecodingStream</code> object and associate
+     * it with the given <code>streamingSocket</code> for TCP/IP-based
+     * communication. The buffer for storing received XDR data is borrowed
+     * from the given buffer pool only while a record is being received.
+     *
+     * @param streamingSocket Socket from which XDR data is received.
+     * @param bufferSize Size of packet buffer for storing received XDR
+     *   data.
+     * @param bufferPool Pool to borrow the packet buffer from.
+     */
+    public XdrTcpDecodingStream(Socket streamingSocket,
+                                int bufferSize, XdrBufferPool bufferPool)
+           throws IOException {
         socket = streamingSocket;
         stream = socket.getInputStream();
         //
@@ -63,10 +80,12 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
             bufferSize = (bufferSize + 4) & ~3;
         }
         //
-        // Set up the buffer and the buffer pointers (no, this is still
-        // Java).
+        // Set up the buffer pointers (no, this is still Java). The buffer
+        // itself is only borrowed from the pool as soon as the data of the
+        // next record arrives.
         //
-        buffer = new byte[bufferSize];
+        this.bufferSize = bufferSize;
+        this.bufferPool = bufferPool;
         bufferIndex = 0;
         bufferHighmark = -4;
         lastFragment = false;
@@ -186,6 +205,9 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
             //
             byte bytes[] = new byte[4];
             readBuffer(stream, bytes, 4);
+            if ( recordLength == 0 ) {
+                recordHeaderReceived();
+            }
             //
             // Watch the sign bit!
             //
@@ -213,6 +235,12 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
             if ( (fragmentLength == 0) && !lastFragment ) {
                 throw(new IOException("empty ONC/RPC XDR fragment which is not a trailing fragment"));
             }
+            if ( (maximumRecordSize > 0)
+                 && (fragmentLength > maximumRecordSize - recordLength) ) {
+                throw(new IOException("ONC/RPC record exceeds maximum record size"));
+            }
+            recordLength += fragmentLength;
+            bytesReceived += fragmentLength;
         }
         //
         // When the reach this stage, there is (still) data to be read for the
@@ -223,18 +251,33 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
         // (with still some bytes to read in from the next round) or
         // completely.
         //
+        if ( buffer == null ) {
+            buffer = bufferPool.allocate(bufferSize);
+        }
         bufferIndex = 0;
-        if ( fragmentLength < buffer.length ) {
+        if ( fragmentLength < bufferSize ) {
             readBuffer(stream, buffer, fragmentLength);
             bufferHighmark = fragmentLength - 4;
             fragmentLength = 0;
         } else {
-            readBuffer(stream, buffer, buffer.length);
-            bufferHighmark = buffer.length - 4;
-            fragmentLength -= buffer.length;
+            readBuffer(stream, buffer, bufferSize);
+            bufferHighmark = bufferSize - 4;
+            fragmentLength -= bufferSize;
         }
     }
 
+    /**
+     * Called when the header of the first fragment of a record has been
+     * received, before any data of this fragment is read. Subclasses can
+     * override this method, for instance to start timeouts for the remaining
+     * data of the record. This implementation does nothing.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void recordHeaderReceived()
+              throws IOException {
+    }
+
     /**
      * End decoding of the current XDR record. The general contract of
      * <code>endDecoding</code> is that calling it is an indication that
@@ -259,13 +302,71 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
         } finally {
             //
             // Try to reach a sane state, although this is rather questionable
-            // in case of timeouts in the middle of a record.
+            // in case of timeouts in the middle of a record. The buffer goes
+            // back to the pool until the next record arrives.
             //
+            releaseBuffer();
             bufferIndex = 0;
             bufferHighmark = -4;
             lastFragment = false;
             fragmentLength = 0;
+            recordLength = 0;
+        }
+    }
+
+    /**
+     * Sets the maximum size of records accepted by this XDR stream. If the
+     * fragments of a record add up to more than this size, then an
+     * <code>IOException</code> is thrown, as the stream can not be brought
+     * back in sync with the record marking.
+     *
+     * @param maximumRecordSize Maximum record size in bytes or zero if the
+     *   record size is not limited.
+     */
+    public void setMaximumRecordSize(int maximumRecordSize) {
+        this.maximumRecordSize = maximumRecordSize;
+    }
+
+    /**
+     * Returns the maximum size of records accepted by this XDR stream.
+     *
+     * @return Maximum record size in bytes or zero if the record size is
+     *   not limited.
+     */
+    public int getMaximumRecordSize() {
+        return maximumRecordSize;
+    }
+
+    /**
+     * Returns the total number of bytes received in fragments by this XDR
+     * stream, not counting the record marking.
+     *
+     * @return Number of bytes received.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns an upper bound of the number of bytes left to decode in the
+     * current record. Once the last fragment has been seen, this is exactly
+     * the data left. Otherwise only the maximum record size, if set, limits
+     * the data left.
+     *
+     * @return Maximum number of bytes left in the current record.
+     */
+    protected int getMaximumRemainingLength() {
+        long buffered = Math.max(bufferHighmark - bufferIndex + 4, 0);
+        long remaining;
+        if ( lastFragment ) {
+            remaining = buffered + fragmentLength;
+        } else if ( maximumRecordSize > 0 ) {
+            remaining = maximumRecordSize
+                        - (recordLength - fragmentLength - buffered);
+        } else {
+            return Integer.MAX_VALUE;
         }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
     }
 
     /**
@@ -273,20 +374,36 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
      * associated with this stream. A closed XDR stream cannot perform decoding
      * operations and cannot be reopened.
      *
-     * <p>This implementation frees the allocated buffer but does not close
-     * the associated datagram socket. It only throws away the reference to
-     * this socket.
+     * <p>This implementation does not close the associated socket. It only
+     * throws away the reference to this socket. As <code>close</code> may be
+     * called by another thread while a record is still being decoded, a
+     * buffer borrowed for that record is not returned to the pool; the
+     * thread decoding from this stream should call {@link #releaseBuffer}
+     * when it is done.
      *
      * @throws OncRpcException if an ONC/RPC error occurs.
      * @throws IOException if an I/O error occurs.
      */
     public void close()
            throws OncRpcException, IOException {
-        buffer = null;
         stream = null;
         socket = null;
     }
 
+    /**
+     * Returns the buffer to the pool, if the buffer is currently borrowed.
+     * This is done automatically at the end of each record, so this method
+     * only needs to be called when decoding was abandoned in the middle of
+     * a record. It must only be called by the thread decoding from this
+     * stream.
+     */
+    public synchronized void releaseBuffer() {
+        if ( buffer != null ) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
     /**
      * Decodes (aka "deserializes") a "XDR int" value received from a
      * XDR stream. A XDR int is 32 bits wide -- the same width Java's "int"
@@ -437,6 +554,114 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
         bufferIndex += padding;
     }
 
+    /**
+     * Decodes (aka "deserializes") a run of ints straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of longs straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of floats straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes (aka "deserializes") a run of doubles straight from the
+     * buffer.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrDecodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        decodeRun(value, offset, length);
+    }
+
+    /**
+     * Decodes a run of ints, longs, floats or doubles, converting as many
+     * values as possible in one go straight from the buffer and refilling
+     * the buffer as necessary.
+     *
+     * @param value Array receiving the decoded values.
+     * @param offset Start offset in the array.
+     * @param length Number of values to decode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void decodeRun(Object value, int offset, int length)
+            throws OncRpcException, IOException {
+        int size = XdrArrays.elementSize(value);
+        while ( length > 0 ) {
+            while ( bufferIndex > bufferHighmark ) {
+                fill();
+            }
+            int run = (bufferHighmark - bufferIndex + 4) / size;
+            if ( run == 0 ) {
+                //
+                // Only the first half of a long or double is left in the
+                // buffer, so decode this value the slow way.
+                //
+                if ( value instanceof long [] ) {
+                    ((long []) value)[offset] = xdrDecodeLong();
+                } else {
+                    ((double []) value)[offset] = xdrDecodeDouble();
+                }
+                ++offset;
+                --length;
+                continue;
+            }
+            if ( run > length ) {
+                run = length;
+            }
+            XdrArrays.get(buffer, bufferIndex, value, offset, run);
+            bufferIndex += run * size;
+            offset += run;
+            length -= run;
+        }
+    }
+
     /**
      * The streaming socket to be used when receiving this XDR stream's
      * buffer contents.
@@ -451,6 +676,15 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
      * be used to supply the information when decoding data.
      */
     private byte [] buffer;
+    /**
+     * Size of the buffer as requested when this stream was created. The
+     * buffer borrowed from the pool might be larger.
+     */
+    private int bufferSize;
+    /**
+     * Pool to borrow the buffer from while a record is being received.
+     */
+    private XdrBufferPool bufferPool;
     /**
      * The read pointer is an index into the <code>buffer</code>.
      */
@@ -469,6 +703,19 @@ public class XdrTcpDecodingStream extends XdrDecodingStream {
      * the end of the record.
      */
     private boolean lastFragment;
+    /**
+     * Total length of the fragments of the current record seen so far.
+     */
+    private int recordLength;
+    /**
+     * Maximum size of records or zero if the record size is not limited.
+     */
+    private int maximumRecordSize;
+    /**
+     * Total number of bytes received in fragments, not counting the
+     * record marking.
+     */
+    private volatile long bytesReceived;
 
 }
 
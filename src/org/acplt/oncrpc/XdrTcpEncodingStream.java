@@ -26,12 +26,24 @@ package org.acplt.oncrpc;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
 
 /**
  * The <code>XdrTcpEncodingStream</code> class provides the necessary
  * functionality to {@link XdrEncodingStream} to send XDR records to the
  * network using the stream-oriented TCP/IP.
  *
+ * <p>Large opaque values, which do not fit into the remaining buffer space,
+ * are not copied into the buffer. Instead, the stream keeps a reference to
+ * them and sends them together with the buffer contents using a gathering
+ * write when the current fragment is sent. Such opaque values must not be
+ * changed until the current record has been sent. If the socket has been
+ * created from a channel, then opaque values read from files are
+ * transferred straight from the file to the channel, without copying them
+ * through the Java heap.
+ *
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
@@ -49,6 +61,24 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
     public XdrTcpEncodingStream(Socket streamingSocket,
                                 int bufferSize)
            throws IOException {
+        this(streamingSocket, bufferSize, XdrBufferPool.getDefault());
+    }
+
+    /**
+     * Construct a new <code>XdrTcpEncodingStream</code> object and associate
+     * it with the given <code>streamingSocket</code> for TCP/IP-based
+     * communication. The buffer for temporarily storing outgoing XDR data
+     * is borrowed from the given buffer pool only from
+     * {@link #beginEncoding} until the record has been sent.
+     *
+     * @param streamingSocket Socket to which XDR data is sent.
+     * @param bufferSize Size of packet buffer for temporarily storing
+     *   outgoing XDR data.
+     * @param bufferPool Pool to borrow the packet buffer from.
+     */
+    public XdrTcpEncodingStream(Socket streamingSocket,
+                                int bufferSize, XdrBufferPool bufferPool)
+           throws IOException {
         socket = streamingSocket;
         stream = socket.getOutputStream();
         //
@@ -63,10 +93,11 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
             bufferSize = (bufferSize + 4) & ~3;
         }
         //
-        // Set up the buffer and the buffer pointers (no, this is still
-        // Java).
+        // Set up the buffer pointers (no, this is still Java). The buffer
+        // itself is only borrowed from the pool when encoding begins.
         //
-        buffer = new byte[bufferSize];
+        this.bufferPool = bufferPool;
+        this.bufferSize = bufferSize;
         bufferFragmentHeaderIndex = 0;
         bufferIndex = 4;
         bufferHighmark = bufferSize - 4;
@@ -117,6 +148,13 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
         //
         //bufferFragmentHeaderIndex = bufferIndex;
         //bufferIndex += 4;
+        //
+        // Borrow a buffer, unless we are still holding one because of
+        // batched records waiting to be sent.
+        //
+        if ( buffer == null ) {
+            buffer = bufferPool.allocate(bufferSize);
+        }
     }
 
     /**
@@ -173,7 +211,9 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
         // the same write buffer. The variable bufferFragmentHeaderIndex
         // points to the place where we should store this fragment's header.
         //
-        int fragmentLength = bufferIndex - bufferFragmentHeaderIndex - 4;
+        int fragmentLength = bufferIndex - bufferFragmentHeaderIndex - 4
+                             + segmentBytes;
+        bytesSent += fragmentLength;
         if ( lastFragment ) {
             fragmentLength |= 0x80000000;
         }
@@ -185,6 +225,8 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
              || !batch     // buffer not full, but last fragment and not in batch
              || (bufferIndex >= bufferHighmark) // not enough space for next
                                                 // fragment header and one int
+             || (segmentCount > 0) // large opaque values can not be kept
+                                   // waiting for batched records
            ) {
             //
             // Finally write the buffer's contents into the vastness of
@@ -193,7 +235,11 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
             // the buffer for the fragment header and at least a single
             // int.
             //
-            stream.write(buffer, 0, bufferIndex);
+            if ( segmentCount > 0 ) {
+                writeSegments();
+            } else {
+                stream.write(buffer, 0, bufferIndex);
+            }
             stream.flush();
             //
             // Reset write pointer after the fragment header int within
@@ -201,6 +247,13 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
             //
             bufferFragmentHeaderIndex = 0;
             bufferIndex = 4;
+            //
+            // Hand back the buffer when the record has been sent
+            // completely, so idle connections do not hold on to it.
+            //
+            if ( lastFragment ) {
+                releaseBuffer();
+            }
        } else {
             //
             // Batch/pipeline several consecuting XDR records. So do not
@@ -212,21 +265,174 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
         }
     }
 
+    /**
+     * Writes the buffer contents interleaved with the large opaque values
+     * referenced by the current fragment. If the socket has a channel,
+     * then all parts are written using a single gathering write, otherwise
+     * they are written one after another to the output stream, but without
+     * copying large opaque values into the buffer first.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void writeSegments()
+            throws IOException {
+        //
+        // Collect the parts of the fragment. File regions leave a gap in
+        // the list of byte buffers, as they are transferred separately.
+        //
+        int count = 2 * segmentCount + 1;
+        ByteBuffer [] parts = new ByteBuffer[count];
+        FileRegion [] regions = new FileRegion[count];
+        int start = 0;
+        int index = 0;
+        for ( int i = 0; i < segmentCount; ++i ) {
+            parts[index++] = ByteBuffer.wrap(buffer, start,
+                                             segmentPositions[i] - start);
+            if ( segments[i] instanceof FileRegion ) {
+                regions[index++] = (FileRegion) segments[i];
+            } else {
+                parts[index++] = (ByteBuffer) segments[i];
+            }
+            start = segmentPositions[i];
+            segments[i] = null;
+        }
+        parts[index] = ByteBuffer.wrap(buffer, start, bufferIndex - start);
+        segmentCount = 0;
+        segmentBytes = 0;
+        SocketChannel channel = socket.getChannel();
+        if ( (channel != null) && channel.isBlocking() ) {
+            int first = 0;
+            for ( int i = 0; i <= count; ++i ) {
+                if ( (i < count) && (regions[i] == null) ) {
+                    continue;
+                }
+                long remaining = 0;
+                for ( int j = first; j < i; ++j ) {
+                    remaining += parts[j].remaining();
+                }
+                while ( remaining > 0 ) {
+                    remaining -= channel.write(parts, first, i - first);
+                }
+                if ( i < count ) {
+                    regions[i].transferTo(channel);
+                }
+                first = i + 1;
+            }
+            return;
+        }
+        //
+        // File regions are only referenced when the socket has a channel,
+        // so there are only byte buffers left to write.
+        //
+        byte [] chunk = null;
+        for ( int i = 0; i < count; ++i ) {
+            ByteBuffer part = parts[i];
+            if ( part.hasArray() ) {
+                stream.write(part.array(), part.arrayOffset() + part.position(),
+                             part.remaining());
+                continue;
+            }
+            //
+            // Direct buffers have to be copied in chunks, as output streams
+            // can only write arrays.
+            //
+            if ( chunk == null ) {
+                chunk = bufferPool.allocate(GATHERING_THRESHOLD);
+            }
+            while ( part.hasRemaining() ) {
+                int toCopy = Math.min(part.remaining(), chunk.length);
+                part.get(chunk, 0, toCopy);
+                stream.write(chunk, 0, toCopy);
+            }
+        }
+        if ( chunk != null ) {
+            bufferPool.release(chunk);
+        }
+    }
+
+    /**
+     * Keeps a reference to a large opaque value, which will be sent after
+     * the current buffer contents when the fragment is sent.
+     *
+     * @param segment Byte buffer with the opaque value between its
+     *   position and its limit, or file region.
+     * @param length Length of the opaque value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void addSegment(Object segment, int length)
+            throws OncRpcException, IOException {
+        int padding = (4 - (length & 3)) & 3;
+        //
+        // Make sure that the fragment length does not overflow, and that
+        // there is room left in the buffer for the padding.
+        //
+        if ( ((segmentCount > 0) && (segmentBytes > MAXIMUM_SEGMENT_BYTES - length))
+             || (bufferIndex > bufferHighmark) ) {
+            flush(false, false);
+        }
+        if ( segmentCount == segments.length ) {
+            Object [] newSegments = new Object[2 * segmentCount];
+            int [] newPositions = new int[2 * segmentCount];
+            System.arraycopy(segments, 0, newSegments, 0, segmentCount);
+            System.arraycopy(segmentPositions, 0, newPositions, 0, segmentCount);
+            segments = newSegments;
+            segmentPositions = newPositions;
+        }
+        segments[segmentCount] = segment;
+        segmentPositions[segmentCount] = bufferIndex;
+        ++segmentCount;
+        segmentBytes += length;
+        System.arraycopy(paddingZeros, 0, buffer, bufferIndex, padding);
+        bufferIndex += padding;
+    }
+
     /**
      * Closes this encoding XDR stream and releases any system resources
      * associated with this stream. The general contract of <code>close</code>
      * is that it closes the encoding XDR stream. A closed XDR stream cannot
      * perform encoding operations and cannot be reopened.
      *
+     * <p>A buffer borrowed for a record which has not been sent completely
+     * is not returned to the pool, as another thread might still be
+     * encoding into it. The thread encoding into this stream should call
+     * {@link #releaseBuffer} instead.
+     *
      * @throws OncRpcException if an ONC/RPC error occurs.
      * @throws IOException if an I/O error occurs.
      */
     public void close()
            throws OncRpcException, IOException {
-        buffer = null;
         socket = null;
     }
 
+    /**
+     * Returns the total number of bytes encoded into fragments by this XDR
+     * stream, not counting the record marking. Fragments count as soon as
+     * they are complete, even if they are still waiting in the buffer for
+     * further records to be batched.
+     *
+     * @return Number of bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Returns the buffer to the pool, if the buffer is currently borrowed.
+     * This is done automatically once a record has been sent, so this
+     * method only needs to be called when encoding was abandoned in the
+     * middle of a record. It must only be called by the thread encoding
+     * into this stream.
+     */
+    public synchronized void releaseBuffer() {
+        if ( buffer != null ) {
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+    }
+
     /**
      * Encodes (aka "serializes") a "XDR int" value and writes it down a
      * XDR stream. A XDR int is 32 bits wide -- the same width Java's "int"
@@ -269,6 +475,12 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
         int padding = (4 - (length & 3)) & 3;
         int toCopy;
 
+        if ( (length >= GATHERING_THRESHOLD)
+             && (length > bufferHighmark - bufferIndex + 4) ) {
+            addSegment(ByteBuffer.wrap(value, offset, length), length);
+            return;
+        }
+
         while ( length > 0 ) {
             toCopy = bufferHighmark - bufferIndex + 4;
             if ( toCopy >= length ) {
@@ -297,6 +509,182 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
         bufferIndex += padding;
     }
 
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is represented
+     * by the bytes remaining in a byte buffer. Large opaque values are not
+     * copied but sent using a gathering write. The position of the byte
+     * buffer is not changed.
+     *
+     * @param value The opaque value to be encoded.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void xdrEncodeOpaque(ByteBuffer value)
+           throws OncRpcException, IOException {
+        int length = value.remaining();
+        if ( (length >= GATHERING_THRESHOLD)
+             && (length > bufferHighmark - bufferIndex + 4) ) {
+            addSegment(value.duplicate(), length);
+        } else {
+            super.xdrEncodeOpaque(value);
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is read from a
+     * region of a file. If the socket has been created from a channel,
+     * then large file regions are transferred straight to the channel when
+     * the current fragment is sent, so the file region must not be changed
+     * until then. Otherwise the file region is read right into the buffer.
+     * The position of the file channel is not changed.
+     *
+     * @param channel File channel to read the opaque value from.
+     * @param position Position of the opaque value in the file.
+     * @param length Length of the opaque value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs, or the file ends before
+     *   the whole opaque value has been read.
+     */
+    public void xdrEncodeOpaque(FileChannel channel, long position, int length)
+           throws OncRpcException, IOException {
+        if ( length < 0 ) {
+            throw(new IllegalArgumentException("negative opaque length"));
+        }
+        SocketChannel socketChannel = socket.getChannel();
+        if ( (length >= GATHERING_THRESHOLD)
+             && (socketChannel != null) && socketChannel.isBlocking() ) {
+            addSegment(new FileRegion(channel, position, length), length);
+            return;
+        }
+        int padding = (4 - (length & 3)) & 3;
+        while ( length > 0 ) {
+            int toRead = bufferHighmark - bufferIndex + 4;
+            if ( toRead > length ) {
+                toRead = length;
+            }
+            readFully(channel, ByteBuffer.wrap(buffer, bufferIndex, toRead),
+                      position);
+            bufferIndex += toRead;
+            position += toRead;
+            length -= toRead;
+            if ( length > 0 ) {
+                flush(false, false);
+            }
+        }
+        System.arraycopy(paddingZeros, 0, buffer, bufferIndex, padding);
+        bufferIndex += padding;
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of ints straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of longs straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of floats straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of doubles straight into the
+     * buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes a run of ints, longs, floats or doubles, converting as many
+     * values as possible in one go straight into the buffer and sending
+     * fragments whenever the buffer fills up.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void encodeRun(Object value, int offset, int length)
+            throws OncRpcException, IOException {
+        int size = XdrArrays.elementSize(value);
+        while ( length > 0 ) {
+            if ( bufferIndex > bufferHighmark ) {
+                flush(false, false);
+            }
+            int run = (bufferHighmark - bufferIndex + 4) / size;
+            if ( run == 0 ) {
+                //
+                // There's only room for the first half of a long or double
+                // left in the buffer, so encode this value the slow way.
+                //
+                if ( value instanceof long [] ) {
+                    xdrEncodeLong(((long []) value)[offset]);
+                } else {
+                    xdrEncodeDouble(((double []) value)[offset]);
+                }
+                ++offset;
+                --length;
+                continue;
+            }
+            if ( run > length ) {
+                run = length;
+            }
+            XdrArrays.put(buffer, bufferIndex, value, offset, run);
+            bufferIndex += run * size;
+            offset += run;
+            length -= run;
+        }
+    }
+
     /**
      * The streaming socket to be used when receiving this XDR stream's
      * buffer contents.
@@ -314,6 +702,17 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
      */
     private byte [] buffer;
 
+    /**
+     * Size of the buffer as requested when this stream was created. The
+     * buffer borrowed from the pool might be larger.
+     */
+    private int bufferSize;
+
+    /**
+     * Pool to borrow the buffer from while a record is being encoded.
+     */
+    private XdrBufferPool bufferPool;
+
     /**
      * The write pointer is an index into the <code>buffer</code>.
      */
@@ -334,6 +733,105 @@ public class XdrTcpEncodingStream extends XdrEncodingStream {
      */
     private static final byte [] paddingZeros = { 0, 0, 0, 0 };
 
+    /**
+     * Large opaque values referenced by the current fragment instead of
+     * being copied into the buffer. These are either byte buffers or file
+     * regions.
+     */
+    private Object [] segments = new Object[4];
+
+    /**
+     * Positions in the buffer after which the large opaque values have to
+     * be sent.
+     */
+    private int [] segmentPositions = new int[4];
+
+    /**
+     * Number of large opaque values referenced by the current fragment.
+     */
+    private int segmentCount;
+
+    /**
+     * Total length of the large opaque values referenced by the current
+     * fragment.
+     */
+    private int segmentBytes;
+
+    /**
+     * Total number of bytes encoded into fragments, not counting the
+     * record marking.
+     */
+    private volatile long bytesSent;
+
+    /**
+     * Minimum length of opaque values, which are sent using a gathering
+     * write instead of being copied into the buffer.
+     */
+    private static final int GATHERING_THRESHOLD = 8192;
+
+    /**
+     * Maximum total length of large opaque values referenced by a single
+     * fragment, which keeps the fragment length within 31 bits.
+     */
+    private static final int MAXIMUM_SEGMENT_BYTES = 0x40000000;
+
+    /**
+     * Region of a file to be transferred straight to the socket's channel.
+     */
+    private static final class FileRegion {
+
+        /**
+         * Create a new file region.
+         *
+         * @param channel File channel to read from.
+         * @param position Position of the region in the file.
+         * @param length Length of the region.
+         */
+        FileRegion(FileChannel channel, long position, int length) {
+            this.channel = channel;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * Transfers the whole region to the given channel.
+         *
+         * @param target Channel to transfer the region to.
+         *
+         * @throws IOException if an I/O error occurs, or the file ends
+         *   before the whole region has been transferred.
+         */
+        void transferTo(SocketChannel target)
+                throws IOException {
+            long position = this.position;
+            long remaining = length;
+            while ( remaining > 0 ) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if ( (transferred <= 0) && (position >= channel.size()) ) {
+                    throw(new EOFException("file ends before end of opaque value"));
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+
+        /**
+         * File channel to read from.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Position of the region in the file.
+         */
+        private final long position;
+
+        /**
+         * Length of the region.
+         */
+        private final int length;
+
+    }
+
 }
 
 // End of XdrTcpEncodingStream.java
@@ -26,6 +26,8 @@ package org.acplt.oncrpc;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * The <code>XdrUdpDecodingStream</code> class provides the necessary
@@ -65,6 +67,25 @@ public class XdrUdpEncodingStream extends XdrEncodingStream {
         bufferHighmark = bufferSize - 4;
     }
 
+    /**
+     * Returns the amount of encoded data in the buffer. After
+     * {@link #endEncoding} this is the length of the datagram just sent.
+     *
+     * @return length of data encoded in buffer.
+     */
+    public int getXdrLength() {
+        return bufferIndex;
+    }
+
+    /**
+     * Returns the buffer holding encoded data.
+     *
+     * @return Buffer with encoded data.
+     */
+    public byte [] getXdrData() {
+        return buffer;
+    }
+
     /**
      * Begins encoding a new XDR record. This involves resetting this
      * encoding XDR stream back into a known state.
@@ -179,6 +200,123 @@ public class XdrUdpEncodingStream extends XdrEncodingStream {
         }
     }
 
+    /**
+     * Encodes (aka "serializes") a XDR opaque value, which is read from a
+     * region of a file straight into the datagram buffer. The position of
+     * the file channel is not changed.
+     *
+     * @param channel File channel to read the opaque value from.
+     * @param position Position of the opaque value in the file.
+     * @param length Length of the opaque value.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs, or the file ends before
+     *   the whole opaque value has been read.
+     */
+    public void xdrEncodeOpaque(FileChannel channel, long position, int length)
+           throws OncRpcException, IOException {
+        if ( length < 0 ) {
+            throw(new IllegalArgumentException("negative opaque length"));
+        }
+        int padding = (4 - (length & 3)) & 3;
+        if ( bufferIndex <= bufferHighmark - (length + padding) ) {
+            readFully(channel, ByteBuffer.wrap(buffer, bufferIndex, length),
+                      position);
+            bufferIndex += length;
+            if ( padding != 0 ) {
+                System.arraycopy(paddingZeros, 0, buffer, bufferIndex, padding);
+                bufferIndex += padding;
+            }
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of ints straight into the
+     * datagram buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeInts(int [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of longs straight into the
+     * datagram buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeLongs(long [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of floats straight into the
+     * datagram buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeFloats(float [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes (aka "serializes") a run of doubles straight into the
+     * datagram buffer.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void xdrEncodeDoubles(double [] value, int offset, int length)
+              throws OncRpcException, IOException {
+        encodeRun(value, offset, length);
+    }
+
+    /**
+     * Encodes a run of ints, longs, floats or doubles into the buffer,
+     * after checking that there is enough space left.
+     *
+     * @param value Array containing the values to encode.
+     * @param offset Start offset in the array.
+     * @param length Number of values to encode.
+     *
+     * @throws OncRpcException if there is not enough space left.
+     */
+    private void encodeRun(Object value, int offset, int length)
+            throws OncRpcException {
+        long bytes = (long) length * XdrArrays.elementSize(value);
+        if ( bufferIndex <= bufferHighmark - bytes + 4 ) {
+            XdrArrays.put(buffer, bufferIndex, value, offset, length);
+            bufferIndex += (int) bytes;
+        } else {
+            throw(new OncRpcException(OncRpcException.RPC_BUFFEROVERFLOW));
+        }
+    }
+
     /**
      * The datagram socket to be used when sending this XDR stream's
      * buffer contents.
@@ -39,7 +39,7 @@ import java.io.IOException;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class XdrVoid implements XdrAble {
+public class XdrVoid implements XdrSizeable {
 
     /**
      * Encodes -- that is: serializes -- a void into a XDR stream in
@@ -53,6 +53,19 @@ public class XdrVoid implements XdrAble {
     {
     }
 
+    /**
+     * Returns the number of bytes a void takes when encoded into a XDR
+     * stream in compliance to RFC 1832.
+     *
+     * @throws OncRpcException if an ONC/RPC error occurs.
+     * @throws IOException if an I/O error occurs.
+     */
+    public int xdrSize(XdrEncodingStream xdr)
+           throws OncRpcException, IOException
+    {
+        return 0;
+    }
+
     /**
      * Decodes -- that is: deserializes -- a void from a XDR stream in
      * compliance to RFC 1832.
@@ -65,6 +65,7 @@ public class jrpcgen {
         System.out.println("  -bean           generate accessors for usage as bean, implies -ser");
         System.out.println("  -noclamp        do not clamp version number in client method stubs");
         System.out.println("  -withcallinfo   supply call information to server method stubs");
+        System.out.println("  -recycle        recycle argument and result objects in stubs");
         System.out.println("  -initstrings    initialize all strings to be empty instead of null");
         System.out.println("  -nobackup       do not make backups of old source code files");
         System.out.println("  -noclient       do not create client proxy stub");
@@ -143,6 +144,12 @@ public class jrpcgen {
      */
     public static boolean withCallInfo = false;
 
+    /**
+     * Recycle argument and result objects in client and server stubs, and
+     * decode nested objects into already existing instances.
+     */
+    public static boolean recycle = false;
+
     /**
      * Enable diagnostic messages when parsing the x-file.
      */
@@ -661,6 +668,16 @@ public class jrpcgen {
                     }
                     syllable = syllable + "Vector";
                 }
+                //
+                // Dynamic arrays, opaques and strings with a declared
+                // maximum size are decoded with that size as a bound, so
+                // that oversized data is rejected before any memory is
+                // allocated for it.
+                //
+                if ( (decl.kind == JrpcgenDeclaration.DYNAMICVECTOR)
+                     && (decl.size != null) ) {
+                    decodingOpts = checkForEnumValue(decl.size);
+                }
             }
 
             JrpcgenEnDecodingInfo result = new
@@ -670,6 +687,23 @@ public class jrpcgen {
         return null;
     }
 
+    /**
+     * Checks whether a base data type can be decoded into an existing
+     * vector, which is the case for vectors of primitive data types and
+     * opaques, but not for strings and vectors of strings.
+     *
+     * @param data en-/decoding information about the base data type.
+     *
+     * @return <code>true</code> if the XDR decoding stream can decode into
+     *   an existing vector of the base data type.
+     */
+    public static boolean isRecyclableVector(JrpcgenEnDecodingInfo data) {
+        return data.syllable.equals("Opaque")
+               || data.syllable.equals("DynamicOpaque")
+               || (data.syllable.endsWith("Vector")
+                   && !data.syllable.startsWith("String"));
+    }
+
     /**
      * Return en- or decoding method appropriate for a struct or union member.
      */
@@ -733,7 +767,16 @@ public class jrpcgen {
                 code.append(" = xdr.xdrDecode");
                 code.append(data.syllable);
                 code.append("(");
-                if ( data.decodingOptions != null ) {
+                if ( recycle && isRecyclableVector(data) ) {
+                    //
+                    // Decode into the existing vector, if it has the
+                    // right length.
+                    //
+                    code.append(oref + decl.identifier);
+                    code.append(", ");
+                    code.append((data.decodingOptions != null) ?
+                                data.decodingOptions : "Integer.MAX_VALUE");
+                } else if ( data.decodingOptions != null ) {
                     code.append(data.decodingOptions);
                 }
                 code.append(");\n");
@@ -753,6 +796,19 @@ public class jrpcgen {
                 if ( encode ) {
                     code.append(oref + decl.identifier);
                     code.append(".xdrEncode(xdr);\n");
+                } else if ( recycle ) {
+                    //
+                    // Decode into the existing instance, if there is one.
+                    //
+                    code.append("if ( ");
+                    code.append(oref + decl.identifier);
+                    code.append(" == null ) { ");
+                    code.append(oref + decl.identifier);
+                    code.append(" = new ");
+                    code.append(decl.type);
+                    code.append("(); } ");
+                    code.append(oref + decl.identifier);
+                    code.append(".xdrDecode(xdr);\n");
                 } else {
                     code.append(oref + decl.identifier);
                     code.append(" = new ");
@@ -776,6 +832,21 @@ public class jrpcgen {
                     code.append(" } else { ");
                     code.append("xdr.xdrEncodeBoolean(false);");
                     code.append(" };\n");
+                } else if ( recycle ) {
+                    code.append("if ( xdr.xdrDecodeBoolean() ) { ");
+                    code.append("if ( ");
+                    code.append(oref + decl.identifier);
+                    code.append(" == null ) { ");
+                    code.append(oref + decl.identifier);
+                    code.append(" = new ");
+                    code.append(decl.type);
+                    code.append("(); } ");
+                    code.append(oref + decl.identifier);
+                    code.append(".xdrDecode(xdr);");
+                    code.append(" } else { ");
+                    code.append(oref + decl.identifier);
+                    code.append(" = null;");
+                    code.append(" }\n");
                 } else {
                     code.append(oref + decl.identifier);
                     code.append(" = xdr.xdrDecodeBoolean() ? new ");
@@ -819,31 +890,144 @@ public class jrpcgen {
                 code.append("int $size = ");
                 if ( decl.kind == JrpcgenDeclaration.DYNAMICVECTOR ) {
                     //
-                    // Dynamic array size. So we need to decode size information.
+                    // Dynamic array size. So we need to decode size information,
+                    // which is checked against the declared maximum size, if
+                    // any, as well as against the data available.
                     //
-                    code.append("xdr.xdrDecodeInt()");
+                    code.append("xdr.xdrDecodeLength(");
+                    if ( decl.size != null ) {
+                        code.append(checkForEnumValue(decl.size));
+                    } else {
+                        code.append("Integer.MAX_VALUE");
+                    }
+                    code.append(")");
                 } else {
                     code.append(checkForEnumValue(decl.size));
                 }
                 code.append("; ");
                 //
-                // Now encode all elements.
+                // Now decode all elements. When recycling, the array and
+                // its elements are reused as far as possible.
                 //
+                if ( recycle ) {
+                    code.append("if ( (");
+                    code.append(oref + decl.identifier);
+                    code.append(" == null) || (");
+                    code.append(oref + decl.identifier);
+                    code.append(".length != $size) ) { ");
+                }
                 code.append(oref + decl.identifier);
                 code.append(" = new ");
                 code.append(decl.type);
                 code.append("[$size]; ");
+                if ( recycle ) {
+                    code.append("} ");
+                }
                 code.append("for ( int $idx = 0; $idx < $size; ++$idx ) { ");
-                code.append(oref + decl.identifier);
-                code.append("[$idx] = new ");
-                code.append(decl.type);
-                code.append("(xdr); ");
+                if ( recycle ) {
+                    code.append("if ( ");
+                    code.append(oref + decl.identifier);
+                    code.append("[$idx] == null ) { ");
+                    code.append(oref + decl.identifier);
+                    code.append("[$idx] = new ");
+                    code.append(decl.type);
+                    code.append("(); } ");
+                    code.append(oref + decl.identifier);
+                    code.append("[$idx].xdrDecode(xdr); ");
+                } else {
+                    code.append(oref + decl.identifier);
+                    code.append("[$idx] = new ");
+                    code.append(decl.type);
+                    code.append("(xdr); ");
+                }
                 code.append("} }\n");
             }
             return code.toString();
         }
     }
 
+    /**
+     * Return the code adding the encoded size of a struct or union member
+     * to the size accumulated in "$size" so far.
+     *
+     * @param decl declaration for which the sizing Java source code be
+     *   returned.
+     * @param oref name of object reference or <code>null</code> if
+     *   "this" should be used instead.
+     */
+    public static String sizingMethod(JrpcgenDeclaration decl, String oref) {
+        //
+        // Skip entries for void arms etc...
+        //
+        if ( decl.identifier == null ) {
+            return "";
+        }
+
+        StringBuffer code = new StringBuffer();
+        JrpcgenEnDecodingInfo data = baseEnDecodingSyllable(decl);
+
+        if ( oref == null ) {
+            oref = "";
+        } else {
+            oref = oref + ".";
+        }
+        String value = oref + decl.identifier;
+
+        if ( data != null ) {
+            //
+            // It's a built-in base data type or an array of it, so the size
+            // can be calculated right away, except for strings, where it
+            // depends on the character encoding of the XDR stream.
+            //
+            code.append("        $size += ");
+            if ( "String".equals(data.syllable) ) {
+                code.append("xdr.xdrStringSize(" + value + ")");
+            } else if ( "Opaque".equals(data.syllable) ) {
+                code.append("xdr.xdrOpaqueSize(" + data.encodingOptions + ")");
+            } else if ( "DynamicOpaque".equals(data.syllable) ) {
+                code.append("xdr.xdrDynamicOpaqueSize(" + value + ".length)");
+            } else {
+                String elementSize = (data.syllable.startsWith("Long")
+                                      || data.syllable.startsWith("Double"))
+                                     ? "8" : "4";
+                if ( data.syllable.endsWith("FixedVector") ) {
+                    code.append("(" + data.encodingOptions + ") * " + elementSize);
+                } else if ( data.syllable.endsWith("Vector") ) {
+                    code.append("4 + " + value + ".length * " + elementSize);
+                } else {
+                    code.append(elementSize);
+                }
+            }
+            code.append(";\n");
+        } else if ( decl.kind == JrpcgenDeclaration.SCALAR ) {
+            code.append("        $size += ");
+            code.append(value);
+            code.append(".xdrSize(xdr);\n");
+        } else if ( decl.kind == JrpcgenDeclaration.INDIRECTION ) {
+            code.append("        $size += ( ");
+            code.append(value);
+            code.append(" != null ) ? 4 + ");
+            code.append(value);
+            code.append(".xdrSize(xdr) : 4;\n");
+        } else {
+            code.append("        { ");
+            code.append("int $length = ");
+            if ( decl.kind == JrpcgenDeclaration.DYNAMICVECTOR ) {
+                code.append(value);
+                code.append(".length; $size += 4");
+            } else {
+                code.append(checkForEnumValue(decl.size));
+            }
+            code.append("; ");
+            code.append("for ( int $idx = 0; $idx < $length; ++$idx ) { ");
+            code.append("$size += ");
+            code.append(value);
+            code.append("[$idx].xdrSize(xdr); ");
+            code.append("} }\n");
+        }
+        return code.toString();
+    }
+
     /**
      * Checks whether a given data type identifier refers to an enumeration
      * type and then returns Java's int data type instead. In case of the
@@ -913,7 +1097,7 @@ public class jrpcgen {
         String access = "    public ";	// modify encapsulation with beans
         PrintWriter out = createJavaSourceFile(s.identifier);
 
-        out.print("public class " + s.identifier + " implements XdrAble");
+        out.print("public class " + s.identifier + " implements XdrSizeable");
         if ( makeSerializable ) {
             out.print(", java.io.Serializable");
         }
@@ -1041,6 +1225,35 @@ public class jrpcgen {
         }
         out.println("    }");
 
+        out.println();
+        out.println("    public int xdrSize(XdrEncodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        int $size = 0;");
+        decls = s.elements.elements();
+        if ( useIteration ) {
+            out.println("        " + s.identifier + " $this = this;");
+            out.println("        do {");
+            JrpcgenDeclaration decl = null;
+            //
+            // when using the iteration loop for sizing emit code for
+            // all but the tail element, which is the reference to our type.
+            //
+            for ( int size = s.elements.size(); size > 1; --size ) {
+                decl = (JrpcgenDeclaration) decls.nextElement();
+                out.print("    " + sizingMethod(decl, "$this"));
+            }
+            decl = (JrpcgenDeclaration) decls.nextElement();
+            out.println("            $this = $this." + decl.identifier + ";");
+            out.println("            $size += 4;");
+            out.println("        } while ( $this != null );");
+        } else {
+            while ( decls.hasMoreElements() ) {
+                out.print(sizingMethod((JrpcgenDeclaration) decls.nextElement(), null));
+            }
+        }
+        out.println("        return $size;");
+        out.println("    }");
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
@@ -1059,7 +1272,13 @@ public class jrpcgen {
                 out.print("    " + codingMethod(decl, false, "$this"));
             }
             decl = (JrpcgenDeclaration) decls.nextElement();
-            out.println("            $next = xdr.xdrDecodeBoolean() ? new " + s.identifier + "() : null;");
+            if ( recycle ) {
+                out.println("            $next = xdr.xdrDecodeBoolean() ? "
+                            + "(($this." + decl.identifier + " != null) ? $this."
+                            + decl.identifier + " : new " + s.identifier + "()) : null;");
+            } else {
+                out.println("            $next = xdr.xdrDecodeBoolean() ? new " + s.identifier + "() : null;");
+            }
             out.println("            $this." + decl.identifier + " = $next;");
             out.println("            $this = $next;");
             out.println("        } while ( $this != null );");
@@ -1090,7 +1309,7 @@ public class jrpcgen {
         //
         PrintWriter out = createJavaSourceFile(u.identifier);
 
-        out.print("public class " + u.identifier + " implements XdrAble");
+        out.print("public class " + u.identifier + " implements XdrSizeable");
         if ( makeSerializable ) {
             out.print(", java.io.Serializable");
         }
@@ -1244,6 +1463,85 @@ public class jrpcgen {
         }
         out.println("    }");
 
+        out.println();
+        out.println("    public int xdrSize(XdrEncodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        int $size = 0;");
+        out.print(sizingMethod(u.descriminant, null));
+        if ( !boolDescriminant ) {
+            //
+            // Produce code using an ordinary switch statement...
+            //
+            out.println("        switch ( " + u.descriminant.identifier + " ) {");
+            arms = u.elements.elements();
+            while ( arms.hasMoreElements() ) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if ( a.value != null ) {
+                    out.println("        case " + checkForEnumValue(a.value) + ":");
+                } else {
+                    //
+                    // It's the default arm.
+                    //
+                    out.println("        default:");
+                }
+                //
+                // Only emit code if arm does not map to another arm.
+                //
+                if ( a.element != null ) {
+                    if ( a.element.identifier != null ) {
+                        out.print("    ");
+                        out.print(sizingMethod(a.element, null));
+                    }
+                    out.println("            break;");
+                }
+            }
+            out.println("        }");
+        } else {
+            //
+            // boolean descriminant: here we can have at most two arms.
+            //
+            boolean firstArm = true;
+            arms = u.elements.elements();
+            while ( arms.hasMoreElements() ) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if ( a.value == null ) {
+                    //
+                    // Skip default branch this time...
+                    //
+                    continue;
+                }
+                if ( a.element.identifier != null ) {
+                    out.print("        ");
+                    if ( !firstArm ) {
+                        out.print("else ");
+                    } else {
+                        firstArm = false;
+                    }
+                    out.println("if ( " + u.descriminant.identifier +
+                                  " == " + checkForEnumValue(a.value) + " ) {");
+                    out.print("    ");
+                    out.print(sizingMethod(a.element, null));
+                    out.println("        }");
+                }
+            }
+            arms = u.elements.elements();
+            while ( arms.hasMoreElements() ) {
+                JrpcgenUnionArm a = (JrpcgenUnionArm) arms.nextElement();
+                if ( (a.value == null) && (a.element.identifier != null) ) {
+                    out.print("        ");
+                    if ( !firstArm ) {
+                        out.print("else ");
+                    }
+                    out.println("{");
+                    out.print("    ");
+                    out.print(sizingMethod(a.element, null));
+                    out.println("        }");
+                }
+            }
+        }
+        out.println("        return $size;");
+        out.println("    }");
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
@@ -1351,7 +1649,7 @@ public class jrpcgen {
         //
         PrintWriter out = createJavaSourceFile(d.identifier);
 
-        out.print("public class " + d.identifier + " implements XdrAble");
+        out.print("public class " + d.identifier + " implements XdrSizeable");
         if ( makeSerializable ) {
             out.print(", java.io.Serializable");
         }
@@ -1409,6 +1707,14 @@ public class jrpcgen {
         out.print(codingMethod(dstar, true));
         out.println("    }");
 
+        out.println();
+        out.println("    public int xdrSize(XdrEncodingStream xdr)");
+        out.println("           throws OncRpcException, IOException {");
+        out.println("        int $size = 0;");
+        out.print(sizingMethod(dstar, null));
+        out.println("        return $size;");
+        out.println("    }");
+
         out.println();
         out.println("    public void xdrDecode(XdrDecodingStream xdr)");
         out.println("           throws OncRpcException, IOException {");
@@ -1470,6 +1776,12 @@ public class jrpcgen {
 
             out.println("    /**");
             out.println("     * Call remote procedure " + proc.procedureId + ".");
+            if ( recycle && !resultType.equals("void")
+                 && (xdrBaseType(resultType) == null) ) {
+                out.println("     *");
+                out.println("     * <p>The result returned is recycled, so it is only valid until");
+                out.println("     * the next call of this procedure made by the same thread.");
+            }
             //
             // If there are no parameters, skip the parameter documentation
             // section, otherwise dump javadoc @param entries for every
@@ -1564,6 +1876,13 @@ public class jrpcgen {
             //
             String xdrParamsName = null; // Name of variable representing XDR-able arguments
 
+            if ( recycle
+                 && ((paramsKind == PARAMS_SINGLE_BASETYPE)
+                     || (paramsKind == PARAMS_MORE)
+                     || !resultType.equals("void")) ) {
+                out.println("        Recycled$ recycled$ = recycled$();");
+            }
+
             switch ( paramsKind ) {
             case PARAMS_VOID:
                 xdrParamsName = "args$";
@@ -1586,6 +1905,13 @@ public class jrpcgen {
                 JrpcgenParamInfo paramInfo = (JrpcgenParamInfo)
                     proc.parameters.elementAt(0);
                 xdrParamsName = "args$";
+                if ( recycle ) {
+                    out.println("        Args$" + proc.procedureId + " args$ = recycled$.args$"
+                                + proc.procedureId + ";");
+                    out.println("        args$." + paramInfo.parameterName + " = "
+                                + paramInfo.parameterName + ";");
+                    break;
+                }
                 String xdrParamsType = xdrBaseType(checkForSpecials(paramInfo.parameterType));
                 out.println("        " + xdrParamsType + " args$ = new "
                             + xdrParamsType + "(" + paramInfo.parameterName + ");");
@@ -1593,7 +1919,18 @@ public class jrpcgen {
             }
             case PARAMS_MORE:
                 xdrParamsName = "args$";
-                out.println("        class XdrAble$ implements XdrAble {");
+                if ( recycle ) {
+                    out.println("        Args$" + proc.procedureId + " args$ = recycled$.args$"
+                                + proc.procedureId + ";");
+                    for ( int pidx = 0; pidx < proc.parameters.size(); ++pidx ) {
+                        JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
+                            proc.parameters.elementAt(pidx);
+                        out.println("        args$." + pinfo.parameterName + " = "
+                                    + pinfo.parameterName + ";");
+                    }
+                    break;
+                }
+                out.println("        class XdrAble$ implements XdrSizeable {");
 
                 int psize = proc.parameters.size();
                 for ( int pidx = 0; pidx < psize; ++pidx ) {
@@ -1624,6 +1961,20 @@ public class jrpcgen {
                     out.print(codingMethod(decl, true));
                 }
 
+                out.println("            }");
+                out.println("            public int xdrSize(XdrEncodingStream xdr)");
+                out.println("                throws OncRpcException, IOException {");
+                out.println("                int $size = 0;");
+                for ( int pidx = 0; pidx < psize; ++pidx ) {
+                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
+                        proc.parameters.elementAt(pidx);
+                    decl.kind = JrpcgenDeclaration.SCALAR;
+                    decl.identifier = pinfo.parameterName;
+                    decl.type = pinfo.parameterType;
+                    out.print("        ");
+                    out.print(sizingMethod(decl, null));
+                }
+                out.println("                return $size;");
                 out.println("            }");
                 out.println("            public void xdrDecode(XdrDecodingStream xdr)");
                 out.println("                throws OncRpcException, IOException {");
@@ -1656,6 +2007,10 @@ public class jrpcgen {
             //
             if ( resultType.equals("void") ) {
                 out.println("        XdrVoid result$ = XdrVoid.XDR_VOID;");
+            } else if ( recycle ) {
+                out.println("        " + ((xdrResultType != null) ?
+                                          "Result$" + proc.procedureId : resultType)
+                            + " result$ = recycled$.result$" + proc.procedureId + ";");
             } else if ( xdrResultType != null ) {
                 out.println("        " + xdrResultType + " result$ = new "
                             + xdrResultType + "();");
@@ -1664,20 +2019,50 @@ public class jrpcgen {
                             + resultType + "();");
             }
             //
+            // A recycled holder of the parameters must not keep the
+            // caller's objects reachable after the call, so its fields
+            // referencing objects are cleared when the call is done.
+            //
+            Vector clearedParams = new Vector();
+            if ( recycle
+                 && ((paramsKind == PARAMS_SINGLE_BASETYPE)
+                     || (paramsKind == PARAMS_MORE)) ) {
+                for ( int pidx = 0; pidx < proc.parameters.size(); ++pidx ) {
+                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
+                        proc.parameters.elementAt(pidx);
+                    if ( !isJavaPrimitiveType(checkForSpecials(pinfo.parameterType)) ) {
+                        clearedParams.addElement(pinfo.parameterName);
+                    }
+                }
+            }
+            String indent = "        ";
+            if ( clearedParams.size() > 0 ) {
+                out.println("        try {");
+                indent = "            ";
+            }
+            //
             // Now emit the real ONC/RPC call using the (optionally
             // wrapped) parameter and (optionally wrapped) result.
             //
             if ( clampProgAndVers ) {
-                out.println("        client.call("
+                out.println(indent + "client.call("
                             + baseClassname + "." + proc.procedureId
                             + ", " + baseClassname + "." + versionInfo.versionId
                             + ", " + xdrParamsName + ", result$);");
             } else {
-                out.println("        client.call("
+                out.println(indent + "client.call("
                             + baseClassname + "." + proc.procedureId
                             + ", client.getVersion(), "
                             + xdrParamsName + ", result$);");
             }
+            if ( clearedParams.size() > 0 ) {
+                out.println("        } finally {");
+                for ( int pidx = 0; pidx < clearedParams.size(); ++pidx ) {
+                    out.println("            args$." + clearedParams.elementAt(pidx)
+                                + " = null;");
+                }
+                out.println("        }");
+            }
             //
             // In case of a wrapped result we need to return the value
             // of the wrapper, otherwise we can return the result
@@ -1691,7 +2076,11 @@ public class jrpcgen {
                 // to unwrap the XDR-able result -- if it's not a void, which
                 // we do not need to return at all.
                 //
-                if ( !resultType.equals("void") ) {
+                if ( resultType.equals("void") ) {
+                    // Nothing to return.
+                } else if ( recycle ) {
+                    out.println("        return result$.value;");
+                } else {
                     out.println("        return result$."
                     + resultType.toLowerCase() + "Value();");
                 }
@@ -1712,6 +2101,216 @@ public class jrpcgen {
         }
     }
 
+    /**
+     * Checks whether a Java data type is a primitive data type, so that
+     * variables of this type do not reference any objects.
+     *
+     * @param type name of Java data type.
+     *
+     * @return <code>true</code> if the data type is a primitive data type.
+     */
+    public static boolean isJavaPrimitiveType(String type) {
+        return type.equals("boolean") || type.equals("byte")
+               || type.equals("short") || type.equals("int")
+               || type.equals("long") || type.equals("float")
+               || type.equals("double") || type.equals("char");
+    }
+
+    /**
+     * Returns the kind of parameters a remote procedure expects.
+     *
+     * @param proc information about the remote procedure.
+     *
+     * @return One of the <code>PARAMS_XXX</code> constants.
+     */
+    public static int paramsKind(JrpcgenProcedureInfo proc) {
+        if ( proc.parameters == null ) {
+            return PARAMS_VOID;
+        }
+        if ( proc.parameters.size() > 1 ) {
+            return PARAMS_MORE;
+        }
+        String firstParamType =
+            ((JrpcgenParamInfo) proc.parameters.elementAt(0)).parameterType;
+        return (xdrBaseType(checkForSpecials(firstParamType)) == null) ?
+                   PARAMS_SINGLE : PARAMS_SINGLE_BASETYPE;
+    }
+
+    /**
+     * Generate a nested class holding the given parameters of a remote
+     * procedure, or its result, so that the holder can be recycled.
+     *
+     * @param out printer writer to send source code to.
+     * @param className name of the holder class.
+     * @param params vector of {@link JrpcgenParamInfo} with the members
+     *   of the holder class.
+     */
+    public static void dumpRecycledHolder(PrintWriter out, String className,
+                                          Vector params) {
+        out.println("    private static final class " + className
+                    + " implements XdrSizeable {");
+        int psize = params.size();
+        for ( int pidx = 0; pidx < psize; ++pidx ) {
+            JrpcgenParamInfo pinfo = (JrpcgenParamInfo) params.elementAt(pidx);
+            out.println("        public "
+                        + checkForSpecials(pinfo.parameterType)
+                        + " " + pinfo.parameterName + ";");
+        }
+        JrpcgenDeclaration decl = new JrpcgenDeclaration(null, null);
+        for ( int method = 0; method < 3; ++method ) {
+            if ( method == 0 ) {
+                out.println("        public void xdrEncode(XdrEncodingStream xdr)");
+            } else if ( method == 1 ) {
+                out.println("        public int xdrSize(XdrEncodingStream xdr)");
+            } else {
+                out.println("        public void xdrDecode(XdrDecodingStream xdr)");
+            }
+            out.println("               throws OncRpcException, IOException {");
+            if ( method == 1 ) {
+                out.println("            int $size = 0;");
+            }
+            for ( int pidx = 0; pidx < psize; ++pidx ) {
+                JrpcgenParamInfo pinfo = (JrpcgenParamInfo) params.elementAt(pidx);
+                decl.kind = JrpcgenDeclaration.SCALAR;
+                decl.identifier = pinfo.parameterName;
+                decl.type = pinfo.parameterType;
+                out.print("    ");
+                if ( method == 1 ) {
+                    out.print(sizingMethod(decl, null));
+                } else {
+                    out.print(codingMethod(decl, method == 0));
+                }
+            }
+            if ( method == 1 ) {
+                out.println("            return $size;");
+            }
+            out.println("        }");
+        }
+        out.println("    }");
+        out.println();
+    }
+
+    /**
+     * Generate the classes and fields needed by a client or server stub
+     * for recycling the objects holding the arguments and results of calls.
+     * Every thread gets its own set of objects, so that a stub can still be
+     * used by several threads at the same time.
+     *
+     * @param out printer writer to send source code to.
+     * @param programInfo information about the remote program.
+     * @param server <code>true</code> when generating a server stub,
+     *   <code>false</code> when generating a client stub.
+     */
+    public static void dumpRecycledObjects(PrintWriter out,
+                                           JrpcgenProgramInfo programInfo,
+                                           boolean server) {
+        StringBuffer fields = new StringBuffer();
+        int versionSize = programInfo.versions.size();
+        for ( int versionIdx = 0; versionIdx < versionSize; ++versionIdx ) {
+            JrpcgenVersionInfo versionInfo = (JrpcgenVersionInfo)
+                programInfo.versions.elementAt(versionIdx);
+            int procSize = versionInfo.procedures.size();
+            for ( int procIdx = 0; procIdx < procSize; ++procIdx ) {
+                JrpcgenProcedureInfo proc = (JrpcgenProcedureInfo)
+                    versionInfo.procedures.elementAt(procIdx);
+                String resultType = checkForSpecials(proc.resultType);
+                String holderType = null;
+                //
+                // A single parameter of a complex type is passed to the
+                // client stub by the caller, so only the server needs to
+                // decode it into a recycled object. All other parameters
+                // need a holder in any case.
+                //
+                switch ( paramsKind(proc) ) {
+                case PARAMS_SINGLE:
+                    if ( server ) {
+                        holderType = ((JrpcgenParamInfo) proc.parameters.elementAt(0))
+                                         .parameterType;
+                    }
+                    break;
+                case PARAMS_SINGLE_BASETYPE:
+                case PARAMS_MORE:
+                    holderType = "Args$" + proc.procedureId;
+                    dumpRecycledHolder(out, holderType, proc.parameters);
+                    break;
+                }
+                if ( holderType != null ) {
+                    fields.append("        " + holderType + " args$"
+                                  + proc.procedureId + " = new "
+                                  + holderType + "();\n");
+                }
+                //
+                // Results of base types need a holder. Results of complex
+                // types are returned by the server methods, so only the
+                // client needs to decode them into a recycled object.
+                //
+                holderType = null;
+                if ( resultType.equals("void") ) {
+                    // Nothing to hold.
+                } else if ( xdrBaseType(resultType) != null ) {
+                    holderType = "Result$" + proc.procedureId;
+                    Vector value = new Vector();
+                    value.addElement(new JrpcgenParamInfo(proc.resultType, "value"));
+                    dumpRecycledHolder(out, holderType, value);
+                } else if ( !server ) {
+                    holderType = resultType;
+                }
+                if ( holderType != null ) {
+                    fields.append("        " + holderType + " result$"
+                                  + proc.procedureId + " = new "
+                                  + holderType + "();\n");
+                }
+            }
+        }
+
+        out.println("    /**");
+        if ( server ) {
+            out.println("     * Objects holding the arguments and results of calls, which are");
+            out.println("     * recycled by all calls dispatched by the same thread. Arguments");
+            out.println("     * handed over to the server methods must therefore not be kept or");
+            out.println("     * used after the server method returned, as the next call of the");
+            out.println("     * same procedure decodes its arguments into the same objects.");
+            out.println("     *");
+            out.println("     * <p>As these objects are kept per thread, recycling only pays off");
+            out.println("     * when calls are dispatched by a limited number of long-lived");
+            out.println("     * threads, like the threads of a transport or of a fixed thread");
+            out.println("     * pool. Executors starting a new thread for every call, like those");
+            out.println("     * of virtual threads, allocate a fresh set of objects for every");
+            out.println("     * call instead, just like stubs generated without recycling.");
+        } else {
+            out.println("     * Objects holding the arguments and results of calls, which are");
+            out.println("     * recycled by all calls made by the same thread. Results returned");
+            out.println("     * by the stub methods are therefore only valid until the next call");
+            out.println("     * of the same procedure by the same thread, which decodes its");
+            out.println("     * result into the same object.");
+            out.println("     *");
+            out.println("     * <p>As these objects are kept per thread, recycling only pays off");
+            out.println("     * when calls are made by a limited number of long-lived threads.");
+            out.println("     * Threads making only a single call, like virtual threads started");
+            out.println("     * per task, allocate a fresh set of objects for every call instead.");
+        }
+        out.println("     */");
+        out.println("    private static final class Recycled$ {");
+        out.print(fields.toString());
+        out.println("    }");
+        out.println();
+        out.println("    /**");
+        out.println("     * Recycled objects of the current thread.");
+        out.println("     */");
+        out.println("    private final ThreadLocal<Recycled$> recycledObjects$ =");
+        out.println("        new ThreadLocal<Recycled$>();");
+        out.println();
+        out.println("    private Recycled$ recycled$() {");
+        out.println("        Recycled$ recycled$ = recycledObjects$.get();");
+        out.println("        if ( recycled$ == null ) {");
+        out.println("            recycled$ = new Recycled$();");
+        out.println("            recycledObjects$.set(recycled$);");
+        out.println("        }");
+        out.println("        return recycled$;");
+        out.println("    }");
+        out.println();
+    }
+
     /**
      * Generate source code for the client stub proxy object. This client
      * stub proxy object is then used by client applications to make remote
@@ -1858,6 +2457,9 @@ public class jrpcgen {
                 programInfo.versions.elementAt(versionIdx);
             dumpClientStubMethods(out, versionInfo);
         }
+        if ( recycle ) {
+            dumpRecycledObjects(out, programInfo, false);
+        }
         //
         // Close class...done!
         //
@@ -1931,6 +2533,13 @@ public class jrpcgen {
         //
         String params = "";
 
+        if ( recycle
+             && ((paramsKind != PARAMS_VOID)
+                 || ((xdrBaseType(resultType) != null)
+                     && !resultType.equals("void"))) ) {
+            out.println("                Recycled$ recycled$ = recycled$();");
+        }
+
         switch ( paramsKind ) {
         case PARAMS_VOID:
             //
@@ -1948,9 +2557,15 @@ public class jrpcgen {
             //
             JrpcgenParamInfo paramInfo = (JrpcgenParamInfo)
                 proc.parameters.elementAt(0);
-            out.println("                " + paramInfo.parameterType
-                        + " args$ = new "
-                        + paramInfo.parameterType + "();");
+            if ( recycle ) {
+                out.println("                " + paramInfo.parameterType
+                            + " args$ = recycled$.args$"
+                            + proc.procedureId + ";");
+            } else {
+                out.println("                " + paramInfo.parameterType
+                            + " args$ = new "
+                            + paramInfo.parameterType + "();");
+            }
             out.println("                call.retrieveCall(args$);");
             params = (withCallInfo ? "call, " : "")
                      + "args$";
@@ -1964,6 +2579,14 @@ public class jrpcgen {
             JrpcgenParamInfo paramInfo = (JrpcgenParamInfo)
                 proc.parameters.elementAt(0);
             String paramsType = checkForSpecials(paramInfo.parameterType);
+            if ( recycle ) {
+                out.println("                Args$" + proc.procedureId
+                            + " args$ = recycled$.args$" + proc.procedureId + ";");
+                out.println("                call.retrieveCall(args$);");
+                params = (withCallInfo ? "call, " : "")
+                         + "args$." + paramInfo.parameterName;
+                break;
+            }
             String xdrParamsType = xdrBaseType(paramsType);
             out.println("                " + xdrParamsType + " args$ = new "
                         + xdrParamsType + "();");
@@ -1979,44 +2602,49 @@ public class jrpcgen {
             //
             StringBuffer paramsBuff = new StringBuffer();
 
-            out.println("                class XdrAble$ implements XdrAble {");
-
             int psize = proc.parameters.size();
-            for ( int pidx = 0; pidx < psize; ++pidx ) {
-                JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
-                    proc.parameters.elementAt(pidx);
-                out.println("                    public "
-                            + checkForSpecials(pinfo.parameterType)
-                            + " " + pinfo.parameterName + ";");
-            }
+            if ( recycle ) {
+                out.println("                Args$" + proc.procedureId
+                            + " args$ = recycled$.args$" + proc.procedureId + ";");
+            } else {
+                out.println("                class XdrAble$ implements XdrAble {");
 
-            out.println("                    public void xdrEncode(XdrEncodingStream xdr)");
-            out.println("                        throws OncRpcException, IOException {");
-            out.println("                    }");
-            out.println("                    public void xdrDecode(XdrDecodingStream xdr)");
-            out.println("                        throws OncRpcException, IOException {");
+                for ( int pidx = 0; pidx < psize; ++pidx ) {
+                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
+                        proc.parameters.elementAt(pidx);
+                    out.println("                    public "
+                                + checkForSpecials(pinfo.parameterType)
+                                + " " + pinfo.parameterName + ";");
+                }
 
-            //
-            // Emit serialization code for all parameters.
-            // Note that not we do not need to deal with all kinds of
-            // parameters here, as things like "int<5>" are invalid,
-            // a typedef declaration is then necessary.
-            //
-            JrpcgenDeclaration decl = new JrpcgenDeclaration(null, null);
-            for ( int pidx = 0; pidx < psize; ++pidx ) {
-                JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
-                    proc.parameters.elementAt(pidx);
-                decl.kind = JrpcgenDeclaration.SCALAR;
-                decl.identifier = pinfo.parameterName;
-                decl.type = pinfo.parameterType;
-                out.print("                ");
-                out.print(codingMethod(decl, false));
-            }
+                out.println("                    public void xdrEncode(XdrEncodingStream xdr)");
+                out.println("                        throws OncRpcException, IOException {");
+                out.println("                    }");
+                out.println("                    public void xdrDecode(XdrDecodingStream xdr)");
+                out.println("                        throws OncRpcException, IOException {");
+
+                //
+                // Emit serialization code for all parameters.
+                // Note that not we do not need to deal with all kinds of
+                // parameters here, as things like "int<5>" are invalid,
+                // a typedef declaration is then necessary.
+                //
+                JrpcgenDeclaration decl = new JrpcgenDeclaration(null, null);
+                for ( int pidx = 0; pidx < psize; ++pidx ) {
+                    JrpcgenParamInfo pinfo = (JrpcgenParamInfo)
+                        proc.parameters.elementAt(pidx);
+                    decl.kind = JrpcgenDeclaration.SCALAR;
+                    decl.identifier = pinfo.parameterName;
+                    decl.type = pinfo.parameterType;
+                    out.print("                ");
+                    out.print(codingMethod(decl, false));
+                }
 
-            out.println("                    }");
+                out.println("                    }");
 
-            out.println("                };");
-            out.println("                XdrAble$ args$ = new XdrAble$();");
+                out.println("                };");
+                out.println("                XdrAble$ args$ = new XdrAble$();");
+            }
             out.println("                call.retrieveCall(args$);");
 
             if ( withCallInfo ) {
@@ -2057,6 +2685,16 @@ public class jrpcgen {
             out.println("                " + proc.procedureId + "("
                         + params + ");");
             out.println("                call.reply(XdrVoid.XDR_VOID);");
+        } else if ( recycle && (xdrResultType != null) ) {
+            //
+            // The return type is some Java base data type, which we put
+            // into the recycled result holder.
+            //
+            out.println("                Result$" + proc.procedureId
+                        + " result$ = recycled$.result$" + proc.procedureId + ";");
+            out.println("                result$.value = "
+                        + proc.procedureId + "(" + params + ");");
+            out.println("                call.reply(result$);");
         } else if ( xdrResultType != null ) {
             //
             // The return type is some Java base data type, so we need to
@@ -2092,6 +2730,27 @@ public class jrpcgen {
             //
             String resultType = checkForSpecials(proc.resultType);
             //
+            // When recycling, arguments of complex types are decoded into
+            // the same objects for every call, so tell the implementor.
+            //
+            if ( recycle && (paramsKind(proc) != PARAMS_VOID) ) {
+                boolean complexParams = false;
+                int psize = proc.parameters.size();
+                for ( int pidx = 0; pidx < psize; ++pidx ) {
+                    JrpcgenParamInfo paramInfo = (JrpcgenParamInfo)
+                        proc.parameters.elementAt(pidx);
+                    if ( xdrBaseType(checkForSpecials(paramInfo.parameterType)) == null ) {
+                        complexParams = true;
+                    }
+                }
+                if ( complexParams ) {
+                    out.println("    /**");
+                    out.println("     * The arguments are recycled, so they must not be used anymore");
+                    out.println("     * after this method returned.");
+                    out.println("     */");
+                }
+            }
+            //
             // Now emit the method signature, checking each argument for
             // specials, like enumerations. Also take care of no parameters
             // at all... Fortunately, this is relatively easy as we do not
@@ -2238,6 +2897,9 @@ public class jrpcgen {
                 programInfo.versions.elementAt(versionIdx);
             dumpServerStubMethods(out, versionInfo);
         }
+        if ( recycle ) {
+            dumpRecycledObjects(out, programInfo, true);
+        }
 
         //
         // Close class...done!
@@ -2327,6 +2989,8 @@ public class jrpcgen {
                 clampProgAndVers = false;
             } else if ( arg.equals("-withcallinfo") ) {
                 withCallInfo = true;
+            } else if ( arg.equals("-recycle") ) {
+                recycle = true;
             } else if ( arg.equals("-debug") ) {
                 debug = true;
             } else if ( arg.equals("-nobackup") ) {
@@ -57,6 +57,9 @@ import java.net.InetAddress;
  *   <li>Use {@link #getXdrDecodingStream} to get a reference to the XDR
  *     stream from which you can deserialize the call's parameter.
  *   <li>When you are finished deserializing, call {@link #endDecoding}.
+ *     Large opaque parameters can be read incrementally using
+ *     {@link XdrDecodingStream#xdrDecodeDynamicOpaqueStream} before, and
+ *     whatever has been left unread is skipped when decoding is finished.
  *   <li>To send back the reply/result, call
  *     {@link #beginEncoding(OncRpcServerReplyMessage)}. Using the XDR stream returned
  *     by {@link #getXdrEncodingStream} serialize the reply/result. Finally finish
@@ -124,6 +127,9 @@ public class OncRpcCallInformation {
     public void retrieveCall(XdrAble call)
            throws OncRpcException, IOException {
         transport.retrieveCall(call);
+        if ( recording && (decodingEnd == 0) ) {
+            decodingEnd = System.nanoTime();
+        }
     }
 
     /**
@@ -151,6 +157,9 @@ public class OncRpcCallInformation {
     public void endDecoding()
            throws OncRpcException, IOException {
         transport.endDecoding();
+        if ( recording && (decodingEnd == 0) ) {
+            decodingEnd = System.nanoTime();
+        }
     }
 
     /**
@@ -171,6 +180,9 @@ public class OncRpcCallInformation {
      */
     public void beginEncoding(OncRpcServerReplyMessage state)
            throws OncRpcException, IOException {
+        if ( recording ) {
+            encodingStarted(state);
+        }
         transport.beginEncoding(this, state);
     }
 
@@ -189,8 +201,7 @@ public class OncRpcCallInformation {
      */
     public void beginEncoding()
            throws OncRpcException, IOException {
-        transport.beginEncoding(
-            this,
+        beginEncoding(
             new OncRpcServerReplyMessage(
                 callMessage,
                 OncRpcReplyStatus.ONCRPC_MSG_ACCEPTED,
@@ -225,6 +236,9 @@ public class OncRpcCallInformation {
     public void endEncoding()
            throws OncRpcException, IOException {
         transport.endEncoding();
+        if ( recording ) {
+            encodingEnd = System.nanoTime();
+        }
     }
 
     /**
@@ -248,7 +262,13 @@ public class OncRpcCallInformation {
      */
     public void reply(OncRpcServerReplyMessage state, XdrAble reply)
            throws OncRpcException, IOException {
+        if ( recording ) {
+            encodingStarted(state);
+        }
         transport.reply(this, state, reply);
+        if ( recording ) {
+            encodingEnd = System.nanoTime();
+        }
     }
 
     /**
@@ -429,6 +449,119 @@ public class OncRpcCallInformation {
               null);
     }
 
+    /**
+     * Returns the number of bytes received within the current call. This is
+     * only available if the server transport collects
+     * {@link OncRpcServerStatistics statistics} or has
+     * {@link OncRpcServerInterceptor interceptors} installed.
+     *
+     * @return Number of bytes received.
+     */
+    public int getBytesReceived() {
+        return bytesIn;
+    }
+
+    /**
+     * Returns the number of bytes sent within the reply to the current call.
+     * This is only available if the server transport collects
+     * {@link OncRpcServerStatistics statistics} or has
+     * {@link OncRpcServerInterceptor interceptors} installed.
+     *
+     * @return Number of bytes sent.
+     */
+    public int getBytesSent() {
+        return bytesOut;
+    }
+
+    /**
+     * Starts recording the statistics of a new call. This is done by
+     * server transports which have {@link OncRpcServerStatistics statistics}
+     * attached or {@link OncRpcServerInterceptor interceptors} installed,
+     * right after the call has been received.
+     */
+    void beginRecording() {
+        recording = true;
+        startTime = System.nanoTime();
+        decodingEnd = 0;
+        encodingStart = 0;
+        encodingEnd = 0;
+        bytesIn = 0;
+        bytesOut = 0;
+        failed = false;
+        authenticationFailed = false;
+    }
+
+    /**
+     * Notes the beginning of encoding the reply, which also ends decoding
+     * the call if this has not been done explicitly before, and remembers
+     * whether the reply indicates a failure.
+     *
+     * @param state ONC/RPC reply header about to be sent.
+     */
+    private void encodingStarted(OncRpcServerReplyMessage state) {
+        encodingStart = System.nanoTime();
+        if ( decodingEnd == 0 ) {
+            decodingEnd = encodingStart;
+        }
+        failed = (state.replyStatus != OncRpcReplyStatus.ONCRPC_MSG_ACCEPTED)
+                 || (state.acceptStatus != OncRpcAcceptStatus.ONCRPC_SUCCESS);
+        authenticationFailed =
+            (state.replyStatus == OncRpcReplyStatus.ONCRPC_MSG_DENIED)
+            && (state.rejectStatus == OncRpcRejectStatus.ONCRPC_AUTH_ERROR);
+    }
+
+    /**
+     * Indicates that the statistics of the current call are being
+     * recorded.
+     */
+    boolean recording = false;
+
+    /**
+     * Time when the current call was received, in nanoseconds.
+     */
+    long startTime;
+
+    /**
+     * Time when decoding the current call was finished, in nanoseconds, or
+     * zero if decoding has not been finished yet.
+     */
+    long decodingEnd;
+
+    /**
+     * Time when encoding the reply was started, in nanoseconds, or zero
+     * if no reply has been started yet.
+     */
+    long encodingStart;
+
+    /**
+     * Time when the reply was sent, in nanoseconds, or zero if no reply
+     * has been sent yet.
+     */
+    long encodingEnd;
+
+    /**
+     * Number of bytes received within the current call, as set by the
+     * server transport.
+     */
+    int bytesIn;
+
+    /**
+     * Number of bytes sent within the reply, as set by the server
+     * transport.
+     */
+    int bytesOut;
+
+    /**
+     * Indicates that the reply to the current call indicates a failure.
+     */
+    boolean failed;
+
+    /**
+     * Indicates that the current call was denied because of failed
+     * authentication.
+     */
+    boolean authenticationFailed;
+
 }
 
 // End of OncRpcCallInformation.java
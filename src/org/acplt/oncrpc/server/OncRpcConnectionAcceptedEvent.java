@@ -0,0 +1,102 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event describing a connection accepted by a
+ * TCP/IP-based server transport.
+ *
+ * <p>The event is disabled by default and has to be enabled in the
+ * recording settings using its name
+ * <code>org.acplt.oncrpc.ConnectionAccepted</code>.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+@Name("org.acplt.oncrpc.ConnectionAccepted")
+@Label("ONC/RPC Connection Accepted")
+@Category({"ONC/RPC", "Server"})
+@Description("TCP/IP connection accepted by an ONC/RPC server transport")
+@Enabled(false)
+@StackTrace(false)
+public class OncRpcConnectionAcceptedEvent extends Event {
+
+    /**
+     * Checks whether the event is enabled.
+     *
+     * @return <code>true</code> if the event is enabled.
+     */
+    static boolean enabled() {
+        return PROTOTYPE.isEnabled();
+    }
+
+    /**
+     * Commits an event for a connection which has been accepted.
+     *
+     * @param port Port the connection has been accepted on.
+     * @param peerAddress Address of the client.
+     * @param peerPort Port of the client.
+     */
+    static void emit(int port, String peerAddress, int peerPort) {
+        OncRpcConnectionAcceptedEvent event = new OncRpcConnectionAcceptedEvent();
+        event.port = port;
+        event.peerAddress = peerAddress;
+        event.peerPort = peerPort;
+        event.commit();
+    }
+
+    /**
+     * Port the connection has been accepted on.
+     */
+    @Label("Port")
+    int port;
+
+    /**
+     * Address of the client.
+     */
+    @Label("Peer Address")
+    String peerAddress;
+
+    /**
+     * Port of the client.
+     */
+    @Label("Peer Port")
+    int peerPort;
+
+    /**
+     * Instance used to check whether the event is enabled.
+     */
+    private static final OncRpcConnectionAcceptedEvent PROTOTYPE =
+        new OncRpcConnectionAcceptedEvent();
+
+}
+
+// End of OncRpcConnectionAcceptedEvent.java
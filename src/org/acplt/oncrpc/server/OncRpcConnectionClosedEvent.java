@@ -0,0 +1,128 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event describing a connection of a TCP/IP-based
+ * server transport which has been closed, together with the amount of data
+ * transferred and the age of the connection.
+ *
+ * <p>The event is disabled by default and has to be enabled in the
+ * recording settings using its name
+ * <code>org.acplt.oncrpc.ConnectionClosed</code>.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+@Name("org.acplt.oncrpc.ConnectionClosed")
+@Label("ONC/RPC Connection Closed")
+@Category({"ONC/RPC", "Server"})
+@Description("TCP/IP connection of an ONC/RPC server transport closed")
+@Enabled(false)
+@StackTrace(false)
+public class OncRpcConnectionClosedEvent extends Event {
+
+    /**
+     * Checks whether the event is enabled.
+     *
+     * @return <code>true</code> if the event is enabled.
+     */
+    static boolean enabled() {
+        return PROTOTYPE.isEnabled();
+    }
+
+    /**
+     * Commits an event for a connection which has been closed.
+     *
+     * @param port Port the connection has been accepted on.
+     * @param info Description of the connection.
+     */
+    static void emit(int port, OncRpcConnectionInfo info) {
+        OncRpcConnectionClosedEvent event = new OncRpcConnectionClosedEvent();
+        event.port = port;
+        event.peerAddress = info.getPeerAddress();
+        event.peerPort = info.getPeerPort();
+        event.bytesReceived = info.getBytesReceived();
+        event.bytesSent = info.getBytesSent();
+        event.age = info.getAge();
+        event.commit();
+    }
+
+    /**
+     * Port the connection has been accepted on.
+     */
+    @Label("Port")
+    int port;
+
+    /**
+     * Address of the client.
+     */
+    @Label("Peer Address")
+    String peerAddress;
+
+    /**
+     * Port of the client.
+     */
+    @Label("Peer Port")
+    int peerPort;
+
+    /**
+     * Number of bytes received over the connection.
+     */
+    @Label("Bytes Received")
+    @DataAmount
+    long bytesReceived;
+
+    /**
+     * Number of bytes sent over the connection.
+     */
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+
+    /**
+     * Time the connection has been open.
+     */
+    @Label("Age")
+    @Timespan(Timespan.MILLISECONDS)
+    long age;
+
+    /**
+     * Instance used to check whether the event is enabled.
+     */
+    private static final OncRpcConnectionClosedEvent PROTOTYPE =
+        new OncRpcConnectionClosedEvent();
+
+}
+
+// End of OncRpcConnectionClosedEvent.java
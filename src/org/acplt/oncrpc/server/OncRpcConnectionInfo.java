@@ -0,0 +1,130 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+/**
+ * Instances of class <code>OncRpcConnectionInfo</code> describe a
+ * connection accepted by a TCP/IP-based server transport at a particular
+ * point in time, as shown through the transport's
+ * {@link OncRpcTcpServerTransportMXBean}.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcConnectionInfo {
+
+    /**
+     * Create a new description of a connection.
+     *
+     * @param peerAddress Address of the client.
+     * @param peerPort Port number of the client.
+     * @param bytesReceived Number of bytes received within calls.
+     * @param bytesSent Number of bytes sent within replies.
+     * @param age Time since the connection has been accepted in
+     *   milliseconds.
+     */
+    public OncRpcConnectionInfo(String peerAddress, int peerPort,
+                                long bytesReceived, long bytesSent,
+                                long age) {
+        this.peerAddress = peerAddress;
+        this.peerPort = peerPort;
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+        this.age = age;
+    }
+
+    /**
+     * Returns the address of the client.
+     *
+     * @return Address of client.
+     */
+    public String getPeerAddress() {
+        return peerAddress;
+    }
+
+    /**
+     * Returns the port number of the client.
+     *
+     * @return Port number of client.
+     */
+    public int getPeerPort() {
+        return peerPort;
+    }
+
+    /**
+     * Returns the number of bytes received within calls, not counting the
+     * record marking.
+     *
+     * @return Number of bytes received.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Returns the number of bytes sent within replies, not counting the
+     * record marking.
+     *
+     * @return Number of bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    /**
+     * Returns the time since the connection has been accepted.
+     *
+     * @return Age of connection in milliseconds.
+     */
+    public long getAge() {
+        return age;
+    }
+
+    /**
+     * Address of the client.
+     */
+    private String peerAddress;
+
+    /**
+     * Port number of the client.
+     */
+    private int peerPort;
+
+    /**
+     * Number of bytes received within calls.
+     */
+    private long bytesReceived;
+
+    /**
+     * Number of bytes sent within replies.
+     */
+    private long bytesSent;
+
+    /**
+     * Time since the connection has been accepted in milliseconds.
+     */
+    private long age;
+
+}
+
+// End of OncRpcConnectionInfo.java
@@ -0,0 +1,362 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc.server;
+
+import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Instances of class <code>OncRpcDuplicateRequestCache</code> remember the
+ * replies recently sent by UDP/IP-based server transports, so that calls
+ * retransmitted by clients are not executed again. A retransmitted call is
+ * identified by the address and port of its sender, its transaction id,
+ * program, version and procedure number, as well as a checksum of its
+ * parameters.
+ *
+ * <p>If the original call has already been answered, then the cached reply
+ * is sent again without dispatching the call. If the original call is still
+ * being worked on, then the retransmission is silently dropped.
+ *
+ * <p>The cache holds at most a fixed number of entries, with the least
+ * recently used entries being thrown out first. In addition, replies are
+ * only kept for a limited time. Because the replies are stored in encoded
+ * form, the memory used by a cache is bounded by the number of entries
+ * times the buffer size of the server transport.
+ *
+ * @see OncRpcUdpServerTransport#setDuplicateRequestCache
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcDuplicateRequestCache {
+
+    /**
+     * Default number of entries held by a duplicate request cache.
+     */
+    public static final int DEFAULT_MAXIMUM_ENTRIES = 1024;
+
+    /**
+     * Default time in milliseconds replies are kept in a duplicate request
+     * cache.
+     */
+    public static final int DEFAULT_TIME_TO_LIVE = 120000;
+
+    /**
+     * Create a new duplicate request cache using the default size and time
+     * to live.
+     */
+    public OncRpcDuplicateRequestCache() {
+        this(DEFAULT_MAXIMUM_ENTRIES, DEFAULT_TIME_TO_LIVE);
+    }
+
+    /**
+     * Create a new duplicate request cache.
+     *
+     * @param maximumEntries Maximum number of calls remembered by the cache.
+     * @param timeToLive Time in milliseconds replies are kept in the cache.
+     *   Calls which are still being worked on do not expire.
+     *
+     * @throws IllegalArgumentException if either argument is not positive.
+     */
+    public OncRpcDuplicateRequestCache(int maximumEntries, int timeToLive) {
+        if ( maximumEntries <= 0 ) {
+            throw(new IllegalArgumentException("maximumEntries must be > 0"));
+        }
+        if ( timeToLive <= 0 ) {
+            throw(new IllegalArgumentException("timeToLive must be > 0"));
+        }
+        this.maximumEntries = maximumEntries;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Returns the maximum number of calls remembered by this cache.
+     *
+     * @return Maximum number of entries.
+     */
+    public int getMaximumEntries() {
+        return maximumEntries;
+    }
+
+    /**
+     * Returns the time in milliseconds replies are kept in this cache.
+     *
+     * @return Time to live of cached replies.
+     */
+    public int getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Returns the number of calls currently remembered by this cache.
+     *
+     * @return Number of cache entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of retransmitted calls detected by this cache,
+     * regardless of whether the cached reply was sent again or the call
+     * was dropped because it was still being worked on.
+     *
+     * @return Number of cache hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of retransmitted calls which were dropped because
+     * the original call was still being worked on. These are included in
+     * the number returned by {@link #getHits}.
+     *
+     * @return Number of cache hits for calls in progress.
+     */
+    public synchronized long getInProgressHits() {
+        return inProgressHits;
+    }
+
+    /**
+     * Returns the number of calls not found in this cache, which therefore
+     * had to be dispatched.
+     *
+     * @return Number of cache misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Throws away all entries of this cache. The hit and miss counters are
+     * not reset.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Checks whether a call has been seen before. If not, the call is
+     * remembered as being in progress and <code>null</code> is returned.
+     * Otherwise the entry of the original call is returned, which either
+     * contains the encoded reply or no reply at all, if the original call
+     * is still in progress.
+     *
+     * @param request Cache entry describing the call just received.
+     *
+     * @return <code>null</code> for new calls, or the entry of the
+     *   original call.
+     */
+    synchronized Entry checkRequest(Entry request) {
+        Entry original = (Entry) entries.get(request);
+        if ( original != null ) {
+            if ( (original.reply == null)
+                 || (System.currentTimeMillis() - original.timestamp < timeToLive) ) {
+                ++hits;
+                if ( original.reply == null ) {
+                    ++inProgressHits;
+                }
+                return original;
+            }
+            entries.remove(original);
+        }
+        ++misses;
+        entries.put(request, request);
+        //
+        // Keep the cache within its bounds. Only look at the least recently
+        // used end of the cache, so this is cheap even for large caches:
+        // first throw out expired replies until reaching an entry which is
+        // still valid, then throw out entries while the cache is too large.
+        //
+        long now = System.currentTimeMillis();
+        Iterator iter = entries.keySet().iterator();
+        while ( iter.hasNext() ) {
+            Entry entry = (Entry) iter.next();
+            if ( (entries.size() <= maximumEntries)
+                 && ((entry.reply == null)
+                     || (now - entry.timestamp < timeToLive)) ) {
+                break;
+            }
+            iter.remove();
+        }
+        return null;
+    }
+
+    /**
+     * Stores the encoded reply to a call previously entered into this cache
+     * using {@link #checkRequest}. If the call has been thrown out of the
+     * cache in the meantime, then the reply is not stored.
+     *
+     * @param request Cache entry describing the call.
+     * @param reply Buffer containing the encoded reply.
+     * @param length Length of the encoded reply.
+     */
+    synchronized void completeRequest(Entry request, byte [] reply, int length) {
+        if ( entries.get(request) == request ) {
+            byte [] copy = new byte[length];
+            System.arraycopy(reply, 0, copy, 0, length);
+            request.reply = copy;
+            request.timestamp = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Removes a call from this cache, for which no reply has been sent.
+     * A retransmission of the call will then be dispatched again.
+     *
+     * @param request Cache entry describing the call.
+     */
+    synchronized void abortRequest(Entry request) {
+        if ( entries.get(request) == request ) {
+            entries.remove(request);
+        }
+    }
+
+    /**
+     * Instances of class <code>Entry</code> identify calls and hold the
+     * encoded replies once they have been sent.
+     */
+    static class Entry {
+
+        /**
+         * Create a new cache entry for a call.
+         *
+         * @param peerAddress Address of the caller.
+         * @param peerPort Port number of the caller.
+         * @param call Header of the call.
+         * @param checksum Checksum of the call parameters.
+         */
+        Entry(InetAddress peerAddress, int peerPort,
+              OncRpcServerCallMessage call, long checksum) {
+            this.peerAddress = peerAddress;
+            this.peerPort = peerPort;
+            xid = call.messageId;
+            program = call.program;
+            version = call.version;
+            procedure = call.procedure;
+            this.checksum = checksum;
+        }
+
+        public int hashCode() {
+            return xid ^ (peerPort << 16) ^ procedure ^ (int) checksum;
+        }
+
+        public boolean equals(Object o) {
+            if ( !(o instanceof Entry) ) {
+                return false;
+            }
+            Entry other = (Entry) o;
+            return (xid == other.xid)
+                   && (peerPort == other.peerPort)
+                   && (program == other.program)
+                   && (version == other.version)
+                   && (procedure == other.procedure)
+                   && (checksum == other.checksum)
+                   && peerAddress.equals(other.peerAddress);
+        }
+
+        /**
+         * Address of the caller.
+         */
+        InetAddress peerAddress;
+
+        /**
+         * Port number of the caller.
+         */
+        int peerPort;
+
+        /**
+         * Transaction id of the call.
+         */
+        int xid;
+
+        /**
+         * Program number of the call.
+         */
+        int program;
+
+        /**
+         * Version number of the call.
+         */
+        int version;
+
+        /**
+         * Procedure number of the call.
+         */
+        int procedure;
+
+        /**
+         * Checksum of the call parameters.
+         */
+        long checksum;
+
+        /**
+         * Encoded reply or <code>null</code> as long as the call is in
+         * progress.
+         */
+        byte [] reply;
+
+        /**
+         * Point in time when the reply was stored.
+         */
+        long timestamp;
+
+    }
+
+    /**
+     * Maximum number of calls remembered.
+     */
+    private int maximumEntries;
+
+    /**
+     * Time in milliseconds replies are kept.
+     */
+    private int timeToLive;
+
+    /**
+     * Cache entries in least recently used order.
+     */
+    private LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * Number of retransmitted calls detected.
+     */
+    private long hits;
+
+    /**
+     * Number of retransmitted calls detected while the original call was
+     * still in progress.
+     */
+    private long inProgressHits;
+
+    /**
+     * Number of calls not found in the cache.
+     */
+    private long misses;
+
+}
+
+// End of OncRpcDuplicateRequestCache.java
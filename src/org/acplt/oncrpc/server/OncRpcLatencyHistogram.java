@@ -0,0 +1,294 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Instances of class <code>OncRpcLatencyHistogram</code> record the
+ * distribution of durations, measured in nanoseconds, in the fashion of
+ * HDR histograms. Values below 16 are counted exactly, larger values
+ * are counted in buckets covering a power of two each, which are in turn
+ * divided into 16 linear sub-buckets. This way each value is recorded
+ * with a relative error of at most 1/16th, using a fixed amount of memory
+ * regardless of the range of values.
+ *
+ * <p>Recording values is lock-free and does not allocate memory, so it
+ * can be done for every call handled by a server. Reading a histogram
+ * while values are being recorded gives only approximate results, as the
+ * buckets are not read atomically as a whole. Use {@link #snapshot} to get
+ * a copy which does not change any more.
+ *
+ * @see OncRpcProcedureStatistics
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcLatencyHistogram {
+
+    /**
+     * Create a new empty histogram.
+     */
+    public OncRpcLatencyHistogram() {
+        counts = new AtomicLongArray(BUCKETS);
+    }
+
+    /**
+     * Records a single duration.
+     *
+     * @param nanos Duration in nanoseconds. Negative durations are
+     *   recorded as zero.
+     */
+    public void recordValue(long nanos) {
+        if ( nanos < 0 ) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maximum.get();
+        while ( (nanos > max) && !maximum.compareAndSet(max, nanos) ) {
+            max = maximum.get();
+        }
+    }
+
+    /**
+     * Returns the number of durations recorded.
+     *
+     * @return Number of durations recorded.
+     */
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns the sum of all durations recorded.
+     *
+     * @return Sum of durations in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * Returns the longest duration recorded.
+     *
+     * @return Longest duration in nanoseconds or zero if no durations have
+     *   been recorded yet.
+     */
+    public long getMaximum() {
+        return maximum.get();
+    }
+
+    /**
+     * Returns the mean of all durations recorded.
+     *
+     * @return Mean duration in nanoseconds or zero if no durations have
+     *   been recorded yet.
+     */
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0.0 : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Returns the duration below which the given percentage of all recorded
+     * durations fall. The duration returned is the upper bound of the
+     * bucket the percentile falls into, but never more than the longest
+     * duration recorded.
+     *
+     * @param percentile Percentage between 0 and 100.
+     *
+     * @return Duration in nanoseconds or zero if no durations have been
+     *   recorded yet.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if ( (percentile < 0.0) || (percentile > 100.0) ) {
+            throw(new IllegalArgumentException("percentile must be between 0 and 100"));
+        }
+        long count = 0;
+        for ( int idx = 0; idx < BUCKETS; ++idx ) {
+            count += counts.get(idx);
+        }
+        if ( count == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * count);
+        if ( rank < 1 ) {
+            rank = 1;
+        }
+        long max = maximum.get();
+        for ( int idx = 0; idx < BUCKETS; ++idx ) {
+            rank -= counts.get(idx);
+            if ( rank <= 0 ) {
+                long value = bucketUpperBound(idx);
+                return value < max ? value : max;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the number of buckets of this histogram. Use
+     * {@link #getBucketCount}, {@link #getBucketLowerBound} and
+     * {@link #getBucketUpperBound} to export the distribution of the
+     * recorded durations.
+     *
+     * @return Number of buckets.
+     */
+    public int getBuckets() {
+        return BUCKETS;
+    }
+
+    /**
+     * Returns the number of durations recorded in a particular bucket.
+     *
+     * @param bucket Index of bucket.
+     *
+     * @return Number of durations recorded in this bucket.
+     */
+    public long getBucketCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Returns the shortest duration counted in a particular bucket.
+     *
+     * @param bucket Index of bucket.
+     *
+     * @return Shortest duration in nanoseconds.
+     */
+    public long getBucketLowerBound(int bucket) {
+        if ( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Returns the longest duration counted in a particular bucket.
+     *
+     * @param bucket Index of bucket.
+     *
+     * @return Longest duration in nanoseconds.
+     */
+    public long getBucketUpperBound(int bucket) {
+        return bucketUpperBound(bucket);
+    }
+
+    /**
+     * Returns a copy of this histogram, which does not change when further
+     * durations are recorded.
+     *
+     * @return Copy of histogram.
+     */
+    public OncRpcLatencyHistogram snapshot() {
+        OncRpcLatencyHistogram copy = new OncRpcLatencyHistogram();
+        long count = 0;
+        for ( int idx = 0; idx < BUCKETS; ++idx ) {
+            long bucketCount = counts.get(idx);
+            copy.counts.set(idx, bucketCount);
+            count += bucketCount;
+        }
+        copy.totalCount.set(count);
+        copy.totalNanos.set(totalNanos.get());
+        copy.maximum.set(maximum.get());
+        return copy;
+    }
+
+    /**
+     * Returns the index of the bucket counting a particular duration.
+     *
+     * @param nanos Non-negative duration in nanoseconds.
+     *
+     * @return Index of bucket.
+     */
+    private static int bucketIndex(long nanos) {
+        if ( nanos < SUB_BUCKETS ) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS
+               + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the longest duration counted in a particular bucket.
+     *
+     * @param bucket Index of bucket.
+     *
+     * @return Longest duration in nanoseconds.
+     */
+    private static long bucketUpperBound(int bucket) {
+        if ( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+        if ( bucket == BUCKETS - 1 ) {
+            return Long.MAX_VALUE;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << shift) - 1;
+    }
+
+    /**
+     * Number of bits used to divide each power of two into linear
+     * sub-buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Number of linear sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Total number of buckets, enough to cover all non-negative long
+     * values.
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Number of durations recorded per bucket.
+     */
+    private AtomicLongArray counts;
+
+    /**
+     * Number of durations recorded.
+     */
+    private AtomicLong totalCount = new AtomicLong();
+
+    /**
+     * Sum of durations recorded in nanoseconds.
+     */
+    private AtomicLong totalNanos = new AtomicLong();
+
+    /**
+     * Longest duration recorded in nanoseconds.
+     */
+    private AtomicLong maximum = new AtomicLong();
+
+}
+
+// End of OncRpcLatencyHistogram.java
@@ -0,0 +1,1233 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.LinkedList;
+
+/**
+ * Instances of class <code>OncRpcNioTcpConnectionServerTransport</code>
+ * handle individual ONC/RPC connections accepted by a
+ * {@link OncRpcNioTcpServerTransport}. The connection does not own a
+ * thread of its own. Instead, the selector thread of the parent transport
+ * notifies it whenever data has been received, and the connection then
+ * reassembles the record-marked fragments in memory. When the last
+ * fragment of a record has arrived, the complete ONC/RPC call is handed
+ * over to the dispatcher.
+ *
+ * <p>Replies are written to the non-blocking channel immediately. Any
+ * data the channel does not accept at once is queued and sent later when
+ * the channel becomes writable again. While replies are queued no further
+ * calls are read from the connection.
+ *
+ * @see OncRpcServerTransport
+ * @see OncRpcNioTcpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcNioTcpConnectionServerTransport extends OncRpcServerTransport {
+
+    /**
+     * Create a new instance of a <code>OncRpcNioTcpConnectionServerTransport</code>
+     * which encapsulates a non-blocking TCP/IP connection of an ONC/RPC
+     * server.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param channel Non-blocking socket channel of new connection.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     * @param parent Parent server transport which created us.
+     */
+    public OncRpcNioTcpConnectionServerTransport(OncRpcDispatchable dispatcher,
+                                                 SocketChannel channel,
+                                                 OncRpcServerTransportRegistrationInfo [] info,
+                                                 int bufferSize,
+                                                 OncRpcNioTcpServerTransport parent)
+           throws OncRpcException, IOException {
+        super(dispatcher, 0, info);
+        this.parent = parent;
+        //
+        // Make sure the buffer is large enough and resize system buffers
+        // accordingly, if possible.
+        //
+        if ( bufferSize < 1024 ) {
+            bufferSize = 1024;
+        }
+        if ( (bufferSize & 3) != 0 ) {
+            bufferSize = (bufferSize + 4) & ~3;
+        }
+        this.channel = channel;
+        Socket socket = channel.socket();
+        this.port = socket.getLocalPort();
+        peerAddress = socket.getInetAddress();
+        peerPort = socket.getPort();
+        acceptTime = System.currentTimeMillis();
+        OncRpcServerFlightRecorder.connectionAccepted(port,
+            peerAddress.getHostAddress(), peerPort);
+        if ( socket.getSendBufferSize() < bufferSize ) {
+            socket.setSendBufferSize(bufferSize);
+        }
+        if ( socket.getReceiveBufferSize() < bufferSize ) {
+            socket.setReceiveBufferSize(bufferSize);
+        }
+        //
+        // Set up the buffers for receiving fragments and reassembling them
+        // into complete records, as well as the XDR streams working on
+        // them.
+        // Direct buffers are used for talking to the channel, so the data
+        // does not need to be copied from or to temporary buffers by the
+        // channel itself. Calls consisting of a single fragment, which has
+        // been received in one go, are decoded right from the receive
+        // buffer. The buffers for reassembling records and for encoding
+        // replies are borrowed from the buffer pool only while they are
+        // needed.
+        //
+        bufferPool = XdrBufferPool.getDefault();
+        this.bufferSize = bufferSize;
+        receiveBuffer = ByteBuffer.allocateDirect(bufferSize);
+        receivingXdr = new XdrByteBufferDecodingStream(ByteBuffer.allocate(0));
+        sendingXdr = new ChannelEncodingStream(bufferSize);
+        //
+        // Inherit the character encoding setting from the listening
+        // transport (parent transport).
+        //
+        setCharacterEncoding(parent.getCharacterEncoding());
+        maximumRecordSize = parent.getMaximumRecordSize();
+        statistics = parent.getStatistics();
+        interceptors = parent.interceptors;
+    }
+
+    /**
+     * Close the server transport and free any resources associated with it.
+     *
+     * <p>Note that the server transport is <b>not deregistered</b>. You'll
+     * have to do it manually if you need to do so. The reason for this
+     * behaviour is, that the portmapper removes all entries regardless of
+     * the protocol (TCP/IP or UDP/IP) for a given ONC/RPC program number
+     * and version.
+     *
+     * <p>Calling this method on a <code>OncRpcNioTcpConnectionServerTransport</code>
+     * results in the channel immediately being closed and any queued
+     * replies being discarded.
+     */
+    public void close() {
+        //
+        // The selector thread and the thread closing the server transport
+        // might race for closing, so only look at the channel once.
+        //
+        SocketChannel deadChannel = channel;
+        if ( deadChannel != null ) {
+            channel = null;
+            if ( OncRpcServerFlightRecorder.connectionClosedEnabled() ) {
+                OncRpcServerFlightRecorder.connectionClosed(port, getConnectionInfo());
+            }
+            if ( key != null ) {
+                key.cancel();
+            }
+            try {
+                deadChannel.close();
+            } catch ( IOException e ) {
+            }
+        }
+        pendingOutput.clear();
+        if ( parent != null ) {
+            parent.removeTransport(this);
+            parent = null;
+        }
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for an
+     * individual TCP/IP-based server transport.
+     */
+    public void register()
+           throws OncRpcException {
+        throw(new Error("OncRpcNioTcpConnectionServerTransport.register() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Retrieves the parameters sent within an ONC/RPC call message. It also
+     * makes sure that the deserialization process is properly finished after
+     * the call parameters have been retrieved. Under the hood this method
+     * therefore calls {@link XdrDecodingStream#endDecoding} to free any
+     * pending resources from the decoding stage.
+     *
+     * @throws OncRpcException if an ONC/RPC exception occurs, like the data
+     *   could not be successfully deserialized.
+     * @throws IOException if an I/O exception occurs, like transmission
+     *   failures over the network, etc.
+     */
+    public void retrieveCall(XdrAble call)
+           throws OncRpcException, IOException {
+        call.xdrDecode(receivingXdr);
+        if ( pendingDecoding ) {
+            pendingDecoding = false;
+            receivingXdr.endDecoding();
+        }
+    }
+
+    /**
+     * Returns XDR stream which can be used for deserializing the parameters
+     * of this ONC/RPC call. This method belongs to the lower-level access
+     * pattern when handling ONC/RPC calls.
+     *
+     * @return Reference to decoding XDR stream.
+     */
+    protected XdrDecodingStream getXdrDecodingStream() {
+        return receivingXdr;
+    }
+
+    /**
+     * Finishes call parameter deserialization. Afterwards the XDR stream
+     * returned by {@link #getXdrDecodingStream} must not be used any more.
+     * This method belongs to the lower-level access pattern when handling
+     * ONC/RPC calls.
+     *
+     * @throws OncRpcException if an ONC/RPC exception occurs, like the data
+     *   could not be successfully deserialized.
+     * @throws IOException if an I/O exception occurs, like transmission
+     *   failures over the network, etc.
+     */
+    protected void endDecoding()
+              throws OncRpcException, IOException {
+        if ( pendingDecoding ) {
+            pendingDecoding = false;
+            receivingXdr.endDecoding();
+        }
+    }
+
+    /**
+     * Returns XDR stream which can be used for eserializing the reply
+     * to this ONC/RPC call. This method belongs to the lower-level access
+     * pattern when handling ONC/RPC calls.
+     *
+     * @return Reference to enecoding XDR stream.
+     */
+    protected XdrEncodingStream getXdrEncodingStream() {
+        return sendingXdr;
+    }
+
+    /**
+     * Begins the sending phase for ONC/RPC replies.
+     * This method belongs to the lower-level access pattern when handling
+     * ONC/RPC calls.
+     *
+     * @param callInfo Information about ONC/RPC call for which we are about
+     *   to send back the reply.
+     * @param state ONC/RPC reply header indicating success or failure.
+     *
+     * @throws OncRpcException if an ONC/RPC exception occurs, like the data
+     *   could not be successfully serialized.
+     * @throws IOException if an I/O exception occurs, like transmission
+     */
+    protected void beginEncoding(OncRpcCallInformation callInfo,
+                                 OncRpcServerReplyMessage state)
+              throws OncRpcException, IOException {
+        //
+        // In case decoding has not been properly finished, do it now to
+        // free up pending resources, etc.
+        //
+        if ( pendingDecoding ) {
+            pendingDecoding = false;
+            receivingXdr.endDecoding();
+        }
+        //
+        // Now start encoding using the reply message header first...
+        //
+        pendingEncoding = true;
+        sendingXdr.beginEncoding(callInfo.peerAddress, callInfo.peerPort);
+        state.xdrEncode(sendingXdr);
+    }
+
+    /**
+     * Finishes encoding the reply to this ONC/RPC call. Afterwards you must
+     * not use the XDR stream returned by {@link #getXdrEncodingStream} any
+     * longer.
+     *
+     * @throws OncRpcException if an ONC/RPC exception occurs, like the data
+     *   could not be successfully serialized.
+     * @throws IOException if an I/O exception occurs, like transmission
+     *   failures over the network, etc.
+     */
+    protected void endEncoding()
+              throws OncRpcException, IOException {
+        sendingXdr.endEncoding();
+        pendingEncoding = false;
+    }
+
+    /**
+     * Send back an ONC/RPC reply to the original caller. This is rather a
+     * low-level method, typically not used by applications. Dispatcher handling
+     * ONC/RPC calls have to use the
+     * {@link OncRpcCallInformation#reply(XdrAble)} method instead on the
+     * call object supplied to the handler.
+     *
+     * @param callInfo information about the original call, which are necessary
+     *   to send back the reply to the appropriate caller.
+     * @param state ONC/RPC reply message header indicating success or failure
+     *   and containing associated state information.
+     * @param reply If not <code>null</code>, then this parameter references
+     *   the reply to be serialized after the reply message header.
+     *
+     * @throws OncRpcException if an ONC/RPC exception occurs, like the data
+     *   could not be successfully serialized.
+     * @throws IOException if an I/O exception occurs, like transmission
+     *   failures over the network, etc.
+     *
+     * @see OncRpcCallInformation
+     * @see OncRpcDispatchable
+     */
+    protected void reply(OncRpcCallInformation callInfo,
+                         OncRpcServerReplyMessage state, XdrAble reply)
+           throws OncRpcException, IOException {
+        beginEncoding(callInfo, state);
+        if ( reply != null ) {
+            reply.xdrEncode(sendingXdr);
+        }
+        endEncoding();
+    }
+
+    /**
+     * Does nothing, as this connection is driven by a selector thread of
+     * its parent transport, which already took care of it after the
+     * connection has been accepted.
+     */
+    public void listen() {
+    }
+
+    /**
+     * Registers the channel of this connection with the given selector,
+     * initially waiting for incoming data.
+     *
+     * @param selector Selector of the selector thread handling this
+     *   connection.
+     *
+     * @throws IOException if the channel could not be registered.
+     */
+    void register(Selector selector)
+         throws IOException {
+        SocketChannel myChannel = channel;
+        if ( myChannel == null ) {
+            throw(new IOException("connection already closed"));
+        }
+        key = myChannel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Called by the selector thread whenever the channel of this connection
+     * has become readable or writable.
+     *
+     * @param key Selection key of this connection's channel.
+     */
+    void handleSelection(SelectionKey key) {
+        try {
+            if ( !key.isValid() ) {
+                close();
+                return;
+            }
+            if ( key.isWritable() ) {
+                sendPendingOutput();
+            }
+            if ( key.isValid() && key.isReadable() ) {
+                SocketChannel myChannel = channel;
+                if ( myChannel == null ) {
+                    return;
+                }
+                if ( myChannel.read(receiveBuffer) < 0 ) {
+                    //
+                    // The client closed its end of the connection, so we
+                    // follow suit.
+                    //
+                    close();
+                    return;
+                }
+                processInput();
+            }
+        } catch ( CancelledKeyException e ) {
+            close();
+        } catch ( IOException e ) {
+            close();
+        } catch ( RuntimeException e ) {
+            //
+            // Whatever went wrong with this connection must not take down
+            // the selector thread and all the other connections it serves.
+            //
+            close();
+        } finally {
+            //
+            // Hand back a partially received record when the connection
+            // has gone. This is done here, as only the selector thread
+            // touches the record.
+            //
+            if ( channel == null ) {
+                releaseRecord();
+            }
+        }
+    }
+
+    /**
+     * Reassembles fragments from the data received so far and dispatches
+     * all calls which have been received completely. Processing stops as
+     * soon as replies have to be queued because the channel does not
+     * accept more data for the moment.
+     *
+     * @throws IOException if the record marking is broken.
+     */
+    private void processInput()
+            throws IOException {
+        receiveBuffer.flip();
+        while ( receiveBuffer.hasRemaining() && (channel != null) ) {
+            if ( fragmentHeaderBytes < 4 ) {
+                //
+                // Collect the four bytes of the fragment header, which can
+                // be split across several reads.
+                //
+                fragmentHeader = (fragmentHeader << 8)
+                                 | (receiveBuffer.get() & 0xFF);
+                if ( ++fragmentHeaderBytes < 4 ) {
+                    continue;
+                }
+                lastFragment = (fragmentHeader & 0x80000000) != 0;
+                fragmentLength = fragmentHeader & 0x7FFFFFFF;
+                if ( (fragmentLength & 3) != 0 ) {
+                    throw(new IOException("ONC/RPC XDR fragment length is not a multiple of four"));
+                }
+                if ( (fragmentLength == 0) && !lastFragment ) {
+                    throw(new IOException("empty ONC/RPC XDR fragment which is not a last fragment"));
+                }
+                if ( (maximumRecordSize > 0)
+                     && (fragmentLength > maximumRecordSize - recordLength) ) {
+                    throw(new IOException("ONC/RPC record exceeds maximum record size"));
+                }
+                //
+                // If the call consists only of this fragment and the
+                // fragment has already been received completely, then
+                // decode it right from the receive buffer instead of
+                // copying it into the record buffer first.
+                //
+                if ( lastFragment && (recordLength == 0)
+                     && (fragmentLength > 0)
+                     && (receiveBuffer.remaining() >= fragmentLength) ) {
+                    int limit = receiveBuffer.limit();
+                    int end = receiveBuffer.position() + fragmentLength;
+                    receiveBuffer.limit(end);
+                    receivingXdr.setXdrData(receiveBuffer);
+                    receiveBuffer.limit(limit);
+                    receiveBuffer.position(end);
+                    int length = fragmentLength;
+                    fragmentLength = 0;
+                    fragmentHeaderBytes = 0;
+                    fragmentHeader = 0;
+                    dispatchRecord(length);
+                    if ( !pendingOutput.isEmpty() ) {
+                        break;
+                    }
+                    continue;
+                }
+            } else {
+                //
+                // Append the fragment's data to the record, making room as
+                // necessary.
+                //
+                int toCopy = receiveBuffer.remaining();
+                if ( toCopy > fragmentLength ) {
+                    toCopy = fragmentLength;
+                }
+                //
+                // Never trust the fragment length sent by the client when
+                // allocating memory: start with the usual buffer size and
+                // only grow the record by the data which has arrived.
+                //
+                if ( record == null ) {
+                    record = bufferPool.allocate(bufferSize);
+                    recordBuffer = ByteBuffer.wrap(record);
+                }
+                if ( recordLength + toCopy > record.length ) {
+                    int newLength = record.length * 2;
+                    if ( newLength < recordLength + toCopy ) {
+                        newLength = recordLength + toCopy;
+                    }
+                    byte [] newRecord = bufferPool.allocate(newLength);
+                    System.arraycopy(record, 0, newRecord, 0, recordLength);
+                    bufferPool.release(record);
+                    record = newRecord;
+                    recordBuffer = ByteBuffer.wrap(record);
+                }
+                receiveBuffer.get(record, recordLength, toCopy);
+                recordLength += toCopy;
+                fragmentLength -= toCopy;
+            }
+            if ( fragmentLength == 0 ) {
+                //
+                // The current fragment is complete. If it was the last
+                // fragment of its record, then we have got a complete call.
+                //
+                fragmentHeaderBytes = 0;
+                fragmentHeader = 0;
+                if ( lastFragment ) {
+                    if ( recordBuffer == null ) {
+                        //
+                        // An empty record, which consists of only an empty
+                        // last fragment, so no buffer has been borrowed.
+                        //
+                        receivingXdr.setXdrData(EMPTY_RECORD);
+                    } else {
+                        recordBuffer.limit(recordLength);
+                        recordBuffer.position(0);
+                        receivingXdr.setXdrData(recordBuffer);
+                        recordBuffer.clear();
+                    }
+                    int length = recordLength;
+                    recordLength = 0;
+                    dispatchRecord(length);
+                    releaseRecord();
+                    if ( !pendingOutput.isEmpty() ) {
+                        break;
+                    }
+                }
+            }
+        }
+        receiveBuffer.compact();
+    }
+
+    /**
+     * Hands the record buffer back to the buffer pool, if it is currently
+     * borrowed.
+     */
+    private void releaseRecord() {
+        if ( record != null ) {
+            bufferPool.release(record);
+            record = null;
+            recordBuffer = null;
+            recordLength = 0;
+        }
+    }
+
+    /**
+     * Decodes the ONC/RPC call header of a completely received record and
+     * hands the call over to the dispatcher. The record must already have
+     * been set as the data of the receiving XDR stream.
+     *
+     * @param length Length of the record.
+     */
+    private void dispatchRecord(int length) {
+        OncRpcServerStatistics stats = statistics;
+        OncRpcServerInterceptor [] chain = interceptors;
+        Object event = OncRpcServerFlightRecorder.startServerCall();
+        boolean recording = (stats != null) || (chain.length != 0)
+                            || (event != null);
+        long bytesSent = sendingXdr.bytesSent;
+        bytesReceived += length;
+        try {
+            pendingDecoding = true;
+            receivingXdr.beginDecoding();
+            if ( recording ) {
+                callInfo.beginRecording();
+                callInfo.bytesIn = length;
+            }
+            callInfo.peerAddress = peerAddress;
+            callInfo.peerPort = peerPort;
+            //
+            // Pull off the ONC/RPC call header of the XDR stream.
+            //
+            callInfo.callMessage.xdrDecode(receivingXdr);
+        } catch ( IOException e ) {
+            close();
+            return;
+        } catch ( OncRpcException e ) {
+            //
+            // In case of ONC/RPC exceptions at this stage we're silently
+            // ignoring that there was some data coming in, as we're not
+            // sure we got enough information to send a matching reply
+            // message back to the caller.
+            //
+            if ( stats != null ) {
+                stats.recordUndecodableCall();
+            }
+            pendingDecoding = false;
+            return;
+        }
+        Exception error = null;
+        try {
+            //
+            // Let the dispatcher retrieve the call parameters, work on
+            // it and send back the reply.
+            //
+            if ( chain.length != 0 ) {
+                beforeDispatch(chain, callInfo);
+            }
+            dispatcher.dispatchOncRpcCall(callInfo,
+                                          callInfo.callMessage.program,
+                                          callInfo.callMessage.version,
+                                          callInfo.callMessage.procedure);
+        } catch ( Exception e ) {
+            error = e;
+            //
+            // In case of some other runtime exception, we report back to
+            // the caller a system error. We can not do this if we got the
+            // exception when serializing the reply, in this case all we
+            // can do is to drop the connection.
+            //
+            if ( pendingEncoding ) {
+                close();
+                return;
+            }
+            pendingDecoding = false;
+            try {
+                if ( e instanceof OncRpcAuthenticationException ) {
+                    callInfo.failAuthenticationFailed(
+                        ((OncRpcAuthenticationException) e).getAuthStatus());
+                } else {
+                    callInfo.failSystemError();
+                }
+            } catch ( IOException e2 ) {
+                close();
+            } catch ( OncRpcException e2 ) {
+            }
+        }
+        if ( recording ) {
+            callInfo.bytesOut = (int) (sendingXdr.bytesSent - bytesSent);
+            if ( event != null ) {
+                OncRpcServerFlightRecorder.completeServerCall(event, callInfo, error);
+            }
+            if ( stats != null ) {
+                stats.recordCall(callInfo);
+            }
+            if ( chain.length != 0 ) {
+                afterDispatch(chain, callInfo, error);
+            }
+        }
+    }
+
+    /**
+     * Writes the given data to the channel. Whatever the channel does not
+     * accept immediately is queued and sent as soon as the channel becomes
+     * writable again.
+     *
+     * @param output Buffer containing the data to send between its
+     *   position and its limit.
+     *
+     * @throws IOException if the data could not be sent.
+     */
+    private void send(ByteBuffer output)
+            throws IOException {
+        SocketChannel myChannel = channel;
+        if ( myChannel == null ) {
+            throw(new IOException("connection already closed"));
+        }
+        if ( pendingOutput.isEmpty() ) {
+            while ( output.hasRemaining() ) {
+                if ( myChannel.write(output) == 0 ) {
+                    break;
+                }
+            }
+            if ( !output.hasRemaining() ) {
+                return;
+            }
+        }
+        //
+        // The caller is going to reuse its buffer, so we need to copy the
+        // data still not sent. Then wait for the channel to become writable
+        // instead of readable.
+        //
+        ByteBuffer queued = ByteBuffer.allocate(output.remaining());
+        queued.put(output);
+        queued.flip();
+        pendingOutput.addLast(queued);
+        key.interestOps(SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Sends queued data. When all data has been sent, the connection starts
+     * receiving again and dispatches any calls already buffered.
+     *
+     * @throws IOException if the data could not be sent.
+     */
+    private void sendPendingOutput()
+            throws IOException {
+        SocketChannel myChannel = channel;
+        if ( myChannel == null ) {
+            return;
+        }
+        while ( !pendingOutput.isEmpty() ) {
+            Object pending = pendingOutput.getFirst();
+            if ( pending instanceof FileRegion ) {
+                if ( !((FileRegion) pending).transferTo(myChannel) ) {
+                    return;
+                }
+            } else {
+                ByteBuffer output = (ByteBuffer) pending;
+                myChannel.write(output);
+                if ( output.hasRemaining() ) {
+                    return;
+                }
+            }
+            pendingOutput.removeFirst();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        processInput();
+    }
+
+    /**
+     * Returns a description of this connection, as shown by the listening
+     * transport through JMX.
+     *
+     * @return Description of connection.
+     */
+    OncRpcConnectionInfo getConnectionInfo() {
+        return new OncRpcConnectionInfo(peerAddress.getHostAddress(), peerPort,
+                                        bytesReceived, sendingXdr.bytesSent,
+                                        System.currentTimeMillis() - acceptTime);
+    }
+
+    /**
+     * Set the character encoding for (de-)serializing strings.
+     *
+     * @param characterEncoding the encoding to use for (de-)serializing strings.
+     *   If <code>null</code>, the system's default encoding is to be used.
+     */
+    public void setCharacterEncoding(String characterEncoding) {
+        sendingXdr.setCharacterEncoding(characterEncoding);
+        receivingXdr.setCharacterEncoding(characterEncoding);
+    }
+
+    /**
+     * Get the character encoding for (de-)serializing strings.
+     *
+     * @return the encoding currently used for (de-)serializing strings.
+     *   If <code>null</code>, then the system's default encoding is used.
+     */
+    public String getCharacterEncoding() {
+        return sendingXdr.getCharacterEncoding();
+    }
+
+    /**
+     * Non-blocking socket channel used for stream-based communication with
+     * ONC/RPC clients.
+     */
+    private SocketChannel channel;
+
+    /**
+     * Selection key of the channel, once it has been registered with the
+     * selector of its selector thread.
+     */
+    private SelectionKey key;
+
+    /**
+     * Address of the client at the other end of the connection.
+     */
+    private InetAddress peerAddress;
+
+    /**
+     * Port number of the client at the other end of the connection.
+     */
+    private int peerPort;
+
+    /**
+     * Time when the connection has been accepted, in milliseconds.
+     */
+    private long acceptTime;
+
+    /**
+     * Number of bytes received within complete call records, not counting
+     * the record marking.
+     */
+    private volatile long bytesReceived;
+
+    /**
+     * Call information reused for all calls received on this connection.
+     */
+    private OncRpcCallInformation callInfo = new OncRpcCallInformation(this);
+
+    /**
+     * Pool to borrow buffers from.
+     */
+    private XdrBufferPool bufferPool;
+
+    /**
+     * Size of the buffers used by this connection.
+     */
+    private int bufferSize;
+
+    /**
+     * Buffer receiving data from the channel, which has not yet been
+     * appended to the current record.
+     */
+    private ByteBuffer receiveBuffer;
+
+    /**
+     * Buffer reassembling the fragments of the current record, which is
+     * borrowed from the buffer pool only while a record is received in
+     * several parts.
+     */
+    private byte [] record;
+
+    /**
+     * Byte buffer wrapping the <code>record</code> array, so the record can
+     * be decoded using the receiving XDR stream.
+     */
+    private ByteBuffer recordBuffer;
+
+    /**
+     * Buffer without any data, which is decoded in place of a record
+     * consisting of only an empty last fragment.
+     */
+    private static final ByteBuffer EMPTY_RECORD = ByteBuffer.allocate(0);
+
+    /**
+     * Zero bytes used for padding opaque values sent from files.
+     */
+    private static final byte [] PADDING_ZEROS = new byte[3];
+
+    /**
+     * Number of bytes of the current record received so far.
+     */
+    private int recordLength;
+
+    /**
+     * Number of bytes of the current fragment header received so far.
+     */
+    private int fragmentHeaderBytes;
+
+    /**
+     * Fragment header of the current fragment.
+     */
+    private int fragmentHeader;
+
+    /**
+     * Remaining number of bytes in the current fragment.
+     */
+    private int fragmentLength;
+
+    /**
+     * Flag indicating that the current fragment is the last fragment of
+     * its record.
+     */
+    private boolean lastFragment;
+
+    /**
+     * Maximum size of records accepted or zero if the record size is not
+     * limited.
+     */
+    private int maximumRecordSize;
+
+    /**
+     * Queue of buffers and file regions still to be sent when the channel
+     * becomes writable.
+     */
+    private LinkedList pendingOutput = new LinkedList();
+
+    /**
+     * XDR encoding stream used for sending replies via TCP/IP back to an
+     * ONC/RPC client.
+     */
+    private ChannelEncodingStream sendingXdr;
+
+    /**
+     * XDR decoding stream used when decoding complete records received
+     * from ONC/RPC clients, either from the record buffer or right from
+     * the receive buffer.
+     */
+    private XdrByteBufferDecodingStream receivingXdr;
+
+    /**
+     * Indicates that <code>BeginDecoding</code> has been called for the
+     * receiving XDR stream, so that it should be closed later using
+     * <code>EndDecoding</code>.
+     */
+    private boolean pendingDecoding = false;
+
+    /**
+     * Indicates that <code>BeginEncoding</code> has been called for the
+     * sending XDR stream, so in face of exceptions we can not send an
+     * error reply to the client but only drop the connection.
+     */
+    private boolean pendingEncoding = false;
+
+    /**
+     * Reference to the TCP/IP transport which created us to handle a
+     * new ONC/RPC connection.
+     */
+    private OncRpcNioTcpServerTransport parent;
+
+    /**
+     * Region of a file still to be transferred to the channel.
+     */
+    private static final class FileRegion {
+
+        /**
+         * Create a new file region.
+         *
+         * @param file File channel to read from.
+         * @param position Position of the region in the file.
+         * @param length Length of the region.
+         */
+        FileRegion(FileChannel file, long position, int length) {
+            this.file = file;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        /**
+         * Transfers as much of the region to the given channel as the
+         * channel accepts without blocking.
+         *
+         * @param target Non-blocking channel to transfer the region to.
+         *
+         * @return <code>true</code> if the whole region has been
+         *   transferred.
+         *
+         * @throws IOException if an I/O error occurs, or the file ends
+         *   before the whole region has been transferred.
+         */
+        boolean transferTo(SocketChannel target)
+                throws IOException {
+            while ( remaining > 0 ) {
+                long transferred = file.transferTo(position, remaining, target);
+                if ( transferred <= 0 ) {
+                    if ( position >= file.size() ) {
+                        throw(new EOFException("file ends before end of opaque value"));
+                    }
+                    return false;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            return true;
+        }
+
+        /**
+         * File channel to read from.
+         */
+        private final FileChannel file;
+
+        /**
+         * Position of the data still to be transferred.
+         */
+        private long position;
+
+        /**
+         * Number of bytes still to be transferred.
+         */
+        private long remaining;
+
+    }
+
+    /**
+     * Encoding XDR stream splitting replies into record-marked fragments
+     * and handing the fragments over to the non-blocking channel.
+     */
+    private class ChannelEncodingStream extends XdrEncodingStream {
+
+        /**
+         * Create a new encoding stream with a buffer of the given size.
+         *
+         * @param bufferSize Size of fragment buffer, which must be a
+         *   multiple of four.
+         */
+        public ChannelEncodingStream(int bufferSize) {
+            bufferIndex = 4;
+            bufferHighmark = bufferSize - 4;
+        }
+
+        /**
+         * Begins encoding a new reply by starting a new fragment. The
+         * buffer is borrowed from the buffer pool until the reply has been
+         * sent.
+         */
+        public void beginEncoding(InetAddress receiverAddress, int receiverPort)
+               throws OncRpcException, IOException {
+            if ( buffer == null ) {
+                buffer = bufferPool.allocateDirect(bufferHighmark + 4);
+            }
+            bufferIndex = 4;
+        }
+
+        /**
+         * Sends the last fragment of the current reply and hands back the
+         * buffer. Whatever the channel did not accept has already been
+         * copied by then.
+         */
+        public void endEncoding()
+               throws OncRpcException, IOException {
+            flush(true);
+            bufferPool.release(buffer);
+            buffer = null;
+        }
+
+        /**
+         * Encodes a "XDR int" value, sending the current fragment first
+         * if the buffer is already full.
+         */
+        public void xdrEncodeInt(int value)
+               throws OncRpcException, IOException {
+            if ( bufferIndex > bufferHighmark ) {
+                flush(false);
+            }
+            buffer.putInt(bufferIndex, value);
+            bufferIndex += 4;
+        }
+
+        /**
+         * Encodes a XDR opaque value, sending fragments whenever the
+         * buffer fills up.
+         */
+        public void xdrEncodeOpaque(byte [] value, int offset, int length)
+               throws OncRpcException, IOException {
+            int padding = (4 - (length & 3)) & 3;
+            int toCopy;
+
+            while ( length > 0 ) {
+                toCopy = bufferHighmark - bufferIndex + 4;
+                ByteBuffer view = buffer.duplicate();
+                view.position(bufferIndex);
+                if ( toCopy >= length ) {
+                    view.put(value, offset, length);
+                    bufferIndex += length;
+                    break;
+                }
+                view.put(value, offset, toCopy);
+                bufferIndex += toCopy;
+                offset += toCopy;
+                length -= toCopy;
+                flush(false);
+            }
+            for ( ; padding > 0; --padding ) {
+                buffer.put(bufferIndex++, (byte) 0);
+            }
+        }
+
+        /**
+         * Encodes a XDR opaque value read from a region of a file. Large
+         * regions are sent in a fragment of their own, which is transferred
+         * straight from the file to the channel. If the channel does not
+         * accept all data immediately, the rest of the region is queued and
+         * transferred as soon as the channel becomes writable again. The
+         * file channel must therefore stay open, and the region unchanged,
+         * even after the reply has been handed over to the transport.
+         */
+        public void xdrEncodeOpaque(FileChannel file, long position, int length)
+               throws OncRpcException, IOException {
+            if ( length < FILE_TRANSFER_THRESHOLD ) {
+                super.xdrEncodeOpaque(file, position, length);
+                return;
+            }
+            int padding = (4 - (length & 3)) & 3;
+            //
+            // Send what has been encoded so far as a fragment of its own,
+            // then the fragment header of the file region's fragment.
+            //
+            if ( bufferIndex > 4 ) {
+                flush(false);
+            }
+            buffer.putInt(0, length + padding);
+            bytesSent += length + padding;
+            buffer.limit(4);
+            buffer.position(0);
+            send(buffer);
+            buffer.clear();
+            sendFile(file, position, length);
+            if ( padding > 0 ) {
+                send(ByteBuffer.wrap(PADDING_ZEROS, 0, padding));
+            }
+        }
+
+        /**
+         * Transfers a region of a file to the channel.
+         *
+         * @param file File channel to read from.
+         * @param position Position of the region in the file.
+         * @param length Length of the region.
+         *
+         * @throws IOException if the data could not be sent, or the file
+         *   ends before the whole region has been read.
+         */
+        private void sendFile(FileChannel file, long position, int length)
+                throws IOException {
+            SocketChannel myChannel = channel;
+            if ( myChannel == null ) {
+                throw(new IOException("connection already closed"));
+            }
+            FileRegion region = new FileRegion(file, position, length);
+            if ( pendingOutput.isEmpty() && region.transferTo(myChannel) ) {
+                return;
+            }
+            //
+            // The channel does not accept more data for the moment, so
+            // queue the rest of the region without reading it.
+            //
+            pendingOutput.addLast(region);
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+
+        /**
+         * Encodes a run of ints straight into the fragment buffer.
+         */
+        protected void xdrEncodeInts(int [] value, int offset, int length)
+                  throws OncRpcException, IOException {
+            encodeRun(value, offset, length);
+        }
+
+        /**
+         * Encodes a run of longs straight into the fragment buffer.
+         */
+        protected void xdrEncodeLongs(long [] value, int offset, int length)
+                  throws OncRpcException, IOException {
+            encodeRun(value, offset, length);
+        }
+
+        /**
+         * Encodes a run of floats straight into the fragment buffer.
+         */
+        protected void xdrEncodeFloats(float [] value, int offset, int length)
+                  throws OncRpcException, IOException {
+            encodeRun(value, offset, length);
+        }
+
+        /**
+         * Encodes a run of doubles straight into the fragment buffer.
+         */
+        protected void xdrEncodeDoubles(double [] value, int offset, int length)
+                  throws OncRpcException, IOException {
+            encodeRun(value, offset, length);
+        }
+
+        /**
+         * Encodes a run of ints, longs, floats or doubles using the typed
+         * views of the fragment buffer, sending fragments whenever the
+         * buffer fills up.
+         */
+        private void encodeRun(Object value, int offset, int length)
+                throws OncRpcException, IOException {
+            int size = (value instanceof long []) || (value instanceof double []) ? 8 : 4;
+            while ( length > 0 ) {
+                if ( bufferIndex > bufferHighmark ) {
+                    flush(false);
+                }
+                int run = (bufferHighmark - bufferIndex + 4) / size;
+                if ( run == 0 ) {
+                    //
+                    // There's only room for the first half of a long or
+                    // double left, so encode this value the slow way.
+                    //
+                    if ( value instanceof long [] ) {
+                        xdrEncodeLong(((long []) value)[offset]);
+                    } else {
+                        xdrEncodeDouble(((double []) value)[offset]);
+                    }
+                    ++offset;
+                    --length;
+                    continue;
+                }
+                if ( run > length ) {
+                    run = length;
+                }
+                ByteBuffer view = buffer.duplicate();
+                view.position(bufferIndex);
+                if ( value instanceof int [] ) {
+                    view.asIntBuffer().put((int []) value, offset, run);
+                } else if ( value instanceof long [] ) {
+                    view.asLongBuffer().put((long []) value, offset, run);
+                } else if ( value instanceof float [] ) {
+                    view.asFloatBuffer().put((float []) value, offset, run);
+                } else {
+                    view.asDoubleBuffer().put((double []) value, offset, run);
+                }
+                bufferIndex += run * size;
+                offset += run;
+                length -= run;
+            }
+        }
+
+        /**
+         * Completes the fragment header and sends the current fragment.
+         *
+         * @param lastFragment <code>true</code> if this is the last fragment
+         *   of the current reply.
+         */
+        private void flush(boolean lastFragment)
+                throws IOException {
+            int fragmentLength = bufferIndex - 4;
+            bytesSent += fragmentLength;
+            if ( lastFragment ) {
+                fragmentLength |= 0x80000000;
+            }
+            buffer.putInt(0, fragmentLength);
+            buffer.limit(bufferIndex);
+            buffer.position(0);
+            send(buffer);
+            buffer.clear();
+            bufferIndex = 4;
+        }
+
+        /**
+         * Minimum length of file regions, which are transferred straight
+         * to the channel instead of being copied into the buffer.
+         */
+        private static final int FILE_TRANSFER_THRESHOLD = 8192;
+
+        /**
+         * The direct buffer used to build up fragments.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * The write pointer is an index into the <code>buffer</code>.
+         */
+        private int bufferIndex;
+
+        /**
+         * Index of the last four byte word in the <code>buffer</code>.
+         */
+        private int bufferHighmark;
+
+        /**
+         * Total number of bytes sent in fragments, not counting the record
+         * marking.
+         */
+        private volatile long bytesSent;
+
+    }
+
+}
+
+// End of OncRpcNioTcpConnectionServerTransport.java
@@ -0,0 +1,750 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.Vector;
+
+/**
+ * Instances of class <code>OncRpcNioTcpServerTransport</code> encapsulate
+ * TCP/IP-based XDR streams of ONC/RPC servers using non-blocking socket
+ * channels. In contrast to {@link OncRpcTcpServerTransport}, which
+ * dedicates a handler thread to every connection, this server transport
+ * multiplexes all connections onto a small, fixed set of selector threads.
+ * Each selector thread reassembles record-marked fragments from its
+ * connections and dispatches complete ONC/RPC calls to the
+ * {@link OncRpcDispatchable} as soon as they have been received.
+ *
+ * <p>As the selector threads are shared among many connections, a
+ * dispatcher blocking for a long time also delays all other connections
+ * handled by the same selector thread.
+ *
+ * @see OncRpcServerTransport
+ * @see OncRpcNioTcpConnectionServerTransport
+ * @see OncRpcTcpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcNioTcpServerTransport extends OncRpcServerTransport
+                                         implements OncRpcTcpServerTransportMXBean {
+
+    /**
+     * Create a new instance of a <code>OncRpcNioTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server. This
+     * particular server transport waits for incoming connection requests
+     * and then creates {@link OncRpcNioTcpConnectionServerTransport} server
+     * transports to handle individual connections.
+     * This constructor is a convenience constructor for those transports
+     * handling only a single ONC/RPC program and version number.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param program Number of ONC/RPC program handled by this server
+     *   transport.
+     * @param version Version number of ONC/RPC program handled.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     */
+    public OncRpcNioTcpServerTransport(OncRpcDispatchable dispatcher,
+                                       int port,
+                                       int program, int version,
+                                       int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, port,
+             new OncRpcServerTransportRegistrationInfo[] {
+                new OncRpcServerTransportRegistrationInfo(program, version)
+             },
+             bufferSize);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcNioTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server. This
+     * particular server transport waits for incoming connection requests
+     * and then creates {@link OncRpcNioTcpConnectionServerTransport} server
+     * transports to handle individual connections.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     */
+    public OncRpcNioTcpServerTransport(OncRpcDispatchable dispatcher,
+                                       int port,
+                                       OncRpcServerTransportRegistrationInfo [] info,
+                                       int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, null, port, info, bufferSize);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcNioTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server. This
+     * particular server transport waits for incoming connection requests
+     * and then creates {@link OncRpcNioTcpConnectionServerTransport} server
+     * transports to handle individual connections. The number of selector
+     * threads defaults to {@link #DEFAULT_SELECTOR_THREADS}.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     */
+    public OncRpcNioTcpServerTransport(OncRpcDispatchable dispatcher,
+                                       InetAddress bindAddr,
+                                       int port,
+                                       OncRpcServerTransportRegistrationInfo [] info,
+                                       int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, bindAddr, port, info, bufferSize,
+             DEFAULT_SELECTOR_THREADS);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcNioTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server. This
+     * particular server transport waits for incoming connection requests
+     * and then creates {@link OncRpcNioTcpConnectionServerTransport} server
+     * transports to handle individual connections.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     * @param selectorThreads Number of selector threads the connections
+     *   are distributed among.
+     */
+    public OncRpcNioTcpServerTransport(OncRpcDispatchable dispatcher,
+                                       InetAddress bindAddr,
+                                       int port,
+                                       OncRpcServerTransportRegistrationInfo [] info,
+                                       int bufferSize,
+                                       int selectorThreads)
+           throws OncRpcException, IOException {
+        super(dispatcher, port, info);
+        //
+        // Make sure the buffer is large enough and a multiple of four, as
+        // well as that there is at least one selector thread handling the
+        // connections.
+        //
+        if ( bufferSize < 1024 ) {
+            bufferSize = 1024;
+        }
+        if ( (bufferSize & 3) != 0 ) {
+            bufferSize = (bufferSize + 4) & ~3;
+        }
+        this.bufferSize = bufferSize;
+        if ( selectorThreads < 1 ) {
+            selectorThreads = 1;
+        }
+        this.selectorThreads = selectorThreads;
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(bindAddr, port));
+        if ( port == 0 ) {
+            this.port = serverChannel.socket().getLocalPort();
+        }
+    }
+
+    /**
+     * Close the server transport and free any resources associated with it.
+     *
+     * <p>Note that the server transport is <b>not deregistered</b>. You'll
+     * have to do it manually if you need to do so. The reason for this
+     * behaviour is, that the portmapper removes all entries regardless of
+     * the protocol (TCP/IP or UDP/IP) for a given ONC/RPC program number
+     * and version.
+     *
+     * <p>Calling this method on a <code>OncRpcNioTcpServerTransport</code>
+     * results in the listening TCP network socket immediately being closed.
+     * In addition, all connections are closed and the selector threads
+     * terminate.
+     */
+    public void close() {
+        if ( serverChannel != null ) {
+            //
+            // Set the channel instance member to null first, so the
+            // listener thread knows that it has been shut down on purpose
+            // when accept() fails.
+            //
+            ServerSocketChannel deadChannel = serverChannel;
+            serverChannel = null;
+            try {
+                deadChannel.close();
+            } catch ( IOException e ) {
+            }
+        }
+        //
+        // Stop the selector threads, then close all per-connection
+        // transports currently open...
+        //
+        SelectorThread [] deadSelectors = selectors;
+        selectors = null;
+        if ( deadSelectors != null ) {
+            for ( int idx = 0; idx < deadSelectors.length; ++idx ) {
+                deadSelectors[idx].shutdown();
+            }
+        }
+        Vector deadTransports;
+        synchronized ( openTransports ) {
+            deadTransports = new Vector(openTransports.size());
+            Enumeration e = openTransports.keys();
+            while ( e.hasMoreElements() ) {
+                deadTransports.addElement(e.nextElement());
+            }
+            openTransports.clear();
+        }
+        int size = deadTransports.size();
+        for ( int idx = 0; idx < size; ++idx ) {
+            ((OncRpcNioTcpConnectionServerTransport)
+                deadTransports.elementAt(idx)).close();
+        }
+    }
+
+    /**
+     * Removes a TCP/IP server transport from the set of currently open
+     * transports.
+     *
+     * @param transport Server transport to remove from the set of currently
+     *   open transports for this listening transport.
+     */
+    protected void removeTransport(OncRpcNioTcpConnectionServerTransport transport) {
+        synchronized ( openTransports ) {
+            openTransports.remove(transport);
+        }
+    }
+
+    /**
+     * Returns the number of connections currently open.
+     *
+     * @return Number of open connections.
+     */
+    public int getOpenConnections() {
+        return openTransports.size();
+    }
+
+    /**
+     * Returns the number of connections accepted so far.
+     *
+     * @return Number of accepted connections.
+     */
+    public long getAcceptedConnections() {
+        return acceptedConnections.getCount();
+    }
+
+    /**
+     * Returns the rate at which connections have been accepted recently,
+     * averaged over about one minute.
+     *
+     * @return Accepted connections per second.
+     */
+    public double getAcceptRate() {
+        return acceptedConnections.getRate();
+    }
+
+    /**
+     * Returns descriptions of the connections currently open.
+     *
+     * @return Array of connection descriptions.
+     */
+    public OncRpcConnectionInfo [] getConnections() {
+        Vector transports;
+        synchronized ( openTransports ) {
+            transports = new Vector(openTransports.size());
+            Enumeration e = openTransports.keys();
+            while ( e.hasMoreElements() ) {
+                transports.addElement(e.nextElement());
+            }
+        }
+        int size = transports.size();
+        OncRpcConnectionInfo [] connections = new OncRpcConnectionInfo[size];
+        for ( int idx = 0; idx < size; ++idx ) {
+            connections[idx] =
+                ((OncRpcNioTcpConnectionServerTransport)
+                    transports.elementAt(idx)).getConnectionInfo();
+        }
+        return connections;
+    }
+
+    /**
+     * Register the TCP/IP port where this server transport waits for incoming
+     * requests with the ONC/RPC portmapper.
+     *
+     * @throws OncRpcException if the portmapper could not be contacted
+     *   successfully of if the portmapper rejected port registration(s).
+     */
+    public void register()
+           throws OncRpcException {
+        try {
+            OncRpcPortmapClient portmapper =
+                new OncRpcPortmapClient(InetAddress.getByName("127.0.0.1"));
+            int size = info.length;
+            for ( int idx = 0; idx < size; ++idx ) {
+                //
+                // Try to register the port for our transport with the local ONC/RPC
+                // portmapper. If this fails, bail out with an exception.
+                //
+                if ( !portmapper.setPort(info[idx].program, info[idx].version,
+                                   OncRpcProtocols.ONCRPC_TCP, port) ) {
+                    throw(new OncRpcException(OncRpcException.RPC_CANNOTREGISTER));
+                }
+            }
+        } catch ( IOException e ) {
+            throw(new OncRpcException(OncRpcException.RPC_FAILED));
+        }
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    public void retrieveCall(XdrAble call)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcNioTcpServerTransport.retrieveCall() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected XdrDecodingStream getXdrDecodingStream() {
+        throw(new Error("OncRpcNioTcpServerTransport.getXdrDecodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected void endDecoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcNioTcpServerTransport.endDecoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected XdrEncodingStream getXdrEncodingStream() {
+        throw(new Error("OncRpcNioTcpServerTransport.getXdrEncodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected void beginEncoding(OncRpcCallInformation callInfo,
+                                 OncRpcServerReplyMessage state)
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcNioTcpServerTransport.beginEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected void endEncoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcNioTcpServerTransport.endEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a listening
+     * server transport.
+     */
+    protected void reply(OncRpcCallInformation callInfo,
+                         OncRpcServerReplyMessage state, XdrAble reply)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcNioTcpServerTransport.reply() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Creates the selector threads as well as a listener thread accepting
+     * new connections. Control in the calling thread immediately returns
+     * after these threads have been created.
+     *
+     * <p>New connections are handed out to the selector threads in a
+     * round-robin fashion. A selector thread then receives ONC/RPC calls
+     * on all of its connections, dispatches them and sends back the
+     * replies.
+     */
+    public void listen() {
+        final SelectorThread [] mySelectors =
+            new SelectorThread[selectorThreads];
+        try {
+            for ( int idx = 0; idx < selectorThreads; ++idx ) {
+                mySelectors[idx] = new SelectorThread(
+                    "NIO TCP server transport selector thread " + idx);
+            }
+        } catch ( IOException e ) {
+            //
+            // Without selectors there is no way to handle connections at
+            // all, so release what we got so far and leave the stage.
+            //
+            for ( int idx = 0; idx < selectorThreads; ++idx ) {
+                if ( mySelectors[idx] != null ) {
+                    mySelectors[idx].shutdown();
+                }
+            }
+            close();
+            return;
+        }
+        selectors = mySelectors;
+        for ( int idx = 0; idx < selectorThreads; ++idx ) {
+            mySelectors[idx].start();
+        }
+        //
+        // Create a new (daemon) thread which will handle incoming connection
+        // requests.
+        //
+        Thread listenThread = newThread(new Runnable() {
+            public void run() {
+                int nextSelector = 0;
+                for ( ;; ) {
+                    try {
+                        //
+                        // Now wait for (new) connection requests to come in.
+                        //
+                        ServerSocketChannel myServerChannel = serverChannel;
+                        if ( myServerChannel == null ) {
+                            break;
+                        }
+                        SocketChannel newChannel = myServerChannel.accept();
+                        acceptedConnections.mark();
+                        newChannel.configureBlocking(false);
+                        OncRpcNioTcpConnectionServerTransport transport =
+                            new OncRpcNioTcpConnectionServerTransport(
+                                dispatcher,
+                                newChannel,
+                                info,
+                                bufferSize,
+                                OncRpcNioTcpServerTransport.this);
+                        synchronized ( openTransports ) {
+                            openTransports.put(transport, transport);
+                        }
+                        //
+                        // Hand the new connection over to the next selector
+                        // thread, which from now on does all the work.
+                        //
+                        mySelectors[nextSelector].add(transport);
+                        nextSelector = (nextSelector + 1) % mySelectors.length;
+                    } catch ( OncRpcException e ) {
+                    } catch ( IOException e ) {
+                        //
+                        // Ignore most IOExceptions, as they might be thrown
+                        // when a client resets a connection before it could
+                        // be accepted. If the channel has gone away, then
+                        // the transport has been closed, so we end this
+                        // thread gracefully.
+                        //
+                        if ( serverChannel == null ) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }, "NIO TCP server transport listener thread");
+        //
+        // Now start the new handling thread, so it
+        // sits there waiting for incoming TCP/IP connection requests.
+        //
+        listenThread.start();
+    }
+
+    /**
+     * Returns the number of selector threads connections are distributed
+     * among.
+     *
+     * @return Number of selector threads.
+     */
+    public int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    /**
+     * Set the maximum size of records (calls) accepted from clients. If a
+     * client sends a larger record, its connection is closed as soon as
+     * the fragment headers reveal the record size, before the record is
+     * read completely. This limit applies to connections accepted
+     * afterwards. It defaults to
+     * {@link OncRpcTcpServerTransport#DEFAULT_MAXIMUM_RECORD_SIZE}.
+     *
+     * @param maximumRecordSize Maximum record size in bytes or zero if the
+     *   record size is not limited.
+     */
+    public void setMaximumRecordSize(int maximumRecordSize) {
+        if ( maximumRecordSize < 0 ) {
+            throw(new IllegalArgumentException("maximum record size must be >= 0"));
+        }
+        this.maximumRecordSize = maximumRecordSize;
+    }
+
+    /**
+     * Retrieve the maximum size of records (calls) accepted from clients.
+     *
+     * @return Maximum record size in bytes or zero if the record size is
+     *   not limited.
+     */
+    public int getMaximumRecordSize() {
+        return maximumRecordSize;
+    }
+
+    /**
+     * Set the character encoding for (de-)serializing strings.
+     *
+     * @param characterEncoding the encoding to use for (de-)serializing strings.
+     *   If <code>null</code>, the system's default encoding is to be used.
+     */
+    public void setCharacterEncoding(String characterEncoding) {
+        this.characterEncoding = characterEncoding;
+    }
+
+    /**
+     * Get the character encoding for (de-)serializing strings.
+     *
+     * @return the encoding currently used for (de-)serializing strings.
+     *   If <code>null</code>, then the system's default encoding is used.
+     */
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    /**
+     * Default number of selector threads, if not specified otherwise
+     * when creating a new transport.
+     */
+    public static final int DEFAULT_SELECTOR_THREADS = 2;
+
+    /**
+     * Server channel where we listen for incoming connection requests.
+     */
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * Size of send/receive buffers to use when encoding/decoding XDR data.
+     */
+    private int bufferSize;
+
+    /**
+     * Number of selector threads connections are distributed among.
+     */
+    private int selectorThreads;
+
+    /**
+     * Selector threads handling the connections, or <code>null</code>
+     * if this transport is not listening.
+     */
+    private SelectorThread [] selectors;
+
+    /**
+     * Collection containing currently open transports.
+     */
+    private Hashtable openTransports = new Hashtable();
+
+    /**
+     * Counts the connections accepted.
+     */
+    private OncRpcRateMeter acceptedConnections = new OncRpcRateMeter();
+
+    /**
+     * Encoding to use when deserializing strings or <code>null</code> if
+     * the system's default encoding should be used.
+     */
+    private String characterEncoding = null;
+
+    /**
+     * Maximum size of records accepted from clients or zero if the record
+     * size is not limited.
+     */
+    private int maximumRecordSize =
+        OncRpcTcpServerTransport.DEFAULT_MAXIMUM_RECORD_SIZE;
+
+    /**
+     * A selector thread waits for incoming data on all the connections
+     * assigned to it, and lets the connections reassemble, dispatch and
+     * answer the calls received.
+     */
+    private class SelectorThread extends Thread {
+
+        /**
+         * Create a new selector thread with the given name.
+         *
+         * @param name Name of the selector thread.
+         */
+        public SelectorThread(String name)
+               throws IOException {
+            super(name);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        /**
+         * Hands a new connection over to this selector thread. The channel
+         * is registered with the selector from within the selector thread,
+         * as registration would otherwise block while the selector thread
+         * waits for events.
+         *
+         * @param transport Server transport handling the new connection.
+         */
+        public void add(OncRpcNioTcpConnectionServerTransport transport) {
+            synchronized ( pendingTransports ) {
+                pendingTransports.addElement(transport);
+            }
+            selector.wakeup();
+        }
+
+        /**
+         * Stops this selector thread by closing its selector.
+         */
+        public void shutdown() {
+            try {
+                selector.close();
+            } catch ( IOException e ) {
+            }
+        }
+
+        /**
+         * Wait for channels to become readable or writable and let their
+         * transports do the real work.
+         */
+        public void run() {
+            try {
+                for ( ;; ) {
+                    selector.select();
+                    if ( !selector.isOpen() ) {
+                        break;
+                    }
+                    //
+                    // First register any new connections with the selector.
+                    //
+                    synchronized ( pendingTransports ) {
+                        int size = pendingTransports.size();
+                        for ( int idx = 0; idx < size; ++idx ) {
+                            OncRpcNioTcpConnectionServerTransport transport =
+                                (OncRpcNioTcpConnectionServerTransport)
+                                    pendingTransports.elementAt(idx);
+                            try {
+                                transport.register(selector);
+                            } catch ( IOException e ) {
+                                transport.close();
+                            } catch ( RuntimeException e ) {
+                                transport.close();
+                            }
+                        }
+                        pendingTransports.removeAllElements();
+                    }
+                    //
+                    // Now handle all the connections which are ready for
+                    // sending or receiving.
+                    //
+                    Iterator keys = selector.selectedKeys().iterator();
+                    while ( keys.hasNext() ) {
+                        SelectionKey key = (SelectionKey) keys.next();
+                        keys.remove();
+                        OncRpcNioTcpConnectionServerTransport transport =
+                            (OncRpcNioTcpConnectionServerTransport)
+                                key.attachment();
+                        //
+                        // A failing connection is dropped on its own, so
+                        // the remaining connections of this selector
+                        // continue to be served.
+                        //
+                        try {
+                            transport.handleSelection(key);
+                        } catch ( RuntimeException e ) {
+                            transport.close();
+                        }
+                    }
+                }
+            } catch ( IOException e ) {
+            } catch ( ClosedSelectorException e ) {
+            }
+        }
+
+        /**
+         * Selector used to wait for channels becoming ready.
+         */
+        private Selector selector;
+
+        /**
+         * Connections not yet registered with the selector.
+         */
+        private Vector pendingTransports = new Vector();
+
+    }
+
+}
+
+// End of OncRpcNioTcpServerTransport.java
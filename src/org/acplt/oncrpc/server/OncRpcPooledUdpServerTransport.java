@@ -0,0 +1,241 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Instances of class <code>OncRpcPooledUdpServerTransport</code> encapsulate
+ * UDP/IP-based XDR streams of ONC/RPC servers, like
+ * {@link OncRpcUdpServerTransport} does. In contrast to the latter, which
+ * handles one call after the other in a single thread, this server transport
+ * uses a fixed number of worker threads. Each worker thread receives calls
+ * from the same UDP/IP socket, dispatches them and sends back the replies
+ * using its own datagram buffers and XDR streams, so a slow procedure only
+ * stalls the worker thread it is running in.
+ *
+ * <p>Note that the dispatcher must be prepared to be called from several
+ * threads at the same time. When using a
+ * {@link OncRpcDuplicateRequestCache duplicate request cache}, calls
+ * retransmitted while the original call is still being worked on by
+ * another worker thread are dropped.
+ *
+ * @see OncRpcServerTransport
+ * @see OncRpcUdpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcPooledUdpServerTransport extends OncRpcUdpServerTransport {
+
+    /**
+     * Default number of worker threads.
+     */
+    public static final int DEFAULT_WORKER_THREADS = 4;
+
+    /**
+     * Create a new instance of a <code>OncRpcPooledUdpServerTransport</code>
+     * which encapsulates UDP/IP-based XDR streams of an ONC/RPC server.
+     * This constructor is a convenience constructor for those transports
+     * handling only a single ONC/RPC program and version number. The number
+     * of worker threads defaults to {@link #DEFAULT_WORKER_THREADS}.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param program Number of ONC/RPC program handled by this server
+     *   transport.
+     * @param version Version number of ONC/RPC program handled.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     */
+    public OncRpcPooledUdpServerTransport(OncRpcDispatchable dispatcher,
+                                          int port,
+                                          int program, int version,
+                                          int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, null, port,
+             new OncRpcServerTransportRegistrationInfo [] {
+                new OncRpcServerTransportRegistrationInfo(program, version)
+             },
+             bufferSize, DEFAULT_WORKER_THREADS);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcPooledUdpServerTransport</code>
+     * which encapsulates UDP/IP-based XDR streams of an ONC/RPC server.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     * @param workerThreads Number of threads receiving and handling calls.
+     */
+    public OncRpcPooledUdpServerTransport(OncRpcDispatchable dispatcher,
+                                          InetAddress bindAddr,
+                                          int port,
+                                          OncRpcServerTransportRegistrationInfo [] info,
+                                          int bufferSize,
+                                          int workerThreads)
+           throws OncRpcException, IOException {
+        super(dispatcher, bindAddr, port, info, bufferSize);
+        if ( workerThreads <= 0 ) {
+            throw(new IllegalArgumentException("workerThreads must be > 0"));
+        }
+        //
+        // This transport itself serves as the first worker, so we only need
+        // to create the remaining workers sharing our socket.
+        //
+        if ( bufferSize < 1024 ) {
+            bufferSize = 1024;
+        }
+        workers = new OncRpcUdpServerTransport[workerThreads - 1];
+        for ( int idx = 0; idx < workers.length; ++idx ) {
+            workers[idx] = new OncRpcUdpServerTransport(this, bufferSize);
+        }
+    }
+
+    /**
+     * Returns the number of worker threads receiving and handling calls.
+     *
+     * @return Number of worker threads.
+     */
+    public int getWorkerThreads() {
+        return workers.length + 1;
+    }
+
+    /**
+     * Close the server transport and free any resources associated with it.
+     * Closing the UDP/IP socket makes all worker threads terminate, either
+     * directly or after they have finished handling their current call.
+     *
+     * <p>Note that the server transport is <b>not deregistered</b>. You'll
+     * have to do it manually if you need to do so.
+     */
+    public void close() {
+        super.close();
+        for ( int idx = 0; idx < workers.length; ++idx ) {
+            workers[idx].close();
+        }
+    }
+
+    /**
+     * Creates the worker threads, which listen to incoming ONC/RPC
+     * requests, dispatch them and finally send back the appropriate reply
+     * messages. Control in the calling thread immediately returns after the
+     * worker threads have been created.
+     */
+    public void listen() {
+        for ( int idx = 0; idx <= workers.length; ++idx ) {
+            final OncRpcUdpServerTransport worker =
+                idx == 0 ? this : workers[idx - 1];
+            Thread listener = newThread(new Runnable() {
+                public void run() {
+                    worker._listen();
+                }
+            }, "UDP server transport worker thread " + idx);
+            listener.start();
+        }
+    }
+
+    /**
+     * Sets the duplicate request cache used by all worker threads of this
+     * server transport.
+     *
+     * @param duplicateRequestCache Duplicate request cache or
+     *   <code>null</code> to not check for retransmitted calls.
+     */
+    public void setDuplicateRequestCache(OncRpcDuplicateRequestCache duplicateRequestCache) {
+        super.setDuplicateRequestCache(duplicateRequestCache);
+        for ( int idx = 0; idx < workers.length; ++idx ) {
+            workers[idx].setDuplicateRequestCache(duplicateRequestCache);
+        }
+    }
+
+    /**
+     * Sets the statistics collecting the calls handled by all worker
+     * threads of this server transport.
+     *
+     * @param statistics Statistics or <code>null</code> to not collect
+     *   statistics.
+     */
+    public void setStatistics(OncRpcServerStatistics statistics) {
+        super.setStatistics(statistics);
+        if ( workers != null ) {
+            for ( int idx = 0; idx < workers.length; ++idx ) {
+                workers[idx].setStatistics(statistics);
+            }
+        }
+    }
+
+    /**
+     * Sets the interceptors invoked around dispatching each call handled by
+     * all worker threads of this server transport.
+     *
+     * @param interceptors Interceptors in the order they are to be invoked
+     *   before dispatching a call, or <code>null</code> to remove all
+     *   interceptors.
+     */
+    public void setInterceptors(OncRpcServerInterceptor [] interceptors) {
+        super.setInterceptors(interceptors);
+        if ( workers != null ) {
+            for ( int idx = 0; idx < workers.length; ++idx ) {
+                workers[idx].setInterceptors(interceptors);
+            }
+        }
+    }
+
+	/**
+	 * Set the character encoding for (de-)serializing strings of all
+	 * worker threads.
+	 *
+	 * @param characterEncoding the encoding to use for (de-)serializing strings.
+	 *   If <code>null</code>, the system's default encoding is to be used.
+	 */
+	public void setCharacterEncoding(String characterEncoding) {
+		super.setCharacterEncoding(characterEncoding);
+		if ( workers != null ) {
+			for ( int idx = 0; idx < workers.length; ++idx ) {
+				workers[idx].setCharacterEncoding(characterEncoding);
+			}
+		}
+	}
+
+    /**
+     * Server transports sharing the socket of this server transport, each of
+     * them being used by a worker thread of its own.
+     */
+    private OncRpcUdpServerTransport [] workers;
+
+}
+
+// End of OncRpcPooledUdpServerTransport.java
@@ -0,0 +1,290 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instances of class <code>OncRpcProcedureStatistics</code> collect the
+ * statistics of the calls to a particular remote procedure, identified by
+ * its program, version and procedure number. They count the calls, the
+ * calls which failed and the bytes received and sent, and they record the
+ * time spent decoding the call parameters, dispatching the call, and
+ * encoding the reply in {@link OncRpcLatencyHistogram histograms}.
+ *
+ * <p>A call counts as failed if the reply does not indicate success,
+ * either because the dispatcher sent back an error reply by itself or
+ * because the dispatcher threw an exception. Calls which were denied
+ * because of failed authentication are counted separately in addition.
+ *
+ * <p>Byte counts cover the XDR data of calls and replies, without any
+ * record marking used by TCP/IP-based transports.
+ *
+ * @see OncRpcServerStatistics
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcProcedureStatistics {
+
+    /**
+     * Create a new object collecting the statistics of a remote procedure.
+     *
+     * @param program Program number of remote procedure.
+     * @param version Version number of remote procedure.
+     * @param procedure Procedure number of remote procedure.
+     */
+    public OncRpcProcedureStatistics(int program, int version, int procedure) {
+        this(program, version, procedure,
+             new OncRpcLatencyHistogram(), new OncRpcLatencyHistogram(),
+             new OncRpcLatencyHistogram());
+    }
+
+    /**
+     * Create a new object collecting the statistics of a remote procedure,
+     * using the given histograms.
+     */
+    private OncRpcProcedureStatistics(int program, int version, int procedure,
+                                      OncRpcLatencyHistogram decodeTime,
+                                      OncRpcLatencyHistogram dispatchTime,
+                                      OncRpcLatencyHistogram encodeTime) {
+        this.program = program;
+        this.version = version;
+        this.procedure = procedure;
+        this.decodeTime = decodeTime;
+        this.dispatchTime = dispatchTime;
+        this.encodeTime = encodeTime;
+    }
+
+    /**
+     * Returns the program number of the remote procedure.
+     *
+     * @return Program number.
+     */
+    public int getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns the version number of the remote procedure.
+     *
+     * @return Version number.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the procedure number of the remote procedure.
+     *
+     * @return Procedure number.
+     */
+    public int getProcedure() {
+        return procedure;
+    }
+
+    /**
+     * Returns the number of calls handled.
+     *
+     * @return Number of calls.
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * Returns the number of calls which failed, including the calls which
+     * were denied because of failed authentication.
+     *
+     * @return Number of failed calls.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the number of calls which were denied because of failed
+     * authentication.
+     *
+     * @return Number of calls with failed authentication.
+     */
+    public long getAuthenticationFailures() {
+        return authenticationFailures.get();
+    }
+
+    /**
+     * Returns the number of bytes received within calls.
+     *
+     * @return Number of bytes received.
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * Returns the number of bytes sent within replies.
+     *
+     * @return Number of bytes sent.
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the histogram of the time spent decoding calls, starting
+     * with the call header and ending when the call parameters have been
+     * retrieved.
+     *
+     * @return Histogram of decoding times.
+     */
+    public OncRpcLatencyHistogram getDecodeTime() {
+        return decodeTime;
+    }
+
+    /**
+     * Returns the histogram of the time spent by the dispatcher handling
+     * calls, that is, between decoding the call parameters and beginning
+     * to encode the reply.
+     *
+     * @return Histogram of dispatching times.
+     */
+    public OncRpcLatencyHistogram getDispatchTime() {
+        return dispatchTime;
+    }
+
+    /**
+     * Returns the histogram of the time spent encoding and sending replies.
+     *
+     * @return Histogram of encoding times.
+     */
+    public OncRpcLatencyHistogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    /**
+     * Returns a copy of these statistics, which does not change when
+     * further calls are recorded.
+     *
+     * @return Copy of statistics.
+     */
+    public OncRpcProcedureStatistics snapshot() {
+        OncRpcProcedureStatistics copy =
+            new OncRpcProcedureStatistics(program, version, procedure,
+                                          decodeTime.snapshot(),
+                                          dispatchTime.snapshot(),
+                                          encodeTime.snapshot());
+        copy.calls.set(calls.get());
+        copy.errors.set(errors.get());
+        copy.authenticationFailures.set(authenticationFailures.get());
+        copy.bytesReceived.set(bytesReceived.get());
+        copy.bytesSent.set(bytesSent.get());
+        return copy;
+    }
+
+    /**
+     * Records a single call.
+     *
+     * @param decodeNanos Time spent decoding the call in nanoseconds.
+     * @param dispatchNanos Time spent dispatching the call in nanoseconds.
+     * @param encodeNanos Time spent encoding the reply in nanoseconds.
+     * @param bytesIn Number of bytes received.
+     * @param bytesOut Number of bytes sent.
+     * @param failed <code>true</code> if the call failed.
+     * @param authenticationFailed <code>true</code> if the call was denied
+     *   because of failed authentication.
+     */
+    void recordCall(long decodeNanos, long dispatchNanos, long encodeNanos,
+                    int bytesIn, int bytesOut,
+                    boolean failed, boolean authenticationFailed) {
+        calls.incrementAndGet();
+        if ( failed ) {
+            errors.incrementAndGet();
+        }
+        if ( authenticationFailed ) {
+            authenticationFailures.incrementAndGet();
+        }
+        bytesReceived.addAndGet(bytesIn);
+        bytesSent.addAndGet(bytesOut);
+        decodeTime.recordValue(decodeNanos);
+        dispatchTime.recordValue(dispatchNanos);
+        encodeTime.recordValue(encodeNanos);
+    }
+
+    /**
+     * Program number of remote procedure.
+     */
+    private int program;
+
+    /**
+     * Version number of remote procedure.
+     */
+    private int version;
+
+    /**
+     * Procedure number of remote procedure.
+     */
+    private int procedure;
+
+    /**
+     * Number of calls handled.
+     */
+    private AtomicLong calls = new AtomicLong();
+
+    /**
+     * Number of calls which failed.
+     */
+    private AtomicLong errors = new AtomicLong();
+
+    /**
+     * Number of calls denied because of failed authentication.
+     */
+    private AtomicLong authenticationFailures = new AtomicLong();
+
+    /**
+     * Number of bytes received within calls.
+     */
+    private AtomicLong bytesReceived = new AtomicLong();
+
+    /**
+     * Number of bytes sent within replies.
+     */
+    private AtomicLong bytesSent = new AtomicLong();
+
+    /**
+     * Histogram of decoding times.
+     */
+    private OncRpcLatencyHistogram decodeTime;
+
+    /**
+     * Histogram of dispatching times.
+     */
+    private OncRpcLatencyHistogram dispatchTime;
+
+    /**
+     * Histogram of encoding times.
+     */
+    private OncRpcLatencyHistogram encodeTime;
+
+}
+
+// End of OncRpcProcedureStatistics.java
@@ -0,0 +1,112 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instances of class <code>OncRpcRateMeter</code> count events and tell
+ * the rate at which the events occur, as an exponentially weighted moving
+ * average over about one minute. Counting an event is lock-free; the
+ * average is only updated when the rate is read.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+class OncRpcRateMeter {
+
+    /**
+     * Create a new rate meter which has not counted any events yet.
+     */
+    public OncRpcRateMeter() {
+        lastTime = System.nanoTime();
+    }
+
+    /**
+     * Counts a single event.
+     */
+    public void mark() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of events counted so far.
+     *
+     * @return Number of events.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the rate at which events occurred recently.
+     *
+     * @return Events per second.
+     */
+    public synchronized double getRate() {
+        long now = System.nanoTime();
+        long currentCount = count.get();
+        double elapsed = (now - lastTime) / 1e9;
+        if ( elapsed > 0 ) {
+            //
+            // Weigh the rate since the last update according to how long
+            // ago the last update was, so the average does not depend on
+            // how often the rate is read.
+            //
+            double currentRate = (currentCount - lastCount) / elapsed;
+            rate += (1.0 - Math.exp(-elapsed / AVERAGING_PERIOD))
+                    * (currentRate - rate);
+            lastTime = now;
+            lastCount = currentCount;
+        }
+        return rate;
+    }
+
+    /**
+     * Time constant of the moving average in seconds.
+     */
+    private static final double AVERAGING_PERIOD = 60.0;
+
+    /**
+     * Number of events counted.
+     */
+    private AtomicLong count = new AtomicLong();
+
+    /**
+     * Time of the last update of the average in nanoseconds.
+     */
+    private long lastTime;
+
+    /**
+     * Number of events counted at the last update of the average.
+     */
+    private long lastCount;
+
+    /**
+     * Moving average of the rate in events per second.
+     */
+    private double rate;
+
+}
+
+// End of OncRpcRateMeter.java
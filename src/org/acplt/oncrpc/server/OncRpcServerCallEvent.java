@@ -0,0 +1,220 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event describing a call handled by a server
+ * transport, from receiving the call until the reply has been sent. Next
+ * to the duration of the whole call, the time spent decoding the call,
+ * running the dispatcher and encoding the reply are recorded separately,
+ * as well as the time the call waited for an executor thread when calls
+ * are dispatched by an executor.
+ *
+ * <p>The event is disabled by default and has to be enabled in the
+ * recording settings using its name <code>org.acplt.oncrpc.ServerCall</code>.
+ * As long as it is disabled, server transports only check a flag per call.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+@Name("org.acplt.oncrpc.ServerCall")
+@Label("ONC/RPC Server Call")
+@Category({"ONC/RPC", "Server"})
+@Description("Call handled by an ONC/RPC server transport")
+@Enabled(false)
+@StackTrace(false)
+public class OncRpcServerCallEvent extends Event {
+
+    /**
+     * Checks whether the event is enabled.
+     *
+     * @return <code>true</code> if the event is enabled.
+     */
+    static boolean enabled() {
+        return PROTOTYPE.isEnabled();
+    }
+
+    /**
+     * Returns a new event which has already begun, or <code>null</code> if
+     * the event is not enabled.
+     *
+     * @return Event or <code>null</code>.
+     */
+    static OncRpcServerCallEvent start() {
+        if ( !PROTOTYPE.isEnabled() ) {
+            return null;
+        }
+        OncRpcServerCallEvent event = new OncRpcServerCallEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event and commits it, taking the details from the call
+     * information, which must have been recording the call.
+     *
+     * @param callInfo Call information of the call handled.
+     * @param error Exception thrown while dispatching the call or
+     *   <code>null</code>.
+     */
+    void complete(OncRpcCallInformation callInfo, Exception error) {
+        end();
+        if ( !shouldCommit() ) {
+            return;
+        }
+        OncRpcServerCallMessage callMessage = callInfo.callMessage;
+        program = callMessage.program;
+        version = callMessage.version;
+        procedure = callMessage.procedure;
+        xid = callMessage.messageId;
+        if ( callInfo.peerAddress != null ) {
+            peerAddress = callInfo.peerAddress.getHostAddress();
+        }
+        peerPort = callInfo.peerPort;
+        long endTime = callInfo.encodingEnd != 0 ? callInfo.encodingEnd
+                                                 : System.nanoTime();
+        long decodingEnd = callInfo.decodingEnd != 0 ? callInfo.decodingEnd
+                                                     : endTime;
+        encodeTime = callInfo.encodingStart != 0
+                     ? endTime - callInfo.encodingStart : 0;
+        decodeTime = decodingEnd - callInfo.startTime;
+        dispatchTime = endTime - decodingEnd - encodeTime;
+        bytesReceived = callInfo.bytesIn;
+        bytesSent = callInfo.bytesOut;
+        failed = callInfo.failed;
+        if ( error != null ) {
+            this.error = error.toString();
+        }
+        commit();
+    }
+
+    /**
+     * Program number of the remote procedure called.
+     */
+    @Label("Program")
+    int program;
+
+    /**
+     * Version number of the remote procedure called.
+     */
+    @Label("Version")
+    int version;
+
+    /**
+     * Procedure number of the remote procedure called.
+     */
+    @Label("Procedure")
+    int procedure;
+
+    /**
+     * Transaction id of the call.
+     */
+    @Label("Transaction Id")
+    int xid;
+
+    /**
+     * Address of the caller.
+     */
+    @Label("Peer Address")
+    String peerAddress;
+
+    /**
+     * Port of the caller.
+     */
+    @Label("Peer Port")
+    int peerPort;
+
+    /**
+     * Time spent waiting for an executor thread to dispatch the call.
+     */
+    @Label("Queue Wait")
+    @Timespan
+    long queueWait;
+
+    /**
+     * Time spent decoding the call.
+     */
+    @Label("Decode Time")
+    @Timespan
+    long decodeTime;
+
+    /**
+     * Time spent in the dispatcher, apart from decoding and encoding.
+     */
+    @Label("Dispatch Time")
+    @Timespan
+    long dispatchTime;
+
+    /**
+     * Time spent encoding and sending the reply.
+     */
+    @Label("Encode Time")
+    @Timespan
+    long encodeTime;
+
+    /**
+     * Number of bytes received within the call.
+     */
+    @Label("Bytes Received")
+    @DataAmount
+    int bytesReceived;
+
+    /**
+     * Number of bytes sent within the reply.
+     */
+    @Label("Bytes Sent")
+    @DataAmount
+    int bytesSent;
+
+    /**
+     * Indicates that the reply signals a failure.
+     */
+    @Label("Failed")
+    boolean failed;
+
+    /**
+     * Exception thrown while dispatching the call, if any.
+     */
+    @Label("Error")
+    String error;
+
+    /**
+     * Instance used to check whether the event is enabled without having
+     * to create a new instance for every call.
+     */
+    private static final OncRpcServerCallEvent PROTOTYPE =
+        new OncRpcServerCallEvent();
+
+}
+
+// End of OncRpcServerCallEvent.java
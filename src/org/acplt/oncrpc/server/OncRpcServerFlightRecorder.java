@@ -0,0 +1,163 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+/**
+ * Creates the flight recorder events of ONC/RPC server transports. The
+ * events are JDK Flight Recorder events, which need the
+ * <code>jdk.jfr</code> module. As runtime images do not need to contain
+ * this module, server transports never refer to the event classes
+ * directly, but only through this class, which loads them only if the
+ * module is present. Otherwise no events are recorded at all.
+ *
+ * <p>Events are handed out as plain objects, which must only be passed
+ * back to this class.
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+final class OncRpcServerFlightRecorder {
+
+    /**
+     * Checks whether the server call event is enabled.
+     *
+     * @return <code>true</code> if the event is enabled and available.
+     */
+    static boolean serverCallEnabled() {
+        return AVAILABLE && Events.serverCallEnabled();
+    }
+
+    /**
+     * Returns a new server call event which has already begun, or
+     * <code>null</code> if the event is not enabled or not available.
+     *
+     * @return Event or <code>null</code>.
+     */
+    static Object startServerCall() {
+        return AVAILABLE ? Events.startServerCall() : null;
+    }
+
+    /**
+     * Sets the time a call waited for an executor thread.
+     *
+     * @param event Event as returned by {@link #startServerCall}.
+     * @param nanos Time spent waiting, in nanoseconds.
+     */
+    static void serverCallQueued(Object event, long nanos) {
+        Events.serverCallQueued(event, nanos);
+    }
+
+    /**
+     * Ends a server call event and commits it.
+     *
+     * @param event Event as returned by {@link #startServerCall}.
+     * @param callInfo Call information of the call handled.
+     * @param error Exception thrown while dispatching the call or
+     *   <code>null</code>.
+     */
+    static void completeServerCall(Object event, OncRpcCallInformation callInfo,
+                                   Exception error) {
+        Events.completeServerCall(event, callInfo, error);
+    }
+
+    /**
+     * Commits an event for an accepted connection, if the event is enabled
+     * and available.
+     *
+     * @param port Local port of the connection.
+     * @param peerAddress Address of the client.
+     * @param peerPort Port of the client.
+     */
+    static void connectionAccepted(int port, String peerAddress, int peerPort) {
+        if ( AVAILABLE ) {
+            Events.connectionAccepted(port, peerAddress, peerPort);
+        }
+    }
+
+    /**
+     * Checks whether the event for closed connections is enabled.
+     *
+     * @return <code>true</code> if the event is enabled and available.
+     */
+    static boolean connectionClosedEnabled() {
+        return AVAILABLE && Events.connectionClosedEnabled();
+    }
+
+    /**
+     * Commits an event for a closed connection.
+     *
+     * @param port Local port of the connection.
+     * @param info Information about the connection.
+     */
+    static void connectionClosed(int port, OncRpcConnectionInfo info) {
+        Events.connectionClosed(port, info);
+    }
+
+    /**
+     * Indicates whether the <code>jdk.jfr</code> module is present.
+     */
+    private static final boolean AVAILABLE =
+        ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    /**
+     * Holder of all references to the event classes, which is only loaded
+     * when the <code>jdk.jfr</code> module is present.
+     */
+    private static final class Events {
+
+        static boolean serverCallEnabled() {
+            return OncRpcServerCallEvent.enabled();
+        }
+
+        static Object startServerCall() {
+            return OncRpcServerCallEvent.start();
+        }
+
+        static void serverCallQueued(Object event, long nanos) {
+            ((OncRpcServerCallEvent) event).queueWait = nanos;
+        }
+
+        static void completeServerCall(Object event, OncRpcCallInformation callInfo,
+                                       Exception error) {
+            ((OncRpcServerCallEvent) event).complete(callInfo, error);
+        }
+
+        static void connectionAccepted(int port, String peerAddress, int peerPort) {
+            if ( OncRpcConnectionAcceptedEvent.enabled() ) {
+                OncRpcConnectionAcceptedEvent.emit(port, peerAddress, peerPort);
+            }
+        }
+
+        static boolean connectionClosedEnabled() {
+            return OncRpcConnectionClosedEvent.enabled();
+        }
+
+        static void connectionClosed(int port, OncRpcConnectionInfo info) {
+            OncRpcConnectionClosedEvent.emit(port, info);
+        }
+
+    }
+
+}
+
+// End of OncRpcServerFlightRecorder.java
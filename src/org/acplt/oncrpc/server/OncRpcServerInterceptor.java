@@ -0,0 +1,86 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.IOException;
+
+/**
+ * The <code>OncRpcServerInterceptor</code> interface is implemented by
+ * classes which want to be notified around each call dispatched by a
+ * server transport, for instance to measure, sample or tag calls without
+ * having to touch the dispatcher. Interceptors are installed using
+ * {@link OncRpcServerTransport#setInterceptors}.
+ *
+ * <p>The {@link OncRpcCallInformation call information} handed to the
+ * interceptors contains the program, version and procedure number as well
+ * as the transaction id in its {@link OncRpcCallInformation#callMessage
+ * call message}, and the address and port of the caller. The number of
+ * bytes received and sent is available through
+ * {@link OncRpcCallInformation#getBytesReceived} and
+ * {@link OncRpcCallInformation#getBytesSent}, but is only complete when
+ * {@link #afterDispatch} is called.
+ *
+ * <p>Interceptors are invoked by the thread dispatching the call, so they
+ * should return quickly.
+ *
+ * @see OncRpcServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcServerInterceptor {
+
+    /**
+     * Called before a call is handed over to the dispatcher. Interceptors
+     * are called in the order they have been installed. By throwing an
+     * exception an interceptor can reject the call, which is then answered
+     * the same way as if the dispatcher had thrown the exception, that is,
+     * with an authentication error for {@link OncRpcAuthenticationException}s
+     * and a system error otherwise.
+     *
+     * @param call Call information of the call about to be dispatched.
+     *
+     * @throws OncRpcException if the call is rejected.
+     * @throws IOException if the call is rejected.
+     */
+    public void beforeDispatch(OncRpcCallInformation call)
+           throws OncRpcException, IOException;
+
+    /**
+     * Called after a call has been dispatched and the reply, if any, has
+     * been sent. Interceptors are called in the reverse order they have been
+     * installed. This method is called for every interceptor, even if an
+     * interceptor installed before it rejected the call. It is not called
+     * if the server transport has been closed because of the call.
+     *
+     * @param call Call information of the call dispatched.
+     * @param error Exception thrown by the dispatcher or by an interceptor
+     *   rejecting the call, or <code>null</code> if the call has been
+     *   dispatched successfully.
+     */
+    public void afterDispatch(OncRpcCallInformation call, Exception error);
+
+}
+
+// End of OncRpcServerInterceptor.java
@@ -0,0 +1,357 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instances of class <code>OncRpcServerStatistics</code> collect the
+ * statistics of the calls handled by ONC/RPC server transports, separately
+ * for each remote procedure identified by its program, version and
+ * procedure number. Attach them to server transports using
+ * {@link OncRpcServerTransport#setStatistics}, or to all transports of a
+ * server using {@link OncRpcServerStub#setStatistics}. Several transports
+ * can share the same statistics.
+ *
+ * <p>Recording calls is lock-free and does not allocate memory, with the
+ * only exception of the first call to a particular remote procedure.
+ * Use {@link #snapshot} to read the statistics collected so far.
+ *
+ * <p>As program, version and procedure numbers are taken from calls sent
+ * by any peer, the statistics are kept bounded: calls to programs and
+ * versions for which the transport has not been registered, as well as
+ * calls to further procedures once the maximum number of procedures has
+ * been reached, are recorded in a single bucket for other calls.
+ *
+ * @see OncRpcProcedureStatistics
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcServerStatistics {
+
+    /**
+     * Default maximum number of remote procedures statistics are kept for
+     * separately.
+     */
+    public static final int DEFAULT_MAXIMUM_PROCEDURES = 1024;
+
+    /**
+     * Create a new object collecting the statistics of calls for at most
+     * {@link #DEFAULT_MAXIMUM_PROCEDURES} remote procedures.
+     */
+    public OncRpcServerStatistics() {
+        this(DEFAULT_MAXIMUM_PROCEDURES);
+    }
+
+    /**
+     * Create a new object collecting the statistics of calls.
+     *
+     * @param maximumProcedures Maximum number of remote procedures
+     *   statistics are kept for separately. Calls to further procedures
+     *   are recorded with the other calls.
+     *
+     * @throws IllegalArgumentException if <code>maximumProcedures</code>
+     *   is not positive.
+     */
+    public OncRpcServerStatistics(int maximumProcedures) {
+        if ( maximumProcedures <= 0 ) {
+            throw(new IllegalArgumentException("maximumProcedures must be > 0"));
+        }
+        this.maximumProcedures = maximumProcedures;
+        table = new OncRpcProcedureStatistics[16];
+    }
+
+    /**
+     * Returns the maximum number of remote procedures statistics are kept
+     * for separately.
+     *
+     * @return Maximum number of remote procedures.
+     */
+    public int getMaximumProcedures() {
+        return maximumProcedures;
+    }
+
+    /**
+     * Returns the statistics of a particular remote procedure, which are
+     * created when they do not exist yet. The statistics returned are
+     * still being updated as calls are recorded. If the maximum number of
+     * remote procedures has already been reached, the statistics of other
+     * calls are returned instead.
+     *
+     * @param program Program number of remote procedure.
+     * @param version Version number of remote procedure.
+     * @param procedure Procedure number of remote procedure.
+     *
+     * @return Statistics of remote procedure.
+     */
+    public OncRpcProcedureStatistics getProcedureStatistics(int program,
+                                                            int version,
+                                                            int procedure) {
+        OncRpcProcedureStatistics statistics =
+            lookup(table, program, version, procedure);
+        if ( statistics != null ) {
+            return statistics;
+        }
+        synchronized ( this ) {
+            //
+            // Someone else might have been faster, so look again, now that
+            // nobody else can change the table. Then put the new statistics
+            // into a copy of the table, so readers never see the table
+            // while it is being changed.
+            //
+            statistics = lookup(table, program, version, procedure);
+            if ( statistics != null ) {
+                return statistics;
+            }
+            if ( size >= maximumProcedures ) {
+                return otherStatistics;
+            }
+            statistics = new OncRpcProcedureStatistics(program, version, procedure);
+            int length = table.length;
+            if ( 2 * (size + 1) > length ) {
+                length *= 2;
+            }
+            OncRpcProcedureStatistics [] newTable =
+                new OncRpcProcedureStatistics[length];
+            for ( int idx = 0; idx < table.length; ++idx ) {
+                if ( table[idx] != null ) {
+                    insert(newTable, table[idx]);
+                }
+            }
+            insert(newTable, statistics);
+            ++size;
+            table = newTable;
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the statistics of calls which are not attributed to a remote
+     * procedure of their own, either because the transport has not been
+     * registered for their program and version or because the maximum
+     * number of remote procedures had already been reached. The program,
+     * version and procedure numbers of these statistics are -1.
+     *
+     * @return Statistics of other calls.
+     */
+    public OncRpcProcedureStatistics getOtherStatistics() {
+        return otherStatistics;
+    }
+
+    /**
+     * Returns the number of calls which could not be dispatched as not even
+     * the call header could be decoded. Such calls are silently dropped by
+     * the server transports.
+     *
+     * @return Number of undecodable calls.
+     */
+    public long getUndecodableCalls() {
+        return undecodableCalls.get();
+    }
+
+    /**
+     * Returns a copy of the statistics of all remote procedures called so
+     * far, sorted by program, version and procedure number. If there have
+     * been other calls, their statistics are appended at the end. The
+     * copies do not change when further calls are recorded.
+     *
+     * @return Array of statistics.
+     */
+    public OncRpcProcedureStatistics [] snapshot() {
+        OncRpcProcedureStatistics [] currentTable = table;
+        int count = 0;
+        for ( int idx = 0; idx < currentTable.length; ++idx ) {
+            if ( currentTable[idx] != null ) {
+                ++count;
+            }
+        }
+        boolean others = otherStatistics.getCalls() != 0;
+        OncRpcProcedureStatistics [] statistics =
+            new OncRpcProcedureStatistics[others ? count + 1 : count];
+        int procedures = count;
+        count = 0;
+        for ( int idx = 0; idx < currentTable.length; ++idx ) {
+            if ( currentTable[idx] != null ) {
+                statistics[count++] = currentTable[idx].snapshot();
+            }
+        }
+        if ( others ) {
+            statistics[procedures] = otherStatistics.snapshot();
+        }
+        Arrays.sort(statistics, 0, procedures, new Comparator() {
+            public int compare(Object o1, Object o2) {
+                OncRpcProcedureStatistics s1 = (OncRpcProcedureStatistics) o1;
+                OncRpcProcedureStatistics s2 = (OncRpcProcedureStatistics) o2;
+                if ( s1.getProgram() != s2.getProgram() ) {
+                    return s1.getProgram() < s2.getProgram() ? -1 : 1;
+                }
+                if ( s1.getVersion() != s2.getVersion() ) {
+                    return s1.getVersion() < s2.getVersion() ? -1 : 1;
+                }
+                if ( s1.getProcedure() != s2.getProcedure() ) {
+                    return s1.getProcedure() < s2.getProcedure() ? -1 : 1;
+                }
+                return 0;
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * Records a call which has been handled, using the timestamps, byte
+     * counts and reply status collected in the call information during
+     * the call.
+     *
+     * @param callInfo Call information of the call handled.
+     */
+    void recordCall(OncRpcCallInformation callInfo) {
+        callInfo.recording = false;
+        long end = callInfo.encodingEnd != 0 ? callInfo.encodingEnd
+                                             : System.nanoTime();
+        long decodingEnd = callInfo.decodingEnd != 0 ? callInfo.decodingEnd
+                                                     : end;
+        long encodeNanos = callInfo.encodingStart != 0
+                           ? end - callInfo.encodingStart : 0;
+        OncRpcServerCallMessage callMessage = callInfo.callMessage;
+        OncRpcProcedureStatistics statistics;
+        if ( isRegistered(callInfo.transport, callMessage) ) {
+            statistics = getProcedureStatistics(callMessage.program,
+                                                callMessage.version,
+                                                callMessage.procedure);
+        } else {
+            statistics = otherStatistics;
+        }
+        statistics.recordCall(decodingEnd - callInfo.startTime,
+                        end - decodingEnd - encodeNanos,
+                        encodeNanos,
+                        callInfo.bytesIn, callInfo.bytesOut,
+                        callInfo.failed, callInfo.authenticationFailed);
+    }
+
+    /**
+     * Checks whether a transport has been registered for the program and
+     * version of a call.
+     */
+    private static boolean isRegistered(OncRpcServerTransport transport,
+                                        OncRpcServerCallMessage callMessage) {
+        OncRpcServerTransportRegistrationInfo [] info = transport.info;
+        for ( int idx = 0; idx < info.length; ++idx ) {
+            if ( (info[idx].program == callMessage.program)
+                 && (info[idx].version == callMessage.version) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records a call which has been dropped, as its call header could not
+     * be decoded.
+     */
+    void recordUndecodableCall() {
+        undecodableCalls.incrementAndGet();
+    }
+
+    /**
+     * Looks up the statistics of a remote procedure in a table.
+     *
+     * @return Statistics or <code>null</code> if the table does not contain
+     *   statistics for the remote procedure.
+     */
+    private static OncRpcProcedureStatistics lookup(
+                       OncRpcProcedureStatistics [] table,
+                       int program, int version, int procedure) {
+        int mask = table.length - 1;
+        int idx = hash(program, version, procedure) & mask;
+        for ( ;; ) {
+            OncRpcProcedureStatistics statistics = table[idx];
+            if ( (statistics == null)
+                 || ((statistics.getProcedure() == procedure)
+                     && (statistics.getVersion() == version)
+                     && (statistics.getProgram() == program)) ) {
+                return statistics;
+            }
+            idx = (idx + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserts statistics into a table, which must not contain statistics
+     * for the same remote procedure yet and must have at least one empty
+     * slot left.
+     */
+    private static void insert(OncRpcProcedureStatistics [] table,
+                               OncRpcProcedureStatistics statistics) {
+        int mask = table.length - 1;
+        int idx = hash(statistics.getProgram(), statistics.getVersion(),
+                       statistics.getProcedure()) & mask;
+        while ( table[idx] != null ) {
+            idx = (idx + 1) & mask;
+        }
+        table[idx] = statistics;
+    }
+
+    /**
+     * Calculates the hash code used to place statistics of a remote
+     * procedure into a table.
+     */
+    private static int hash(int program, int version, int procedure) {
+        int hash = (program * 31 + version) * 31 + procedure;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Open-addressing hash table of statistics of remote procedures. The
+     * table is never changed but replaced by a changed copy, so lookups
+     * need not lock the table.
+     */
+    private volatile OncRpcProcedureStatistics [] table;
+
+    /**
+     * Number of statistics in the table.
+     */
+    private int size = 0;
+
+    /**
+     * Maximum number of statistics in the table.
+     */
+    private int maximumProcedures;
+
+    /**
+     * Statistics of calls not attributed to a remote procedure of their
+     * own.
+     */
+    private OncRpcProcedureStatistics otherStatistics =
+        new OncRpcProcedureStatistics(-1, -1, -1);
+
+    /**
+     * Number of calls dropped as their call header could not be decoded.
+     */
+    private AtomicLong undecodableCalls = new AtomicLong();
+
+}
+
+// End of OncRpcServerStatistics.java
@@ -26,6 +26,7 @@ package org.acplt.oncrpc.server;
 
 import org.acplt.oncrpc.*;
 import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * The abstract <code>OncRpcServerStub</code> class is the base class to
@@ -109,31 +110,73 @@ public abstract class OncRpcServerStub {
      * <code>run()</code> is called will ignore any interruptions and
      * will silently swallow them.
      *
+     * <p>While processing requests, all transports are registered with the
+     * platform MBean server under the names
+     * <code>org.acplt.oncrpc:type=</code><i>class</i><code>,port=</code><i>port</i>,
+     * so the open connections and receive rates can be watched using any
+     * JMX console. Transports which can not be registered, for instance
+     * because of a security manager or because the runtime lacks the
+     * <code>java.management</code> module, are silently left out.
+     *
      * @param transports Array of server transport objects for which
      *   processing of remote procedure call requests should be done.
      */
     public void run(OncRpcServerTransport [] transports) {
         int size = transports.length;
+        Object [] mbeanNames = new Object[size];
         for ( int idx = 0; idx < size; ++idx ) {
+            if ( statistics != null ) {
+                transports[idx].setStatistics(statistics);
+            }
+            if ( interceptors != null ) {
+                transports[idx].setInterceptors(interceptors);
+            }
+            if ( threadFactory != null ) {
+                transports[idx].setThreadFactory(threadFactory);
+            }
             transports[idx].listen();
+            mbeanNames[idx] = registerMBean(transports[idx]);
         }
-        //
-        // Loop and wait for the shutdown flag to become signalled. If the
-        // server's main thread gets interrupted it will not shut itself
-        // down. It can only be stopped by signalling the shutdownSignal
-        // object.
-        //
-        for ( ;; ) {
-            synchronized ( shutdownSignal ) {
-                try {
-                    shutdownSignal.wait();
-                    break;
-                } catch ( InterruptedException e ) {
+        try {
+            //
+            // Loop and wait for the shutdown flag to become signalled. If the
+            // server's main thread gets interrupted it will not shut itself
+            // down. It can only be stopped by signalling the shutdownSignal
+            // object.
+            //
+            for ( ;; ) {
+                synchronized ( shutdownSignal ) {
+                    try {
+                        shutdownSignal.wait();
+                        break;
+                    } catch ( InterruptedException e ) {
+                    }
                 }
             }
+        } finally {
+            for ( int idx = 0; idx < size; ++idx ) {
+                OncRpcServerManagement.unregisterMBean(mbeanNames[idx]);
+            }
         }
     }
 
+    /**
+     * Registers a server transport with the platform MBean server.
+     *
+     * @param transport Server transport to register.
+     *
+     * @return Name under which the transport has been registered or
+     *   <code>null</code> if it could not be registered.
+     */
+    private Object registerMBean(OncRpcServerTransport transport) {
+        String type = transport.getClass().getName();
+        type = type.substring(type.lastIndexOf('.') + 1);
+        return OncRpcServerManagement.registerMBean(transport,
+                                                    "org.acplt.oncrpc:type="
+                                                    + type
+                                                    + ",port=" + transport.getPort());
+    }
+
     /**
      * Notify the RPC server to stop processing of remote procedure call
      * requests as soon as possible. Note that each transport has its own
@@ -182,6 +225,108 @@ public abstract class OncRpcServerStub {
         }
     }
 
+    /**
+     * Sets the statistics collecting the calls handled by this server. The
+     * statistics are attached to all transports of this server, as well as
+     * to the transports later run using {@link #run(OncRpcServerTransport[])}.
+     * Calls are counted and their decoding, dispatching and encoding times
+     * recorded separately for each remote procedure.
+     *
+     * @param statistics Statistics or <code>null</code> to not collect
+     *   statistics.
+     */
+    public void setStatistics(OncRpcServerStatistics statistics) {
+        this.statistics = statistics;
+        if ( transports != null ) {
+            int size = transports.length;
+            for ( int idx = 0; idx < size; ++idx ) {
+                transports[idx].setStatistics(statistics);
+            }
+        }
+    }
+
+    /**
+     * Returns the statistics collecting the calls handled by this server.
+     *
+     * @return Statistics or <code>null</code> if no statistics are
+     *   collected.
+     */
+    public OncRpcServerStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of all remote procedures called
+     * so far, sorted by program, version and procedure number.
+     *
+     * @return Array of statistics, which is empty if no statistics are
+     *   collected.
+     */
+    public OncRpcProcedureStatistics [] getProcedureStatistics() {
+        OncRpcServerStatistics currentStatistics = statistics;
+        if ( currentStatistics == null ) {
+            return new OncRpcProcedureStatistics[0];
+        }
+        return currentStatistics.snapshot();
+    }
+
+    /**
+     * Sets the interceptors invoked around dispatching each call handled by
+     * this server. The interceptors are installed in all transports of this
+     * server, as well as in the transports later run using
+     * {@link #run(OncRpcServerTransport[])}.
+     *
+     * @param interceptors Interceptors in the order they are to be invoked
+     *   before dispatching a call, or <code>null</code> to remove all
+     *   interceptors.
+     */
+    public void setInterceptors(OncRpcServerInterceptor [] interceptors) {
+        this.interceptors = interceptors == null ? null
+                            : interceptors.clone();
+        if ( transports != null ) {
+            int size = transports.length;
+            for ( int idx = 0; idx < size; ++idx ) {
+                transports[idx].setInterceptors(interceptors);
+            }
+        }
+    }
+
+    /**
+     * Returns the interceptors invoked around dispatching each call handled
+     * by this server.
+     *
+     * @return Interceptors or <code>null</code> if none have been set.
+     */
+    public OncRpcServerInterceptor [] getInterceptors() {
+        OncRpcServerInterceptor [] currentInterceptors = interceptors;
+        return currentInterceptors == null ? null
+               : currentInterceptors.clone();
+    }
+
+    /**
+     * Sets the factory creating the threads of the transports later run
+     * using {@link #run(OncRpcServerTransport[])}. Handing in
+     * {@link OncRpcVirtualThreads#getThreadFactory} runs this server on
+     * virtual threads, so every connection can cheaply be handled by a
+     * thread of its own, even with many mostly idle connections.
+     *
+     * @param threadFactory Thread factory or <code>null</code> to leave the
+     *   factory of the transports alone.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns the factory creating the threads of the transports of this
+     * server.
+     *
+     * @return Thread factory or <code>null</code> if none has been set.
+     */
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
 	/**
 	 * Set the character encoding for deserializing strings.
 	 *
@@ -212,5 +357,23 @@ public abstract class OncRpcServerStub {
 	 */
 	private String characterEncoding;
 
+    /**
+     * Statistics collecting the calls handled by this server or
+     * <code>null</code> if no statistics are collected.
+     */
+    private volatile OncRpcServerStatistics statistics;
+
+    /**
+     * Interceptors invoked around dispatching calls handled by this server
+     * or <code>null</code> if none have been set.
+     */
+    private volatile OncRpcServerInterceptor [] interceptors;
+
+    /**
+     * Factory creating the threads of the transports of this server or
+     * <code>null</code> if none has been set.
+     */
+    private volatile ThreadFactory threadFactory;
+
 }
 // End of OncRpcServerStub.java
\ No newline at end of file
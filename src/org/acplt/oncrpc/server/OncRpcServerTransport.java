@@ -27,6 +27,7 @@ package org.acplt.oncrpc.server;
 import org.acplt.oncrpc.*;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Instances of class <code>OncRpcServerTransport</code> encapsulate XDR
@@ -160,6 +161,141 @@ public abstract class OncRpcServerTransport {
         return port;
     }
 
+    /**
+     * Sets the statistics collecting the calls handled by this server
+     * transport. Transports accepting connections hand the statistics down
+     * to the connections accepted afterwards, so the statistics should be
+     * set before the transport starts listening.
+     *
+     * @param statistics Statistics or <code>null</code> to not collect
+     *   statistics.
+     */
+    public void setStatistics(OncRpcServerStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the statistics collecting the calls handled by this server
+     * transport.
+     *
+     * @return Statistics or <code>null</code> if no statistics are
+     *   collected.
+     */
+    public OncRpcServerStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the interceptors invoked around dispatching each call handled by
+     * this server transport. Transports accepting connections hand the
+     * interceptors down to the connections accepted afterwards, so the
+     * interceptors should be set before the transport starts listening.
+     *
+     * @param interceptors Interceptors in the order they are to be invoked
+     *   before dispatching a call, or <code>null</code> to remove all
+     *   interceptors.
+     */
+    public void setInterceptors(OncRpcServerInterceptor [] interceptors) {
+        if ( (interceptors == null) || (interceptors.length == 0) ) {
+            this.interceptors = NO_INTERCEPTORS;
+        } else {
+            this.interceptors = interceptors.clone();
+        }
+    }
+
+    /**
+     * Returns the interceptors invoked around dispatching each call handled
+     * by this server transport.
+     *
+     * @return Interceptors, which might be an empty array.
+     */
+    public OncRpcServerInterceptor [] getInterceptors() {
+        return interceptors.clone();
+    }
+
+    /**
+     * Sets the factory creating the threads of this server transport, that
+     * is, listener threads and the threads handling connections. If no
+     * factory has been set, then ordinary daemon threads are created. Pass
+     * {@link org.acplt.oncrpc.OncRpcVirtualThreads#getThreadFactory} to run
+     * the transport on virtual threads. Stream-oriented transports hand the
+     * factory down to the connections accepted afterwards, so the factory
+     * should be set before the transport starts listening.
+     *
+     * @param threadFactory Thread factory or <code>null</code> for
+     *   ordinary daemon threads.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Returns the factory creating the threads of this server transport.
+     *
+     * @return Thread factory or <code>null</code> if ordinary daemon threads
+     *   are created.
+     */
+    public ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    /**
+     * Creates a new daemon thread using the thread factory set, if any.
+     * The thread has not been started yet.
+     *
+     * @param task Task to run in the new thread.
+     * @param name Name of the new thread.
+     *
+     * @return New thread.
+     */
+    protected Thread newThread(Runnable task, String name) {
+        ThreadFactory factory = threadFactory;
+        Thread thread = (factory != null) ? factory.newThread(task)
+                                          : new Thread(task);
+        thread.setName(name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Invokes the interceptors before a call is dispatched.
+     *
+     * @param interceptors Interceptors to invoke.
+     * @param callInfo Call information of the call about to be dispatched.
+     *
+     * @throws OncRpcException if an interceptor rejected the call.
+     * @throws IOException if an interceptor rejected the call.
+     */
+    protected static void beforeDispatch(OncRpcServerInterceptor [] interceptors,
+                                         OncRpcCallInformation callInfo)
+              throws OncRpcException, IOException {
+        int size = interceptors.length;
+        for ( int idx = 0; idx < size; ++idx ) {
+            interceptors[idx].beforeDispatch(callInfo);
+        }
+    }
+
+    /**
+     * Invokes the interceptors after a call has been dispatched, in reverse
+     * order. Runtime exceptions thrown by interceptors are ignored, so they
+     * can not do any harm to the server transport.
+     *
+     * @param interceptors Interceptors to invoke.
+     * @param callInfo Call information of the call dispatched.
+     * @param error Exception thrown while dispatching the call or
+     *   <code>null</code>.
+     */
+    protected static void afterDispatch(OncRpcServerInterceptor [] interceptors,
+                                        OncRpcCallInformation callInfo,
+                                        Exception error) {
+        for ( int idx = interceptors.length - 1; idx >= 0; --idx ) {
+            try {
+                interceptors[idx].afterDispatch(callInfo, error);
+            } catch ( RuntimeException e ) {
+            }
+        }
+    }
+
 	/**
 	 * Set the character encoding for (de-)serializing strings.
 	 *
@@ -299,6 +435,31 @@ public abstract class OncRpcServerTransport {
      */
     protected OncRpcServerTransportRegistrationInfo [] info;
 
+    /**
+     * Statistics collecting the calls handled by this server transport or
+     * <code>null</code> if no statistics are collected.
+     */
+    protected volatile OncRpcServerStatistics statistics;
+
+    /**
+     * Interceptors invoked around dispatching calls. This is never
+     * <code>null</code>, so checking for an empty array is all it takes
+     * on the hot path.
+     */
+    protected volatile OncRpcServerInterceptor [] interceptors = NO_INTERCEPTORS;
+
+    /**
+     * Factory creating the threads of this server transport or
+     * <code>null</code> if ordinary daemon threads are created.
+     */
+    protected volatile ThreadFactory threadFactory;
+
+    /**
+     * Shared empty set of interceptors.
+     */
+    private static final OncRpcServerInterceptor [] NO_INTERCEPTORS =
+        new OncRpcServerInterceptor[0];
+
 }
 
 // End of OncRpcServerTransport.java
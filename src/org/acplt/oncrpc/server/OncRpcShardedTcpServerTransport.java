@@ -0,0 +1,643 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Instances of class <code>OncRpcShardedTcpServerTransport</code> accept
+ * ONC/RPC connections over TCP/IP on several server sockets bound to the
+ * same port. Each server socket -- or shard -- is served by a
+ * {@link OncRpcTcpServerTransport} and its listener thread of its own. The
+ * server sockets are bound using the <code>SO_REUSEPORT</code> socket
+ * option, so the operating system spreads incoming connections across the
+ * shards. This way, accepting connections is not limited to what a single
+ * listener thread can handle.
+ *
+ * <p>Towards the portmapper the shards appear as a single transport, as
+ * they all share the same port. Settings made on this transport apply to
+ * all shards, while each shard keeps its own connection counters and
+ * limits. Use {@link #getShards} to find out how evenly the connections
+ * are spread.
+ *
+ * <p>If the operating system does not support <code>SO_REUSEPORT</code>,
+ * then only a single shard is created.
+ *
+ * @see OncRpcTcpServerTransport
+ * @see OncRpcShardedUdpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcShardedTcpServerTransport extends OncRpcServerTransport
+                                             implements OncRpcShardedTcpServerTransportMXBean {
+
+    /**
+     * Create a new instance of a <code>OncRpcShardedTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server.
+     * This constructor is a convenience constructor for those transports
+     * handling only a single ONC/RPC program and version number. One shard
+     * is created per processor available.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param program Number of ONC/RPC program handled by this server
+     *   transport.
+     * @param version Version number of ONC/RPC program handled.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     */
+    public OncRpcShardedTcpServerTransport(OncRpcDispatchable dispatcher,
+                                           int port,
+                                           int program, int version,
+                                           int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, null, port,
+             new OncRpcServerTransportRegistrationInfo [] {
+                new OncRpcServerTransportRegistrationInfo(program, version)
+             },
+             bufferSize, 0, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcShardedTcpServerTransport</code>
+     * which encapsulates TCP/IP-based XDR streams of an ONC/RPC server.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls. If zero, then a free port is chosen for the first shard
+     *   and the other shards are bound to the same port.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     * @param backlog Maximum number of connection requests queued per shard
+     *   by the operating system until they are accepted, or zero for the
+     *   system default.
+     * @param shards Number of server sockets accepting connections.
+     */
+    public OncRpcShardedTcpServerTransport(OncRpcDispatchable dispatcher,
+                                           InetAddress bindAddr,
+                                           int port,
+                                           OncRpcServerTransportRegistrationInfo [] info,
+                                           int bufferSize,
+                                           int backlog,
+                                           int shards)
+           throws OncRpcException, IOException {
+        super(dispatcher, port, info);
+        if ( shards <= 0 ) {
+            throw(new IllegalArgumentException("shards must be > 0"));
+        }
+        ServerSocket firstSocket = new ServerSocket();
+        if ( !firstSocket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT) ) {
+            shards = 1;
+        }
+        this.shards = new OncRpcTcpServerTransport[shards];
+        try {
+            bind(firstSocket, bindAddr, port, backlog, shards > 1);
+            this.port = firstSocket.getLocalPort();
+            this.shards[0] = new OncRpcTcpServerTransport(dispatcher, firstSocket,
+                                                          info, bufferSize);
+            for ( int idx = 1; idx < shards; ++idx ) {
+                ServerSocket socket = new ServerSocket();
+                bind(socket, bindAddr, this.port, backlog, true);
+                this.shards[idx] = new OncRpcTcpServerTransport(dispatcher, socket,
+                                                                info, bufferSize);
+            }
+        } catch ( IOException e ) {
+            //
+            // Do not leave behind the sockets of the shards created so far.
+            //
+            firstSocket.close();
+            close();
+            throw(e);
+        }
+    }
+
+    /**
+     * Binds an unbound server socket of a shard.
+     *
+     * @param socket Unbound server socket.
+     * @param bindAddr Local address to bind to or <code>null</code> for the
+     *   wildcard address.
+     * @param port Port number to bind to.
+     * @param backlog Size of the backlog or zero for the system default.
+     * @param reusePort Whether other sockets may be bound to the same port.
+     *
+     * @throws IOException if the socket could not be bound.
+     */
+    private static void bind(ServerSocket socket, InetAddress bindAddr,
+                             int port, int backlog, boolean reusePort)
+            throws IOException {
+        try {
+            if ( reusePort ) {
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+            }
+            socket.bind(new InetSocketAddress(bindAddr, port), backlog);
+        } catch ( IOException e ) {
+            socket.close();
+            throw(e);
+        }
+    }
+
+    /**
+     * Returns the server transports serving the shards of this server
+     * transport.
+     *
+     * @return Array of server transports.
+     */
+    public OncRpcTcpServerTransport [] getShards() {
+        return shards.clone();
+    }
+
+    /**
+     * Returns the number of shards accepting connections.
+     *
+     * @return Number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Close the server transport and free any resources associated with it.
+     * All server sockets are closed, as well as all connections accepted
+     * by any of the shards.
+     *
+     * <p>Note that the server transport is <b>not deregistered</b>. You'll
+     * have to do it manually if you need to do so.
+     */
+    public void close() {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            if ( shards[idx] != null ) {
+                shards[idx].close();
+            }
+        }
+    }
+
+    /**
+     * Register the TCP/IP port where this server transport waits for incoming
+     * requests with the ONC/RPC portmapper. The port is only registered
+     * once, as it is shared by all shards.
+     *
+     * @throws OncRpcException if the portmapper could not be contacted
+     *   successfully of if the portmapper rejected port registration(s).
+     */
+    public void register()
+           throws OncRpcException {
+        shards[0].register();
+    }
+
+    /**
+     * Creates the listener threads of all shards, which accept incoming
+     * connections. Control in the calling thread immediately returns after
+     * the listener threads have been created.
+     */
+    public void listen() {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].listen();
+        }
+    }
+
+    /**
+     * Returns the number of connections currently open in all shards.
+     *
+     * @return Number of open connections.
+     */
+    public int getOpenConnections() {
+        int open = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            open += shards[idx].getOpenConnections();
+        }
+        return open;
+    }
+
+    /**
+     * Returns the number of connections accepted so far by all shards.
+     *
+     * @return Number of accepted connections.
+     */
+    public long getAcceptedConnections() {
+        long accepted = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            accepted += shards[idx].getAcceptedConnections();
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the rate at which connections have been accepted recently by
+     * all shards, averaged over about one minute.
+     *
+     * @return Accepted connections per second.
+     */
+    public double getAcceptRate() {
+        double rate = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            rate += shards[idx].getAcceptRate();
+        }
+        return rate;
+    }
+
+    /**
+     * Returns descriptions of the connections currently open in all shards.
+     *
+     * @return Array of connection descriptions.
+     */
+    public OncRpcConnectionInfo [] getConnections() {
+        OncRpcConnectionInfo [][] shardConnections =
+            new OncRpcConnectionInfo[shards.length][];
+        int size = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shardConnections[idx] = shards[idx].getConnections();
+            size += shardConnections[idx].length;
+        }
+        OncRpcConnectionInfo [] connections = new OncRpcConnectionInfo[size];
+        int offset = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            System.arraycopy(shardConnections[idx], 0, connections, offset,
+                             shardConnections[idx].length);
+            offset += shardConnections[idx].length;
+        }
+        return connections;
+    }
+
+    /**
+     * Returns the number of connections accepted so far by each shard.
+     *
+     * @return Numbers of accepted connections, indexed by shard.
+     */
+    public long [] getShardAcceptedConnections() {
+        long [] accepted = new long[shards.length];
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            accepted[idx] = shards[idx].getAcceptedConnections();
+        }
+        return accepted;
+    }
+
+    /**
+     * Returns the number of connections currently open per shard.
+     *
+     * @return Numbers of open connections, indexed by shard.
+     */
+    public int [] getShardOpenConnections() {
+        int [] open = new int[shards.length];
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            open[idx] = shards[idx].getOpenConnections();
+        }
+        return open;
+    }
+
+    /**
+     * Set the timeout used during transmission of data by all shards. See
+     * {@link OncRpcTcpServerTransport#setTransmissionTimeout} for details.
+     *
+     * @param milliseconds Transmission timeout in milliseconds.
+     */
+    public void setTransmissionTimeout(int milliseconds) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setTransmissionTimeout(milliseconds);
+        }
+    }
+
+    /**
+     * Retrieve the current timeout used during transmission phases (call and
+     * reply phases).
+     *
+     * @return Current transmission timeout.
+     */
+    public int getTransmissionTimeout() {
+        return shards[0].getTransmissionTimeout();
+    }
+
+    /**
+     * Set the executor used by all shards for dispatching ONC/RPC calls. See
+     * {@link OncRpcTcpServerTransport#setDispatchExecutor} for details.
+     *
+     * @param executor Executor for dispatching calls or <code>null</code>.
+     */
+    public void setDispatchExecutor(Executor executor) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setDispatchExecutor(executor);
+        }
+    }
+
+    /**
+     * Retrieve the executor used for dispatching ONC/RPC calls.
+     *
+     * @return Executor for dispatching calls or <code>null</code> if calls
+     *   are dispatched sequentially by the connection threads.
+     */
+    public Executor getDispatchExecutor() {
+        return shards[0].getDispatchExecutor();
+    }
+
+    /**
+     * Set the maximum number of calls per connection which can be
+     * dispatched at the same time when using a dispatch executor.
+     *
+     * @param maximumInFlightCalls Maximum number of calls in flight per
+     *   connection.
+     */
+    public void setMaximumInFlightCalls(int maximumInFlightCalls) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setMaximumInFlightCalls(maximumInFlightCalls);
+        }
+    }
+
+    /**
+     * Retrieve the maximum number of calls per connection which can be
+     * dispatched at the same time when using a dispatch executor.
+     *
+     * @return Maximum number of calls in flight per connection.
+     */
+    public int getMaximumInFlightCalls() {
+        return shards[0].getMaximumInFlightCalls();
+    }
+
+    /**
+     * Set the maximum size of records (calls) accepted from clients.
+     *
+     * @param maximumRecordSize Maximum record size in bytes or zero if the
+     *   record size is not limited.
+     */
+    public void setMaximumRecordSize(int maximumRecordSize) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setMaximumRecordSize(maximumRecordSize);
+        }
+    }
+
+    /**
+     * Retrieve the maximum size of records (calls) accepted from clients.
+     *
+     * @return Maximum record size in bytes or zero if the record size is
+     *   not limited.
+     */
+    public int getMaximumRecordSize() {
+        return shards[0].getMaximumRecordSize();
+    }
+
+    /**
+     * Set the maximum number of connections open at the same time per
+     * shard. As the operating system does not know about this limit, it
+     * keeps handing connection requests to a shard which has reached its
+     * limit. They then wait in the backlog of that shard.
+     *
+     * @param maximumConnections Maximum number of connections per shard or
+     *   zero if the number of connections is not limited.
+     */
+    public void setMaximumConnections(int maximumConnections) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setMaximumConnections(maximumConnections);
+        }
+    }
+
+    /**
+     * Retrieve the maximum number of connections open at the same time per
+     * shard.
+     *
+     * @return Maximum number of connections per shard or zero if the number
+     *   of connections is not limited.
+     */
+    public int getMaximumConnections() {
+        return shards[0].getMaximumConnections();
+    }
+
+    /**
+     * Set the time after which idle connections are closed by all shards.
+     * This has to be done before the transport starts listening.
+     *
+     * @param milliseconds Idle timeout in milliseconds or zero if idle
+     *   connections are kept open.
+     */
+    public void setIdleTimeout(int milliseconds) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setIdleTimeout(milliseconds);
+        }
+    }
+
+    /**
+     * Retrieve the time after which idle connections are closed.
+     *
+     * @return Idle timeout in milliseconds or zero if idle connections are
+     *   kept open.
+     */
+    public int getIdleTimeout() {
+        return shards[0].getIdleTimeout();
+    }
+
+    /**
+     * Set the time a client has to send a complete call record to any of
+     * the shards. This has to be done before the transport starts
+     * listening.
+     *
+     * @param milliseconds Record timeout in milliseconds or zero if not
+     *   limited.
+     */
+    public void setRecordTimeout(int milliseconds) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setRecordTimeout(milliseconds);
+        }
+    }
+
+    /**
+     * Retrieve the time a client has to send a complete call record.
+     *
+     * @return Record timeout in milliseconds or zero if not limited.
+     */
+    public int getRecordTimeout() {
+        return shards[0].getRecordTimeout();
+    }
+
+    /**
+     * Sets the statistics collecting the calls handled by all shards of
+     * this server transport.
+     *
+     * @param statistics Statistics or <code>null</code> to not collect
+     *   statistics.
+     */
+    public void setStatistics(OncRpcServerStatistics statistics) {
+        super.setStatistics(statistics);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setStatistics(statistics);
+        }
+    }
+
+    /**
+     * Sets the interceptors invoked around dispatching each call handled by
+     * all shards of this server transport.
+     *
+     * @param interceptors Interceptors in the order they are to be invoked
+     *   before dispatching a call, or <code>null</code> to remove all
+     *   interceptors.
+     */
+    public void setInterceptors(OncRpcServerInterceptor [] interceptors) {
+        super.setInterceptors(interceptors);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setInterceptors(interceptors);
+        }
+    }
+
+    /**
+     * Sets the factory creating the threads of all shards, including the
+     * threads handling connections.
+     *
+     * @param threadFactory Thread factory or <code>null</code> for
+     *   ordinary daemon threads.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        super.setThreadFactory(threadFactory);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setThreadFactory(threadFactory);
+        }
+    }
+
+	/**
+	 * Set the character encoding for (de-)serializing strings of all
+	 * shards.
+	 *
+	 * @param characterEncoding the encoding to use for (de-)serializing strings.
+	 *   If <code>null</code>, the system's default encoding is to be used.
+	 */
+	public void setCharacterEncoding(String characterEncoding) {
+		for ( int idx = 0; idx < shards.length; ++idx ) {
+			shards[idx].setCharacterEncoding(characterEncoding);
+		}
+	}
+
+	/**
+	 * Get the character encoding for (de-)serializing strings.
+	 *
+	 * @return the encoding currently used for (de-)serializing strings.
+	 *   If <code>null</code>, then the system's default encoding is used.
+	 */
+	public String getCharacterEncoding() {
+		return shards[0].getCharacterEncoding();
+	}
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void retrieveCall(XdrAble call)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedTcpServerTransport.retrieveCall() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected XdrDecodingStream getXdrDecodingStream() {
+        throw(new Error("OncRpcShardedTcpServerTransport.getXdrDecodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void endDecoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedTcpServerTransport.endDecoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected XdrEncodingStream getXdrEncodingStream() {
+        throw(new Error("OncRpcShardedTcpServerTransport.getXdrEncodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void beginEncoding(OncRpcCallInformation callInfo,
+                                 OncRpcServerReplyMessage state)
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedTcpServerTransport.beginEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void endEncoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedTcpServerTransport.endEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void reply(OncRpcCallInformation callInfo,
+                         OncRpcServerReplyMessage state, XdrAble reply)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedTcpServerTransport.reply() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Server transports serving the server sockets bound to the port of
+     * this server transport.
+     */
+    private OncRpcTcpServerTransport [] shards;
+
+}
+
+// End of OncRpcShardedTcpServerTransport.java
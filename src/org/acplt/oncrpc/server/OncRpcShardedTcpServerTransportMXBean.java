@@ -0,0 +1,63 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+/**
+ * The <code>OncRpcShardedTcpServerTransportMXBean</code> interface exposes
+ * the state of sharded TCP/IP-based server transports through JMX. In
+ * addition to the totals of all shards, the connection counters of the
+ * individual shards are shown, so it can be checked how evenly the
+ * operating system spreads incoming connections.
+ *
+ * @see OncRpcShardedTcpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcShardedTcpServerTransportMXBean
+                 extends OncRpcTcpServerTransportMXBean {
+
+    /**
+     * Returns the number of shards accepting connections.
+     *
+     * @return Number of shards.
+     */
+    public int getShardCount();
+
+    /**
+     * Returns the number of connections accepted so far by each shard.
+     *
+     * @return Numbers of accepted connections, indexed by shard.
+     */
+    public long [] getShardAcceptedConnections();
+
+    /**
+     * Returns the number of connections currently open per shard.
+     *
+     * @return Numbers of open connections, indexed by shard.
+     */
+    public int [] getShardOpenConnections();
+
+}
+
+// End of OncRpcShardedTcpServerTransportMXBean.java
@@ -0,0 +1,468 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+import org.acplt.oncrpc.*;
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Instances of class <code>OncRpcShardedUdpServerTransport</code> receive
+ * ONC/RPC calls over UDP/IP on several sockets bound to the same port. Each
+ * socket -- or shard -- is served by a {@link OncRpcUdpServerTransport} and
+ * its listener thread of its own. The sockets are bound using the
+ * <code>SO_REUSEPORT</code> socket option, so the operating system spreads
+ * incoming datagrams across the shards by their source address and port.
+ * This way, receiving calls is not limited to what a single socket and
+ * thread can handle.
+ *
+ * <p>Towards the portmapper the shards appear as a single transport, as
+ * they all share the same port. Settings like statistics or interceptors
+ * made on this transport apply to all shards, while each shard keeps its
+ * own datagram counters. Use {@link #getShards} to find out how evenly the
+ * datagrams are spread.
+ *
+ * <p>If the operating system does not support <code>SO_REUSEPORT</code>,
+ * then only a single shard is created. Note that the dispatcher must be
+ * prepared to be called from several threads at the same time.
+ *
+ * @see OncRpcUdpServerTransport
+ * @see OncRpcPooledUdpServerTransport
+ * @see OncRpcShardedTcpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public class OncRpcShardedUdpServerTransport extends OncRpcServerTransport
+                                             implements OncRpcShardedUdpServerTransportMXBean {
+
+    /**
+     * Create a new instance of a <code>OncRpcShardedUdpServerTransport</code>
+     * which encapsulates UDP/IP-based XDR streams of an ONC/RPC server.
+     * This constructor is a convenience constructor for those transports
+     * handling only a single ONC/RPC program and version number. One shard
+     * is created per processor available.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param program Number of ONC/RPC program handled by this server
+     *   transport.
+     * @param version Version number of ONC/RPC program handled.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     */
+    public OncRpcShardedUdpServerTransport(OncRpcDispatchable dispatcher,
+                                           int port,
+                                           int program, int version,
+                                           int bufferSize)
+           throws OncRpcException, IOException {
+        this(dispatcher, null, port,
+             new OncRpcServerTransportRegistrationInfo [] {
+                new OncRpcServerTransportRegistrationInfo(program, version)
+             },
+             bufferSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcShardedUdpServerTransport</code>
+     * which encapsulates UDP/IP-based XDR streams of an ONC/RPC server.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls. If zero, then a free port is chosen for the first shard
+     *   and the other shards are bound to the same port.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     * @param shards Number of sockets receiving calls.
+     */
+    public OncRpcShardedUdpServerTransport(OncRpcDispatchable dispatcher,
+                                           InetAddress bindAddr,
+                                           int port,
+                                           OncRpcServerTransportRegistrationInfo [] info,
+                                           int bufferSize,
+                                           int shards)
+           throws OncRpcException, IOException {
+        super(dispatcher, port, info);
+        if ( shards <= 0 ) {
+            throw(new IllegalArgumentException("shards must be > 0"));
+        }
+        DatagramSocket firstSocket = new DatagramSocket(null);
+        if ( !firstSocket.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT) ) {
+            shards = 1;
+        }
+        this.shards = new OncRpcUdpServerTransport[shards];
+        try {
+            bind(firstSocket, bindAddr, port, shards > 1);
+            this.port = firstSocket.getLocalPort();
+            this.shards[0] = new OncRpcUdpServerTransport(dispatcher, firstSocket,
+                                                          info, bufferSize);
+            for ( int idx = 1; idx < shards; ++idx ) {
+                DatagramSocket socket = new DatagramSocket(null);
+                bind(socket, bindAddr, this.port, true);
+                this.shards[idx] = new OncRpcUdpServerTransport(dispatcher, socket,
+                                                                info, bufferSize);
+            }
+        } catch ( IOException e ) {
+            //
+            // Do not leave behind the sockets of the shards created so far.
+            //
+            firstSocket.close();
+            close();
+            throw(e);
+        }
+    }
+
+    /**
+     * Binds an unbound socket of a shard.
+     *
+     * @param socket Unbound socket.
+     * @param bindAddr Local address to bind to or <code>null</code> for the
+     *   wildcard address.
+     * @param port Port number to bind to.
+     * @param reusePort Whether other sockets may be bound to the same port.
+     *
+     * @throws IOException if the socket could not be bound.
+     */
+    private static void bind(DatagramSocket socket, InetAddress bindAddr,
+                             int port, boolean reusePort)
+            throws IOException {
+        try {
+            if ( reusePort ) {
+                socket.setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+            }
+            socket.bind(new InetSocketAddress(bindAddr, port));
+        } catch ( IOException e ) {
+            socket.close();
+            throw(e);
+        }
+    }
+
+    /**
+     * Returns the server transports serving the shards of this server
+     * transport.
+     *
+     * @return Array of server transports.
+     */
+    public OncRpcUdpServerTransport [] getShards() {
+        return shards.clone();
+    }
+
+    /**
+     * Returns the number of shards receiving calls.
+     *
+     * @return Number of shards.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Close the server transport and free any resources associated with it.
+     * All sockets are closed, which makes the listener threads of all
+     * shards terminate.
+     *
+     * <p>Note that the server transport is <b>not deregistered</b>. You'll
+     * have to do it manually if you need to do so.
+     */
+    public void close() {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            if ( shards[idx] != null ) {
+                shards[idx].close();
+            }
+        }
+    }
+
+    /**
+     * Register the UDP/IP port where this server transport waits for incoming
+     * requests with the ONC/RPC portmapper. The port is only registered
+     * once, as it is shared by all shards.
+     *
+     * @throws OncRpcException if the portmapper could not be contacted
+     *   successfully.
+     */
+    public void register()
+           throws OncRpcException {
+        shards[0].register();
+    }
+
+    /**
+     * Creates the listener threads of all shards, which receive incoming
+     * ONC/RPC requests, dispatch them and finally send back the appropriate
+     * reply messages. Control in the calling thread immediately returns
+     * after the listener threads have been created.
+     */
+    public void listen() {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].listen();
+        }
+    }
+
+    /**
+     * Returns the number of datagrams received so far by all shards.
+     *
+     * @return Number of received datagrams.
+     */
+    public long getReceivedDatagrams() {
+        long received = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            received += shards[idx].getReceivedDatagrams();
+        }
+        return received;
+    }
+
+    /**
+     * Returns the rate at which datagrams have been received recently by
+     * all shards, averaged over about one minute.
+     *
+     * @return Received datagrams per second.
+     */
+    public double getReceiveRate() {
+        double rate = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            rate += shards[idx].getReceiveRate();
+        }
+        return rate;
+    }
+
+    /**
+     * Returns the number of datagrams dropped by all shards without
+     * dispatching a call.
+     *
+     * @return Number of dropped datagrams.
+     */
+    public long getDroppedDatagrams() {
+        long dropped = 0;
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            dropped += shards[idx].getDroppedDatagrams();
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the number of datagrams received so far by each shard.
+     *
+     * @return Numbers of received datagrams, indexed by shard.
+     */
+    public long [] getShardReceivedDatagrams() {
+        long [] received = new long[shards.length];
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            received[idx] = shards[idx].getReceivedDatagrams();
+        }
+        return received;
+    }
+
+    /**
+     * Returns the number of datagrams dropped by each shard.
+     *
+     * @return Numbers of dropped datagrams, indexed by shard.
+     */
+    public long [] getShardDroppedDatagrams() {
+        long [] dropped = new long[shards.length];
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            dropped[idx] = shards[idx].getDroppedDatagrams();
+        }
+        return dropped;
+    }
+
+    /**
+     * Sets the duplicate request cache used by all shards of this server
+     * transport. As the datagrams of a client are always received by the
+     * same shard, the shards might as well use caches of their own.
+     *
+     * @param duplicateRequestCache Duplicate request cache or
+     *   <code>null</code> to not check for retransmitted calls.
+     */
+    public void setDuplicateRequestCache(OncRpcDuplicateRequestCache duplicateRequestCache) {
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setDuplicateRequestCache(duplicateRequestCache);
+        }
+    }
+
+    /**
+     * Sets the statistics collecting the calls handled by all shards of
+     * this server transport.
+     *
+     * @param statistics Statistics or <code>null</code> to not collect
+     *   statistics.
+     */
+    public void setStatistics(OncRpcServerStatistics statistics) {
+        super.setStatistics(statistics);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setStatistics(statistics);
+        }
+    }
+
+    /**
+     * Sets the interceptors invoked around dispatching each call handled by
+     * all shards of this server transport.
+     *
+     * @param interceptors Interceptors in the order they are to be invoked
+     *   before dispatching a call, or <code>null</code> to remove all
+     *   interceptors.
+     */
+    public void setInterceptors(OncRpcServerInterceptor [] interceptors) {
+        super.setInterceptors(interceptors);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setInterceptors(interceptors);
+        }
+    }
+
+    /**
+     * Sets the factory creating the listener threads of all shards.
+     *
+     * @param threadFactory Thread factory or <code>null</code> for
+     *   ordinary daemon threads.
+     */
+    public void setThreadFactory(ThreadFactory threadFactory) {
+        super.setThreadFactory(threadFactory);
+        for ( int idx = 0; idx < shards.length; ++idx ) {
+            shards[idx].setThreadFactory(threadFactory);
+        }
+    }
+
+	/**
+	 * Set the character encoding for (de-)serializing strings of all
+	 * shards.
+	 *
+	 * @param characterEncoding the encoding to use for (de-)serializing strings.
+	 *   If <code>null</code>, the system's default encoding is to be used.
+	 */
+	public void setCharacterEncoding(String characterEncoding) {
+		for ( int idx = 0; idx < shards.length; ++idx ) {
+			shards[idx].setCharacterEncoding(characterEncoding);
+		}
+	}
+
+	/**
+	 * Get the character encoding for (de-)serializing strings.
+	 *
+	 * @return the encoding currently used for (de-)serializing strings.
+	 *   If <code>null</code>, then the system's default encoding is used.
+	 */
+	public String getCharacterEncoding() {
+		return shards[0].getCharacterEncoding();
+	}
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void retrieveCall(XdrAble call)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedUdpServerTransport.retrieveCall() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected XdrDecodingStream getXdrDecodingStream() {
+        throw(new Error("OncRpcShardedUdpServerTransport.getXdrDecodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void endDecoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedUdpServerTransport.endDecoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected XdrEncodingStream getXdrEncodingStream() {
+        throw(new Error("OncRpcShardedUdpServerTransport.getXdrEncodingStream() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void beginEncoding(OncRpcCallInformation callInfo,
+                                 OncRpcServerReplyMessage state)
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedUdpServerTransport.beginEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void endEncoding()
+              throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedUdpServerTransport.endEncoding() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Do not call.
+     *
+     * @throws Error because this method must not be called for a sharded
+     * server transport.
+     */
+    protected void reply(OncRpcCallInformation callInfo,
+                         OncRpcServerReplyMessage state, XdrAble reply)
+           throws OncRpcException, IOException {
+        throw(new Error("OncRpcShardedUdpServerTransport.reply() is abstract "
+                       +"and can not be called."));
+    }
+
+    /**
+     * Server transports serving the sockets bound to the port of this
+     * server transport.
+     */
+    private OncRpcUdpServerTransport [] shards;
+
+}
+
+// End of OncRpcShardedUdpServerTransport.java
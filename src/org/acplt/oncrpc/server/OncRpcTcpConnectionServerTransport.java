@@ -25,8 +25,15 @@
 package org.acplt.oncrpc.server;
 
 import org.acplt.oncrpc.*;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instances of class <code>OncRpcTcpServerTransport</code> encapsulate
@@ -109,8 +116,15 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
         if ( bufferSize < 1024 ) {
             bufferSize = 1024;
         }
+        this.bufferSize = bufferSize;
         this.socket = socket;
         this.port = socket.getLocalPort();
+        peerAddress = socket.getInetAddress();
+        peerPort = socket.getPort();
+        acceptTime = System.currentTimeMillis();
+        idleSince = acceptTime;
+        OncRpcServerFlightRecorder.connectionAccepted(port,
+            peerAddress.getHostAddress(), peerPort);
         socketHelper = new OncRpcTcpSocketHelper(socket);
         if ( socketHelper.getSendBufferSize() < bufferSize ) {
             socketHelper.setSendBufferSize(bufferSize);
@@ -123,12 +137,41 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
         // communicate at all.
         //
         sendingXdr = new XdrTcpEncodingStream(socket, bufferSize);
-        receivingXdr = new XdrTcpDecodingStream(socket, bufferSize);
+        receivingXdr = new XdrTcpDecodingStream(socket, bufferSize) {
+            protected void recordHeaderReceived()
+                      throws IOException {
+                startRecord();
+            }
+        };
         //
         // Inherit the character encoding setting from the listening
         // transport (parent transport).
         //
         setCharacterEncoding(parent.getCharacterEncoding());
+        //
+        // Also inherit the maximum record size, which protects us from
+        // clients sending huge records.
+        //
+        maximumRecordSize = parent.getMaximumRecordSize();
+        receivingXdr.setMaximumRecordSize(maximumRecordSize);
+        //
+        // Calls handled by this connection count towards the statistics
+        // of the listening transport.
+        //
+        statistics = parent.getStatistics();
+        interceptors = parent.interceptors;
+        threadFactory = parent.threadFactory;
+        //
+        // Also inherit how calls are to be dispatched. If the parent has
+        // an executor, we need an additional (buffered) stream to read
+        // complete records from, which are then decoded by the executor.
+        //
+        dispatchExecutor = parent.getDispatchExecutor();
+        maximumInFlightCalls = parent.getMaximumInFlightCalls();
+        if ( dispatchExecutor != null ) {
+            recordStream = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream(), bufferSize));
+        }
     }
 
     /**
@@ -146,18 +189,24 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
      * it tries to sent back replies.
      */
     public void close() {
-        if ( socket != null ) {
-            //
-            // Since there is a non-zero chance of getting race conditions,
-            // we now first set the socket instance member to null, before
-            // we close the corresponding socket. This avoids null-pointer
-            // exceptions in the method which waits for new requests: it is
-            // possible that this method is awakened because the socket has
-            // been closed before we could set the socket instance member to
-            // null. Many thanks to Michael Smith for tracking down this one.
-            //
-            Socket deadSocket = socket;
+        //
+        // Since there is a non-zero chance of getting race conditions,
+        // we now first set the socket instance member to null, before
+        // we close the corresponding socket. This avoids null-pointer
+        // exceptions in the method which waits for new requests: it is
+        // possible that this method is awakened because the socket has
+        // been closed before we could set the socket instance member to
+        // null. Many thanks to Michael Smith for tracking down this one.
+        // The handler thread and the thread closing the listening
+        // transport might also race for closing, so we only look at the
+        // socket once.
+        //
+        Socket deadSocket = socket;
+        if ( deadSocket != null ) {
             socket = null;
+            if ( OncRpcServerFlightRecorder.connectionClosedEnabled() ) {
+                OncRpcServerFlightRecorder.connectionClosed(port, getConnectionInfo());
+            }
             try {
                 deadSocket.close();
             } catch ( IOException e ) {
@@ -226,6 +275,7 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
         call.xdrDecode(receivingXdr);
         if ( pendingDecoding ) {
             pendingDecoding = false;
+            recordStarted = 0;
             receivingXdr.endDecoding();
         }
     }
@@ -255,6 +305,7 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
               throws OncRpcException, IOException {
         if ( pendingDecoding ) {
             pendingDecoding = false;
+            recordStarted = 0;
             receivingXdr.endDecoding();
         }
     }
@@ -292,6 +343,7 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
         //
         if ( pendingDecoding ) {
             pendingDecoding = false;
+            recordStarted = 0;
             receivingXdr.endDecoding();
         }
         //
@@ -359,18 +411,45 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
      * back reply messages. Control in the calling thread immediately
      * returns after the handler thread has been created.
      *
-     * <p>Currently only one call after the other is dispatched, so no
-     * multithreading is done when receiving multiple calls. Instead, later
-     * calls have to wait for the current call to finish before they are
-     * handled.
+     * <p>If the parent transport has no dispatch executor, then only one
+     * call after the other is dispatched, so no multithreading is done when
+     * receiving multiple calls. Instead, later calls have to wait for the
+     * current call to finish before they are handled. Otherwise, the handler
+     * thread only reads complete calls and hands them over to the executor,
+     * while replies are sent back in the order the calls complete.
      */
     public void listen() {
-        Thread listener = new Thread("TCP server transport connection thread") {
+        Thread listener = newThread(new Runnable() {
             public void run() {
-                _listen();
+                XdrTcpDecodingStream myReceivingXdr = receivingXdr;
+                XdrTcpEncodingStream mySendingXdr = sendingXdr;
+                try {
+                    if ( dispatchExecutor != null ) {
+                        _listenPipelined();
+                    } else {
+                        _listen();
+                    }
+                } finally {
+                    //
+                    // Hand back buffers of records left unfinished when the
+                    // connection was closed. Only now nobody else can be
+                    // using them anymore: closing the connection from
+                    // another thread just drops the streams.
+                    //
+                    if ( myReceivingXdr != null ) {
+                        myReceivingXdr.releaseBuffer();
+                    }
+                    if ( mySendingXdr != null ) {
+                        sendLock.lock();
+                        try {
+                            mySendingXdr.releaseBuffer();
+                        } finally {
+                            sendLock.unlock();
+                        }
+                    }
+                }
             }
-        };
-        listener.setDaemon(true);
+        }, "TCP server transport connection thread");
         listener.start();
     }
 
@@ -386,13 +465,33 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
             // from whom we received the call so we can later send back the
             // appropriate reply message.
             //
+            OncRpcServerStatistics stats = statistics;
+            OncRpcServerInterceptor [] chain = interceptors;
+            Object event = null;
+            boolean recording = (stats != null) || (chain.length != 0)
+                                || OncRpcServerFlightRecorder.serverCallEnabled();
+            long bytesReceived = 0;
+            long bytesSent = 0;
             try {
+                if ( recording ) {
+                    bytesReceived = receivingXdr.getBytesReceived();
+                    bytesSent = sendingXdr.getBytesSent();
+                }
+                recordStarted = 0;
+                idleSince = System.currentTimeMillis();
                 socket.setSoTimeout(0);
                 pendingDecoding = true;
+                //
+                // The record deadline and the transmission timeout start as
+                // soon as the fragment header has been received, see
+                // startRecord().
+                //
                 receivingXdr.beginDecoding();
                 callInfo.peerAddress = receivingXdr.getSenderAddress();
                 callInfo.peerPort = receivingXdr.getSenderPort();
-                socket.setSoTimeout(transmissionTimeout);
+                if ( recording ) {
+                    event = OncRpcServerFlightRecorder.startServerCall();
+                }
             } catch ( IOException e ) {
                 //
                 // In case of I/O Exceptions (especially socket exceptions)
@@ -409,6 +508,9 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 close();
                 return;
             }
+            if ( recording ) {
+                callInfo.beginRecording();
+            }
             try {
                 //
                 // Pull off the ONC/RPC call header of the XDR stream.
@@ -429,8 +531,12 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 // sure we got enough information to send a matching reply
                 // message back to the caller.
                 //
+                if ( stats != null ) {
+                    stats.recordUndecodableCall();
+                }
                 if ( pendingDecoding ) {
                     pendingDecoding = false;
+                    recordStarted = 0;
                     try {
                         receivingXdr.endDecoding();
                     } catch ( IOException e2 ) {
@@ -441,6 +547,7 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 }
                 continue;
             }
+            Exception error = null;
             try {
                 //
                 // Let the dispatcher retrieve the call parameters, work on
@@ -448,11 +555,15 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 // To make it once again clear: the dispatch called has to
                 // pull off the parameters of the stream!
                 //
+                if ( chain.length != 0 ) {
+                    beforeDispatch(chain, callInfo);
+                }
                 dispatcher.dispatchOncRpcCall(callInfo,
                                               callInfo.callMessage.program,
                                               callInfo.callMessage.version,
                                               callInfo.callMessage.procedure);
             } catch ( Exception e ) {
+                error = e;
                 //
                 // In case of some other runtime exception, we report back to
                 // the caller a system error. We can not do this if we don't
@@ -469,6 +580,7 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 //
                 if ( pendingDecoding ) {
                     pendingDecoding = false;
+                    recordStarted = 0;
                     try {
                         receivingXdr.endDecoding();
                     } catch ( IOException e2 ) {
@@ -499,9 +611,236 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
                 // incoming ONC/RPC calls...
                 //
             }
+            if ( recording ) {
+                XdrTcpDecodingStream myReceivingXdr = receivingXdr;
+                XdrTcpEncodingStream mySendingXdr = sendingXdr;
+                if ( (myReceivingXdr != null) && (mySendingXdr != null) ) {
+                    callInfo.bytesIn = (int) (myReceivingXdr.getBytesReceived()
+                                              - bytesReceived);
+                    callInfo.bytesOut = (int) (mySendingXdr.getBytesSent()
+                                               - bytesSent);
+                    if ( event != null ) {
+                        OncRpcServerFlightRecorder.completeServerCall(event, callInfo,
+                                                                      error);
+                    }
+                    if ( stats != null ) {
+                        stats.recordCall(callInfo);
+                    }
+                    if ( chain.length != 0 ) {
+                        afterDispatch(chain, callInfo, error);
+                    }
+                }
+            }
         }
     }
 
+    /**
+     * The workhorse reading incoming requests when calls are dispatched by
+     * an executor. This handler thread only reads complete call records,
+     * which are then decoded, dispatched and answered by the executor. At
+     * most <code>maximumInFlightCalls</code> calls are handed over to the
+     * executor at the same time; when this limit is reached, the handler
+     * thread stops reading until one of the calls has been completed.
+     */
+    private void _listenPipelined() {
+        for ( ;; ) {
+            //
+            // Wait for a free slot before reading the next call, so a
+            // client can not flood us with calls.
+            //
+            inFlightLock.lock();
+            try {
+                while ( inFlightCalls >= maximumInFlightCalls ) {
+                    callCompleted.awaitUninterruptibly();
+                }
+                if ( inFlightCalls == 0 ) {
+                    idleSince = System.currentTimeMillis();
+                }
+            } finally {
+                inFlightLock.unlock();
+            }
+            PipelinedCall call;
+            try {
+                call = readCall();
+            } catch ( IOException e ) {
+                //
+                // In case of I/O Exceptions (especially socket exceptions)
+                // close the file and leave the stage. There's nothing we can
+                // do anymore.
+                //
+                close();
+                return;
+            }
+            inFlightLock.lock();
+            try {
+                ++inFlightCalls;
+            } finally {
+                inFlightLock.unlock();
+            }
+            recordStarted = 0;
+            try {
+                dispatchExecutor.execute(call);
+            } catch ( RejectedExecutionException e ) {
+                //
+                // If the executor does not accept any more work, then we
+                // fall back to dispatching the call ourselves.
+                //
+                call.run();
+            }
+        }
+    }
+
+    /**
+     * Reads the next complete record (call) from the connection, including
+     * all its fragments. The record is read into a buffer borrowed from the
+     * buffer pool, which the call hands back once it has been answered.
+     *
+     * @return Call read, ready to be dispatched.
+     *
+     * @throws IOException if an I/O exception occurs, like transmission
+     *   failures over the network, or the record marking is broken.
+     */
+    private PipelinedCall readCall()
+            throws IOException {
+        int recordLength = 0;
+        boolean lastFragment = false;
+        Socket mySocket = socket;
+        if ( mySocket == null ) {
+            throw(new IOException("connection already closed"));
+        }
+        //
+        // Wait without timeout for the next call to start, but then expect
+        // the remaining data to arrive within the transmission timeout.
+        //
+        mySocket.setSoTimeout(0);
+        int fragmentHeader = recordStream.readInt();
+        startRecord();
+        //
+        // Small calls only need a small buffer, but never trust the
+        // fragment length beyond the buffer size.
+        //
+        byte [] record = bufferPool.allocate(Math.min(fragmentHeader & 0x7FFFFFFF,
+                                                      bufferSize));
+        boolean complete = false;
+        try {
+            for ( ;; ) {
+                lastFragment = (fragmentHeader & 0x80000000) != 0;
+                int fragmentLength = fragmentHeader & 0x7FFFFFFF;
+                if ( (fragmentLength & 3) != 0 ) {
+                    throw(new IOException("ONC/RPC XDR fragment length is not a multiple of four"));
+                }
+                if ( (fragmentLength == 0) && !lastFragment ) {
+                    throw(new IOException("empty ONC/RPC XDR fragment which is not a last fragment"));
+                }
+                long totalLength = (long) recordLength + fragmentLength;
+                if ( ((maximumRecordSize > 0) && (totalLength > maximumRecordSize))
+                     || (totalLength > Integer.MAX_VALUE - 8) ) {
+                    throw(new IOException("ONC/RPC record exceeds maximum record size"));
+                }
+                //
+                // Never trust the fragment length sent by the client when
+                // allocating memory: read the fragment in chunks and only grow
+                // the record by the data which has actually arrived.
+                //
+                while ( fragmentLength > 0 ) {
+                    int chunk = fragmentLength < bufferSize ?
+                                    fragmentLength : bufferSize;
+                    if ( recordLength + chunk > record.length ) {
+                        int newLength = record.length * 2;
+                        if ( (newLength < 0) || (newLength < recordLength + chunk) ) {
+                            newLength = recordLength + chunk;
+                        }
+                        byte [] newRecord = bufferPool.allocate(newLength);
+                        System.arraycopy(record, 0, newRecord, 0, recordLength);
+                        bufferPool.release(record);
+                        record = newRecord;
+                    }
+                    recordStream.readFully(record, recordLength, chunk);
+                    recordLength += chunk;
+                    recordBytesReceived += chunk;
+                    fragmentLength -= chunk;
+                }
+                if ( lastFragment ) {
+                    break;
+                }
+                fragmentHeader = recordStream.readInt();
+            }
+            PipelinedCall call = new PipelinedCall(record, recordLength);
+            complete = true;
+            return call;
+        } finally {
+            if ( !complete ) {
+                bufferPool.release(record);
+            }
+        }
+    }
+
+    /**
+     * Starts the record deadline and the transmission timeout for the call
+     * record whose fragment header has just been received. The remaining
+     * data of the record must then arrive in time, even if the client
+     * stalls before the call header is complete.
+     *
+     * @throws IOException if the connection has already been closed or
+     *   the timeout can not be set.
+     */
+    private void startRecord()
+            throws IOException {
+        Socket mySocket = socket;
+        if ( mySocket == null ) {
+            throw(new IOException("connection already closed"));
+        }
+        recordStarted = System.currentTimeMillis();
+        idleSince = 0;
+        mySocket.setSoTimeout(transmissionTimeout);
+    }
+
+    /**
+     * Checks whether this connection should be closed by the listening
+     * transport, either because it has been idle for too long or because
+     * the client takes too long to send a call record. A connection is only
+     * idle if it neither receives a call nor handles calls received before.
+     *
+     * @param now Current time in milliseconds.
+     * @param idleTimeout Idle timeout in milliseconds or zero if idle
+     *   connections are kept open.
+     * @param recordTimeout Time in milliseconds a client has to send a
+     *   complete call record or zero if not limited.
+     *
+     * @return <code>true</code> if the connection has expired.
+     */
+    boolean isExpired(long now, int idleTimeout, int recordTimeout) {
+        long started = recordStarted;
+        if ( started != 0 ) {
+            return (recordTimeout > 0) && (now - started > recordTimeout);
+        }
+        long idle = idleSince;
+        return (idleTimeout > 0) && (idle != 0) && (inFlightCalls == 0)
+               && (now - idle > idleTimeout);
+    }
+
+    /**
+     * Returns a description of this connection, as shown by the listening
+     * transport through JMX.
+     *
+     * @return Description of connection.
+     */
+    OncRpcConnectionInfo getConnectionInfo() {
+        XdrTcpDecodingStream myReceivingXdr = receivingXdr;
+        XdrTcpEncodingStream mySendingXdr = sendingXdr;
+        long bytesReceived = recordBytesReceived;
+        long bytesSent = 0;
+        if ( myReceivingXdr != null ) {
+            bytesReceived += myReceivingXdr.getBytesReceived();
+        }
+        if ( mySendingXdr != null ) {
+            bytesSent = mySendingXdr.getBytesSent();
+        }
+        return new OncRpcConnectionInfo(peerAddress.getHostAddress(), peerPort,
+                                        bytesReceived, bytesSent,
+                                        System.currentTimeMillis() - acceptTime);
+    }
+
 	/**
 	 * Set the character encoding for (de-)serializing strings.
 	 *
@@ -529,6 +868,39 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
      */
     private Socket socket;
 
+    /**
+     * Address of the client at the other end of the connection.
+     */
+    private InetAddress peerAddress;
+
+    /**
+     * Port number of the client at the other end of the connection.
+     */
+    private int peerPort;
+
+    /**
+     * Time when the connection has been accepted, in milliseconds.
+     */
+    private long acceptTime;
+
+    /**
+     * Number of bytes received within complete call records read for
+     * dispatching by the executor.
+     */
+    private volatile long recordBytesReceived;
+
+    /**
+     * Time when receiving the current call record started, in milliseconds,
+     * or zero if no call record is being received.
+     */
+    private volatile long recordStarted;
+
+    /**
+     * Time since when the connection has been idle, in milliseconds, or
+     * zero if a call is being received or dispatched.
+     */
+    private volatile long idleSince;
+
     /**
      * Socket helper object supplying missing methods for JDK&nbsp;1.1
      * backwards compatibility. So much for compile once, does not run
@@ -574,6 +946,387 @@ public class OncRpcTcpConnectionServerTransport extends OncRpcServerTransport {
      */
     protected int transmissionTimeout;
 
+    /**
+     * Executor dispatching the calls received or <code>null</code> if calls
+     * are dispatched sequentially by the handler thread.
+     */
+    private Executor dispatchExecutor;
+
+    /**
+     * Maximum number of calls handed over to the executor at the same time.
+     */
+    private int maximumInFlightCalls;
+
+    /**
+     * Maximum size of records accepted or zero if the record size is not
+     * limited.
+     */
+    private int maximumRecordSize;
+
+    /**
+     * Size of the buffers used when receiving and sending, which is also
+     * the size of the chunks call records are read in.
+     */
+    private int bufferSize;
+
+    /**
+     * Number of calls handed over to the executor but not yet completed.
+     */
+    private volatile int inFlightCalls = 0;
+
+    /**
+     * Lock guarding <code>inFlightCalls</code>.
+     */
+    private ReentrantLock inFlightLock = new ReentrantLock();
+
+    /**
+     * Condition used to signal the handler thread when calls have been
+     * completed.
+     */
+    private Condition callCompleted = inFlightLock.newCondition();
+
+    /**
+     * Lock serializing the replies of calls dispatched by the executor onto
+     * the connection. It is held from beginning to end of encoding a reply.
+     */
+    private ReentrantLock sendLock = new ReentrantLock();
+
+    /**
+     * Buffered stream used to read complete call records when dispatching
+     * calls by an executor.
+     */
+    private DataInputStream recordStream;
+
+    /**
+     * Pool the buffers of call records are borrowed from when dispatching
+     * calls by an executor.
+     */
+    private XdrBufferPool bufferPool = XdrBufferPool.getDefault();
+
+    /**
+     * Instances of class <code>PipelinedCall</code> represent a single call
+     * read completely from the connection and waiting to be dispatched by
+     * the executor. Each call has its own decoding XDR stream, whereas the
+     * replies of all calls are encoded using the connection's encoding XDR
+     * stream while holding the send lock.
+     */
+    private class PipelinedCall extends OncRpcServerTransport implements Runnable {
+
+        /**
+         * Create a new call from a completely received record.
+         *
+         * @param record Buffer containing the call record.
+         * @param recordLength Length of the call record.
+         */
+        public PipelinedCall(byte [] record, int recordLength) {
+            super(OncRpcTcpConnectionServerTransport.this.dispatcher,
+                  OncRpcTcpConnectionServerTransport.this.port,
+                  OncRpcTcpConnectionServerTransport.this.info);
+            this.record = record;
+            callXdr = new XdrBufferDecodingStream(record, recordLength);
+            callXdr.setCharacterEncoding(
+                OncRpcTcpConnectionServerTransport.this.getCharacterEncoding());
+            callInfo = new OncRpcCallInformation(this);
+            statistics = OncRpcTcpConnectionServerTransport.this.statistics;
+            interceptors = OncRpcTcpConnectionServerTransport.this.interceptors;
+            this.recordLength = recordLength;
+            event = OncRpcServerFlightRecorder.startServerCall();
+            if ( event != null ) {
+                queuedTime = System.nanoTime();
+            }
+        }
+
+        /**
+         * Decodes, dispatches and answers this call.
+         */
+        public void run() {
+            try {
+                Socket mySocket = socket;
+                if ( mySocket == null ) {
+                    return;
+                }
+                OncRpcServerStatistics stats = statistics;
+                OncRpcServerInterceptor [] chain = interceptors;
+                if ( event != null ) {
+                    OncRpcServerFlightRecorder.serverCallQueued(event,
+                        System.nanoTime() - queuedTime);
+                }
+                try {
+                    pendingDecoding = true;
+                    callXdr.beginDecoding();
+                    if ( (stats != null) || (chain.length != 0)
+                         || (event != null) ) {
+                        callInfo.beginRecording();
+                        callInfo.bytesIn = recordLength;
+                    }
+                    callInfo.peerAddress = mySocket.getInetAddress();
+                    callInfo.peerPort = mySocket.getPort();
+                    callInfo.callMessage.xdrDecode(callXdr);
+                } catch ( IOException e ) {
+                    return;
+                } catch ( OncRpcException e ) {
+                    //
+                    // Silently ignore this call, as we're not sure we got
+                    // enough information to send a matching reply message
+                    // back to the caller.
+                    //
+                    if ( stats != null ) {
+                        stats.recordUndecodableCall();
+                    }
+                    return;
+                }
+                Exception error = null;
+                try {
+                    if ( chain.length != 0 ) {
+                        beforeDispatch(chain, callInfo);
+                    }
+                    dispatcher.dispatchOncRpcCall(callInfo,
+                                                  callInfo.callMessage.program,
+                                                  callInfo.callMessage.version,
+                                                  callInfo.callMessage.procedure);
+                } catch ( Exception e ) {
+                    error = e;
+                    //
+                    // If we already started sending the reply, then all we
+                    // can do is to drop the connection. Otherwise we report
+                    // back the error.
+                    //
+                    if ( pendingEncoding ) {
+                        OncRpcTcpConnectionServerTransport.this.close();
+                        return;
+                    }
+                    pendingDecoding = false;
+                    try {
+                        if ( e instanceof OncRpcAuthenticationException ) {
+                            callInfo.failAuthenticationFailed(
+                                ((OncRpcAuthenticationException) e).getAuthStatus());
+                        } else {
+                            callInfo.failSystemError();
+                        }
+                    } catch ( IOException e2 ) {
+                        OncRpcTcpConnectionServerTransport.this.close();
+                    } catch ( OncRpcException e2 ) {
+                    }
+                }
+                if ( event != null ) {
+                    OncRpcServerFlightRecorder.completeServerCall(event, callInfo,
+                                                                  error);
+                }
+                if ( stats != null ) {
+                    stats.recordCall(callInfo);
+                }
+                if ( chain.length != 0 ) {
+                    afterDispatch(chain, callInfo, error);
+                }
+            } finally {
+                //
+                // Make sure that other calls can send their replies, then
+                // signal the handler thread that there is room for another
+                // call.
+                //
+                if ( sendLock.isHeldByCurrentThread() ) {
+                    sendLock.unlock();
+                }
+                bufferPool.release(record);
+                inFlightLock.lock();
+                try {
+                    if ( --inFlightCalls == 0 ) {
+                        idleSince = System.currentTimeMillis();
+                    }
+                    callCompleted.signal();
+                } finally {
+                    inFlightLock.unlock();
+                }
+            }
+        }
+
+        /**
+         * Do not call.
+         *
+         * @throws Error because this method must not be called for an
+         * individual call.
+         */
+        public void register()
+               throws OncRpcException {
+            throw(new Error("PipelinedCall.register() is abstract "
+                           +"and can not be called."));
+        }
+
+        /**
+         * Does nothing, as an individual call does not own any resources.
+         */
+        public void close() {
+        }
+
+        /**
+         * Do not call.
+         *
+         * @throws Error because this method must not be called for an
+         * individual call.
+         */
+        public void listen() {
+            throw(new Error("PipelinedCall.listen() is abstract "
+                           +"and can not be called."));
+        }
+
+        /**
+         * Set the character encoding for deserializing strings of this call.
+         *
+         * @param characterEncoding the encoding to use for deserializing strings.
+         *   If <code>null</code>, the system's default encoding is to be used.
+         */
+        public void setCharacterEncoding(String characterEncoding) {
+            callXdr.setCharacterEncoding(characterEncoding);
+        }
+
+        /**
+         * Get the character encoding for deserializing strings of this call.
+         *
+         * @return the encoding currently used for deserializing strings.
+         *   If <code>null</code>, then the system's default encoding is used.
+         */
+        public String getCharacterEncoding() {
+            return callXdr.getCharacterEncoding();
+        }
+
+        /**
+         * Retrieves the parameters sent within this ONC/RPC call message.
+         */
+        protected void retrieveCall(XdrAble call)
+                  throws OncRpcException, IOException {
+            call.xdrDecode(callXdr);
+            endDecoding();
+        }
+
+        /**
+         * Returns XDR stream which can be used for deserializing the
+         * parameters of this ONC/RPC call.
+         */
+        protected XdrDecodingStream getXdrDecodingStream() {
+            return callXdr;
+        }
+
+        /**
+         * Finishes call parameter deserialization.
+         */
+        protected void endDecoding()
+                  throws OncRpcException, IOException {
+            if ( pendingDecoding ) {
+                pendingDecoding = false;
+                callXdr.endDecoding();
+            }
+        }
+
+        /**
+         * Returns XDR stream which can be used for serializing the reply
+         * to this ONC/RPC call.
+         */
+        protected XdrEncodingStream getXdrEncodingStream() {
+            return sendingXdr;
+        }
+
+        /**
+         * Begins the sending phase for the reply to this call. This
+         * acquires the send lock of the connection, which is held until
+         * the reply has been completely sent.
+         */
+        protected void beginEncoding(OncRpcCallInformation callInfo,
+                                     OncRpcServerReplyMessage state)
+                  throws OncRpcException, IOException {
+            endDecoding();
+            sendLock.lock();
+            XdrTcpEncodingStream xdr = sendingXdr;
+            if ( xdr == null ) {
+                sendLock.unlock();
+                throw(new IOException("connection already closed"));
+            }
+            pendingEncoding = true;
+            bytesSent = xdr.getBytesSent();
+            xdr.beginEncoding(callInfo.peerAddress, callInfo.peerPort);
+            state.xdrEncode(xdr);
+        }
+
+        /**
+         * Finishes encoding the reply to this call, sends it and releases
+         * the send lock of the connection.
+         */
+        protected void endEncoding()
+                  throws OncRpcException, IOException {
+            XdrTcpEncodingStream xdr = sendingXdr;
+            if ( xdr == null ) {
+                throw(new IOException("connection already closed"));
+            }
+            xdr.endEncoding();
+            callInfo.bytesOut = (int) (xdr.getBytesSent() - bytesSent);
+            pendingEncoding = false;
+            sendLock.unlock();
+        }
+
+        /**
+         * Send back an ONC/RPC reply to the caller of this call.
+         */
+        protected void reply(OncRpcCallInformation callInfo,
+                             OncRpcServerReplyMessage state, XdrAble reply)
+                  throws OncRpcException, IOException {
+            beginEncoding(callInfo, state);
+            if ( reply != null ) {
+                reply.xdrEncode(sendingXdr);
+            }
+            endEncoding();
+        }
+
+        /**
+         * Buffer borrowed from the buffer pool, which contains the record
+         * of this call.
+         */
+        private byte [] record;
+
+        /**
+         * XDR decoding stream working on the record of this call.
+         */
+        private XdrBufferDecodingStream callXdr;
+
+        /**
+         * Call information handed over to the dispatcher.
+         */
+        private OncRpcCallInformation callInfo;
+
+        /**
+         * Length of the record of this call.
+         */
+        private int recordLength;
+
+        /**
+         * Flight recorder event of this call or <code>null</code> if the
+         * event is not enabled.
+         */
+        private Object event;
+
+        /**
+         * Time when the call was handed over to the executor, in
+         * nanoseconds.
+         */
+        private long queuedTime;
+
+        /**
+         * Number of bytes sent by the connection's encoding XDR stream
+         * before the reply to this call.
+         */
+        private long bytesSent;
+
+        /**
+         * Indicates that decoding of this call has not yet been finished.
+         */
+        private boolean pendingDecoding = false;
+
+        /**
+         * Indicates that sending the reply to this call has been started
+         * but not yet finished.
+         */
+        private boolean pendingEncoding = false;
+
+    }
+
 }
 
 // End of OncRpcTcpConnectionServerTransport.java
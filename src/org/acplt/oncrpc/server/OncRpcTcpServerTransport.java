@@ -29,6 +29,12 @@ import java.io.IOException;
 import java.net.Socket;
 import java.net.ServerSocket;
 import java.net.InetAddress;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Instances of class <code>OncRpcTcpServerTransport</code> encapsulate
@@ -42,7 +48,8 @@ import java.net.InetAddress;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class OncRpcTcpServerTransport extends OncRpcServerTransport {
+public class OncRpcTcpServerTransport extends OncRpcServerTransport
+                                      implements OncRpcTcpServerTransportMXBean {
 
     /**
      * Create a new instance of a <code>OncRpcTcpServerTransport</code> which
@@ -125,7 +132,62 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
                                     OncRpcServerTransportRegistrationInfo [] info,
                                     int bufferSize)
            throws OncRpcException, IOException {
-        super(dispatcher, port, info);
+        this(dispatcher, bindAddr, port, info, bufferSize, 0);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcTcpServerTransport</code> which
+     * encapsulates TCP/IP-based XDR streams of an ONC/RPC server. This
+     * particular server transport only waits for incoming connection requests
+     * and then creates {@link OncRpcTcpConnectionServerTransport} server transports
+     * to handle individual connections.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param bindAddr The local Internet Address the server will bind to.
+     * @param port Number of port where the server will wait for incoming
+     *   calls.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP. The fragments built up to
+     *   form ONC/RPC call and reply messages.
+     * @param backlog Maximum number of connection requests queued by the
+     *   operating system until they are accepted, or zero for the system
+     *   default. Connection requests arriving when the queue is full are
+     *   refused.
+     */
+    public OncRpcTcpServerTransport(OncRpcDispatchable dispatcher,
+                                    InetAddress bindAddr,
+                                    int port,
+                                    OncRpcServerTransportRegistrationInfo [] info,
+                                    int bufferSize,
+                                    int backlog)
+           throws OncRpcException, IOException {
+        this(dispatcher, new ServerSocket(port, backlog, bindAddr), info,
+             bufferSize);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcTcpServerTransport</code> which
+     * accepts connections on an already bound TCP/IP server socket. This
+     * allows the socket to be set up with options which have to be set
+     * before binding.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param socket Bound TCP/IP server socket.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer used when receiving and sending
+     *   chunks of XDR fragments over TCP/IP.
+     */
+    OncRpcTcpServerTransport(OncRpcDispatchable dispatcher,
+                             ServerSocket socket,
+                             OncRpcServerTransportRegistrationInfo [] info,
+                             int bufferSize)
+           throws OncRpcException, IOException {
+        super(dispatcher, socket.getLocalPort(), info);
         //
         // Make sure the buffer is large enough and resize system buffers
         // accordingly, if possible.
@@ -134,10 +196,7 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
             bufferSize = 1024;
         }
         this.bufferSize = bufferSize;
-        socket = new ServerSocket(port, 0, bindAddr);
-        if ( port == 0 ) {
-            this.port = socket.getLocalPort();
-        }
+        this.socket = socket;
     }
 
     /**
@@ -174,15 +233,21 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
             }
         }
         //
-        // Now close all per-connection transports currently open...
+        // Wake up the listener thread in case it is waiting for connections
+        // to be closed...
         //
-        synchronized ( openTransports ) {
-            while ( openTransports.size() > 0 ) {
-                OncRpcTcpConnectionServerTransport transport =
-                    (OncRpcTcpConnectionServerTransport)
-                        openTransports.removeFirst();
-                transport.close();
-            }
+        connectionLock.lock();
+        try {
+            connectionClosed.signal();
+        } finally {
+            connectionLock.unlock();
+        }
+        //
+        // ...and close all per-connection transports currently open.
+        //
+        Iterator transports = openTransports.iterator();
+        while ( transports.hasNext() ) {
+            ((OncRpcTcpConnectionServerTransport) transports.next()).close();
         }
     }
 
@@ -194,11 +259,131 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
      *   open transports for this listening transport.
      */
     protected void removeTransport(OncRpcTcpConnectionServerTransport transport) {
-        synchronized ( openTransports ) {
-            openTransports.remove((Object)transport);
+        if ( openTransports.remove(transport) && (maximumConnections > 0) ) {
+            connectionLock.lock();
+            try {
+                connectionClosed.signal();
+            } finally {
+                connectionLock.unlock();
+            }
         }
     }
 
+    /**
+     * Waits until there is room for accepting another connection if the
+     * number of connections is limited.
+     *
+     * @return <code>false</code> if this transport has been closed while
+     *   waiting.
+     */
+    private boolean awaitConnectionSlot() {
+        if ( maximumConnections <= 0 ) {
+            return true;
+        }
+        connectionLock.lock();
+        try {
+            for ( ;; ) {
+                if ( socket == null ) {
+                    return false;
+                }
+                int limit = maximumConnections;
+                if ( (limit <= 0) || (openTransports.size() < limit) ) {
+                    return true;
+                }
+                connectionClosed.awaitUninterruptibly();
+            }
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    /**
+     * The reaper thread's workhorse closing connections which have been idle
+     * for too long or whose clients take too long to send call records.
+     */
+    private void reapConnections() {
+        for ( ;; ) {
+            int idle = idleTimeout;
+            int record = recordTimeout;
+            //
+            // Check often enough to close connections no later than about
+            // half a timeout after they expired, but at least every second
+            // in case the timeouts are changed.
+            //
+            long interval = 1000;
+            if ( (idle > 0) && (idle / 2 < interval) ) {
+                interval = idle / 2;
+            }
+            if ( (record > 0) && (record / 2 < interval) ) {
+                interval = record / 2;
+            }
+            if ( interval < 10 ) {
+                interval = 10;
+            }
+            try {
+                Thread.sleep(interval);
+            } catch ( InterruptedException e ) {
+            }
+            if ( socket == null ) {
+                break;
+            }
+            long now = System.currentTimeMillis();
+            Iterator transports = openTransports.iterator();
+            while ( transports.hasNext() ) {
+                OncRpcTcpConnectionServerTransport transport =
+                    (OncRpcTcpConnectionServerTransport) transports.next();
+                if ( transport.isExpired(now, idle, record) ) {
+                    transport.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of connections currently open.
+     *
+     * @return Number of open connections.
+     */
+    public int getOpenConnections() {
+        return openTransports.size();
+    }
+
+    /**
+     * Returns the number of connections accepted so far.
+     *
+     * @return Number of accepted connections.
+     */
+    public long getAcceptedConnections() {
+        return acceptedConnections.getCount();
+    }
+
+    /**
+     * Returns the rate at which connections have been accepted recently,
+     * averaged over about one minute.
+     *
+     * @return Accepted connections per second.
+     */
+    public double getAcceptRate() {
+        return acceptedConnections.getRate();
+    }
+
+    /**
+     * Returns descriptions of the connections currently open.
+     *
+     * @return Array of connection descriptions.
+     */
+    public OncRpcConnectionInfo [] getConnections() {
+        Object [] transports = openTransports.toArray();
+        OncRpcConnectionInfo [] connections =
+            new OncRpcConnectionInfo[transports.length];
+        for ( int idx = 0; idx < transports.length; ++idx ) {
+            connections[idx] =
+                ((OncRpcTcpConnectionServerTransport) transports[idx])
+                    .getConnectionInfo();
+        }
+        return connections;
+    }
+
     /**
      * Register the TCP/IP port where this server transport waits for incoming
      * requests with the ONC/RPC portmapper.
@@ -325,18 +510,28 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
         // Create a new (daemon) thread which will handle incoming connection
         // requests.
         //
-        Thread listenThread = new Thread("TCP server transport listener thread") {
+        Thread listenThread = newThread(new Runnable() {
             public void run() {
                 for ( ;; ) {
                     try {
                         //
                         // Now wait for (new) connection requests to come in.
                         //
+                        //
+                        // If the number of connections is limited, then
+                        // stop accepting new ones as long as the limit is
+                        // reached. Connection requests then queue up in
+                        // the backlog of the socket.
+                        //
+                        if ( !awaitConnectionSlot() ) {
+                            break;
+                        }
                         ServerSocket myServerSocket = socket;
                         if ( myServerSocket == null ) {
                             break;
                         }
                         Socket newSocket = myServerSocket.accept();
+                        acceptedConnections.mark();
                         OncRpcTcpConnectionServerTransport transport =
                             new OncRpcTcpConnectionServerTransport(
                                 dispatcher,
@@ -345,9 +540,7 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
                                 bufferSize,
                                 OncRpcTcpServerTransport.this,
                                 transmissionTimeout);
-                        synchronized ( openTransports ) {
-                            openTransports.add((Object)transport);
-                        }
+                        openTransports.add(transport);
                         //
                         // Let the newly created transport object handle this
                         // connection. Note that it will create its own
@@ -371,13 +564,24 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
                     }
                 }
             }
-        };
+        }, "TCP server transport listener thread");
         //
-        // Now make the new handling thread a deamon and start it, so it
+        // Now start the new handling thread, so it
         // sits there waiting for incoming TCP/IP connection requests.
         //
-        listenThread.setDaemon(true);
         listenThread.start();
+        //
+        // If connections expire, then start another thread closing them
+        // when their time has come.
+        //
+        if ( (idleTimeout > 0) || (recordTimeout > 0) ) {
+            Thread reaperThread = newThread(new Runnable() {
+                public void run() {
+                    reapConnections();
+                }
+            }, "TCP server transport reaper thread");
+            reaperThread.start();
+        }
     }
 
     /**
@@ -405,6 +609,175 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
         return transmissionTimeout;
     }
 
+    /**
+     * Set the executor used for dispatching ONC/RPC calls. If an executor
+     * is set, then the connections accepted afterwards keep on reading
+     * calls while earlier calls are still being dispatched by the executor.
+     * Replies are then sent back in the order the calls complete, so clients
+     * have to match replies by their transaction id. If <code>null</code>,
+     * every connection dispatches one call after the other in its own
+     * thread, which is the default.
+     *
+     * <p>The executor is not shut down when this transport is closed.
+     *
+     * @param executor Executor for dispatching calls or <code>null</code>.
+     */
+    public void setDispatchExecutor(Executor executor) {
+        dispatchExecutor = executor;
+    }
+
+    /**
+     * Retrieve the executor used for dispatching ONC/RPC calls.
+     *
+     * @return Executor for dispatching calls or <code>null</code> if calls
+     *   are dispatched sequentially by the connection threads.
+     */
+    public Executor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * Set the maximum number of calls per connection which can be
+     * dispatched at the same time when using a dispatch executor. When this
+     * limit is reached, a connection stops reading further calls until one
+     * of its calls has been completed. The limit must be > 0.
+     *
+     * @param maximumInFlightCalls Maximum number of calls in flight per
+     *   connection.
+     */
+    public void setMaximumInFlightCalls(int maximumInFlightCalls) {
+        if ( maximumInFlightCalls <= 0 ) {
+            throw(new IllegalArgumentException("maximum number of in-flight calls must be > 0"));
+        }
+        this.maximumInFlightCalls = maximumInFlightCalls;
+    }
+
+    /**
+     * Retrieve the maximum number of calls per connection which can be
+     * dispatched at the same time when using a dispatch executor.
+     *
+     * @return Maximum number of calls in flight per connection.
+     */
+    public int getMaximumInFlightCalls() {
+        return maximumInFlightCalls;
+    }
+
+    /**
+     * Set the maximum size of records (calls) accepted from clients. If a
+     * client sends a larger record, its connection is closed as soon as
+     * the fragment headers reveal the record size, before the record is
+     * read completely. This limit applies to connections accepted
+     * afterwards. It defaults to {@link #DEFAULT_MAXIMUM_RECORD_SIZE}.
+     *
+     * @param maximumRecordSize Maximum record size in bytes or zero if the
+     *   record size is not limited.
+     */
+    public void setMaximumRecordSize(int maximumRecordSize) {
+        if ( maximumRecordSize < 0 ) {
+            throw(new IllegalArgumentException("maximum record size must be >= 0"));
+        }
+        this.maximumRecordSize = maximumRecordSize;
+    }
+
+    /**
+     * Retrieve the maximum size of records (calls) accepted from clients.
+     *
+     * @return Maximum record size in bytes or zero if the record size is
+     *   not limited.
+     */
+    public int getMaximumRecordSize() {
+        return maximumRecordSize;
+    }
+
+    /**
+     * Set the maximum number of connections open at the same time. When
+     * this limit is reached, no further connections are accepted until
+     * one of the open connections has been closed, so new connection
+     * requests wait in the backlog of the listening socket. The limit does
+     * not affect connections already open.
+     *
+     * @param maximumConnections Maximum number of connections or zero if
+     *   the number of connections is not limited.
+     */
+    public void setMaximumConnections(int maximumConnections) {
+        if ( maximumConnections < 0 ) {
+            throw(new IllegalArgumentException("maximum number of connections must be >= 0"));
+        }
+        this.maximumConnections = maximumConnections;
+        connectionLock.lock();
+        try {
+            connectionClosed.signal();
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    /**
+     * Retrieve the maximum number of connections open at the same time.
+     *
+     * @return Maximum number of connections or zero if the number of
+     *   connections is not limited.
+     */
+    public int getMaximumConnections() {
+        return maximumConnections;
+    }
+
+    /**
+     * Set the time after which idle connections are closed. A connection
+     * is idle as long as it neither receives a call nor handles calls
+     * received before. Closing is done by a reaper thread, which is
+     * started when the transport starts listening, so either this timeout
+     * or the record timeout has to be set before.
+     *
+     * @param milliseconds Idle timeout in milliseconds or zero if idle
+     *   connections are kept open.
+     */
+    public void setIdleTimeout(int milliseconds) {
+        if ( milliseconds < 0 ) {
+            throw(new IllegalArgumentException("idle timeout must be >= 0"));
+        }
+        idleTimeout = milliseconds;
+    }
+
+    /**
+     * Retrieve the time after which idle connections are closed.
+     *
+     * @return Idle timeout in milliseconds or zero if idle connections are
+     *   kept open.
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Set the time a client has to send a complete call record, starting
+     * when the first fragment header of the record has been received. If
+     * the record is not complete in time, then the connection is closed.
+     * Other than the transmission timeout, which only limits how long a
+     * single read may block, this keeps clients from tying up connections
+     * by trickling in a call a few bytes at a time. The same reaper thread
+     * as for the idle timeout is used, so this timeout has to be set before
+     * the transport starts listening.
+     *
+     * @param milliseconds Record timeout in milliseconds or zero if not
+     *   limited.
+     */
+    public void setRecordTimeout(int milliseconds) {
+        if ( milliseconds < 0 ) {
+            throw(new IllegalArgumentException("record timeout must be >= 0"));
+        }
+        recordTimeout = milliseconds;
+    }
+
+    /**
+     * Retrieve the time a client has to send a complete call record.
+     *
+     * @return Record timeout in milliseconds or zero if not limited.
+     */
+    public int getRecordTimeout() {
+        return recordTimeout;
+    }
+
 	/**
 	 * Set the character encoding for (de-)serializing strings.
 	 *
@@ -425,11 +798,18 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
 		return characterEncoding;
 	}
 
+    /**
+     * Default maximum size of records (calls) accepted from clients, which
+     * is 4MB. Servers expecting larger calls need to raise the limit using
+     * {@link #setMaximumRecordSize}.
+     */
+    public static final int DEFAULT_MAXIMUM_RECORD_SIZE = 4 * 1024 * 1024;
+
     /**
      * TCP socket used for stream-based communication with ONC/RPC
      * clients.
      */
-    private ServerSocket socket;
+    private volatile ServerSocket socket;
 
     /**
      * Size of send/receive buffers to use when encoding/decoding XDR data.
@@ -437,9 +817,27 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
     private int bufferSize;
 
     /**
-     * Collection containing currently open transports.
+     * Set containing currently open transports. Connections come and go
+     * without contending for a lock with each other or with the listener
+     * thread.
      */
-    private TransportList openTransports = new TransportList();
+    private Set openTransports = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lock used by the listener thread to wait for connections to be
+     * closed when the maximum number of connections has been reached.
+     */
+    private ReentrantLock connectionLock = new ReentrantLock();
+
+    /**
+     * Condition signalled when a connection has been closed.
+     */
+    private Condition connectionClosed = connectionLock.newCondition();
+
+    /**
+     * Counts the connections accepted.
+     */
+    private OncRpcRateMeter acceptedConnections = new OncRpcRateMeter();
 
     /**
      * Timeout during the phase where data is received within calls, or data is
@@ -453,143 +851,41 @@ public class OncRpcTcpServerTransport extends OncRpcServerTransport {
 	 */
 	private String characterEncoding = null;
 
-
     /**
-     * Minumum implementation of a double linked list which notices which
-     * transports are currently open and have to be shut down when this
-     * listening transport is shut down. The only reason why we have this
-     * code here instead of using java.util.LinkedList is due to JDK&nbsp;1.1
-     * compatibility.
-     *
-     * <p>Note that the methods are not synchronized as we leave this up
-     * to the caller, who can thus optimize access during critical sections.
+     * Executor dispatching ONC/RPC calls or <code>null</code> if the
+     * connections dispatch their calls sequentially.
      */
-    private class TransportList {
-
-        /**
-         * Create a new instance of a list of open transports.
-         */
-        public TransportList() {
-            //
-            // Link header node with itself, so it is its own successor
-            // and predecessor. Using a header node excuses us from checking
-            // for the special cases of first and last node (or both at
-            // the same time).
-            //
-            head.next = head;
-            head.prev = head;
-        }
-
-        /**
-         * Add new transport to list of open transports. The new transport
-         * is always added immediately after the head of the linked list.
-         */
-        public void add(Object o) {
-            Node node = new Node(o);
-            node.next = head.next;
-            head.next = node;
-            node.prev = head;
-            node.next.prev = node;
-            ++size;
-        }
-
-        /**
-         * Remove given transport from list of open transports.
-         */
-        public boolean remove(Object o) {
-            Node node = head.next;
-            while ( node != head ) {
-                if ( node.item == o ) {
-                    node.prev.next = node.next;
-                    node.next.prev = node.prev;
-                    --size;
-                    return true;
-                }
-                node = node.next;
-            }
-            return false;
-        }
+    private Executor dispatchExecutor = null;
 
-        /**
-         * Removes and returns the first open transport from list.
-         */
-        public Object removeFirst() {
-            //
-            // Do not remove the header node.
-            //
-            if ( size == 0 ) {
-                throw(new java.util.NoSuchElementException());
-            }
-            Node node = head.next;
-            head.next = node.next;
-            node.next.prev = head;
-            --size;
-            return node.item;
-        }
-
-        /**
-         * Returns the number of (open) transports in this list.
-         *
-         * @return the number of (open) transports.
-         */
-        public int size() {
-            return size;
-        }
+    /**
+     * Maximum number of calls per connection dispatched at the same time
+     * when using a dispatch executor.
+     */
+    private int maximumInFlightCalls = 16;
 
-        /**
-         * Head node for list of open transports which does not represent
-         * an open transport but instead excuses us of dealing with all
-         * the special cases of real nodes at the begin or end of the list.
-         */
-        private Node head = new Node(null);
-
-        /**
-         * Number of (real) open transports currently registered in this
-         * list.
-         */
-        private int size = 0;
-
-
-        /**
-         * Node class referencing an individual open transport and holding
-         * references to the previous and next open transports.
-         */
-        private class Node {
-
-            /**
-             * Create a new instance of a node object and let it reference
-             * an open transport. The creator of this object is then
-             * responsible for adding this node to the circular list itself.
-             */
-            public Node(Object item) {
-                this.item = item;
-            }
+    /**
+     * Maximum size of records accepted from clients or zero if the record
+     * size is not limited.
+     */
+    private int maximumRecordSize = DEFAULT_MAXIMUM_RECORD_SIZE;
 
-            /**
-             * Next item node (in other words: next open transport)
-             * in the list. This will never be <code>null</code> for the
-             * first item, but instead reference the last item. Thus, the
-             * list is circular.
-             */
-            Node next;
-
-            /**
-             * Previous item node (in other words: previous open transport)
-             * in the list. This will never be <code>null</code> for the
-             * last item, but instead reference the first item. Thus, the
-             * list is circular.
-             */
-            Node prev;
-
-            /**
-             * The item/object placed at this position in the list. This
-             * currently always references an open transport.
-             */
-            Object item;
+    /**
+     * Maximum number of connections open at the same time or zero if the
+     * number of connections is not limited.
+     */
+    private volatile int maximumConnections = 0;
 
-        }
+    /**
+     * Time in milliseconds after which idle connections are closed or zero
+     * if idle connections are kept open.
+     */
+    private volatile int idleTimeout = 0;
 
-    }
+    /**
+     * Time in milliseconds a client has to send a complete call record or
+     * zero if not limited.
+     */
+    private volatile int recordTimeout = 0;
 
 }
 
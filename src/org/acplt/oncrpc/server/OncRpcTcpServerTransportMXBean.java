@@ -0,0 +1,77 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+/**
+ * The <code>OncRpcTcpServerTransportMXBean</code> interface exposes the
+ * state of TCP/IP-based server transports through JMX. The transports of
+ * an {@link OncRpcServerStub} are registered automatically with the
+ * platform MBean server while the server is running.
+ *
+ * @see OncRpcTcpServerTransport
+ * @see OncRpcNioTcpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcTcpServerTransportMXBean {
+
+    /**
+     * Returns the port number the transport listens on for connections.
+     *
+     * @return Port number.
+     */
+    public int getPort();
+
+    /**
+     * Returns the number of connections currently open.
+     *
+     * @return Number of open connections.
+     */
+    public int getOpenConnections();
+
+    /**
+     * Returns the number of connections accepted so far.
+     *
+     * @return Number of accepted connections.
+     */
+    public long getAcceptedConnections();
+
+    /**
+     * Returns the rate at which connections have been accepted recently,
+     * averaged over about one minute.
+     *
+     * @return Accepted connections per second.
+     */
+    public double getAcceptRate();
+
+    /**
+     * Returns descriptions of the connections currently open.
+     *
+     * @return Array of connection descriptions.
+     */
+    public OncRpcConnectionInfo [] getConnections();
+
+}
+
+// End of OncRpcTcpServerTransportMXBean.java
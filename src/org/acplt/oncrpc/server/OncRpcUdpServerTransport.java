@@ -26,8 +26,11 @@ package org.acplt.oncrpc.server;
 
 import org.acplt.oncrpc.*;
 import java.io.IOException;
+import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
 
 /**
  * Instances of class <code>OncRpcUdpServerTransport</code> encapsulate
@@ -40,7 +43,8 @@ import java.net.InetAddress;
  * @version $Revision$ $Date$ $State$ $Locker$
  * @author Harald Albrecht
  */
-public class OncRpcUdpServerTransport extends OncRpcServerTransport {
+public class OncRpcUdpServerTransport extends OncRpcServerTransport
+                                      implements OncRpcUdpServerTransportMXBean {
 
    /**
      * Create a new instance of a <code>OncRpcUdpServerTransport</code> which
@@ -121,7 +125,28 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                                     OncRpcServerTransportRegistrationInfo [] info,
                                     int bufferSize)
            throws OncRpcException, IOException {
-        super(dispatcher, port, info);
+        this(dispatcher, new DatagramSocket(port, bindAddr), info, bufferSize);
+    }
+
+    /**
+     * Create a new instance of a <code>OncRpcUdpServerTransport</code> which
+     * receives calls on an already bound UDP/IP socket. This allows the
+     * socket to be set up with options which have to be set before binding.
+     *
+     * @param dispatcher Reference to interface of an object capable of
+     *   dispatching (handling) ONC/RPC calls.
+     * @param socket Bound UDP/IP socket.
+     * @param info Array of program and version number tuples of the ONC/RPC
+     *   programs and versions handled by this transport.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     */
+    OncRpcUdpServerTransport(OncRpcDispatchable dispatcher,
+                             DatagramSocket socket,
+                             OncRpcServerTransportRegistrationInfo [] info,
+                             int bufferSize)
+           throws OncRpcException, IOException {
+        super(dispatcher, socket.getLocalPort(), info);
         //
         // Make sure the buffer is large enough and resize system buffers
         // accordingly, if possible.
@@ -129,11 +154,8 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
         if ( bufferSize < 1024 ) {
             bufferSize = 1024;
         }
-        socket = new DatagramSocket(port, bindAddr);
+        this.socket = socket;
         socketHelper = new OncRpcUdpSocketHelper(socket);
-        if ( port == 0 ) {
-            this.port = socket.getLocalPort();
-        }
         if ( socketHelper.getSendBufferSize() < bufferSize ) {
             socketHelper.setSendBufferSize(bufferSize);
         }
@@ -148,6 +170,30 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
         receivingXdr = new XdrUdpDecodingStream(socket, bufferSize);
     }
 
+    /**
+     * Create a new instance of a <code>OncRpcUdpServerTransport</code> which
+     * shares the UDP/IP socket of another UDP/IP-based server transport, but
+     * uses its own XDR streams. This way, several threads can receive and
+     * handle calls on the same socket at the same time.
+     *
+     * @param transport Server transport owning the socket.
+     * @param bufferSize Size of buffer for receiving and sending UDP/IP
+     *   datagrams containing ONC/RPC call and reply messages.
+     */
+    OncRpcUdpServerTransport(OncRpcUdpServerTransport transport,
+                             int bufferSize) {
+        super(transport.dispatcher, transport.port, transport.info);
+        socket = transport.socket;
+        socketHelper = transport.socketHelper;
+        sendingXdr = new XdrUdpEncodingStream(socket, bufferSize);
+        receivingXdr = new XdrUdpDecodingStream(socket, bufferSize);
+        setCharacterEncoding(transport.getCharacterEncoding());
+        duplicateRequestCache = transport.duplicateRequestCache;
+        statistics = transport.statistics;
+        receivedDatagrams = transport.receivedDatagrams;
+        droppedDatagrams = transport.droppedDatagrams;
+    }
+
     /**
      * Close the server transport and free any resources associated with it.
      *
@@ -335,6 +381,17 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
         // Close the case. Finito.
         //
         sendingXdr.endEncoding();
+        //
+        // Remember the reply, so it can be sent again if the client
+        // retransmits the call.
+        //
+        OncRpcDuplicateRequestCache cache = duplicateRequestCache;
+        if ( (currentRequest != null) && (cache != null) ) {
+            cache.completeRequest(currentRequest,
+                                  sendingXdr.getXdrData(),
+                                  sendingXdr.getXdrLength());
+        }
+        currentRequest = null;
     }
 
     /**
@@ -378,15 +435,15 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
      * <p>Currently only one call after the other is dispatched, so no
      * multithreading is done when receiving multiple calls. Instead, later
      * calls have to wait for the current call to finish before they are
-     * handled.
+     * handled. Use {@link OncRpcPooledUdpServerTransport} to handle several
+     * calls at the same time.
      */
     public void listen() {
-        Thread listener = new Thread("UDP server transport listener thread") {
+        Thread listener = newThread(new Runnable() {
             public void run() {
                 _listen();
             }
-        };
-        listener.setDaemon(true);
+        }, "UDP server transport listener thread");
         listener.start();
     }
 
@@ -422,8 +479,19 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 // In case of ONC/RPC exceptions at this stage we're silently
                 // ignoring that there was some data coming in...
                 //
+                droppedDatagrams.incrementAndGet();
                 continue;
             }
+            receivedDatagrams.mark();
+            OncRpcServerStatistics stats = statistics;
+            OncRpcServerInterceptor [] chain = interceptors;
+            Object event = OncRpcServerFlightRecorder.startServerCall();
+            boolean recording = (stats != null) || (chain.length != 0)
+                                || (event != null);
+            if ( recording ) {
+                callInfo.beginRecording();
+                callInfo.bytesIn = receivingXdr.getXdrLength();
+            }
             try {
                 //
                 // Pull off the ONC/RPC call header of the XDR stream.
@@ -444,6 +512,10 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 // sure we got enough information to send a matching reply
                 // message back to the caller.
                 //
+                droppedDatagrams.incrementAndGet();
+                if ( stats != null ) {
+                    stats.recordUndecodableCall();
+                }
                 if ( pendingDecoding ) {
                     pendingDecoding = false;
                     try {
@@ -456,6 +528,42 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 }
                 continue;
             }
+            //
+            // If there is a duplicate request cache, check whether this is
+            // a retransmission of a call we've already seen. In this case
+            // either send the cached reply again or drop the call if it is
+            // still being worked on.
+            //
+            OncRpcDuplicateRequestCache cache = duplicateRequestCache;
+            if ( cache != null ) {
+                OncRpcDuplicateRequestCache.Entry request =
+                    new OncRpcDuplicateRequestCache.Entry(
+                        callInfo.peerAddress, callInfo.peerPort,
+                        callInfo.callMessage, argumentChecksum());
+                OncRpcDuplicateRequestCache.Entry original =
+                    cache.checkRequest(request);
+                if ( original != null ) {
+                    try {
+                        pendingDecoding = false;
+                        receivingXdr.endDecoding();
+                        byte [] reply = original.reply;
+                        if ( reply != null ) {
+                            socket.send(new DatagramPacket(reply, reply.length,
+                                                           callInfo.peerAddress,
+                                                           callInfo.peerPort));
+                        } else {
+                            droppedDatagrams.incrementAndGet();
+                        }
+                    } catch ( IOException e ) {
+                        close();
+                        return;
+                    } catch ( OncRpcException e ) {
+                    }
+                    continue;
+                }
+                currentRequest = request;
+            }
+            Exception error = null;
             try {
                 //
                 // Let the dispatcher retrieve the call parameters, work on
@@ -463,6 +571,9 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 // To make it once again clear: the dispatch called has to
                 // pull off the parameters of the stream!
                 //
+                if ( chain.length != 0 ) {
+                    beforeDispatch(chain, callInfo);
+                }
                 dispatcher.dispatchOncRpcCall(callInfo,
                                               callInfo.callMessage.program,
                                               callInfo.callMessage.version,
@@ -480,6 +591,7 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 // got stuck with an I/O exception when trying to send back
                 // an error reply.
                 //
+                error = e;
                 if ( pendingDecoding ) {
                     pendingDecoding = false;
                     try {
@@ -512,7 +624,101 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
                 // incoming ONC/RPC calls...
                 //
             }
+            if ( recording ) {
+                if ( callInfo.encodingEnd != 0 ) {
+                    callInfo.bytesOut = sendingXdr.getXdrLength();
+                }
+                if ( event != null ) {
+                    OncRpcServerFlightRecorder.completeServerCall(event, callInfo, error);
+                }
+                if ( stats != null ) {
+                    stats.recordCall(callInfo);
+                }
+                if ( chain.length != 0 ) {
+                    afterDispatch(chain, callInfo, error);
+                }
+            }
+            //
+            // If the dispatcher did not send any reply, then forget about
+            // the call, so a retransmission will be dispatched again.
+            //
+            if ( currentRequest != null ) {
+                cache.abortRequest(currentRequest);
+                currentRequest = null;
+            }
+        }
+    }
+
+    /**
+     * Calculates the checksum of the parameters of the call currently being
+     * decoded, that is, of the remaining data of the datagram following the
+     * call header.
+     *
+     * @return Checksum of the call parameters.
+     */
+    private long argumentChecksum() {
+        CRC32 crc = new CRC32();
+        int position = receivingXdr.getXdrPosition();
+        int length = receivingXdr.getXdrLength() - position;
+        if ( length > 0 ) {
+            crc.update(receivingXdr.getXdrData(), position, length);
         }
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the number of datagrams received so far.
+     *
+     * @return Number of received datagrams.
+     */
+    public long getReceivedDatagrams() {
+        return receivedDatagrams.getCount();
+    }
+
+    /**
+     * Returns the rate at which datagrams have been received recently,
+     * averaged over about one minute.
+     *
+     * @return Received datagrams per second.
+     */
+    public double getReceiveRate() {
+        return receivedDatagrams.getRate();
+    }
+
+    /**
+     * Returns the number of datagrams dropped without dispatching a call,
+     * because they could not be decoded or they were retransmissions of
+     * calls still being worked on.
+     *
+     * @return Number of dropped datagrams.
+     */
+    public long getDroppedDatagrams() {
+        return droppedDatagrams.get();
+    }
+
+    /**
+     * Sets the duplicate request cache used by this server transport to
+     * detect retransmitted calls. Calls found in the cache are not
+     * dispatched again; instead, the cached reply is sent back or the call
+     * is dropped if the original call has not been answered yet.
+     *
+     * <p>By default, no duplicate request cache is used. Several server
+     * transports may share the same cache.
+     *
+     * @param duplicateRequestCache Duplicate request cache or
+     *   <code>null</code> to not check for retransmitted calls.
+     */
+    public void setDuplicateRequestCache(OncRpcDuplicateRequestCache duplicateRequestCache) {
+        this.duplicateRequestCache = duplicateRequestCache;
+    }
+
+    /**
+     * Returns the duplicate request cache used by this server transport.
+     *
+     * @return Duplicate request cache or <code>null</code> if none is used.
+     */
+    public OncRpcDuplicateRequestCache getDuplicateRequestCache() {
+        return duplicateRequestCache;
     }
 
 	/**
@@ -568,6 +774,30 @@ public class OncRpcUdpServerTransport extends OncRpcServerTransport {
      */
     private boolean pendingDecoding = false;
 
+    /**
+     * Duplicate request cache used to detect retransmitted calls or
+     * <code>null</code> if retransmissions are dispatched as usual.
+     */
+    private volatile OncRpcDuplicateRequestCache duplicateRequestCache;
+
+    /**
+     * Cache entry of the call currently being dispatched, for which no reply
+     * has been sent yet, or <code>null</code> if there is no such call.
+     */
+    private OncRpcDuplicateRequestCache.Entry currentRequest;
+
+    /**
+     * Counts the datagrams received, shared by all worker threads receiving
+     * from the same socket.
+     */
+    private OncRpcRateMeter receivedDatagrams = new OncRpcRateMeter();
+
+    /**
+     * Number of datagrams dropped without dispatching a call, shared by all
+     * worker threads receiving from the same socket.
+     */
+    private AtomicLong droppedDatagrams = new AtomicLong();
+
 }
 
 // End of OncRpcUdpServerTransport.java
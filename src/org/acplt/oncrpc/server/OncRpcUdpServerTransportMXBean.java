@@ -0,0 +1,72 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package org.acplt.oncrpc.server;
+
+/**
+ * The <code>OncRpcUdpServerTransportMXBean</code> interface exposes the
+ * state of UDP/IP-based server transports through JMX. The transports of
+ * an {@link OncRpcServerStub} are registered automatically with the
+ * platform MBean server while the server is running.
+ *
+ * @see OncRpcUdpServerTransport
+ * @see OncRpcPooledUdpServerTransport
+ *
+ * @version $Revision$ $Date$ $State$ $Locker$
+ * @author agent
+ */
+public interface OncRpcUdpServerTransportMXBean {
+
+    /**
+     * Returns the port number the transport receives calls on.
+     *
+     * @return Port number.
+     */
+    public int getPort();
+
+    /**
+     * Returns the number of datagrams received so far.
+     *
+     * @return Number of received datagrams.
+     */
+    public long getReceivedDatagrams();
+
+    /**
+     * Returns the rate at which datagrams have been received recently,
+     * averaged over about one minute.
+     *
+     * @return Received datagrams per second.
+     */
+    public double getReceiveRate();
+
+    /**
+     * Returns the number of datagrams dropped without dispatching a call,
+     * because they could not be decoded or they were retransmissions of
+     * calls still being worked on.
+     *
+     * @return Number of dropped datagrams.
+     */
+    public long getDroppedDatagrams();
+
+}
+
+// End of OncRpcUdpServerTransportMXBean.java
@@ -128,6 +128,22 @@ public class HttpClientConnection {
         mode = HTTP_DEAD;
     }
 
+    /**
+     * Aborts a request in progress by closing the socket to the HTTP server,
+     * so another thread blocked in reading or writing the connection gets an
+     * <code>IOException</code>. In contrast to {@link #close}, this method
+     * can be called from any thread. The thread using the connection should
+     * still call <code>close</code> afterwards.
+     */
+    public void abort() {
+        Socket mySocket = socket;
+        if ( mySocket != null ) {
+            try {
+                mySocket.close();
+            } catch ( IOException e ) { }
+        }
+    }
+
     /**
      * Starts a new HTTP "POST" request and sends all necessary HTTP header
      * fields. Next, the caller can send lots of content using the
@@ -1272,7 +1288,7 @@ public class HttpClientConnection {
     /**
      * TCP/IP socket for communication with the HTTP server.
      */
-    private Socket socket;
+    private volatile Socket socket;
 
     /**
      * Timeout (in milliseconds) for communication with an HTTP server.
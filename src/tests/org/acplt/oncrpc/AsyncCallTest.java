@@ -0,0 +1,280 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks asynchronous calls of the TCP/IP-, UDP/IP- and HTTP-based clients:
+ * results, per-call timeouts, cancellation, and replies arriving only
+ * after their calls have timed out.
+ */
+public class AsyncCallTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    //
+    // Procedure 1 doubles its argument, procedure 2 never replies, and
+    // procedure 3 doubles its argument only after a while.
+    //
+    public static final int PROC_DOUBLE = 1;
+    public static final int PROC_SILENT = 2;
+    public static final int PROC_LATE = 3;
+
+    public static final int LATE_REPLY_DELAY = 500;
+
+    public static final Supplier<XdrInt> NEW_INT = new Supplier<XdrInt>() {
+        public XdrInt get() {
+            return new XdrInt();
+        }
+    };
+
+    //
+    // Result objects failing with a runtime exception when decoding
+    // negative values.
+    //
+    public static class PickyInt extends XdrInt {
+        public void xdrDecode(XdrDecodingStream xdr)
+               throws OncRpcException, IOException {
+            super.xdrDecode(xdr);
+            if ( intValue() < 0 ) {
+                throw(new IllegalStateException("negative value"));
+            }
+        }
+    }
+
+    public static final Supplier<PickyInt> NEW_PICKY_INT = new Supplier<PickyInt>() {
+        public PickyInt get() {
+            return new PickyInt();
+        }
+    };
+
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        XdrInt arg = new XdrInt();
+        call.retrieveCall(arg);
+        switch ( procedure ) {
+        case PROC_DOUBLE:
+            call.reply(new XdrInt(arg.intValue() * 2));
+            break;
+        case PROC_SILENT:
+            break;
+        case PROC_LATE:
+            try {
+                Thread.sleep(LATE_REPLY_DELAY);
+            } catch ( InterruptedException e ) {
+            }
+            call.reply(new XdrInt(arg.intValue() * 2));
+            break;
+        default:
+            call.failProcedureUnavailable();
+        }
+    }
+
+    //
+    // Wait for the future and report whether it failed with a timeout.
+    //
+    public boolean timedOut(CompletableFuture future)
+           throws InterruptedException {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+        } catch ( ExecutionException e ) {
+            return e.getCause() instanceof OncRpcTimeoutException;
+        } catch ( TimeoutException e ) {
+        }
+        return false;
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public void checkClient(String name, OncRpcClient client)
+           throws Exception {
+        client.setTimeout(10000);
+        check(name + " result",
+              client.callAsync(PROC_DOUBLE, new XdrInt(21), NEW_INT, 5000)
+                  .get().intValue() == 42);
+        //
+        // A call which never gets a reply must time out on its own,
+        // regardless of the client's timeout.
+        //
+        long start = System.currentTimeMillis();
+        boolean timedOut = timedOut(
+            client.callAsync(PROC_SILENT, new XdrInt(0), NEW_INT, 200));
+        long elapsed = System.currentTimeMillis() - start;
+        check(name + " per-call timeout",
+              timedOut && (elapsed >= 150) && (elapsed < 5000));
+        //
+        // A call without timeout which never gets a reply can still be
+        // cancelled.
+        //
+        CompletableFuture<XdrInt> cancelled =
+            client.callAsync(PROC_SILENT, new XdrInt(0), NEW_INT, 0);
+        cancelled.cancel(true);
+        check(name + " cancellation", cancelled.isCancelled());
+        //
+        // A reply arriving after its call has timed out must be discarded
+        // instead of completing some other call.
+        //
+        check(name + " late reply times out",
+              timedOut(client.callAsync(PROC_LATE, new XdrInt(5), NEW_INT, 100)));
+        check(name + " call after late reply",
+              client.callAsync(PROC_DOUBLE, new XdrInt(7), NEW_INT, 5000)
+                  .get().intValue() == 14);
+        //
+        // A failing result decoder only fails its own call.
+        //
+        boolean failed = false;
+        try {
+            client.callAsync(PROC_DOUBLE, new XdrInt(-1), NEW_PICKY_INT, 5000)
+                .get(10, TimeUnit.SECONDS);
+        } catch ( ExecutionException e ) {
+            failed = (e.getCause() instanceof OncRpcException)
+                     && !(e.getCause() instanceof OncRpcTimeoutException);
+        }
+        check(name + " failing result decoder", failed);
+        check(name + " call after failing result decoder",
+              client.callAsync(PROC_DOUBLE, new XdrInt(8), NEW_PICKY_INT, 5000)
+                  .get(10, TimeUnit.SECONDS).intValue() == 16);
+        //
+        // Several calls at once.
+        //
+        CompletableFuture [] futures = new CompletableFuture[20];
+        for ( int idx = 0; idx < futures.length; ++idx ) {
+            futures[idx] = client.callAsync(PROC_DOUBLE, new XdrInt(idx),
+                                            NEW_INT, 5000);
+        }
+        boolean passed = true;
+        for ( int idx = 0; idx < futures.length; ++idx ) {
+            passed &= ((XdrInt) futures[idx].get()).intValue() == idx * 2;
+        }
+        check(name + " concurrent calls", passed);
+        client.close();
+    }
+
+    //
+    // The HTTP-based client is checked against a web server which accepts
+    // requests but never answers them.
+    //
+    public void checkHttpClient()
+           throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0, 5,
+            InetAddress.getByName("127.0.0.1"));
+        Thread server = new Thread() {
+            public void run() {
+                try {
+                    for ( ;; ) {
+                        final Socket socket = serverSocket.accept();
+                        new Thread() {
+                            public void run() {
+                                try {
+                                    InputStream in = socket.getInputStream();
+                                    byte [] buffer = new byte[4096];
+                                    while ( in.read(buffer) >= 0 ) {
+                                    }
+                                    socket.close();
+                                } catch ( IOException e ) {
+                                }
+                            }
+                        }.start();
+                    }
+                } catch ( IOException e ) {
+                }
+            }
+        };
+        server.setDaemon(true);
+        server.start();
+        OncRpcHttpClient client = new OncRpcHttpClient(
+            "127.0.0.1", serverSocket.getLocalPort(), "/cgi-bin/jrpcgw",
+            "127.0.0.1", PROGRAM, VERSION, 111, OncRpcProtocols.ONCRPC_TCP);
+        client.setTimeout(20000);
+        long start = System.currentTimeMillis();
+        boolean timedOut = timedOut(
+            client.callAsync(PROC_SILENT, new XdrInt(0), NEW_INT, 300));
+        long elapsed = System.currentTimeMillis() - start;
+        check("http per-call timeout",
+              timedOut && (elapsed >= 250) && (elapsed < 5000));
+        CompletableFuture<XdrInt> cancelled =
+            client.callAsync(PROC_SILENT, new XdrInt(0), NEW_INT, 0);
+        Thread.sleep(200);
+        cancelled.cancel(true);
+        check("http cancellation", cancelled.isCancelled());
+        //
+        // The connection of an aborted call must not block later calls.
+        //
+        start = System.currentTimeMillis();
+        timedOut = timedOut(
+            client.callAsync(PROC_SILENT, new XdrInt(0), NEW_INT, 300));
+        elapsed = System.currentTimeMillis() - start;
+        check("http call after cancellation",
+              timedOut && (elapsed < 5000));
+        client.close();
+        serverSocket.close();
+    }
+
+    public AsyncCallTest()
+           throws Exception {
+        OncRpcTcpServerTransport tcp =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        tcp.listen();
+        checkClient("tcp", new OncRpcTcpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION, tcp.getPort()));
+        tcp.close();
+
+        OncRpcUdpServerTransport udp =
+            new OncRpcUdpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        udp.listen();
+        checkClient("udp", new OncRpcUdpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION, udp.getPort()));
+        udp.close();
+
+        checkHttpClient();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("AsyncCallTest");
+        try {
+            new AsyncCallTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of AsyncCallTest.java
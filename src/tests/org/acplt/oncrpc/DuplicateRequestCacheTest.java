@@ -0,0 +1,173 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.IOException;
+import java.net.*;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks the duplicate request cache of the UDP/IP-based server transport
+ * by sending calls and retransmissions as raw datagrams.
+ */
+public class DuplicateRequestCacheTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    //
+    // Number of calls dispatched so far.
+    //
+    public int dispatched = 0;
+
+    //
+    // Handle incomming calls: reply with the number of calls dispatched
+    // so far, so retransmissions answered from the cache can be told apart
+    // from calls dispatched once more.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        XdrInt arg = new XdrInt();
+        call.retrieveCall(arg);
+        synchronized ( this ) {
+            ++dispatched;
+            call.reply(new XdrInt(dispatched));
+        }
+    }
+
+    public DatagramSocket socket;
+
+    //
+    // Send a call with the given transaction id and argument, then return
+    // the integer result of the reply.
+    //
+    public int call(int port, int xid, int arg)
+           throws OncRpcException, IOException {
+        XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(1024);
+        xdr.beginEncoding(null, 0);
+        new OncRpcClientCallMessage(xid, PROGRAM, VERSION, 1,
+                                    OncRpcClientAuthNone.AUTH_NONE)
+            .xdrEncode(xdr);
+        xdr.xdrEncodeInt(arg);
+        xdr.endEncoding();
+        socket.send(new DatagramPacket(xdr.getXdrData(), xdr.getXdrLength(),
+                                       InetAddress.getByName("127.0.0.1"),
+                                       port));
+        byte [] reply = new byte[1024];
+        DatagramPacket packet = new DatagramPacket(reply, reply.length);
+        socket.receive(packet);
+        XdrBufferDecodingStream rxdr =
+            new XdrBufferDecodingStream(reply, packet.getLength());
+        rxdr.beginDecoding();
+        if ( rxdr.xdrDecodeInt() != xid ) {
+            throw(new OncRpcException(OncRpcException.RPC_WRONGMESSAGE));
+        }
+        //
+        // Skip message type, reply status, verifier and accept status.
+        //
+        for ( int i = 0; i < 5; ++i ) {
+            rxdr.xdrDecodeInt();
+        }
+        int result = rxdr.xdrDecodeInt();
+        rxdr.endDecoding();
+        return result;
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public DuplicateRequestCacheTest()
+           throws OncRpcException, IOException, InterruptedException {
+        socket = new DatagramSocket();
+        socket.setSoTimeout(5000);
+
+        OncRpcUdpServerTransport udp =
+            new OncRpcUdpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        OncRpcDuplicateRequestCache cache =
+            new OncRpcDuplicateRequestCache(4, 60000);
+        udp.setDuplicateRequestCache(cache);
+        udp.listen();
+        int port = udp.getPort();
+
+        int first = call(port, 1, 42);
+        check("retransmission answered from cache",
+              (call(port, 1, 42) == first) && (dispatched == 1)
+              && (cache.getHits() == 1));
+        check("same xid with different arguments dispatched",
+              (call(port, 1, 43) != first) && (dispatched == 2));
+        //
+        // Push the first call out of the cache with more new calls than
+        // the cache can hold, then retransmit it.
+        //
+        for ( int xid = 10; xid < 20; ++xid ) {
+            call(port, xid, 42);
+        }
+        check("cache bounded", cache.size() <= cache.getMaximumEntries());
+        int before = dispatched;
+        call(port, 1, 42);
+        check("evicted call dispatched again", dispatched == before + 1);
+        before = dispatched;
+        call(port, 19, 42);
+        check("recent call still cached", dispatched == before);
+        udp.close();
+
+        //
+        // Replies expire after their time to live.
+        //
+        udp = new OncRpcUdpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        cache = new OncRpcDuplicateRequestCache(16, 100);
+        udp.setDuplicateRequestCache(cache);
+        udp.listen();
+        port = udp.getPort();
+        call(port, 30, 42);
+        before = dispatched;
+        Thread.sleep(250);
+        call(port, 30, 42);
+        check("expired reply dispatched again", dispatched == before + 1);
+        udp.close();
+
+        socket.close();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("DuplicateRequestCacheTest");
+        try {
+            new DuplicateRequestCacheTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of DuplicateRequestCacheTest.java
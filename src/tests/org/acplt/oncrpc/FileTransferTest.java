@@ -0,0 +1,209 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks sending opaque values straight from file regions, in particular
+ * to clients which do not read their replies right away, so the server
+ * transport has to queue the rest of a region until the client catches up.
+ */
+public class FileTransferTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    public static final int PROC_READ = 1;
+
+    public static final int FILE_SIZE = 4 * 1024 * 1024;
+
+    public byte [] data;
+    public FileChannel file;
+
+    //
+    // Handle incomming calls: procedure 1 returns a region of the file,
+    // given by its offset and length, followed by a marker.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        final XdrInt offset = new XdrInt();
+        final XdrInt length = new XdrInt();
+        call.retrieveCall(new XdrAble() {
+            public void xdrEncode(XdrEncodingStream xdr) {
+            }
+            public void xdrDecode(XdrDecodingStream xdr)
+                   throws OncRpcException, IOException {
+                offset.xdrDecode(xdr);
+                length.xdrDecode(xdr);
+            }
+        });
+        call.reply(new XdrAble() {
+            public void xdrEncode(XdrEncodingStream xdr)
+                   throws OncRpcException, IOException {
+                xdr.xdrEncodeDynamicOpaque(file, offset.intValue(),
+                                           length.intValue());
+                xdr.xdrEncodeInt(0x1234);
+            }
+            public void xdrDecode(XdrDecodingStream xdr) {
+            }
+        });
+    }
+
+    //
+    // Send calls for the given file regions over one connection, all at
+    // once, then wait a moment before reading the replies, and check that
+    // every reply carries its file region.
+    //
+    public boolean slowReader(int port, int [][] regions)
+           throws OncRpcException, IOException, InterruptedException {
+        Socket socket = new Socket();
+        socket.setReceiveBufferSize(8192);
+        socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port));
+        try {
+            socket.setSoTimeout(10000);
+            DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            for ( int i = 0; i < regions.length; ++i ) {
+                XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(1024);
+                xdr.beginEncoding(null, 0);
+                new OncRpcClientCallMessage(i, PROGRAM, VERSION, PROC_READ,
+                                            OncRpcClientAuthNone.AUTH_NONE)
+                    .xdrEncode(xdr);
+                xdr.xdrEncodeInt(regions[i][0]);
+                xdr.xdrEncodeInt(regions[i][1]);
+                xdr.endEncoding();
+                out.writeInt(0x80000000 | xdr.getXdrLength());
+                out.write(xdr.getXdrData(), 0, xdr.getXdrLength());
+            }
+            out.flush();
+            Thread.sleep(500);
+            DataInputStream in =
+                new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            for ( int i = 0; i < regions.length; ++i ) {
+                byte [] record = readRecord(in);
+                XdrBufferDecodingStream xdr =
+                    new XdrBufferDecodingStream(record, record.length);
+                xdr.beginDecoding();
+                if ( xdr.xdrDecodeInt() != i ) {
+                    return false;
+                }
+                //
+                // Skip message type, reply status, verifier and accept status.
+                //
+                for ( int j = 0; j < 5; ++j ) {
+                    xdr.xdrDecodeInt();
+                }
+                byte [] value = xdr.xdrDecodeDynamicOpaque();
+                int [] region = regions[i];
+                if ( !Arrays.equals(value,
+                                    Arrays.copyOfRange(data, region[0],
+                                                       region[0] + region[1]))
+                     || (xdr.xdrDecodeInt() != 0x1234) ) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            socket.close();
+        }
+    }
+
+    //
+    // Read a complete record, concatenating its fragments.
+    //
+    public byte [] readRecord(DataInputStream in)
+           throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        for ( ;; ) {
+            int header = in.readInt();
+            byte [] fragment = new byte[header & 0x7FFFFFFF];
+            in.readFully(fragment);
+            record.write(fragment);
+            if ( (header & 0x80000000) != 0 ) {
+                return record.toByteArray();
+            }
+        }
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public void checkTransport(String name, OncRpcServerTransport transport)
+           throws OncRpcException, IOException, InterruptedException {
+        transport.listen();
+        int port = transport.getPort();
+        check(name + " small regions",
+              slowReader(port, new int [][] { { 0, 0 }, { 3, 5 }, { 100, 8191 } }));
+        check(name + " large regions",
+              slowReader(port, new int [][] {
+                  { 7, 8193 }, { 1, 1000001 }, { 0, FILE_SIZE } }));
+        transport.close();
+    }
+
+    public FileTransferTest()
+           throws OncRpcException, IOException, InterruptedException {
+        data = new byte[FILE_SIZE];
+        new Random(1).nextBytes(data);
+        Path path = Files.createTempFile("FileTransferTest", ".bin");
+        try {
+            Files.write(path, data);
+            file = FileChannel.open(path);
+            checkTransport("tcp",
+                new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192));
+            checkTransport("nio",
+                new OncRpcNioTcpServerTransport(this, 0, PROGRAM, VERSION, 8192));
+            file.close();
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("FileTransferTest");
+        try {
+            new FileTransferTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of FileTransferTest.java
@@ -0,0 +1,122 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.IOException;
+import java.net.*;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks that server statistics stay bounded when clients call arbitrary
+ * programs, versions and procedures.
+ */
+public class ServerStatisticsTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    //
+    // Handle incomming calls: answer every procedure of our program.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        if ( (program != PROGRAM) || (version != VERSION) ) {
+            call.failProgramUnavailable();
+            return;
+        }
+        call.retrieveCall(XdrVoid.XDR_VOID);
+        call.reply(XdrVoid.XDR_VOID);
+    }
+
+    //
+    // Call a procedure, ignoring whether the server accepts the call.
+    //
+    public void call(int port, int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        OncRpcUdpClient client = new OncRpcUdpClient(
+            InetAddress.getByName("127.0.0.1"), program, version, port);
+        try {
+            client.setTimeout(5000);
+            client.call(procedure, XdrVoid.XDR_VOID, XdrVoid.XDR_VOID);
+        } catch ( OncRpcException e ) {
+            if ( e.getReason() == OncRpcException.RPC_TIMEDOUT ) {
+                throw(e);
+            }
+        } finally {
+            client.close();
+        }
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public ServerStatisticsTest()
+           throws OncRpcException, IOException {
+        OncRpcUdpServerTransport udp =
+            new OncRpcUdpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        OncRpcServerStatistics statistics = new OncRpcServerStatistics(4);
+        udp.setStatistics(statistics);
+        udp.listen();
+        int port = udp.getPort();
+
+        for ( int procedure = 0; procedure < 10; ++procedure ) {
+            call(port, PROGRAM, VERSION, procedure);
+        }
+        call(port, PROGRAM + 1, VERSION, 0);
+        call(port, PROGRAM, VERSION + 1, 0);
+
+        OncRpcProcedureStatistics [] snapshot = statistics.snapshot();
+        check("procedures bounded", snapshot.length == 5);
+        check("first procedures recorded separately",
+              (snapshot[0].getProcedure() == 0)
+              && (snapshot[3].getProcedure() == 3)
+              && (snapshot[3].getCalls() == 1));
+        check("other calls recorded together",
+              (snapshot[4].getProgram() == -1)
+              && (snapshot[4].getCalls() == 8)
+              && (statistics.getOtherStatistics().getCalls() == 8));
+        udp.close();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("ServerStatisticsTest");
+        try {
+            new ServerStatisticsTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of ServerStatisticsTest.java
@@ -0,0 +1,276 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.util.Vector;
+
+import org.acplt.oncrpc.*;
+
+/**
+ * Checks the multiplexed TCP/IP-based client: calls issued from several
+ * threads over one client must each receive their own result, even when
+ * the server replies out of order. The server is a simple stand-in,
+ * which handles the record marking and messages itself.
+ */
+public class TcpClientMultiplexTest {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    //
+    // Procedure 1 doubles its argument, but its reply is held back until
+    // HELD_CALLS calls have arrived, which are then answered in reverse
+    // order. Procedure 2 doubles its argument right away. Procedure 3 gets
+    // a reply with broken record marking.
+    //
+    public static final int PROC_HELD = 1;
+    public static final int PROC_DOUBLE = 2;
+    public static final int PROC_BREAK = 3;
+
+    public static final int HELD_CALLS = 8;
+
+    //
+    // Stand-in server handling a single connection.
+    //
+    public class Server extends Thread {
+
+        public ServerSocket serverSocket;
+
+        //
+        // Set when the client closed the connection.
+        //
+        public volatile boolean closedByClient = false;
+
+        public Server()
+               throws IOException {
+            serverSocket = new ServerSocket(0, 1,
+                                            InetAddress.getByName("127.0.0.1"));
+            setDaemon(true);
+        }
+
+        public void run() {
+            try {
+                Socket socket = serverSocket.accept();
+                DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+                Vector held = new Vector();
+                for ( ;; ) {
+                    int [] call;
+                    try {
+                        call = readCall(in);
+                    } catch ( EOFException e ) {
+                        closedByClient = true;
+                        break;
+                    }
+                    switch ( call[1] ) {
+                    case PROC_HELD:
+                        held.addElement(call);
+                        if ( held.size() == HELD_CALLS ) {
+                            for ( int idx = HELD_CALLS - 1; idx >= 0; --idx ) {
+                                int [] heldCall = (int []) held.elementAt(idx);
+                                writeReply(out, heldCall[0], heldCall[2] * 2);
+                            }
+                            held.removeAllElements();
+                            out.flush();
+                        }
+                        break;
+                    case PROC_DOUBLE:
+                        writeReply(out, call[0], call[2] * 2);
+                        out.flush();
+                        break;
+                    default:
+                        out.writeInt(0x80000003);
+                        out.flush();
+                        break;
+                    }
+                }
+                socket.close();
+            } catch ( IOException e ) {
+            }
+        }
+
+        //
+        // Read a call record and return its xid, procedure number and
+        // integer argument.
+        //
+        public int [] readCall(DataInputStream in)
+               throws IOException {
+            int header = in.readInt();
+            byte [] record = new byte[header & 0x7FFFFFFF];
+            in.readFully(record);
+            DataInputStream call =
+                new DataInputStream(new ByteArrayInputStream(record));
+            int xid = call.readInt();
+            call.skipBytes(3 * 4); // message type, rpc version, program
+            call.readInt(); // version
+            int procedure = call.readInt();
+            call.readInt(); // credential flavor
+            call.skipBytes(call.readInt());
+            call.readInt(); // verifier flavor
+            call.skipBytes(call.readInt());
+            return new int [] { xid, procedure, call.readInt() };
+        }
+
+        public void writeReply(DataOutputStream out, int xid, int result)
+               throws IOException {
+            out.writeInt(0x80000000 | (7 * 4));
+            out.writeInt(xid);
+            out.writeInt(1); // reply
+            out.writeInt(0); // accepted
+            out.writeInt(0); // verifier flavor AUTH_NONE
+            out.writeInt(0); // verifier length
+            out.writeInt(0); // success
+            out.writeInt(result);
+        }
+
+    }
+
+    //
+    // Result object failing with a runtime exception when decoding
+    // negative values.
+    //
+    public static class PickyInt extends XdrInt {
+        public void xdrDecode(XdrDecodingStream xdr)
+               throws OncRpcException, IOException {
+            super.xdrDecode(xdr);
+            if ( intValue() < 0 ) {
+                throw(new IllegalStateException("negative value"));
+            }
+        }
+    }
+
+    //
+    // Call procedure 1 from HELD_CALLS threads at the same time, several
+    // rounds in a row, and check that each thread gets its own result.
+    //
+    public boolean concurrentCalls(final OncRpcClient client, int rounds)
+           throws InterruptedException {
+        final boolean [] ok = new boolean[HELD_CALLS];
+        Thread [] threads = new Thread[HELD_CALLS];
+        for ( int idx = 0; idx < HELD_CALLS; ++idx ) {
+            final int caller = idx;
+            final int myRounds = rounds;
+            threads[idx] = new Thread() {
+                public void run() {
+                    try {
+                        for ( int round = 0; round < myRounds; ++round ) {
+                            int arg = caller * 1000 + round;
+                            XdrInt result = new XdrInt();
+                            client.call(PROC_HELD, new XdrInt(arg), result);
+                            if ( result.intValue() != arg * 2 ) {
+                                return;
+                            }
+                        }
+                        ok[caller] = true;
+                    } catch ( OncRpcException e ) {
+                    }
+                }
+            };
+            threads[idx].start();
+        }
+        boolean passed = true;
+        for ( int idx = 0; idx < HELD_CALLS; ++idx ) {
+            threads[idx].join();
+            passed &= ok[idx];
+        }
+        return passed;
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public TcpClientMultiplexTest()
+           throws OncRpcException, IOException, InterruptedException {
+        Server server = new Server();
+        server.start();
+        OncRpcTcpClient client = new OncRpcTcpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION,
+            server.serverSocket.getLocalPort());
+        client.setTimeout(10000);
+
+        check("concurrent calls answered out of order",
+              concurrentCalls(client, 20));
+
+        //
+        // A result decoder failing with a runtime exception only fails
+        // its own call and reports what went wrong.
+        //
+        boolean failed = false;
+        try {
+            client.call(PROC_DOUBLE, new XdrInt(-1), new PickyInt());
+        } catch ( OncRpcException e ) {
+            failed = (e.getReason() == OncRpcException.RPC_CANTDECODERES)
+                     && (e.getMessage().indexOf("negative value") >= 0);
+        }
+        check("failing result decoder reported", failed);
+        XdrInt result = new XdrInt();
+        client.call(PROC_DOUBLE, new XdrInt(21), result);
+        check("call after failing result decoder", result.intValue() == 42);
+
+        //
+        // Broken record marking makes the client give up the connection:
+        // the call fails, later calls fail too, and the server notices
+        // the connection being closed.
+        //
+        failed = false;
+        try {
+            client.call(PROC_BREAK, new XdrInt(0), new XdrInt());
+        } catch ( OncRpcException e ) {
+            failed = true;
+        }
+        check("broken reply fails call", failed);
+        failed = false;
+        try {
+            client.call(PROC_DOUBLE, new XdrInt(1), new XdrInt());
+        } catch ( OncRpcException e ) {
+            failed = true;
+        }
+        check("call after broken reply fails", failed);
+        server.join(5000);
+        check("connection closed after broken reply", server.closedByClient);
+        client.close();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("TcpClientMultiplexTest");
+        try {
+            new TcpClientMultiplexTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of TcpClientMultiplexTest.java
@@ -0,0 +1,313 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks the TCP/IP-based server transports with well-formed calls as well
+ * as with broken record marking sent by misbehaving clients. After each
+ * broken record the transport must still serve other clients.
+ */
+public class TcpRecordTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    public static final int PROC_NULL = 0;
+    public static final int PROC_ECHO = 1;
+
+    //
+    // Handle incomming calls: procedure 1 echoes an opaque value.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        switch ( procedure ) {
+        case PROC_NULL:
+            call.retrieveCall(XdrVoid.XDR_VOID);
+            call.reply(XdrVoid.XDR_VOID);
+            break;
+        case PROC_ECHO:
+            XdrDynamicOpaque value = new XdrDynamicOpaque();
+            call.retrieveCall(value);
+            call.reply(value);
+            break;
+        default:
+            call.failProcedureUnavailable();
+        }
+    }
+
+    //
+    // Call the echo procedure with a value spanning several buffers and
+    // fragments and check the reply.
+    //
+    public boolean roundTrip(int port)
+           throws OncRpcException, IOException {
+        OncRpcTcpClient client = new OncRpcTcpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION, port);
+        try {
+            client.setTimeout(10000);
+            byte [] data = new byte[100000];
+            for ( int i = 0; i < data.length; ++i ) {
+                data[i] = (byte) (i * 7);
+            }
+            XdrDynamicOpaque result = new XdrDynamicOpaque();
+            client.call(PROC_ECHO, new XdrDynamicOpaque(data), result);
+            return java.util.Arrays.equals(data, result.dynamicOpaqueValue());
+        } finally {
+            client.close();
+        }
+    }
+
+    //
+    // Send raw bytes to the server, optionally close our sending side and
+    // report whether the server closes the connection in turn within a few
+    // seconds.
+    //
+    public boolean closedAfter(int port, byte [] raw, boolean shutdown)
+           throws IOException {
+        Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+        try {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(raw);
+            if ( shutdown ) {
+                socket.shutdownOutput();
+            }
+            InputStream in = socket.getInputStream();
+            byte [] reply = new byte[1024];
+            try {
+                while ( in.read(reply) >= 0 ) {
+                }
+            } catch ( SocketTimeoutException e ) {
+                return false;
+            } catch ( SocketException e ) {
+                // Connection reset by the server.
+            }
+            return true;
+        } finally {
+            socket.close();
+        }
+    }
+
+    //
+    // Send raw bytes to the server, directly followed by a call to the
+    // null procedure on the same connection, and report whether the call
+    // gets answered.
+    //
+    public boolean answeredAfter(int port, byte [] raw)
+           throws OncRpcException, IOException {
+        XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(1024);
+        xdr.beginEncoding(null, 0);
+        new OncRpcClientCallMessage(0x1234, PROGRAM, VERSION, PROC_NULL,
+                                    OncRpcClientAuthNone.AUTH_NONE)
+            .xdrEncode(xdr);
+        xdr.endEncoding();
+        int length = xdr.getXdrLength();
+        Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+        try {
+            socket.setSoTimeout(5000);
+            DataOutputStream out =
+                new DataOutputStream(socket.getOutputStream());
+            out.write(raw);
+            out.writeInt(0x80000000 | length);
+            out.write(xdr.getXdrData(), 0, length);
+            out.flush();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            in.readInt();
+            return in.readInt() == 0x1234;
+        } catch ( IOException e ) {
+            return false;
+        } finally {
+            socket.close();
+        }
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public void checkTransport(String name, OncRpcServerTransport transport)
+           throws OncRpcException, IOException {
+        transport.listen();
+        int port = transport.getPort();
+        check(name + " round trip", roundTrip(port));
+        //
+        // A last fragment claiming almost 2GB of data, followed by only a
+        // few bytes. The transport must not allocate memory for the claimed
+        // length, but notice the connection being closed.
+        //
+        check(name + " huge fragment header",
+              closedAfter(port, new byte [] {
+                  (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0,
+                  0, 0, 0, 1 }, true));
+        check(name + " round trip after huge fragment header", roundTrip(port));
+        //
+        // An empty record, consisting of only an empty last fragment.
+        //
+        check(name + " empty record",
+              closedAfter(port, new byte [] {
+                  (byte) 0x80, 0, 0, 0 }, true));
+        check(name + " round trip after empty record", roundTrip(port));
+        check(name + " call following empty record",
+              answeredAfter(port, new byte [] {
+                  (byte) 0x80, 0, 0, 0 }));
+        //
+        // A fragment length which is not a multiple of four.
+        //
+        check(name + " odd fragment length",
+              closedAfter(port, new byte [] {
+                  (byte) 0x80, 0, 0, 3, 1, 2, 3 }, true));
+        check(name + " round trip after odd fragment length", roundTrip(port));
+        transport.close();
+    }
+
+    //
+    // With the default maximum record size, a record announcing more data
+    // must be rejected as soon as its fragment header has been received.
+    //
+    public void checkDefaultLimit(String name, OncRpcServerTransport transport)
+           throws OncRpcException, IOException {
+        transport.listen();
+        int port = transport.getPort();
+        check(name + " oversized record rejected",
+              closedAfter(port, new byte [] {
+                  (byte) 0x81, 0, 0, 0, 0, 0, 0, 1 }, false));
+        check(name + " round trip after oversized record", roundTrip(port));
+        transport.close();
+    }
+
+    //
+    // A client sending a fragment header and a few bytes of the record, but
+    // then stalling, must be disconnected by the record deadline or the
+    // transmission timeout, whichever the transport has been set up with.
+    //
+    public void checkStalledRecord(String name, OncRpcTcpServerTransport transport)
+           throws OncRpcException, IOException {
+        transport.listen();
+        int port = transport.getPort();
+        check(name + " stalled record",
+              closedAfter(port, new byte [] {
+                  (byte) 0x80, 0, 0, 40, 0, 0, 0, 1 }, false));
+        check(name + " round trip after stalled record", roundTrip(port));
+        transport.close();
+    }
+
+    public TcpRecordTest()
+           throws OncRpcException, IOException {
+        OncRpcTcpServerTransport tcp =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        tcp.setMaximumRecordSize(0);
+        checkTransport("tcp", tcp);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        OncRpcTcpServerTransport pipelined =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        pipelined.setMaximumRecordSize(0);
+        pipelined.setDispatchExecutor(executor);
+        int borrowed = XdrBufferPool.getDefault().getBorrowedBuffers();
+        checkTransport("tcp pipelined", pipelined);
+        executor.shutdown();
+        //
+        // Call records are borrowed from the buffer pool, so they must all
+        // have been handed back, even those of broken records.
+        //
+        boolean returned = false;
+        for ( int wait = 0; (wait < 50) && !returned; ++wait ) {
+            returned = XdrBufferPool.getDefault().getBorrowedBuffers() == borrowed;
+            if ( !returned ) {
+                try {
+                    Thread.sleep(100);
+                } catch ( InterruptedException e ) {
+                }
+            }
+        }
+        check("tcp pipelined buffers returned", returned);
+
+        //
+        // Use a single selector thread, so a broken connection killing the
+        // selector thread would also bring down all later connections.
+        //
+        OncRpcNioTcpServerTransport nio =
+            new OncRpcNioTcpServerTransport(this, null, 0,
+                new OncRpcServerTransportRegistrationInfo [] {
+                    new OncRpcServerTransportRegistrationInfo(PROGRAM, VERSION)
+                }, 8192, 1);
+        nio.setMaximumRecordSize(0);
+        checkTransport("nio", nio);
+
+        OncRpcShardedTcpServerTransport sharded =
+            new OncRpcShardedTcpServerTransport(this, null, 0,
+                new OncRpcServerTransportRegistrationInfo [] {
+                    new OncRpcServerTransportRegistrationInfo(PROGRAM, VERSION)
+                }, 8192, 0, 2);
+        sharded.setMaximumRecordSize(0);
+        checkTransport("tcp sharded", sharded);
+
+        checkDefaultLimit("tcp",
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192));
+        checkDefaultLimit("nio",
+            new OncRpcNioTcpServerTransport(this, 0, PROGRAM, VERSION, 8192));
+
+        OncRpcTcpServerTransport transmission =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        transmission.setTransmissionTimeout(500);
+        checkStalledRecord("tcp transmission timeout", transmission);
+
+        OncRpcTcpServerTransport deadline =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        deadline.setRecordTimeout(500);
+        checkStalledRecord("tcp record timeout", deadline);
+
+        executor = Executors.newFixedThreadPool(2);
+        OncRpcTcpServerTransport pipelinedDeadline =
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 8192);
+        pipelinedDeadline.setRecordTimeout(500);
+        pipelinedDeadline.setDispatchExecutor(executor);
+        checkStalledRecord("tcp pipelined record timeout", pipelinedDeadline);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("TcpRecordTest");
+        try {
+            new TcpRecordTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of TcpRecordTest.java
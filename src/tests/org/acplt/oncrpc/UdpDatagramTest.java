@@ -0,0 +1,163 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.IOException;
+import java.net.*;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks the UDP/IP-based server transports with well-formed calls as well
+ * as with malformed datagrams. After each malformed datagram the transport
+ * must still answer calls.
+ */
+public class UdpDatagramTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    public static final int PROC_ECHO = 1;
+
+    //
+    // Handle incomming calls: procedure 1 echoes an opaque value.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        if ( procedure == PROC_ECHO ) {
+            XdrDynamicOpaque value = new XdrDynamicOpaque();
+            call.retrieveCall(value);
+            call.reply(value);
+        } else {
+            call.failProcedureUnavailable();
+        }
+    }
+
+    //
+    // Call the echo procedure on a new client and check the reply.
+    //
+    public boolean roundTrip(int port)
+           throws OncRpcException, IOException {
+        OncRpcUdpClient client = new OncRpcUdpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION, port);
+        try {
+            client.setTimeout(5000);
+            byte [] data = new byte[1000];
+            for ( int i = 0; i < data.length; ++i ) {
+                data[i] = (byte) (i * 7);
+            }
+            XdrDynamicOpaque result = new XdrDynamicOpaque();
+            client.call(PROC_ECHO, new XdrDynamicOpaque(data), result);
+            return java.util.Arrays.equals(data, result.dynamicOpaqueValue());
+        } finally {
+            client.close();
+        }
+    }
+
+    //
+    // Send a raw datagram to the server and report whether the server
+    // stays silent, as it must for datagrams it can not make sense of.
+    //
+    public boolean ignored(int port, byte [] raw)
+           throws IOException {
+        DatagramSocket socket = new DatagramSocket();
+        try {
+            socket.setSoTimeout(500);
+            socket.send(new DatagramPacket(raw, raw.length,
+                                           InetAddress.getByName("127.0.0.1"),
+                                           port));
+            byte [] reply = new byte[1024];
+            socket.receive(new DatagramPacket(reply, reply.length));
+            return false;
+        } catch ( SocketTimeoutException e ) {
+            return true;
+        } finally {
+            socket.close();
+        }
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    public void checkTransport(String name, OncRpcServerTransport transport)
+           throws OncRpcException, IOException {
+        transport.listen();
+        int port = transport.getPort();
+        check(name + " round trip", roundTrip(port));
+        //
+        // An empty datagram and a call header cut short after the
+        // transaction id.
+        //
+        check(name + " empty datagram", ignored(port, new byte [0]));
+        check(name + " truncated call header",
+              ignored(port, new byte [] { 0, 0, 0, 1, 0, 0 }));
+        //
+        // A call header followed by an opaque value claiming more data
+        // than the datagram holds.
+        //
+        XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(1024);
+        xdr.beginEncoding(null, 0);
+        new OncRpcClientCallMessage(1, PROGRAM, VERSION, PROC_ECHO,
+                                    OncRpcClientAuthNone.AUTH_NONE)
+            .xdrEncode(xdr);
+        xdr.xdrEncodeInt(0x7FFFFFF0);
+        xdr.endEncoding();
+        byte [] raw = new byte[xdr.getXdrLength()];
+        System.arraycopy(xdr.getXdrData(), 0, raw, 0, raw.length);
+        check(name + " oversized argument", !ignored(port, raw));
+        check(name + " round trip after malformed datagrams", roundTrip(port));
+        transport.close();
+    }
+
+    public UdpDatagramTest()
+           throws OncRpcException, IOException {
+        checkTransport("udp",
+            new OncRpcUdpServerTransport(this, 0, PROGRAM, VERSION, 8192));
+        checkTransport("udp sharded",
+            new OncRpcShardedUdpServerTransport(this, null, 0,
+                new OncRpcServerTransportRegistrationInfo [] {
+                    new OncRpcServerTransportRegistrationInfo(PROGRAM, VERSION)
+                }, 8192, 2));
+    }
+
+    public static void main(String[] args) {
+        System.out.println("UdpDatagramTest");
+        try {
+            new UdpDatagramTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of UdpDatagramTest.java
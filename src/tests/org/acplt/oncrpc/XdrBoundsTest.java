@@ -0,0 +1,181 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+
+package tests.org.acplt.oncrpc;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.Vector;
+
+import org.acplt.oncrpc.*;
+
+/**
+ * Checks that the bounded decoding methods of XDR decoding streams reject
+ * lengths exceeding their declared bound or the data available, before
+ * allocating memory for them.
+ */
+public class XdrBoundsTest {
+
+    //
+    // Encode the given ints and return the encoded data.
+    //
+    public byte [] encode(int [] values)
+           throws OncRpcException, IOException {
+        XdrBufferEncodingStream xdr = new XdrBufferEncodingStream(1024);
+        xdr.beginEncoding(null, 0);
+        for ( int i = 0; i < values.length; ++i ) {
+            xdr.xdrEncodeInt(values[i]);
+        }
+        xdr.endEncoding();
+        byte [] data = new byte[xdr.getXdrLength()];
+        System.arraycopy(xdr.getXdrData(), 0, data, 0, data.length);
+        return data;
+    }
+
+    //
+    // Sockets opened for TCP/IP-based decoding streams.
+    //
+    public Vector sockets = new Vector();
+
+    public XdrDecodingStream decoder(String kind, byte [] data)
+           throws OncRpcException, IOException {
+        XdrDecodingStream xdr;
+        if ( kind.equals("buffer") ) {
+            xdr = new XdrBufferDecodingStream(data, data.length);
+        } else if ( kind.equals("tcp") ) {
+            //
+            // Send the data as a single record over a loopback connection.
+            //
+            ServerSocket serverSocket = new ServerSocket(0, 1,
+                InetAddress.getByName("127.0.0.1"));
+            Socket sender = new Socket(serverSocket.getInetAddress(),
+                                       serverSocket.getLocalPort());
+            Socket receiver = serverSocket.accept();
+            serverSocket.close();
+            sockets.addElement(sender);
+            sockets.addElement(receiver);
+            DataOutputStream out = new DataOutputStream(sender.getOutputStream());
+            out.writeInt(0x80000000 | data.length);
+            out.write(data);
+            out.flush();
+            sender.shutdownOutput();
+            xdr = new XdrTcpDecodingStream(receiver, 1024);
+        } else {
+            xdr = new XdrByteBufferDecodingStream(ByteBuffer.wrap(data));
+        }
+        xdr.beginDecoding();
+        return xdr;
+    }
+
+    //
+    // Report whether decoding failed with a buffer overflow as expected.
+    //
+    public void checkRejected(String test, XdrDecodingStream xdr, int what,
+                              int maximumLength)
+           throws IOException {
+        System.out.print(test + ": ");
+        try {
+            switch ( what ) {
+            case 0:
+                xdr.xdrDecodeString(maximumLength);
+                break;
+            case 1:
+                xdr.xdrDecodeDynamicOpaque(maximumLength);
+                break;
+            case 2:
+                xdr.xdrDecodeIntVector(maximumLength);
+                break;
+            case 4:
+                xdr.xdrDecodeDynamicOpaqueView();
+                break;
+            default:
+                xdr.xdrDecodeLength(maximumLength);
+            }
+            System.out.println("**failed**. Length has been accepted.");
+        } catch ( OncRpcException e ) {
+            if ( e.getReason() == OncRpcException.RPC_BUFFEROVERFLOW ) {
+                System.out.println("passed.");
+            } else {
+                System.out.println("**failed**. " + e.getMessage());
+            }
+        } catch ( OutOfMemoryError e ) {
+            System.out.println("**failed**. Memory allocated before checking.");
+        }
+    }
+
+    public void check(String kind)
+           throws OncRpcException, IOException {
+        //
+        // "hello" within and beyond its bound.
+        //
+        byte [] hello = encode(new int [] { 5, 0x68656C6C, 0x6F000000 });
+        System.out.print(kind + " string within bound: ");
+        if ( "hello".equals(decoder(kind, hello).xdrDecodeString(5)) ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+        checkRejected(kind + " string exceeding bound",
+                      decoder(kind, hello), 0, 4);
+        //
+        // Lengths which are larger than the data available.
+        //
+        byte [] huge = encode(new int [] { 0x7FFFFFF0, 0 });
+        checkRejected(kind + " opaque exceeding data",
+                      decoder(kind, huge), 1, Integer.MAX_VALUE);
+        byte [] vector = encode(new int [] { 1000, 1, 2 });
+        checkRejected(kind + " int vector exceeding data",
+                      decoder(kind, vector), 2, Integer.MAX_VALUE);
+        byte [] negative = encode(new int [] { -1, 0 });
+        checkRejected(kind + " negative length",
+                      decoder(kind, negative), 3, Integer.MAX_VALUE);
+        checkRejected(kind + " opaque view exceeding data",
+                      decoder(kind, huge), 4, Integer.MAX_VALUE);
+        checkRejected(kind + " opaque view with negative length",
+                      decoder(kind, negative), 4, Integer.MAX_VALUE);
+    }
+
+    public XdrBoundsTest()
+           throws OncRpcException, IOException {
+        check("buffer");
+        check("bytebuffer");
+        check("tcp");
+        for ( int idx = 0; idx < sockets.size(); ++idx ) {
+            ((Socket) sockets.elementAt(idx)).close();
+        }
+    }
+
+    public static void main(String[] args) {
+        System.out.println("XdrBoundsTest");
+        try {
+            new XdrBoundsTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of XdrBoundsTest.java
@@ -0,0 +1,320 @@
+/*
+ * $Header$
+ *
+ * Copyright (c) 2026
+ * agent <agent@local>
+ * All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Library General Public License as
+ * published by the Free Software Foundation; either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Library General Public License for more details.
+ *
+ * You should have received a copy of the GNU Library General Public
+ * License along with this program (see the file COPYING.LIB for more
+ * details); if not, write to the Free Software Foundation, Inc.,
+ * 675 Mass Ave, Cambridge, MA 02139, USA.
+ */
+package tests.org.acplt.oncrpc;
+
+import java.io.*;
+import java.net.*;
+import java.util.Arrays;
+
+import org.acplt.oncrpc.*;
+import org.acplt.oncrpc.server.*;
+
+/**
+ * Checks that vectors of ints, longs, floats and doubles encoded and
+ * decoded in bulk are compatible with vectors coded element by element.
+ * The TCP/IP-based streams are checked with small buffers, so that longs
+ * and doubles straddle buffer and fragment boundaries.
+ */
+public class XdrVectorTest implements OncRpcDispatchable {
+
+    public static final int PROGRAM = 0x49679;
+    public static final int VERSION = 1;
+
+    public static final int PROC_ECHO = 1;
+
+    //
+    // Vectors preceeded by a number of ints, which shifts the vectors
+    // against the boundaries of buffers and fragments. Vectors are either
+    // coded in bulk using the vector methods or element by element.
+    //
+    public static class Vectors implements XdrAble {
+        public int prefix;
+        public boolean bulk;
+        public int [] ints;
+        public long [] longs;
+        public float [] floats;
+        public double [] doubles;
+
+        public Vectors(int prefix, boolean bulk) {
+            this.prefix = prefix;
+            this.bulk = bulk;
+        }
+
+        public void fill(int length) {
+            ints = new int[length];
+            longs = new long[length];
+            floats = new float[length];
+            doubles = new double[length];
+            for ( int i = 0; i < length; ++i ) {
+                ints[i] = i * 0x9E3779B9;
+                longs[i] = i * 0x9E3779B97F4A7C15L;
+                floats[i] = i * 1.37f - 500f;
+                doubles[i] = i * Math.PI * 1e10 - 3;
+            }
+        }
+
+        public boolean equals(Vectors other) {
+            return Arrays.equals(ints, other.ints)
+                   && Arrays.equals(longs, other.longs)
+                   && Arrays.equals(floats, other.floats)
+                   && Arrays.equals(doubles, other.doubles);
+        }
+
+        public void xdrEncode(XdrEncodingStream xdr)
+               throws OncRpcException, IOException {
+            xdr.xdrEncodeInt(prefix);
+            for ( int i = 0; i < prefix; ++i ) {
+                xdr.xdrEncodeInt(i);
+            }
+            if ( bulk ) {
+                xdr.xdrEncodeIntVector(ints);
+                xdr.xdrEncodeLongVector(longs);
+                xdr.xdrEncodeFloatVector(floats);
+                xdr.xdrEncodeDoubleVector(doubles);
+                return;
+            }
+            xdr.xdrEncodeInt(ints.length);
+            for ( int i = 0; i < ints.length; ++i ) {
+                xdr.xdrEncodeInt(ints[i]);
+            }
+            xdr.xdrEncodeInt(longs.length);
+            for ( int i = 0; i < longs.length; ++i ) {
+                xdr.xdrEncodeLong(longs[i]);
+            }
+            xdr.xdrEncodeInt(floats.length);
+            for ( int i = 0; i < floats.length; ++i ) {
+                xdr.xdrEncodeFloat(floats[i]);
+            }
+            xdr.xdrEncodeInt(doubles.length);
+            for ( int i = 0; i < doubles.length; ++i ) {
+                xdr.xdrEncodeDouble(doubles[i]);
+            }
+        }
+
+        public void xdrDecode(XdrDecodingStream xdr)
+               throws OncRpcException, IOException {
+            prefix = xdr.xdrDecodeInt();
+            for ( int i = 0; i < prefix; ++i ) {
+                xdr.xdrDecodeInt();
+            }
+            if ( bulk ) {
+                ints = xdr.xdrDecodeIntVector();
+                longs = xdr.xdrDecodeLongVector();
+                floats = xdr.xdrDecodeFloatVector();
+                doubles = xdr.xdrDecodeDoubleVector();
+                return;
+            }
+            ints = new int[xdr.xdrDecodeInt()];
+            for ( int i = 0; i < ints.length; ++i ) {
+                ints[i] = xdr.xdrDecodeInt();
+            }
+            longs = new long[xdr.xdrDecodeInt()];
+            for ( int i = 0; i < longs.length; ++i ) {
+                longs[i] = xdr.xdrDecodeLong();
+            }
+            floats = new float[xdr.xdrDecodeInt()];
+            for ( int i = 0; i < floats.length; ++i ) {
+                floats[i] = xdr.xdrDecodeFloat();
+            }
+            doubles = new double[xdr.xdrDecodeInt()];
+            for ( int i = 0; i < doubles.length; ++i ) {
+                doubles[i] = xdr.xdrDecodeDouble();
+            }
+        }
+    }
+
+    //
+    // Number of elements of each vector. With the vectors spanning several
+    // buffers and the prefix shifting them by four bytes at a time, some
+    // longs and doubles always start in the last four bytes of a buffer.
+    //
+    public static final int LENGTH = 1000;
+
+    //
+    // The echo procedure decodes and encodes the vectors in bulk.
+    //
+    public void dispatchOncRpcCall(OncRpcCallInformation call,
+                                   int program, int version, int procedure)
+           throws OncRpcException, IOException {
+        if ( procedure == PROC_ECHO ) {
+            Vectors value = new Vectors(0, true);
+            call.retrieveCall(value);
+            call.reply(value);
+        } else {
+            call.failProcedureUnavailable();
+        }
+    }
+
+    public void check(String test, boolean passed) {
+        System.out.print(test + ": ");
+        if ( passed ) {
+            System.out.println("passed.");
+        } else {
+            System.out.println("**failed**.");
+        }
+    }
+
+    //
+    // Encode and decode the vectors using XDR streams on byte arrays.
+    //
+    public void checkBuffer()
+           throws OncRpcException, IOException {
+        for ( int mode = 0; mode < 2; ++mode ) {
+            boolean passed = true;
+            for ( int prefix = 0; prefix < 4; ++prefix ) {
+                Vectors sent = new Vectors(prefix, mode == 0);
+                sent.fill(LENGTH);
+                XdrBufferEncodingStream encoder =
+                    new XdrBufferEncodingStream(8 * 4 * LENGTH);
+                encoder.beginEncoding(null, 0);
+                sent.xdrEncode(encoder);
+                encoder.endEncoding();
+                XdrBufferDecodingStream decoder =
+                    new XdrBufferDecodingStream(encoder.getXdrData(),
+                                                encoder.getXdrLength());
+                Vectors received = new Vectors(0, mode != 0);
+                decoder.beginDecoding();
+                received.xdrDecode(decoder);
+                decoder.endDecoding();
+                passed &= sent.equals(received);
+            }
+            check("buffer " + (mode == 0 ? "bulk encoded" : "bulk decoded"),
+                  passed);
+        }
+    }
+
+    //
+    // Send records over a loopback connection, encoding with one buffer
+    // size and decoding with another one.
+    //
+    public void checkTcp(final int encodingBufferSize, int decodingBufferSize)
+           throws OncRpcException, IOException {
+        ServerSocket serverSocket =
+            new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        final Socket sender = new Socket(serverSocket.getInetAddress(),
+                                         serverSocket.getLocalPort());
+        Socket receiver = serverSocket.accept();
+        serverSocket.close();
+        final Exception [] failure = new Exception[1];
+        Thread thread = new Thread() {
+            public void run() {
+                try {
+                    XdrTcpEncodingStream encoder =
+                        new XdrTcpEncodingStream(sender, encodingBufferSize);
+                    for ( int mode = 0; mode < 2; ++mode ) {
+                        for ( int prefix = 0; prefix < 4; ++prefix ) {
+                            Vectors sent = new Vectors(prefix, mode == 0);
+                            sent.fill(LENGTH);
+                            encoder.beginEncoding(null, 0);
+                            sent.xdrEncode(encoder);
+                            encoder.endEncoding();
+                        }
+                    }
+                } catch ( Exception e ) {
+                    failure[0] = e;
+                }
+            }
+        };
+        thread.start();
+        String name = "tcp " + encodingBufferSize + "/" + decodingBufferSize;
+        try {
+            receiver.setSoTimeout(10000);
+            XdrTcpDecodingStream decoder =
+                new XdrTcpDecodingStream(receiver, decodingBufferSize);
+            Vectors expected = new Vectors(0, true);
+            expected.fill(LENGTH);
+            for ( int mode = 0; mode < 2; ++mode ) {
+                boolean passed = true;
+                for ( int prefix = 0; prefix < 4; ++prefix ) {
+                    Vectors received = new Vectors(0, mode != 0);
+                    decoder.beginDecoding();
+                    received.xdrDecode(decoder);
+                    decoder.endDecoding();
+                    passed &= (received.prefix == prefix)
+                              && expected.equals(received);
+                }
+                check(name + (mode == 0 ? " bulk encoded" : " bulk decoded"),
+                      passed);
+            }
+            try {
+                thread.join();
+            } catch ( InterruptedException e ) {
+            }
+            check(name + " sent", failure[0] == null);
+        } finally {
+            sender.close();
+            receiver.close();
+        }
+    }
+
+    //
+    // Let a server transport echo the vectors, which it codes in bulk,
+    // while the client codes them element by element.
+    //
+    public void checkTransport(String name, OncRpcServerTransport transport)
+           throws OncRpcException, IOException {
+        transport.listen();
+        OncRpcTcpClient client = new OncRpcTcpClient(
+            InetAddress.getByName("127.0.0.1"), PROGRAM, VERSION,
+            transport.getPort(), 1024);
+        try {
+            client.setTimeout(10000);
+            boolean passed = true;
+            for ( int prefix = 0; prefix < 4; ++prefix ) {
+                Vectors sent = new Vectors(prefix, false);
+                sent.fill(LENGTH);
+                Vectors received = new Vectors(0, false);
+                client.call(PROC_ECHO, sent, received);
+                passed &= (received.prefix == prefix) && sent.equals(received);
+            }
+            check(name + " echo", passed);
+        } finally {
+            client.close();
+            transport.close();
+        }
+    }
+
+    public XdrVectorTest()
+           throws OncRpcException, IOException {
+        checkBuffer();
+        checkTcp(1024, 1024);
+        checkTcp(4096, 1024);
+        checkTcp(1024, 4096);
+        checkTransport("tcp",
+            new OncRpcTcpServerTransport(this, 0, PROGRAM, VERSION, 1024));
+        checkTransport("nio",
+            new OncRpcNioTcpServerTransport(this, 0, PROGRAM, VERSION, 1024));
+    }
+
+    public static void main(String[] args) {
+        System.out.println("XdrVectorTest");
+        try {
+            new XdrVectorTest();
+        } catch ( Exception e ) {
+           e.printStackTrace(System.out);
+        }
+    }
+
+}
+
+// End of XdrVectorTest.java